@@ -0,0 +1,113 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+import eu.valawai.c0_patient_treatment_ui.messages.FeedbackAcknowledger;
+import eu.valawai.c0_patient_treatment_ui.messages.ModelInvalidationBus;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentFeedbackStream;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentOutboxRelay;
+import eu.valawai.c0_patient_treatment_ui.messages.mov.LogService;
+import eu.valawai.c0_patient_treatment_ui.persistence.ModelCaches;
+import eu.valawai.c0_patient_treatment_ui.persistence.PatientStatusCriteriaCache;
+import jakarta.inject.Inject;
+
+/**
+ * Publish the counters of the components, thus they can be monitored on the
+ * health of the component. The check is always up.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Readiness
+public class ComponentMetricsCheck implements HealthCheck {
+
+	/**
+	 * The name of the check.
+	 */
+	public static final String NAME = "Metrics of C0 patient treatment UI";
+
+	/**
+	 * The component that acknowledges the received feedback.
+	 */
+	@Inject
+	FeedbackAcknowledger acknowledger;
+
+	/**
+	 * The component that publishes the stored treatments.
+	 */
+	@Inject
+	TreatmentOutboxRelay relay;
+
+	/**
+	 * The cache with the identifiers of the stored patient status.
+	 */
+	@Inject
+	PatientStatusCriteriaCache statusCache;
+
+	/**
+	 * The service that ships the log messages.
+	 */
+	@Inject
+	LogService log;
+
+	/**
+	 * The component that streams the stored feedback.
+	 */
+	@Inject
+	TreatmentFeedbackStream stream;
+
+	/**
+	 * The caches of the patients and treatments.
+	 */
+	@Inject
+	ModelCaches caches;
+
+	/**
+	 * The component that invalidates the cached models on the other nodes.
+	 */
+	@Inject
+	ModelInvalidationBus invalidations;
+
+	/**
+	 * Return the counters of the components.
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HealthCheckResponse call() {
+
+		return HealthCheckResponse.named(NAME).up()
+				.withData("feedback.stored", this.acknowledger.stored())
+				.withData("feedback.duplicated", this.acknowledger.duplicated())
+				.withData("feedback.retried", this.acknowledger.retried())
+				.withData("feedback.dead_lettered", this.acknowledger.deadLettered())
+				.withData("outbox.published", this.relay.published())
+				.withData("outbox.failures", this.relay.failures())
+				.withData("outbox.lag", this.relay.lag())
+				.withData("status_cache.size", this.statusCache.size())
+				.withData("status_cache.hits", this.statusCache.hits())
+				.withData("status_cache.misses", this.statusCache.misses())
+				.withData("mov_log.shipped", this.log.shipped())
+				.withData("mov_log.coalesced", this.log.coalesced())
+				.withData("mov_log.dropped", this.log.dropped())
+				.withData("mov_log.sampled_out", this.log.sampledOut())
+				.withData("feedback_stream.delivered", this.stream.delivered())
+				.withData("feedback_stream.coalesced", this.stream.coalesced())
+				.withData("feedback_stream.dropped", this.stream.dropped())
+				.withData("model_cache.patients.hit_rate", String.valueOf(this.caches.patients().hitRate()))
+				.withData("model_cache.treatments.hit_rate", String.valueOf(this.caches.treatments().hitRate()))
+				.withData("invalidations.published", this.invalidations.published())
+				.withData("invalidations.received", this.invalidations.received())
+				.withData("invalidations.flushes", this.invalidations.flushes()).build();
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.api;
+
+import java.util.Date;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.persistence.ModelVersion;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.ResponseBuilder;
+
+/**
+ * Provides the utilities to answer the conditional requests of a model, thus a
+ * client that already has the current version of the model does not receive it
+ * again.
+ *
+ * @see ModelVersion
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public interface ConditionalResponses {
+
+	/**
+	 * Return the response for a request whose client already has the version of
+	 * the model. Only the {@code If-None-Match} header is checked, because the
+	 * modification times have a resolution of seconds.
+	 *
+	 * @param request to check.
+	 * @param version current version of the model.
+	 *
+	 * @return the {@code 304} response if the client has the version, or
+	 *         {@code null} if the model has to be returned.
+	 */
+	public static Response notModified(Request request, ModelVersion version) {
+
+		if (request == null) {
+
+			return null;
+		}
+
+		final var builder = request.evaluatePreconditions(new EntityTag(version.tag));
+		if (builder == null) {
+
+			return null;
+
+		} else {
+
+			return withVersion(builder, version).build();
+		}
+	}
+
+	/**
+	 * Add the version of a model to a response. The response can be stored by the
+	 * clients, but they must revalidate it before using it again, thus they never
+	 * use an old version of the model.
+	 *
+	 * @param builder of the response.
+	 * @param version of the model.
+	 *
+	 * @return the builder with the {@code ETag}, {@code Last-Modified} and
+	 *         {@code Cache-Control} headers.
+	 */
+	public static ResponseBuilder withVersion(ResponseBuilder builder, ModelVersion version) {
+
+		final var cacheControl = new CacheControl();
+		cacheControl.setNoCache(true);
+		return builder.tag(new EntityTag(version.tag))
+				.lastModified(Date.from(TimeManager.fromTime(version.lastModified))).cacheControl(cacheControl);
+	}
+
+}
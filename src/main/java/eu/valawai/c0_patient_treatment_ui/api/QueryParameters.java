@@ -8,6 +8,7 @@
 
 package eu.valawai.c0_patient_treatment_ui.api;
 
+import eu.valawai.c0_patient_treatment_ui.persistence.CountMode;
 import io.quarkus.panache.common.Sort;
 import io.quarkus.panache.common.Sort.Direction;
 
@@ -113,4 +114,29 @@ public interface QueryParameters {
 		}
 	}
 
+	/**
+	 * Return how to calculate the total of a page from a query parameter.
+	 *
+	 * @param query to obtain the count mode.
+	 *
+	 * @return the count mode specified, or {@link CountMode#EXACT} if it is not
+	 *         valid.
+	 */
+	public static CountMode toCountMode(String query) {
+
+		if (query != null) {
+
+			final var name = query.trim().toUpperCase();
+			for (final var mode : CountMode.values()) {
+
+				if (mode.name().equals(name)) {
+
+					return mode;
+				}
+			}
+		}
+
+		return CountMode.EXACT;
+	}
+
 }
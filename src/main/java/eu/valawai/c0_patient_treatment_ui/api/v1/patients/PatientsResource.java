@@ -16,26 +16,39 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.api.ConditionalResponses;
 import eu.valawai.c0_patient_treatment_ui.api.QueryParameters;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentFeedbackChange;
+import eu.valawai.c0_patient_treatment_ui.messages.ModelInvalidationBus;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentFeedbackStream;
+import eu.valawai.c0_patient_treatment_ui.persistence.ModelCaches;
 import eu.valawai.c0_patient_treatment_ui.persistence.PatientEntity;
+import eu.valawai.c0_patient_treatment_ui.persistence.PatientStatusCriteriaCache;
 import eu.valawai.c0_patient_treatment_ui.persistence.PatientStatusCriteriaEntity;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 
@@ -50,32 +63,101 @@ import jakarta.ws.rs.core.Response.Status;
 @Tag(name = "Patient", description = "The services to manage the patients")
 public class PatientsResource {
 
+	/**
+	 * The component that streams the stored feedback.
+	 */
+	@Inject
+	protected TreatmentFeedbackStream stream;
+
+	/**
+	 * The component to invalidate the cached models on the other nodes.
+	 */
+	@Inject
+	protected ModelInvalidationBus invalidations;
+
+	/**
+	 * The cache with the identifiers of the stored patient status.
+	 */
+	@Inject
+	protected PatientStatusCriteriaCache statusCache;
+
+	/**
+	 * The caches of the patients and treatments.
+	 */
+	@Inject
+	protected ModelCaches caches;
+
 	/**
 	 * Return the information of a patient.
 	 *
-	 * @param id identifier of the patient to get.
+	 * @param id      identifier of the patient to get.
+	 * @param request to check if the client already has the current version of
+	 *                the patient.
 	 *
-	 * @return the information of a patient.
+	 * @return the information of a patient, or not modified if the client already
+	 *         has it.
 	 */
 	@GET
 	@Path("/{id:\\d+}")
 	@Operation(description = "Get a patient information.")
 	@APIResponse(responseCode = "200", description = "The patient associated to the identifier.", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Patient.class)))
+	@APIResponse(responseCode = "304", description = "If the client already has the current version of the patient")
 	@APIResponse(responseCode = "400", description = "If it does not found a patient with the specified identifier")
 	public Uni<Response> retrievePatient(
-			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the patient to retrieve") long id) {
+			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the patient to retrieve") long id,
+			@Context Request request) {
 
-		return PatientEntity.retrievePatient(id).map(patient -> Response.ok(patient).build()).onFailure()
-				.recoverWithItem(error -> {
+		return PatientEntity.retrievePatient(id, this.caches).map(patient -> {
 
-					Log.errorv(error, "Cannot found a patient with the id {0}.", id);
-					return Response.status(Status.NOT_FOUND)
-							.entity("Not found a patient with the identifier %d".formatted(id)).build();
+			final var notModified = ConditionalResponses.notModified(request, patient.version);
+			if (notModified != null) {
 
-				});
+				return notModified;
+
+			} else {
+
+				return ConditionalResponses.withVersion(Response.ok(patient.model), patient.version).build();
+			}
+
+		}).onFailure().recoverWithItem(error -> {
+
+			Log.errorv(error, "Cannot found a patient with the id {0}.", id);
+			return Response.status(Status.NOT_FOUND)
+					.entity("Not found a patient with the identifier %d".formatted(id)).build();
+
+		});
 
 	}
 
+	/**
+	 * Return the feedback that is stored for the treatments of a patient while the
+	 * client is connected. The changes are coalesced by treatment during a short
+	 * interval, and the changes that the client cannot read are dropped. It fails
+	 * with a not found response if the patient is not defined.
+	 *
+	 * @param id identifier of the patient to follow.
+	 *
+	 * @return the changes of the feedback of the treatments of the patient.
+	 */
+	@GET
+	@Path("/{id:\\d+}/treatments/feedback/stream")
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	@RestStreamElementType(MediaType.APPLICATION_JSON)
+	@Operation(description = "Stream the feedback that is received for the treatments of a patient.")
+	@APIResponse(responseCode = "200", description = "The changes of the feedback of the treatments of the patient.", content = @Content(mediaType = MediaType.SERVER_SENT_EVENTS, schema = @Schema(implementation = TreatmentFeedbackChange.class)))
+	@APIResponse(responseCode = "404", description = "If it does not found a patient with the specified identifier")
+	public Multi<TreatmentFeedbackChange> streamTreatmentsFeedback(
+			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the patient to follow") long id) {
+
+		final Uni<PatientEntity> patient = Panache.withSession(() -> PatientEntity.retrieve(id));
+		return Multi.createFrom().uni(patient).onFailure().transform(error -> {
+
+			Log.errorv(error, "Cannot found a patient with the id {0}.", id);
+			return new NotFoundException("Not found a patient with the identifier %d".formatted(id));
+
+		}).onItem().transformToMultiAndConcatenate(any -> this.stream.ofPatient(id));
+	}
+
 	/**
 	 * Delete a patient.
 	 *
@@ -91,7 +173,9 @@ public class PatientsResource {
 	public Uni<Response> deletePatient(
 			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the patient to delete") long id) {
 
-		return PatientEntity.delete(id).map(deleted -> Response.noContent().build()).onFailure()
+		return PatientEntity.delete(id).invoke(() -> this.invalidations.patientChanged(id))
+				.map(deleted -> Response.noContent().build())
+				.onFailure(IllegalArgumentException.class)
 				.recoverWithItem(error -> {
 
 					Log.errorv(error, "Cannot delete the patient {0}.", id);
@@ -114,15 +198,16 @@ public class PatientsResource {
 	public Uni<Response> createPatient(
 			@RequestBody(description = "The patient to create", required = true, content = @Content(schema = @Schema(implementation = Patient.class))) @Valid final Patient model) {
 
-		final Uni<PatientEntity> store = PatientStatusCriteriaEntity.retrieveOrPersist(model.status).chain(status -> {
+		final Uni<PatientEntity> store = PatientStatusCriteriaEntity.retrieveOrPersist(model.status, this.statusCache)
+				.chain(status -> {
 
-			final var entity = new PatientEntity();
-			entity.updateTime = TimeManager.now();
-			entity.name = model.name;
-			entity.status = status;
-			return entity.persistAndFlush();
+					final var entity = new PatientEntity();
+					entity.updateTime = TimeManager.now();
+					entity.name = model.name;
+					entity.status = status;
+					return entity.persistAndFlush();
 
-		});
+				});
 		return store.map(stored -> {
 
 			model.id = stored.id;
@@ -162,7 +247,7 @@ public class PatientsResource {
 
 		} else {
 
-			definedStatus = PatientStatusCriteriaEntity.retrieveOrPersist(model.status);
+			definedStatus = PatientStatusCriteriaEntity.retrieveOrPersist(model.status, this.statusCache);
 		}
 		return definedStatus.chain(status -> {
 
@@ -170,7 +255,12 @@ public class PatientsResource {
 			entity.id = id;
 			entity.name = model.name;
 			entity.status = status;
-			return entity.update().chain(empty -> this.retrievePatient(id));
+			return entity.updateAndGet().map(patient -> {
+
+				this.invalidations.patientChanged(id);
+				return ConditionalResponses.withVersion(Response.ok(patient), entity.version()).build();
+
+			});
 
 		}).onFailure().recoverWithItem(error -> {
 
@@ -186,24 +276,49 @@ public class PatientsResource {
 	 * Return the information of some patients.
 	 *
 	 * @param name   of the patients to return.
-	 * @param offset the index of the first patient to retrieve.
+	 * @param offset the index of the first patient to retrieve. If it is not
+	 *               defined the page is obtained by the cursor.
 	 * @param limit  the number maximum of patients to retrieve.
 	 * @param order  the order to return the patients.
+	 * @param after  the cursor of the last patient of the previous page. If it is
+	 *               defined the page is obtained by the cursor instead of the
+	 *               offset, and an empty or undefined value returns the first
+	 *               page.
+	 * @param count  how to calculate the total of patients. It can be
+	 *               {@code exact}, {@code estimate} or {@code none}.
 	 *
 	 * @return the page with the patients.
 	 */
 	@GET
 	@Operation(description = "Get a patient information.")
 	@APIResponse(responseCode = "200", description = "The patients that satisfy the query.", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = MinPatientPage.class)))
+	@APIResponse(responseCode = "400", description = "If the cursor or the order is not valid")
 	public Uni<Response> retrievePatientPage(
 			@QueryParam("name") @DefaultValue("*") @Parameter(in = ParameterIn.QUERY, description = "The pattern to match  of the patient to retrieve") String name,
-			@QueryParam("offset") @DefaultValue("0") @Parameter(in = ParameterIn.QUERY, description = "The index of the first patient to retrieve") @Min(0) int offset,
+			@QueryParam("offset") @Parameter(in = ParameterIn.QUERY, description = "The index of the first patient to retrieve. If it is not defined the patients are obtained by the cursor.") @Min(0) Integer offset,
 			@QueryParam("limit") @DefaultValue("10") @Parameter(in = ParameterIn.QUERY, description = "The number maximum of patients to retrieve") @Min(1) int limit,
-			@QueryParam("order") @DefaultValue("") @Parameter(in = ParameterIn.QUERY, description = "The order to return the patients. You can define the fields name or id with the prefix + to ascending order and - to descending order.") String order) {
+			@QueryParam("order") @DefaultValue("") @Parameter(in = ParameterIn.QUERY, description = "The order to return the patients. You can define the fields name or id with the prefix + to ascending order and - to descending order.") String order,
+			@QueryParam("after") @Parameter(in = ParameterIn.QUERY, description = "The cursor returned on the previous page to obtain the next patients. Use an empty value, or do not define it nor the offset, to obtain the first page. When it is defined the offset is ignored and the total is not calculated.") String after,
+			@QueryParam("count") @DefaultValue("exact") @Parameter(in = ParameterIn.QUERY, description = "How to calculate the total of patients. It can be exact, estimate to use the number of patients that the database estimates, or none to not calculate it. The total without name filter is always exact.") String count) {
 
 		final var pattern = QueryParameters.toPattern(name);
 		final var sort = QueryParameters.toSort(order);
-		return PatientEntity.getMinPatientPageFor(pattern, sort, offset, limit).map(page -> Response.ok(page).build());
+		if (after != null || offset == null) {
+
+			return PatientEntity.getMinPatientPageAfter(pattern, sort, after, limit)
+					.map(page -> Response.ok(page).build()).onFailure(IllegalArgumentException.class)
+					.recoverWithItem(error -> {
+
+						Log.errorv(error, "Bad cursor {0} or order {1} to obtain the patients.", after, order);
+						return Response.status(Status.BAD_REQUEST).entity(error.getMessage()).build();
+					});
+
+		} else {
+
+			final var countMode = QueryParameters.toCountMode(count);
+			return PatientEntity.getMinPatientPageFor(pattern, countMode, sort, offset, limit)
+					.map(page -> Response.ok(page).build());
+		}
 
 	}
 
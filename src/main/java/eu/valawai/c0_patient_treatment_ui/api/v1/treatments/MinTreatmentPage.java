@@ -31,9 +31,18 @@ public class MinTreatmentPage extends ReflectionModel {
 	public List<MinTreatment> treatments;
 
 	/**
-	 * The number of treatments that satisfy the query.
+	 * The number of treatments that satisfy the query. It is not calculated when the
+	 * page is obtained with a cursor or the count is {@code none}, and it may be
+	 * approximated when the count is {@code estimate}.
 	 */
-	@Schema(title = "The number of treatments that satisfy the query.")
+	@Schema(title = "The number of treatments that satisfy the query. It is not calculated when the page is obtained with a cursor or the count is none, and it may be approximated when the count is estimate.")
 	public int total;
 
+	/**
+	 * The cursor to obtain the next page, or {@code null} if there are not more
+	 * treatments or the page has been obtained with an offset.
+	 */
+	@Schema(title = "The cursor to obtain the next page. It is only defined if the page is obtained with a cursor and there are more treatments.")
+	public String next;
+
 }
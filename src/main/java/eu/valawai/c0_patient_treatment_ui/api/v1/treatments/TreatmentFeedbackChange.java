@@ -0,0 +1,51 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.api.v1.treatments;
+
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import eu.valawai.c0_patient_treatment_ui.models.ReflectionModel;
+
+/**
+ * The feedback that has changed on a treatment since the last change that has
+ * been sent.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "The feedback that has changed on a treatment.")
+public class TreatmentFeedbackChange extends ReflectionModel {
+
+	/**
+	 * The identifier of the treatment that has changed.
+	 */
+	@Schema(title = "The identifier of the treatment that has changed.")
+	public long treatmentId;
+
+	/**
+	 * The identifier of the patient of the treatment, or {@code null} if it is not
+	 * known.
+	 */
+	@Schema(title = "The identifier of the patient of the treatment.")
+	public Long patientId;
+
+	/**
+	 * The actions whose feedback has changed.
+	 */
+	@Schema(title = "The actions whose feedback has changed.")
+	public List<TreatmentActionWithFeedback> actions;
+
+	/**
+	 * The values whose alignment has changed.
+	 */
+	@Schema(title = "The values whose alignment has changed.")
+	public List<TreatmentValue> values;
+
+}
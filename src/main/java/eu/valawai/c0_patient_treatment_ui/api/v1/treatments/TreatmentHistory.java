@@ -0,0 +1,45 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.api.v1.treatments;
+
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import eu.valawai.c0_patient_treatment_ui.models.ReflectionModel;
+
+/**
+ * All the feedback that has been received for a treatment.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "All the feedback that has been received for a treatment.")
+public class TreatmentHistory extends ReflectionModel {
+
+	/**
+	 * The identifier of the treatment.
+	 */
+	@Schema(title = "The identifier of the patient treatment.", readOnly = true)
+	public Long id;
+
+	/**
+	 * The feedback received for the treatment actions, ordered from the oldest to
+	 * the newest.
+	 */
+	@Schema(title = "The feedback received for the treatment actions, ordered from the oldest to the newest.")
+	public List<TreatmentActionWithFeedback> actions;
+
+	/**
+	 * The alignments received for the treatment values, ordered from the oldest
+	 * to the newest.
+	 */
+	@Schema(title = "The alignments received for the treatment values, ordered from the oldest to the newest.")
+	public List<TreatmentValue> values;
+
+}
@@ -16,14 +16,23 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.api.ConditionalResponses;
 import eu.valawai.c0_patient_treatment_ui.api.QueryParameters;
-import eu.valawai.c0_patient_treatment_ui.messages.TreatmentService;
+import eu.valawai.c0_patient_treatment_ui.messages.ModelInvalidationBus;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentFeedbackStream;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentOutboxRelay;
+import eu.valawai.c0_patient_treatment_ui.persistence.ModelCaches;
+import eu.valawai.c0_patient_treatment_ui.persistence.OutboxEntity;
 import eu.valawai.c0_patient_treatment_ui.persistence.PatientEntity;
+import eu.valawai.c0_patient_treatment_ui.persistence.PatientStatusCriteriaCache;
 import eu.valawai.c0_patient_treatment_ui.persistence.PatientStatusCriteriaEntity;
 import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentEntity;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
@@ -32,12 +41,15 @@ import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 
@@ -53,27 +65,92 @@ import jakarta.ws.rs.core.Response.Status;
 public class TreatmentsResource {
 
 	/**
-	 * The service to publish treatments.
+	 * The component that publishes the stored treatments.
 	 */
 	@Inject
-	protected TreatmentService service;
+	protected TreatmentOutboxRelay relay;
+
+	/**
+	 * The component that streams the stored feedback.
+	 */
+	@Inject
+	protected TreatmentFeedbackStream stream;
+
+	/**
+	 * The component to invalidate the cached models on the other nodes.
+	 */
+	@Inject
+	protected ModelInvalidationBus invalidations;
+
+	/**
+	 * The cache with the identifiers of the stored patient status.
+	 */
+	@Inject
+	protected PatientStatusCriteriaCache statusCache;
+
+	/**
+	 * The caches of the patients and treatments.
+	 */
+	@Inject
+	protected ModelCaches caches;
 
 	/**
 	 * Return the information of a treatment.
 	 *
-	 * @param id identifier of the treatment to get.
+	 * @param id      identifier of the treatment to get.
+	 * @param request to check if the client already has the current version of
+	 *                the treatment.
 	 *
-	 * @return the information of a treatment.
+	 * @return the information of a treatment, or not modified if the client already
+	 *         has it.
 	 */
 	@GET
 	@Path("/{id:\\d+}")
 	@Operation(description = "Get a treatment information.")
 	@APIResponse(responseCode = "200", description = "The treatment associated to the identifier.", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Treatment.class)))
+	@APIResponse(responseCode = "304", description = "If the client already has the current version of the treatment")
 	@APIResponse(responseCode = "400", description = "If it does not found a treatment with the specified identifier")
 	public Uni<Response> retrieveTreatment(
-			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the treatment to retrieve") long id) {
+			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the treatment to retrieve") long id,
+			@Context Request request) {
+
+		return TreatmentEntity.retrieveTreatment(id, this.caches).map(treatment -> {
+
+			final var notModified = ConditionalResponses.notModified(request, treatment.version);
+			if (notModified != null) {
+
+				return notModified;
+
+			} else {
+
+				return ConditionalResponses.withVersion(Response.ok(treatment.model), treatment.version).build();
+			}
+
+		}).onFailure().recoverWithItem(error -> {
+
+			Log.errorv(error, "Cannot found a treatment with the id {0}.", id);
+			return Response.status(Status.NOT_FOUND)
+					.entity("Not found a treatment with the identifier %d".formatted(id)).build();
 
-		return TreatmentEntity.retrieveTreatment(id).map(treatment -> Response.ok(treatment).build()).onFailure()
+		});
+	}
+
+	/**
+	 * Return all the feedback received for a treatment.
+	 *
+	 * @param id identifier of the treatment to get its history.
+	 *
+	 * @return the feedback history of a treatment.
+	 */
+	@GET
+	@Path("/{id:\\d+}/history")
+	@Operation(description = "Get all the feedback received for a treatment.")
+	@APIResponse(responseCode = "200", description = "The feedback history of the treatment associated to the identifier.", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = TreatmentHistory.class)))
+	@APIResponse(responseCode = "400", description = "If it does not found a treatment with the specified identifier")
+	public Uni<Response> retrieveTreatmentHistory(
+			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the treatment to retrieve its history") long id) {
+
+		return TreatmentEntity.retrieveTreatmentHistory(id).map(history -> Response.ok(history).build()).onFailure()
 				.recoverWithItem(error -> {
 
 					Log.errorv(error, "Cannot found a treatment with the id {0}.", id);
@@ -83,6 +160,35 @@ public class TreatmentsResource {
 				});
 	}
 
+	/**
+	 * Return the feedback that is stored for a treatment while the client is
+	 * connected. The changes are coalesced during a short interval, and the
+	 * changes that the client cannot read are dropped. It fails with a not found
+	 * response if the treatment is not defined.
+	 *
+	 * @param id identifier of the treatment to follow.
+	 *
+	 * @return the changes of the feedback of the treatment.
+	 */
+	@GET
+	@Path("/{id:\\d+}/feedback/stream")
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	@RestStreamElementType(MediaType.APPLICATION_JSON)
+	@Operation(description = "Stream the feedback that is received for a treatment.")
+	@APIResponse(responseCode = "200", description = "The changes of the feedback of the treatment.", content = @Content(mediaType = MediaType.SERVER_SENT_EVENTS, schema = @Schema(implementation = TreatmentFeedbackChange.class)))
+	@APIResponse(responseCode = "404", description = "If it does not found a treatment with the specified identifier")
+	public Multi<TreatmentFeedbackChange> streamTreatmentFeedback(
+			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the treatment to follow") long id) {
+
+		final Uni<TreatmentEntity> treatment = Panache.withSession(() -> TreatmentEntity.retrieveReference(id));
+		return Multi.createFrom().uni(treatment).onFailure().transform(error -> {
+
+			Log.errorv(error, "Cannot found a treatment with the id {0}.", id);
+			return new NotFoundException("Not found a treatment with the identifier %d".formatted(id));
+
+		}).onItem().transformToMultiAndConcatenate(any -> this.stream.ofTreatment(id));
+	}
+
 	/**
 	 * Delete a treatment.
 	 *
@@ -98,7 +204,9 @@ public class TreatmentsResource {
 	public Uni<Response> deleteTreatment(
 			@PathParam("id") @Parameter(in = ParameterIn.PATH, description = "The identifier of the treatment to delete") long id) {
 
-		return TreatmentEntity.delete(id).map(deleted -> Response.noContent().build()).onFailure()
+		return TreatmentEntity.delete(id).invoke(() -> this.invalidations.treatmentChanged(id))
+				.map(deleted -> Response.noContent().build())
+				.onFailure(IllegalArgumentException.class)
 				.recoverWithItem(error -> {
 
 					Log.errorv(error, "Cannot delete the treatment {0}.", id);
@@ -121,7 +229,7 @@ public class TreatmentsResource {
 	public Uni<Response> createTreatment(
 			@RequestBody(description = "The treatment to create", required = true, content = @Content(schema = @Schema(implementation = TreatmentToAdd.class))) @Valid final TreatmentToAdd model) {
 
-		return PatientEntity.retrieve(model.patientId).map(patient -> {
+		return Panache.withTransaction(() -> PatientEntity.retrieve(model.patientId).map(patient -> {
 
 			final var entity = new TreatmentEntity();
 			entity.createdTime = TimeManager.now();
@@ -131,7 +239,7 @@ public class TreatmentsResource {
 
 		}).chain(entity -> {
 
-			return PatientStatusCriteriaEntity.retrieveOrPersist(model.beforeStatus).map(before -> {
+			return PatientStatusCriteriaEntity.retrieveOrPersist(model.beforeStatus, this.statusCache).map(before -> {
 
 				entity.beforeStatus = before;
 				return entity;
@@ -139,7 +247,7 @@ public class TreatmentsResource {
 
 		}).chain(entity -> {
 
-			return PatientStatusCriteriaEntity.retrieveOrPersist(model.expectedStatus).map(expected -> {
+			return PatientStatusCriteriaEntity.retrieveOrPersist(model.expectedStatus, this.statusCache).map(expected -> {
 
 				entity.expectedStatus = expected;
 				return entity;
@@ -148,14 +256,13 @@ public class TreatmentsResource {
 		}).chain(entity -> {
 
 			final Uni<TreatmentEntity> persist = entity.persistAndFlush();
-			return persist.map(stored -> {
+			return persist.call(stored -> OutboxEntity.add(stored.toTreatmentPayload()));
 
-				final var treatment = stored.toTreatment();
-				final var payload = stored.toTreatmentPayload();
-				this.service.send(payload);
-				return Response.status(Status.CREATED).entity(treatment).build();
+		})).map(stored -> {
 
-			});
+			this.relay.wakeUp();
+			final var treatment = stored.toTreatment();
+			return Response.status(Status.CREATED).entity(treatment).build();
 
 		}).onFailure().recoverWithItem(error -> {
 
@@ -173,32 +280,63 @@ public class TreatmentsResource {
 	 *                    return. If it {@code null} it will be ignored.
 	 * @param patientId   identifier of the patient in the treatments to return. If
 	 *                    it {@code null} it will be ignored.
-	 * @param offset      the index of the first treatment to retrieve.
+	 * @param offset      the index of the first treatment to retrieve. If it is
+	 *                    not defined the page is obtained by the cursor.
 	 * @param limit       the number maximum of treatments to retrieve.
 	 * @param order       the order to return the treatments.
+	 * @param after       the cursor of the last treatment of the previous page. If
+	 *                    it is defined the page is obtained by the cursor instead
+	 *                    of the offset, and an empty or undefined value returns
+	 *                    the first page.
+	 * @param count       how to calculate the total of treatments. It can be
+	 *                    {@code exact}, {@code estimate} or {@code none}.
 	 *
 	 * @return the page with the treatments.
 	 */
 	@GET
 	@Operation(description = "Get some treatment information.")
 	@APIResponse(responseCode = "200", description = "The treatments that satisfy the query.", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = MinTreatmentPage.class)))
+	@APIResponse(responseCode = "400", description = "If the cursor or the order is not valid")
 	public Uni<Response> retrieveTreatmentPage(
 			@QueryParam("patientName") @Parameter(in = ParameterIn.QUERY, description = "The pattern to match of the patient name in the treatment to retrieve") String patientName,
 			@QueryParam("patientId") @Parameter(in = ParameterIn.QUERY, description = "The identifier of the patient in the treatment to retrieve") Long patientId,
-			@QueryParam("offset") @DefaultValue("0") @Parameter(in = ParameterIn.QUERY, description = "The index of the first treatment to retrieve") @Min(0) int offset,
+			@QueryParam("offset") @Parameter(in = ParameterIn.QUERY, description = "The index of the first treatment to retrieve. If it is not defined the treatments are obtained by the cursor.") @Min(0) Integer offset,
 			@QueryParam("limit") @DefaultValue("10") @Parameter(in = ParameterIn.QUERY, description = "The number maximum of treatments to retrieve") @Min(1) int limit,
-			@QueryParam("order") @DefaultValue("patient.name,id") @Parameter(in = ParameterIn.QUERY, description = "The order to return the treatments. You can define the fields name or id with the prefix + to ascending order and - to descending order.") String order) {
+			@QueryParam("order") @DefaultValue("patient.name,id") @Parameter(in = ParameterIn.QUERY, description = "The order to return the treatments. You can define the fields name or id with the prefix + to ascending order and - to descending order.") String order,
+			@QueryParam("after") @Parameter(in = ParameterIn.QUERY, description = "The cursor returned on the previous page to obtain the next treatments. Use an empty value, or do not define it nor the offset, to obtain the first page. When it is defined the offset is ignored and the total is not calculated.") String after,
+			@QueryParam("count") @DefaultValue("exact") @Parameter(in = ParameterIn.QUERY, description = "How to calculate the total of treatments. It can be exact, estimate to use the number of treatments that the database estimates, or none to not calculate it. The total without patient name filter or for a patient is always exact.") String count) {
 
 		final var sort = QueryParameters.toSort(order);
-		if (patientId != null) {
+		if (after != null || offset == null) {
+
+			Uni<MinTreatmentPage> find = null;
+			if (patientId != null) {
+
+				find = TreatmentEntity.getMinTreatmentPageForPatientAfter(patientId, sort, after, limit);
+
+			} else {
+
+				final var pattern = QueryParameters.toPattern(patientName);
+				find = TreatmentEntity.getMinTreatmentPageForPatientNameAfter(pattern, sort, after, limit);
+			}
+			return find.map(page -> Response.ok(page).build()).onFailure(IllegalArgumentException.class)
+					.recoverWithItem(error -> {
+
+						Log.errorv(error, "Bad cursor {0} or order {1} to obtain the treatments.", after, order);
+						return Response.status(Status.BAD_REQUEST).entity(error.getMessage()).build();
+					});
+
+		} else if (patientId != null) {
 
-			return TreatmentEntity.getMinTreatmentPageForPatient(patientId, sort, offset, limit)
+			final var countMode = QueryParameters.toCountMode(count);
+			return TreatmentEntity.getMinTreatmentPageForPatient(patientId, countMode, sort, offset, limit)
 					.map(page -> Response.ok(page).build());
 
 		} else {
 
 			final var pattern = QueryParameters.toPattern(patientName);
-			return TreatmentEntity.getMinTreatmentPageForPatientName(pattern, sort, offset, limit)
+			final var countMode = QueryParameters.toCountMode(count);
+			return TreatmentEntity.getMinTreatmentPageForPatientName(pattern, countMode, sort, offset, limit)
 					.map(page -> Response.ok(page).build());
 		}
 
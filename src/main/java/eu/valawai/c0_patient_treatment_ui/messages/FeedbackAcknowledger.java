@@ -0,0 +1,524 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.ChannelRegistry;
+import io.smallrye.reactive.messaging.MutinyEmitter;
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
+import io.smallrye.reactive.messaging.rabbitmq.OutgoingRabbitMQMetadata;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.rabbitmq.RabbitMQClient;
+import io.vertx.rabbitmq.RabbitMQOptions;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.validation.ValidationException;
+
+/**
+ * The component that acknowledges the received feedback messages. When a
+ * feedback cannot be stored, the error is classified as permanent or transient.
+ * The messages with a permanent error, or that have been retried too many
+ * times, are moved to a dead-letter queue with the reason of the failure. The
+ * messages with a transient error are moved to a retry queue, where they wait
+ * an exponential delay before the broker returns them to the feedback queue.
+ * <p>
+ * There is a retry queue for each delay, whose messages expire after this
+ * delay, thus a message never waits behind another with a longer delay. The
+ * feedback channels are paused until the retry and dead-letter queues are
+ * declared, and these queues are declared again before a message is moved to
+ * them, thus a failed message is never published to a queue that does not
+ * exist. The moved messages keep the time when they have been received for the
+ * first time, thus a retried feedback is not considered newer than the
+ * feedback that have been received meanwhile.
+ *
+ * @see TreatmentActionFeedbackManager
+ * @see TreatmentValueFeedbackManager
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ApplicationScoped
+public class FeedbackAcknowledger {
+
+	/**
+	 * The header with the number of times that a message has been retried.
+	 */
+	public static final String RETRIES_HEADER = "x-retries";
+
+	/**
+	 * The header with the reason why a message has failed.
+	 */
+	public static final String FAILURE_REASON_HEADER = "x-failure-reason";
+
+	/**
+	 * The header with the type of error why a message has failed.
+	 */
+	public static final String FAILURE_TYPE_HEADER = "x-failure-type";
+
+	/**
+	 * The header with the epoch time, in seconds, when a message has been received
+	 * for the first time.
+	 */
+	public static final String RECEIVED_TIME_HEADER = "x-received-time";
+
+	/**
+	 * The suffix of the queue where the messages wait before they are retried.
+	 */
+	public static final String RETRY_QUEUE_SUFFIX = "/retry";
+
+	/**
+	 * The suffix of the queue where the messages that cannot be processed are
+	 * moved.
+	 */
+	public static final String DEAD_LETTER_QUEUE_SUFFIX = "/dead_letter";
+
+	/**
+	 * The channels that receive the feedback messages.
+	 */
+	private static final List<String> FEEDBACK_CHANNELS = List.of("received_treatment_action_feedback",
+			"received_treatment_value_feedback");
+
+	/**
+	 * The component to move the failed messages to the retry or dead-letter
+	 * queues.
+	 */
+	@Channel("send_feedback_failure")
+	@Inject
+	MutinyEmitter<byte[]> failures;
+
+	/**
+	 * The vertx instance used to declare the queues.
+	 */
+	@Inject
+	Vertx vertx;
+
+	/**
+	 * The registry with the channels to resume when the queues are declared.
+	 */
+	@Inject
+	ChannelRegistry channels;
+
+	/**
+	 * The queue with the action feedback.
+	 */
+	@ConfigProperty(name = "mp.messaging.incoming.received_treatment_action_feedback.queue.name")
+	String actionFeedbackQueue;
+
+	/**
+	 * The queue with the value feedback.
+	 */
+	@ConfigProperty(name = "mp.messaging.incoming.received_treatment_value_feedback.queue.name")
+	String valueFeedbackQueue;
+
+	/**
+	 * The host of the broker.
+	 */
+	@ConfigProperty(name = "rabbitmq-host", defaultValue = "localhost")
+	String host;
+
+	/**
+	 * The port of the broker.
+	 */
+	@ConfigProperty(name = "rabbitmq-port", defaultValue = "5672")
+	int port;
+
+	/**
+	 * The user to connect to the broker.
+	 */
+	@ConfigProperty(name = "rabbitmq-username", defaultValue = "guest")
+	String username;
+
+	/**
+	 * The password to connect to the broker.
+	 */
+	@ConfigProperty(name = "rabbitmq-password", defaultValue = "guest")
+	String password;
+
+	/**
+	 * The maximum number of times to retry a message with a transient error.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_retry.max_attempts", defaultValue = "5")
+	int maxAttempts;
+
+	/**
+	 * The milliseconds to wait before the first retry.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_retry.delay", defaultValue = "1000")
+	long delay;
+
+	/**
+	 * The maximum milliseconds to wait before a retry.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_retry.max_delay", defaultValue = "60000")
+	long maxDelay;
+
+	/**
+	 * The number of messages whose feedback has been stored.
+	 */
+	protected final LongAdder stored = new LongAdder();
+
+	/**
+	 * The number of duplicated messages.
+	 */
+	protected final LongAdder duplicated = new LongAdder();
+
+	/**
+	 * The number of messages that have been moved to the retry queues.
+	 */
+	protected final LongAdder retried = new LongAdder();
+
+	/**
+	 * The number of messages that have been moved to the dead-letter queues.
+	 */
+	protected final LongAdder deadLettered = new LongAdder();
+
+	/**
+	 * The client used to declare the queues.
+	 */
+	protected RabbitMQClient client;
+
+	/**
+	 * Declare the retry and dead-letter queues of the feedback queues when the
+	 * application is started, and resume the feedback channels when they are
+	 * declared. The declaration is retried until it succeeds, thus the start is
+	 * not delayed if the broker is not available, but the feedback are not
+	 * received until the queues exist.
+	 *
+	 * @param event that contains the start status.
+	 */
+	public void declareQueues(@Observes StartupEvent event) {
+
+		final var options = new RabbitMQOptions().setHost(this.host).setPort(this.port).setUser(this.username)
+				.setPassword(this.password).setAutomaticRecoveryEnabled(true);
+		this.client = RabbitMQClient.create(this.vertx, options);
+		final var retryDelay = Duration.ofMillis(Math.max(1, this.delay));
+		final var maxRetryDelay = Duration.ofMillis(Math.max(retryDelay.toMillis(), this.maxDelay));
+		this.connect().chain(() -> this.declareQueues(this.actionFeedbackQueue))
+				.chain(() -> this.declareQueues(this.valueFeedbackQueue)).onFailure()
+				.invoke(error -> Log.errorv(
+						"Cannot declare the retry and dead-letter feedback queues, because {0}. It will be retried.",
+						error.getMessage()))
+				.onFailure().retry().withBackOff(retryDelay, maxRetryDelay).indefinitely().subscribe()
+				.with(any -> this.resumeFeedbackChannels(),
+						error -> Log.errorv(error, "Cannot declare the retry and dead-letter feedback queues."));
+	}
+
+	/**
+	 * Close the client used to declare the queues when the application is
+	 * stopped.
+	 *
+	 * @param event that contains the stop status.
+	 */
+	public void closeClient(@Observes ShutdownEvent event) {
+
+		if (this.client != null) {
+
+			try {
+
+				this.client.stop().await().atMost(Duration.ofSeconds(10));
+
+			} catch (final Throwable error) {
+
+				Log.debugv(error, "Cannot close the client used to declare the feedback queues.");
+			}
+		}
+	}
+
+	/**
+	 * Connect the client used to declare the queues if it is not connected.
+	 *
+	 * @return nothing when the client is connected.
+	 */
+	protected Uni<Void> connect() {
+
+		if (this.client.isConnected()) {
+
+			return Uni.createFrom().voidItem();
+
+		} else {
+
+			return this.client.start();
+		}
+	}
+
+	/**
+	 * Resume the feedback channels that are paused until the queues are declared.
+	 */
+	protected void resumeFeedbackChannels() {
+
+		for (final var channel : FEEDBACK_CHANNELS) {
+
+			final var pausable = this.channels.getPausable(channel);
+			if (pausable != null) {
+
+				pausable.resume();
+			}
+		}
+		Log.debug("Declared the retry and dead-letter feedback queues.");
+	}
+
+	/**
+	 * Return the milliseconds that a message waits before it is retried.
+	 *
+	 * @param retries number of times that the message has been retried.
+	 *
+	 * @return the milliseconds to wait before the next retry.
+	 */
+	protected long delayOf(int retries) {
+
+		return Math.min(this.delay << Math.min(retries, 30), this.maxDelay);
+	}
+
+	/**
+	 * Return the name of the queue where the messages wait before they are
+	 * retried.
+	 *
+	 * @param queue where the messages are received.
+	 * @param wait  milliseconds that the messages wait on the queue.
+	 *
+	 * @return the name of the retry queue.
+	 */
+	public static String retryQueueOf(String queue, long wait) {
+
+		return queue + RETRY_QUEUE_SUFFIX + "/" + wait;
+	}
+
+	/**
+	 * Declare the retry and dead-letter queues of a queue. It is declared a retry
+	 * queue for each delay before the maximum number of retries.
+	 *
+	 * @param queue to declare its retry and dead-letter queues.
+	 *
+	 * @return nothing when the queues are declared.
+	 */
+	protected Uni<Void> declareQueues(String queue) {
+
+		final var waits = new TreeSet<Long>();
+		for (var retries = 0; retries < this.maxAttempts; retries++) {
+
+			waits.add(this.delayOf(retries));
+		}
+		var declare = this.declareDeadLetterQueue(queue);
+		for (final var wait : waits) {
+
+			declare = declare.chain(() -> this.declareRetryQueue(queue, wait));
+		}
+		return declare;
+	}
+
+	/**
+	 * Declare the queue where a message waits before it is returned to a queue.
+	 *
+	 * @param queue where the messages are returned.
+	 * @param wait  milliseconds that the messages wait before they are returned.
+	 *
+	 * @return nothing when the queue is declared.
+	 */
+	protected Uni<Void> declareRetryQueue(String queue, long wait) {
+
+		final var arguments = new JsonObject().put("x-message-ttl", wait).put("x-dead-letter-exchange", "")
+				.put("x-dead-letter-routing-key", queue);
+		return this.client.queueDeclare(retryQueueOf(queue, wait), true, false, false, arguments).replaceWithVoid();
+	}
+
+	/**
+	 * Declare the queue where the messages of a queue that cannot be processed are
+	 * moved.
+	 *
+	 * @param queue where the messages are received.
+	 *
+	 * @return nothing when the queue is declared.
+	 */
+	protected Uni<Void> declareDeadLetterQueue(String queue) {
+
+		return this.client.queueDeclare(queue + DEAD_LETTER_QUEUE_SUFFIX, true, false, false).replaceWithVoid();
+	}
+
+	/**
+	 * Check if an error is permanent, thus the message will fail if it is
+	 * retried.
+	 *
+	 * @param error to check.
+	 *
+	 * @return {@code true} if the error is permanent.
+	 */
+	public static boolean isPermanent(Throwable error) {
+
+		return error instanceof IllegalArgumentException || error instanceof ValidationException;
+	}
+
+	/**
+	 * Return the number of times that a message has been retried.
+	 *
+	 * @param msg to check.
+	 *
+	 * @return the number of retries of the message.
+	 */
+	public static int retriesOf(Message<?> msg) {
+
+		return msg.getMetadata(IncomingRabbitMQMetadata.class).map(metadata -> metadata.getHeaders().get(RETRIES_HEADER))
+				.filter(Number.class::isInstance).map(value -> ((Number) value).intValue()).orElse(0);
+	}
+
+	/**
+	 * Return the time when a message has been received for the first time.
+	 *
+	 * @param msg to check.
+	 *
+	 * @return the epoch time, in seconds, when the message has been received for
+	 *         the first time, or the current time if it has not been retried.
+	 */
+	public static long receivedTimeOf(Message<?> msg) {
+
+		return msg.getMetadata(IncomingRabbitMQMetadata.class)
+				.map(metadata -> metadata.getHeaders().get(RECEIVED_TIME_HEADER)).filter(Number.class::isInstance)
+				.map(value -> ((Number) value).longValue()).orElseGet(TimeManager::now);
+	}
+
+	/**
+	 * Acknowledge a message whose feedback has been stored.
+	 *
+	 * @param msg to acknowledge.
+	 *
+	 * @return the result of acknowledge the message.
+	 */
+	public CompletionStage<Void> stored(Message<byte[]> msg) {
+
+		this.stored.increment();
+		return msg.ack();
+	}
+
+	/**
+	 * Acknowledge a message whose feedback has been stored before.
+	 *
+	 * @param msg to acknowledge.
+	 *
+	 * @return the result of acknowledge the message.
+	 */
+	public CompletionStage<Void> duplicated(Message<byte[]> msg) {
+
+		this.duplicated.increment();
+		return msg.ack();
+	}
+
+	/**
+	 * Move a message whose feedback cannot be stored to the retry or dead-letter
+	 * queue. The queue is declared before the message is moved, and the message
+	 * is acknowledged only when the broker confirms that it has been moved, or it
+	 * is rejected otherwise.
+	 *
+	 * @param msg          that has failed.
+	 * @param error        why the message has failed.
+	 * @param queue        where the message has been received.
+	 * @param receivedTime epoch time, in seconds, when the message has been
+	 *                     received for the first time.
+	 *
+	 * @return the result of acknowledge the message.
+	 *
+	 * @see #receivedTimeOf(Message)
+	 */
+	public CompletionStage<Void> failed(Message<byte[]> msg, Throwable error, String queue, long receivedTime) {
+
+		final var retries = retriesOf(msg);
+		final var builder = new OutgoingRabbitMQMetadata.Builder().withContentType("application/json")
+				.withHeader(RECEIVED_TIME_HEADER, receivedTime);
+		msg.getMetadata(IncomingRabbitMQMetadata.class).flatMap(IncomingRabbitMQMetadata::getMessageId)
+				.ifPresent(builder::withMessageId);
+		final LongAdder outcome;
+		final Uni<Void> declare;
+		if (isPermanent(error) || retries >= this.maxAttempts) {
+
+			builder.withRoutingKey(queue + DEAD_LETTER_QUEUE_SUFFIX).withHeader(RETRIES_HEADER, retries)
+					.withHeader(FAILURE_REASON_HEADER, String.valueOf(error.getMessage()))
+					.withHeader(FAILURE_TYPE_HEADER, error.getClass().getName());
+			outcome = this.deadLettered;
+			declare = this.declareDeadLetterQueue(queue);
+
+		} else {
+
+			final var wait = this.delayOf(retries);
+			builder.withRoutingKey(retryQueueOf(queue, wait)).withHeader(RETRIES_HEADER, retries + 1);
+			outcome = this.retried;
+			declare = this.declareRetryQueue(queue, wait);
+		}
+
+		final var payload = msg.getPayload() == null ? new byte[0] : msg.getPayload();
+		final var moved = Message.of(payload, Metadata.of(builder.build()));
+		return this.connect().chain(() -> declare).chain(() -> this.failures.sendMessage(moved)).onItem()
+				.transformToUni(any -> {
+
+					outcome.increment();
+					return Uni.createFrom().completionStage(msg.ack());
+
+				}).onFailure().recoverWithUni(moveError -> {
+
+					Log.errorv(moveError, "Cannot move a failed feedback message.");
+					return Uni.createFrom().completionStage(msg.nack(error));
+
+				}).subscribeAsCompletionStage();
+	}
+
+	/**
+	 * Return the number of messages whose feedback has been stored.
+	 *
+	 * @return the number of stored messages.
+	 */
+	public long stored() {
+
+		return this.stored.sum();
+	}
+
+	/**
+	 * Return the number of duplicated messages.
+	 *
+	 * @return the number of duplicated messages.
+	 */
+	public long duplicated() {
+
+		return this.duplicated.sum();
+	}
+
+	/**
+	 * Return the number of messages that have been moved to the retry queues.
+	 *
+	 * @return the number of retried messages.
+	 */
+	public long retried() {
+
+		return this.retried.sum();
+	}
+
+	/**
+	 * Return the number of messages that have been moved to the dead-letter
+	 * queues.
+	 *
+	 * @return the number of dead-lettered messages.
+	 */
+	public long deadLettered() {
+
+		return this.deadLettered.sum();
+	}
+
+}
@@ -0,0 +1,296 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.logging.Log;
+import io.quarkus.vertx.VertxContextSupport;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+
+/**
+ * The component that collects the received feedback and stores them together.
+ * The feedback are stored, in a single transaction, when the maximum size of a
+ * batch is reached or when the first feedback of the batch has waited the
+ * maximum delay. Only one batch is stored at a time. If the transaction of a
+ * batch fails, its feedback are stored one by one.
+ *
+ * @param <P> type of the payloads to store.
+ *
+ * @see TreatmentActionFeedbackManager
+ * @see TreatmentValueFeedbackManager
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class FeedbackBatcher<P> {
+
+	/**
+	 * The vertx instance used to wait for the next feedback.
+	 */
+	protected final Vertx vertx;
+
+	/**
+	 * The maximum number of feedback to store together.
+	 */
+	protected final int maxSize;
+
+	/**
+	 * The maximum milliseconds that a feedback waits before to be stored.
+	 */
+	protected final long maxDelay;
+
+	/**
+	 * The function to store a batch of feedback.
+	 */
+	protected final Store<P> store;
+
+	/**
+	 * The feedback that are waiting to be stored.
+	 */
+	protected final Queue<Pending<P>> queue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The number of feedback that are waiting to be stored.
+	 */
+	protected final AtomicInteger size = new AtomicInteger(0);
+
+	/**
+	 * This is {@code true} when a timer to store the feedback is scheduled.
+	 */
+	protected final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+	/**
+	 * This is {@code true} when a batch is being stored.
+	 */
+	protected final AtomicBoolean storing = new AtomicBoolean(false);
+
+	/**
+	 * Create the batcher.
+	 *
+	 * @param vertx    instance used to wait for the next feedback.
+	 * @param maxSize  maximum number of feedback to store together.
+	 * @param maxDelay maximum milliseconds that a feedback waits before to be
+	 *                 stored.
+	 * @param store    function to store a batch of feedback.
+	 */
+	public FeedbackBatcher(Vertx vertx, int maxSize, long maxDelay, Store<P> store) {
+
+		this.vertx = vertx;
+		this.maxSize = Math.max(1, maxSize);
+		this.maxDelay = Math.max(1, maxDelay);
+		this.store = store;
+	}
+
+	/**
+	 * Add a feedback to store.
+	 *
+	 * @param payload      with the feedback to store.
+	 * @param messageKey   key of the message with the feedback, or {@code null}
+	 *                     if it is not known.
+	 * @param receivedTime epoch time, in seconds, when the message with the
+	 *                     feedback has been received for the first time.
+	 *
+	 * @return the stage that is completed when the batch with the feedback has
+	 *         been stored. It contains the error why the feedback cannot be stored,
+	 *         or {@code null} if it has been stored.
+	 */
+	public CompletionStage<Throwable> add(P payload, String messageKey, long receivedTime) {
+
+		final var pending = new Pending<P>();
+		pending.payload = payload;
+		pending.messageKey = messageKey;
+		pending.receivedTime = receivedTime;
+		this.queue.add(pending);
+		if (this.size.incrementAndGet() >= this.maxSize) {
+
+			this.flush();
+
+		} else {
+
+			this.schedule();
+		}
+		return pending.result;
+	}
+
+	/**
+	 * Schedule to store the feedback when the maximum delay has passed.
+	 */
+	protected void schedule() {
+
+		if (this.scheduled.compareAndSet(false, true)) {
+
+			this.vertx.setTimer(this.maxDelay, id -> {
+
+				this.scheduled.set(false);
+				this.flush();
+			});
+		}
+	}
+
+	/**
+	 * Store the next batch of feedback. If a batch is being stored, the feedback
+	 * are stored when it finishes.
+	 */
+	protected void flush() {
+
+		if (!this.storing.compareAndSet(false, true)) {
+
+			return;
+		}
+
+		final var batch = new ArrayList<Pending<P>>(Math.min(this.maxSize, this.size.get()));
+		Pending<P> next = null;
+		while (batch.size() < this.maxSize && (next = this.queue.poll()) != null) {
+
+			batch.add(next);
+		}
+		this.size.addAndGet(-batch.size());
+		if (batch.isEmpty()) {
+
+			this.storing.set(false);
+			return;
+		}
+
+		final var payloads = batch.stream().map(pending -> pending.payload).toList();
+		final var messageKeys = batch.stream().map(pending -> pending.messageKey).toList();
+		final var receivedTimes = batch.stream().map(pending -> pending.receivedTime).toList();
+		VertxContextSupport.subscribeWith(() -> this.storeBatch(payloads, messageKeys, receivedTimes).toMulti(),
+				errors -> {
+
+					for (var i = 0; i < batch.size(); i++) {
+
+						batch.get(i).result.complete(errors.get(i));
+					}
+					this.storing.set(false);
+					if (this.size.get() >= this.maxSize) {
+
+						this.flush();
+
+					} else if (!this.queue.isEmpty()) {
+
+						this.schedule();
+					}
+				});
+	}
+
+	/**
+	 * Store a batch of feedback in a single transaction. If the transaction fails,
+	 * the feedback are stored one by one, thus only the feedback that cannot be
+	 * stored obtain an error.
+	 *
+	 * @param payloads      with the feedback to store.
+	 * @param messageKeys   keys of the messages with the feedback.
+	 * @param receivedTimes times when the messages with the feedback have been
+	 *                      received for the first time.
+	 *
+	 * @return the error of each feedback that cannot be stored, or {@code null} if
+	 *         it has been stored.
+	 */
+	protected Uni<List<Throwable>> storeBatch(List<P> payloads, List<String> messageKeys,
+			List<Long> receivedTimes) {
+
+		final Uni<List<Throwable>> batch = Panache
+				.withTransaction(() -> this.store.apply(payloads, messageKeys, receivedTimes));
+		if (payloads.size() == 1) {
+
+			return batch.onFailure().recoverWithItem(error -> {
+
+				Log.errorv(error, "Cannot store a feedback.");
+				return Collections.singletonList(error);
+			});
+
+		} else {
+
+			return batch.onFailure().recoverWithUni(error -> {
+
+				Log.warnv(error, "Cannot store a batch of {0} feedback, so they are stored one by one.",
+						payloads.size());
+				Uni<List<Throwable>> oneByOne = Uni.createFrom().item(() -> new ArrayList<>(payloads.size()));
+				for (var i = 0; i < payloads.size(); i++) {
+
+					final var payload = payloads.get(i);
+					final var messageKey = messageKeys.get(i);
+					final var receivedTime = receivedTimes.get(i);
+					oneByOne = oneByOne.chain(errors -> this.storeBatch(List.of(payload),
+							Collections.singletonList(messageKey), List.of(receivedTime)).map(stored -> {
+
+								errors.add(stored.get(0));
+								return errors;
+							}));
+				}
+				return oneByOne;
+			});
+		}
+	}
+
+	/**
+	 * A feedback that is waiting to be stored.
+	 *
+	 * @param <P> type of the payload.
+	 */
+	protected static class Pending<P> {
+
+		/**
+		 * The feedback to store.
+		 */
+		public P payload;
+
+		/**
+		 * The key of the message with the feedback.
+		 */
+		public String messageKey;
+
+		/**
+		 * The epoch time, in seconds, when the message with the feedback has been
+		 * received for the first time.
+		 */
+		public long receivedTime;
+
+		/**
+		 * The result to complete when the feedback has been stored.
+		 */
+		public CompletableFuture<Throwable> result = new CompletableFuture<>();
+
+	}
+
+	/**
+	 * The function to store a batch of feedback.
+	 *
+	 * @param <P> type of the payloads to store.
+	 */
+	@FunctionalInterface
+	public interface Store<P> {
+
+		/**
+		 * Store a batch of feedback.
+		 *
+		 * @param payloads      with the feedback to store.
+		 * @param messageKeys   keys of the messages with the feedback, or
+		 *                      {@code null} if it is not known.
+		 * @param receivedTimes epoch times, in seconds, when the messages with the
+		 *                      feedback have been received for the first time.
+		 *
+		 * @return the error of each feedback that cannot be stored, or {@code null}
+		 *         if it has been stored.
+		 */
+		Uni<List<Throwable>> apply(List<P> payloads, List<String> messageKeys, List<Long> receivedTimes);
+
+	}
+
+}
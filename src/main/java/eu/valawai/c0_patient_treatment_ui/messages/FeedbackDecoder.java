@@ -0,0 +1,169 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.DatabindCodec;
+import jakarta.validation.ValidationException;
+
+/**
+ * The component that decodes the body of a received feedback message. The
+ * bytes are bound directly to the payload with a reader that is created once,
+ * without building an intermediate {@link JsonObject}, and the constraints of
+ * the payload are checked with a function instead of the reflective validator.
+ *
+ * @param <P> type of the payloads to decode.
+ *
+ * @see TreatmentActionFeedbackManager
+ * @see TreatmentValueFeedbackManager
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class FeedbackDecoder<P> {
+
+	/**
+	 * The reader to bind the bytes to the payload.
+	 */
+	protected final ObjectReader reader;
+
+	/**
+	 * The function that returns the reason why a payload is not valid, or
+	 * {@code null} if it is valid.
+	 */
+	protected final Function<P, String> validation;
+
+	/**
+	 * Create the decoder.
+	 *
+	 * @param type       of the payloads to decode.
+	 * @param validation function that returns the reason why a payload is not
+	 *                   valid, or {@code null} if it is valid.
+	 */
+	public FeedbackDecoder(Class<P> type, Function<P, String> validation) {
+
+		this.reader = DatabindCodec.mapper().readerFor(type);
+		this.validation = validation;
+	}
+
+	/**
+	 * Decode and validate a payload.
+	 *
+	 * @param body of the message to decode.
+	 *
+	 * @return the valid payload.
+	 *
+	 * @throws IllegalArgumentException if the body is not a payload.
+	 * @throws ValidationException      if the payload is not valid.
+	 */
+	public P decode(byte[] body) {
+
+		if (body == null || body.length == 0) {
+
+			throw new IllegalArgumentException("The message does not have a body.");
+		}
+
+		final P payload;
+		try {
+
+			payload = this.reader.readValue(body);
+
+		} catch (final IOException error) {
+
+			throw new IllegalArgumentException(error.getMessage(), error);
+		}
+
+		if (payload == null) {
+
+			throw new IllegalArgumentException("The message body is not a payload.");
+		}
+		final var violation = this.validation.apply(payload);
+		if (violation != null) {
+
+			throw new ValidationException(violation);
+		}
+		return payload;
+	}
+
+	/**
+	 * Return the body of a message as a value that can be logged. It is only
+	 * used when the body cannot be decoded, thus the bytes are parsed again.
+	 *
+	 * @param body of the message.
+	 *
+	 * @return the JSON of the body, or its text if it is not a JSON object.
+	 */
+	public static Object toLoggable(byte[] body) {
+
+		if (body == null) {
+
+			return new JsonObject();
+		}
+		try {
+
+			return new JsonObject(Buffer.buffer(body));
+
+		} catch (final RuntimeException error) {
+
+			return new String(body, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Check that a text is not empty.
+	 *
+	 * @param value to check.
+	 * @param name  of the field with the value.
+	 *
+	 * @return the violation of the field, or {@code null} if it is not empty.
+	 */
+	public static String notEmpty(String value, String name) {
+
+		return value == null || value.isEmpty() ? name + " must not be empty" : null;
+	}
+
+	/**
+	 * Check that a value is defined.
+	 *
+	 * @param value to check.
+	 * @param name  of the field with the value.
+	 *
+	 * @return the violation of the field, or {@code null} if it is not null.
+	 */
+	public static String notNull(Object value, String name) {
+
+		return value == null ? name + " must not be null" : null;
+	}
+
+	/**
+	 * Return the first violation of a set of checks.
+	 *
+	 * @param violations of the checks.
+	 *
+	 * @return the first violation, or {@code null} if all the checks are valid.
+	 */
+	public static String firstOf(String... violations) {
+
+		for (final var violation : violations) {
+
+			if (violation != null) {
+
+				return violation;
+			}
+		}
+		return null;
+	}
+
+}
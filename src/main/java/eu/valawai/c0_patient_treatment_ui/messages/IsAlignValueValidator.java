@@ -26,6 +26,18 @@ public class IsAlignValueValidator implements ConstraintValidator<IsAlignValue,
 	@Override
 	public boolean isValid(final Number value, final ConstraintValidatorContext context) {
 
+		return isAlignValue(value);
+	}
+
+	/**
+	 * Check if a value is an align value.
+	 *
+	 * @param value to check.
+	 *
+	 * @return {@code true} if the value is in the range [-1, 1].
+	 */
+	public static boolean isAlignValue(final Number value) {
+
 		if (value == null) {
 
 			return false;
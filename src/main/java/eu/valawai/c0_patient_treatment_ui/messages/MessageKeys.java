@@ -0,0 +1,73 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
+
+/**
+ * The component used to obtain the keys that identify the received messages,
+ * thus a message that is delivered again can be detected. The keys are the
+ * hexadecimal SHA-256 of the message identifier, so they always have 64
+ * characters. The messages without identifier do not have a key, because two
+ * messages with the same content can be different deliveries.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public interface MessageKeys {
+
+	/**
+	 * Return the key of the identifier of a message.
+	 *
+	 * @param msg to obtain the key.
+	 *
+	 * @return the key of the message identifier, or {@code null} if the message
+	 *         does not have an identifier.
+	 */
+	static String ofMessageId(Message<?> msg) {
+
+		final var messageId = msg.getMetadata(IncomingRabbitMQMetadata.class)
+				.flatMap(IncomingRabbitMQMetadata::getMessageId).orElse(null);
+		if (messageId == null || messageId.isBlank()) {
+
+			return null;
+
+		} else {
+
+			return hash("id:" + messageId);
+		}
+	}
+
+	/**
+	 * Return the hexadecimal SHA-256 of a value.
+	 *
+	 * @param value to hash.
+	 *
+	 * @return the hash of the value.
+	 */
+	private static String hash(String value) {
+
+		try {
+
+			final var digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+
+		} catch (final NoSuchAlgorithmException cause) {
+
+			throw new IllegalStateException(cause);
+		}
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+
+import eu.valawai.c0_patient_treatment_ui.persistence.ModelCaches;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The bus that maintains the caches of the models coherent between the nodes
+ * of the component. When a patient or a treatment has been modified, the node
+ * removes it from its caches and publishes it on a fanout exchange, thus the
+ * other nodes remove it from their caches. The invalidations that happen
+ * together are published on the same message.
+ *
+ * Each node numbers its invalidations consecutively. When a node detects that
+ * it has missed some invalidation of another node, it removes all the models
+ * from its caches, because it does not know which ones are stale.
+ *
+ * @see ModelCaches
+ * @see ModelInvalidationPayload
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ApplicationScoped
+public class ModelInvalidationBus {
+
+	/**
+	 * The identifier of this node.
+	 */
+	protected final String node = UUID.randomUUID().toString();
+
+	/**
+	 * The number of the last invalidation that this node has published.
+	 */
+	protected final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * The number of the last invalidation received from the other nodes.
+	 */
+	protected final ConcurrentHashMap<String, Long> lastSequences = new ConcurrentHashMap<>();
+
+	/**
+	 * The identifiers of the patients that wait to be published.
+	 */
+	protected final LinkedHashSet<Long> pendingPatients = new LinkedHashSet<>();
+
+	/**
+	 * The identifiers of the treatments that wait to be published.
+	 */
+	protected final LinkedHashSet<Long> pendingTreatments = new LinkedHashSet<>();
+
+	/**
+	 * This is {@code true} if the pending invalidations will be published.
+	 */
+	protected boolean scheduled = false;
+
+	/**
+	 * The number of invalidations that have been published.
+	 */
+	protected final LongAdder published = new LongAdder();
+
+	/**
+	 * The number of invalidations that have been received from the other nodes.
+	 */
+	protected final LongAdder received = new LongAdder();
+
+	/**
+	 * The number of times that the caches have been cleared because some
+	 * invalidation has been missed.
+	 */
+	protected final LongAdder flushes = new LongAdder();
+
+	/**
+	 * The component to send the invalidations.
+	 */
+	@Channel("send_model_invalidation")
+	@Inject
+	Emitter<ModelInvalidationPayload> service;
+
+	/**
+	 * The vertx instance used to publish the pending invalidations.
+	 */
+	@Inject
+	Vertx vertx;
+
+	/**
+	 * The caches of the models of this node.
+	 */
+	@Inject
+	ModelCaches caches;
+
+	/**
+	 * Called when a patient has been modified and the modification has been
+	 * committed.
+	 *
+	 * @param id identifier of the modified patient.
+	 */
+	public void patientChanged(long id) {
+
+		this.caches.invalidatePatient(id);
+		synchronized (this) {
+
+			this.pendingPatients.add(id);
+			this.schedule();
+		}
+	}
+
+	/**
+	 * Called when a treatment has been modified and the modification has been
+	 * committed.
+	 *
+	 * @param id identifier of the modified treatment.
+	 */
+	public void treatmentChanged(long id) {
+
+		this.caches.treatments().invalidate(id);
+		synchronized (this) {
+
+			this.pendingTreatments.add(id);
+			this.schedule();
+		}
+	}
+
+	/**
+	 * Publish the pending invalidations on the next iteration of the event loop.
+	 * It must be called when the bus is locked.
+	 */
+	protected void schedule() {
+
+		if (!this.scheduled) {
+
+			this.scheduled = true;
+			this.vertx.runOnContext(any -> this.publish());
+		}
+	}
+
+	/**
+	 * Publish the pending invalidations.
+	 */
+	protected void publish() {
+
+		final var payload = new ModelInvalidationPayload();
+		synchronized (this) {
+
+			this.scheduled = false;
+			if (this.pendingPatients.isEmpty() && this.pendingTreatments.isEmpty()) {
+
+				return;
+			}
+			payload.patients = new ArrayList<>(this.pendingPatients);
+			payload.treatments = new ArrayList<>(this.pendingTreatments);
+			this.pendingPatients.clear();
+			this.pendingTreatments.clear();
+			payload.node = this.node;
+			payload.sequence = this.sequence.incrementAndGet();
+		}
+
+		Uni.createFrom().completionStage(() -> this.service.send(payload)).subscribe().with(any -> {
+
+			this.published.increment();
+			Log.debugv("Published the invalidation {0}.", payload);
+
+		}, error -> Log.errorv(error, "Cannot publish the invalidation {0}.", payload));
+	}
+
+	/**
+	 * Called when an invalidation has been received. The invalidations of this
+	 * node are ignored, because its caches are already updated.
+	 *
+	 * @param json with the invalidation.
+	 */
+	@Incoming("received_model_invalidation")
+	public void handleInvalidation(JsonObject json) {
+
+		try {
+
+			final var payload = json.mapTo(ModelInvalidationPayload.class);
+			if (this.node.equals(payload.node)) {
+
+				return;
+			}
+
+			this.received.increment();
+			final var last = this.lastSequences.get(payload.node);
+			final var expected = last == null ? 1l : last + 1;
+			if (payload.sequence > expected) {
+
+				this.flushes.increment();
+				this.caches.clear();
+				Log.warnv("Missed the invalidations {0} to {1} of the node {2}, so the caches are cleared.", expected,
+						payload.sequence - 1, payload.node);
+
+			} else {
+
+				if (payload.patients != null) {
+
+					payload.patients.forEach(this.caches::invalidatePatient);
+				}
+				if (payload.treatments != null) {
+
+					this.caches.treatments().invalidateAll(payload.treatments);
+				}
+			}
+			this.lastSequences.merge(payload.node, payload.sequence, Math::max);
+
+		} catch (final Throwable error) {
+
+			Log.errorv(error, "Cannot process the invalidation {0}, so the caches are cleared.", json);
+			this.flushes.increment();
+			this.caches.clear();
+		}
+
+	}
+
+	/**
+	 * Return the identifier of this node.
+	 *
+	 * @return the identifier of the node.
+	 */
+	public String node() {
+
+		return this.node;
+	}
+
+	/**
+	 * Return the number of invalidations that have been published.
+	 *
+	 * @return the number of published invalidations.
+	 */
+	public long published() {
+
+		return this.published.sum();
+	}
+
+	/**
+	 * Return the number of invalidations that have been received from the other
+	 * nodes.
+	 *
+	 * @return the number of received invalidations.
+	 */
+	public long received() {
+
+		return this.received.sum();
+	}
+
+	/**
+	 * Return the number of times that the caches have been cleared because some
+	 * invalidation has been missed.
+	 *
+	 * @return the number of cache flushes.
+	 */
+	public long flushes() {
+
+		return this.flushes.sum();
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+/**
+ * The patients and treatments that have been modified on a node of the
+ * component, thus the other nodes must remove them from their caches.
+ *
+ * @see ModelInvalidationBus
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@JsonRootName("model_invalidation_payload")
+public class ModelInvalidationPayload extends Payload {
+
+	/**
+	 * The identifier of the node that has modified the models.
+	 */
+	public String node;
+
+	/**
+	 * The number of the invalidation on the node. It starts at one and it is
+	 * incremented by one on each invalidation that the node publishes.
+	 */
+	public long sequence;
+
+	/**
+	 * The identifiers of the modified patients.
+	 */
+	public List<Long> patients;
+
+	/**
+	 * The identifiers of the treatments that have been modified.
+	 */
+	public List<Long> treatments;
+
+}
@@ -0,0 +1,116 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The keys of the messages that have been processed recently. It has a maximum
+ * number of keys, and when it is full the oldest keys are forgotten.
+ *
+ * @see MessageKeys
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class RecentMessageKeys {
+
+	/**
+	 * The maximum number of keys to remember.
+	 */
+	protected final int maxSize;
+
+	/**
+	 * The keys that have been processed, from the oldest to the newest.
+	 */
+	protected final LinkedHashMap<String, Boolean> keys;
+
+	/**
+	 * Create the recent keys.
+	 *
+	 * @param maxSize maximum number of keys to remember.
+	 */
+	public RecentMessageKeys(int maxSize) {
+
+		this.maxSize = Math.max(0, maxSize);
+		this.keys = new LinkedHashMap<>() {
+
+			/**
+			 * Serialization identifier.
+			 */
+			private static final long serialVersionUID = 1L;
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+
+				return this.size() > RecentMessageKeys.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Check if a key has been processed recently.
+	 *
+	 * @param key to check.
+	 *
+	 * @return {@code true} if the key has been processed.
+	 */
+	public synchronized boolean contains(String key) {
+
+		return this.keys.containsKey(key);
+	}
+
+	/**
+	 * Remember that a key has been processed.
+	 *
+	 * @param key that has been processed.
+	 */
+	public synchronized void add(String key) {
+
+		this.keys.remove(key);
+		this.keys.put(key, Boolean.TRUE);
+	}
+
+	/**
+	 * Remember that a key is being processed if it has not been processed
+	 * recently. The check and the addition are done at the same time, thus only
+	 * one of the messages with the same key is processed.
+	 *
+	 * @param key that is being processed.
+	 *
+	 * @return {@code true} if the key has been added, or {@code false} if it has
+	 *         been processed.
+	 */
+	public synchronized boolean addIfAbsent(String key) {
+
+		if (this.contains(key)) {
+
+			return false;
+
+		} else {
+
+			this.add(key);
+			return true;
+		}
+	}
+
+	/**
+	 * Forget a key, thus a message with the key can be processed again.
+	 *
+	 * @param key to forget.
+	 */
+	public synchronized void remove(String key) {
+
+		this.keys.remove(key);
+	}
+
+}
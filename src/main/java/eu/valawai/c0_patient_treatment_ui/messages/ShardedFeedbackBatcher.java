@@ -0,0 +1,90 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import io.vertx.core.Vertx;
+
+/**
+ * The component that distributes the received feedback over some
+ * {@link FeedbackBatcher}. The feedback of the same treatment are always stored
+ * by the same batcher, thus they are stored in the order that they have been
+ * received, meanwhile the feedback of different treatments can be stored in
+ * parallel.
+ *
+ * @param <P> type of the payloads to store.
+ *
+ * @see FeedbackBatcher
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ShardedFeedbackBatcher<P> {
+
+	/**
+	 * The batchers that store the feedback.
+	 */
+	protected final List<FeedbackBatcher<P>> shards;
+
+	/**
+	 * Create the sharded batcher.
+	 *
+	 * @param shards   number of batches that can be stored in parallel.
+	 * @param vertx    instance used to wait for the next feedback.
+	 * @param maxSize  maximum number of feedback to store together.
+	 * @param maxDelay maximum milliseconds that a feedback waits before to be
+	 *                 stored.
+	 * @param store    function to store a batch of feedback.
+	 */
+	public ShardedFeedbackBatcher(int shards, Vertx vertx, int maxSize, long maxDelay,
+			FeedbackBatcher.Store<P> store) {
+
+		final var max = Math.max(1, shards);
+		this.shards = new ArrayList<>(max);
+		for (var i = 0; i < max; i++) {
+
+			this.shards.add(new FeedbackBatcher<>(vertx, maxSize, maxDelay, store));
+		}
+	}
+
+	/**
+	 * Add a feedback to store.
+	 *
+	 * @param treatmentId  identifier of the treatment of the feedback.
+	 * @param payload      with the feedback to store.
+	 * @param messageKey   key of the message with the feedback, or {@code null}
+	 *                     if it is not known.
+	 * @param receivedTime epoch time, in seconds, when the message with the
+	 *                     feedback has been received for the first time.
+	 *
+	 * @return the stage that is completed when the feedback has been stored.
+	 *
+	 * @see FeedbackBatcher#add(Object, String, long)
+	 */
+	public CompletionStage<Throwable> add(String treatmentId, P payload, String messageKey, long receivedTime) {
+
+		return this.shardOf(treatmentId).add(payload, messageKey, receivedTime);
+	}
+
+	/**
+	 * Return the batcher that stores the feedback of a treatment.
+	 *
+	 * @param treatmentId identifier of the treatment.
+	 *
+	 * @return the batcher of the treatment.
+	 */
+	protected FeedbackBatcher<P> shardOf(String treatmentId) {
+
+		final var hash = treatmentId == null ? 0 : treatmentId.hashCode();
+		return this.shards.get(Math.floorMod(hash, this.shards.size()));
+	}
+
+}
@@ -0,0 +1,419 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentActionWithFeedback;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentFeedbackChange;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentValue;
+import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentEntity;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * The component that streams the feedback that the managers have stored to the
+ * clients that follow a treatment or the treatments of a patient. The changes
+ * are broadcast to all the subscribers, and each subscriber collects the
+ * changes that it follows during a short interval and coalesces them by
+ * treatment before sending them. When a subscriber does not request more
+ * changes, the new ones are dropped, thus a slow client never buffers without
+ * limit.
+ *
+ * @see TreatmentActionFeedbackManager
+ * @see TreatmentValueFeedbackManager
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ApplicationScoped
+public class TreatmentFeedbackStream {
+
+	/**
+	 * The query to obtain the patients of some treatments.
+	 */
+	private static final String PATIENTS_OF_TREATMENTS_QUERY = "select t.id, t.patient.id from "
+			+ TreatmentEntity.TABLE_NAME + " t where t.id in ?1";
+
+	/**
+	 * The maximum number of changes that are coalesced together for a subscriber.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_stream.max_pending", defaultValue = "100")
+	int maxPending;
+
+	/**
+	 * The maximum milliseconds that a change waits to be coalesced with the next
+	 * ones before it is sent to a subscriber.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_stream.coalesce_interval", defaultValue = "250")
+	long coalesceInterval;
+
+	/**
+	 * The maximum number of patients of treatments to remember.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_stream.cache_size", defaultValue = "10000")
+	int cacheSize;
+
+	/**
+	 * The processor that broadcasts the changes to the subscribers.
+	 */
+	protected final BroadcastProcessor<TreatmentFeedbackChange> processor = BroadcastProcessor.create();
+
+	/**
+	 * The processor used to publish the changes, thus the changes that are stored
+	 * at the same time are sent one after the other.
+	 */
+	protected final Flow.Processor<TreatmentFeedbackChange, TreatmentFeedbackChange> publisher = this.processor
+			.serialized();
+
+	/**
+	 * The number of subscribers to the changes.
+	 */
+	protected final AtomicInteger subscriptions = new AtomicInteger(0);
+
+	/**
+	 * The number of subscribers to the changes of the treatments of a patient.
+	 */
+	protected final AtomicInteger patientSubscriptions = new AtomicInteger(0);
+
+	/**
+	 * The patient of the treatments that have been resolved.
+	 */
+	protected Map<Long, Long> patients;
+
+	/**
+	 * The number of changes that have been sent to the subscribers.
+	 */
+	protected final LongAdder delivered = new LongAdder();
+
+	/**
+	 * The number of changes that have been coalesced with a previous one.
+	 */
+	protected final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * The number of changes that have been dropped because a subscriber was too
+	 * slow.
+	 */
+	protected final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Create the cache of the patients of the treatments.
+	 */
+	@PostConstruct
+	protected void createCache() {
+
+		final var max = Math.max(1, this.cacheSize);
+		this.patients = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+
+				return this.size() > max;
+			}
+		};
+	}
+
+	/**
+	 * Return the changes of the feedback of a treatment.
+	 *
+	 * @param treatmentId identifier of the treatment to follow.
+	 *
+	 * @return the changes of the treatment.
+	 */
+	public Multi<TreatmentFeedbackChange> ofTreatment(long treatmentId) {
+
+		return this.follow(change -> change.treatmentId == treatmentId, this.subscriptions);
+	}
+
+	/**
+	 * Return the changes of the feedback of the treatments of a patient.
+	 *
+	 * @param patientId identifier of the patient to follow.
+	 *
+	 * @return the changes of the treatments of the patient.
+	 */
+	public Multi<TreatmentFeedbackChange> ofPatient(long patientId) {
+
+		return this.follow(change -> change.patientId != null && change.patientId == patientId,
+				this.patientSubscriptions);
+	}
+
+	/**
+	 * Return the broadcast changes that a subscriber follows. The changes are
+	 * coalesced by treatment, and they are dropped while the subscriber does not
+	 * request them.
+	 *
+	 * @param follows     check if a change is followed.
+	 * @param subscribers counter of the subscribers of this kind.
+	 *
+	 * @return the changes to send to the subscriber.
+	 */
+	protected Multi<TreatmentFeedbackChange> follow(Predicate<TreatmentFeedbackChange> follows,
+			AtomicInteger subscribers) {
+
+		return this.processor.filter(follows).group().intoLists()
+				.of(Math.max(1, this.maxPending), Duration.ofMillis(Math.max(1, this.coalesceInterval)))
+				.onItem().transformToIterable(this::coalesce).onOverflow().invoke(this.dropped::increment).drop()
+				.onItem().invoke(this.delivered::increment).onSubscription().invoke(subscribers::incrementAndGet)
+				.onTermination().invoke(subscribers::decrementAndGet);
+	}
+
+	/**
+	 * Check if any subscriber follows the changes of the treatments.
+	 *
+	 * @return {@code true} if the stored feedback has to be published.
+	 */
+	public boolean hasSubscribers() {
+
+		return this.subscriptions.get() > 0 || this.hasPatientSubscribers();
+	}
+
+	/**
+	 * Check if any subscriber follows the treatments of a patient.
+	 *
+	 * @return {@code true} if the patients of the treatments are required.
+	 */
+	public boolean hasPatientSubscribers() {
+
+		return this.patientSubscriptions.get() > 0;
+	}
+
+	/**
+	 * Resolve the patients of some treatments, thus the changes of these
+	 * treatments can be sent to the subscribers of their patients. It does nothing
+	 * if nobody follows a patient. It has to be called in a session.
+	 *
+	 * @param treatmentIds identifiers of the treatments to resolve.
+	 *
+	 * @return nothing when the patients have been resolved.
+	 */
+	public Uni<Void> resolvePatients(Collection<String> treatmentIds) {
+
+		if (!this.hasPatientSubscribers()) {
+
+			return Uni.createFrom().voidItem();
+		}
+
+		final var ids = new HashSet<Long>();
+		synchronized (this.patients) {
+
+			for (final var treatmentId : treatmentIds) {
+
+				try {
+
+					final var id = Long.parseLong(treatmentId);
+					if (!this.patients.containsKey(id)) {
+
+						ids.add(id);
+					}
+
+				} catch (final NumberFormatException ignored) {
+					// the feedback of this treatment is not stored
+				}
+			}
+		}
+		if (ids.isEmpty()) {
+
+			return Uni.createFrom().voidItem();
+		}
+
+		return Panache.getSession()
+				.chain(session -> session.createSelectionQuery(PATIENTS_OF_TREATMENTS_QUERY, Object[].class)
+						.setParameter(1, ids).getResultList())
+				.invoke(rows -> {
+
+					synchronized (this.patients) {
+
+						for (final var row : rows) {
+
+							this.patients.put((Long) row[0], (Long) row[1]);
+						}
+					}
+
+				}).replaceWithVoid();
+	}
+
+	/**
+	 * Called when the feedback of a treatment action has been stored.
+	 *
+	 * @param payload     with the stored feedback.
+	 * @param updatedTime epoch time, in seconds, when the stored feedback has been
+	 *                    reported.
+	 */
+	public void actionStored(TreatmentActionFeedbackPayload payload, long updatedTime) {
+
+		if (this.hasSubscribers()) {
+
+			final var action = new TreatmentActionWithFeedback();
+			action.action = payload.action;
+			action.feedback = payload.feedback;
+			action.updatedTime = updatedTime;
+			final var change = new TreatmentFeedbackChange();
+			change.treatmentId = Long.parseLong(payload.treatment_id);
+			change.actions = List.of(action);
+			this.publish(change);
+		}
+	}
+
+	/**
+	 * Called when the feedback of a treatment value has been stored.
+	 *
+	 * @param payload     with the stored feedback.
+	 * @param updatedTime epoch time, in seconds, when the stored feedback has been
+	 *                    reported.
+	 */
+	public void valueStored(TreatmentValueFeedbackPayload payload, long updatedTime) {
+
+		if (this.hasSubscribers()) {
+
+			final var value = new TreatmentValue();
+			value.name = payload.value_name;
+			value.alignment = payload.alignment;
+			value.updatedTime = updatedTime;
+			final var change = new TreatmentFeedbackChange();
+			change.treatmentId = Long.parseLong(payload.treatment_id);
+			change.values = List.of(value);
+			this.publish(change);
+		}
+	}
+
+	/**
+	 * Send a change to the subscribers that follow its treatment or its patient.
+	 *
+	 * @param change to send.
+	 */
+	public void publish(TreatmentFeedbackChange change) {
+
+		if (change.patientId == null && this.hasPatientSubscribers()) {
+
+			synchronized (this.patients) {
+
+				change.patientId = this.patients.get(change.treatmentId);
+			}
+		}
+		this.publisher.onNext(change);
+	}
+
+	/**
+	 * Return the number of changes that have been sent to the subscribers.
+	 *
+	 * @return the number of delivered changes.
+	 */
+	public long delivered() {
+
+		return this.delivered.sum();
+	}
+
+	/**
+	 * Return the number of changes that have been coalesced with a pending one.
+	 *
+	 * @return the number of coalesced changes.
+	 */
+	public long coalesced() {
+
+		return this.coalesced.sum();
+	}
+
+	/**
+	 * Return the number of pending changes that have been dropped because a
+	 * subscriber was too slow.
+	 *
+	 * @return the number of dropped changes.
+	 */
+	public long dropped() {
+
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Coalesce the changes of the same treatment. The published changes are not
+	 * modified, because they are shared by all the subscribers.
+	 *
+	 * @param changes to coalesce.
+	 *
+	 * @return the changes coalesced by treatment.
+	 */
+	protected List<TreatmentFeedbackChange> coalesce(List<TreatmentFeedbackChange> changes) {
+
+		final var coalesced = new LinkedHashMap<Long, TreatmentFeedbackChange>();
+		for (final var change : changes) {
+
+			var pending = coalesced.get(change.treatmentId);
+			if (pending == null) {
+
+				pending = new TreatmentFeedbackChange();
+				pending.treatmentId = change.treatmentId;
+				coalesced.put(change.treatmentId, pending);
+
+			} else {
+
+				this.coalesced.increment();
+			}
+			merge(pending, change);
+		}
+		return new ArrayList<>(coalesced.values());
+	}
+
+	/**
+	 * Merge a change into a pending one.
+	 *
+	 * @param pending change to update.
+	 * @param change  to merge.
+	 */
+	protected static void merge(TreatmentFeedbackChange pending, TreatmentFeedbackChange change) {
+
+		if (pending.patientId == null) {
+
+			pending.patientId = change.patientId;
+		}
+		if (change.actions != null) {
+
+			if (pending.actions == null) {
+
+				pending.actions = new ArrayList<>();
+			}
+			for (final var action : change.actions) {
+
+				pending.actions.removeIf(previous -> previous.action == action.action);
+				pending.actions.add(action);
+			}
+		}
+		if (change.values != null) {
+
+			if (pending.values == null) {
+
+				pending.values = new ArrayList<>();
+			}
+			for (final var value : change.values) {
+
+				pending.values.removeIf(previous -> previous.name != null && previous.name.equals(value.name));
+				pending.values.add(value);
+			}
+		}
+	}
+
+}
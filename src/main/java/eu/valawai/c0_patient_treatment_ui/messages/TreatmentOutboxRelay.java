@@ -0,0 +1,243 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.persistence.OutboxEntity;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.vertx.VertxContextSupport;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * The component that publishes the treatments that are stored on the
+ * {@link OutboxEntity}. It drains the outbox in batches periodically, or when
+ * it is woken up after a treatment is added. A treatment is removed from the
+ * outbox only when the broker confirms that has received it, otherwise it is
+ * retried later.
+ *
+ * @see OutboxEntity
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ApplicationScoped
+public class TreatmentOutboxRelay {
+
+	/**
+	 * The service to publish the treatments.
+	 */
+	@Inject
+	protected TreatmentService service;
+
+	/**
+	 * The vertx instance used to drain the outbox periodically.
+	 */
+	@Inject
+	protected Vertx vertx;
+
+	/**
+	 * The maximum number of treatments to publish on each batch.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.outbox.batch_size", defaultValue = "100")
+	protected int batchSize;
+
+	/**
+	 * The milliseconds between the periodic drains of the outbox.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.outbox.interval", defaultValue = "1000")
+	protected long interval;
+
+	/**
+	 * The maximum seconds to wait before retry to publish a treatment.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.outbox.max_retry_delay", defaultValue = "300")
+	protected long maxRetryDelay;
+
+	/**
+	 * The identifier of the periodic timer.
+	 */
+	protected long timerId = -1;
+
+	/**
+	 * This is {@code true} when the outbox is being drained.
+	 */
+	protected final AtomicBoolean draining = new AtomicBoolean(false);
+
+	/**
+	 * This is {@code true} when it is woken up while the outbox is being drained.
+	 */
+	protected final AtomicBoolean pending = new AtomicBoolean(false);
+
+	/**
+	 * The number of treatments that have been published.
+	 */
+	protected final LongAdder published = new LongAdder();
+
+	/**
+	 * The number of times that a treatment has failed to be published.
+	 */
+	protected final LongAdder failures = new LongAdder();
+
+	/**
+	 * The seconds that the oldest treatment of the last batch has been waiting on
+	 * the outbox.
+	 */
+	protected volatile long lag = 0;
+
+	/**
+	 * Start to drain the outbox when the application is started.
+	 *
+	 * @param event that contains the start status.
+	 */
+	public void start(@Observes StartupEvent event) {
+
+		this.timerId = this.vertx.setPeriodic(this.interval, id -> this.wakeUp());
+	}
+
+	/**
+	 * Stop to drain the outbox when the application is stopped.
+	 *
+	 * @param event that contains the stop status.
+	 */
+	public void stop(@Observes ShutdownEvent event) {
+
+		if (this.timerId >= 0) {
+
+			this.vertx.cancelTimer(this.timerId);
+			this.timerId = -1;
+		}
+	}
+
+	/**
+	 * Drain the outbox now. If the outbox is being drained, it is drained again
+	 * when the current drain finishes.
+	 */
+	public void wakeUp() {
+
+		if (this.draining.compareAndSet(false, true)) {
+
+			this.pending.set(false);
+			VertxContextSupport.subscribeWith(() -> Panache.withTransaction(this::drainBatch).onFailure()
+					.recoverWithItem(error -> {
+
+						Log.errorv(error, "Cannot drain the treatment outbox.");
+						return 0;
+
+					}).toMulti(), published -> {
+
+				this.draining.set(false);
+				if (published >= this.batchSize || this.pending.get()) {
+
+					this.wakeUp();
+				}
+			});
+
+		} else {
+
+			this.pending.set(true);
+		}
+	}
+
+	/**
+	 * Publish the next batch of treatments of the outbox.
+	 *
+	 * @return the number of published treatments.
+	 */
+	protected Uni<Integer> drainBatch() {
+
+		return OutboxEntity.nextBatch(this.batchSize).chain(batch -> {
+
+			if (batch.isEmpty()) {
+
+				this.lag = 0;
+				return Uni.createFrom().item(0);
+			}
+
+			this.lag = TimeManager.now() - batch.get(0).createdTime;
+			final List<Uni<Boolean>> publishes = new ArrayList<>(batch.size());
+			for (final var entity : batch) {
+
+				publishes.add(Uni.createFrom().item(entity::toTreatmentPayload).chain(this.service::publish)
+						.map(any -> true).onFailure().recoverWithItem(false));
+			}
+			return Uni.join().all(publishes).andCollectFailures().chain(results -> {
+
+				final var publishedIds = new ArrayList<Long>(batch.size());
+				for (var i = 0; i < results.size(); i++) {
+
+					final var entity = batch.get(i);
+					if (results.get(i)) {
+
+						publishedIds.add(entity.id);
+
+					} else {
+
+						entity.failed(this.maxRetryDelay);
+					}
+				}
+				this.published.add(publishedIds.size());
+				this.failures.add(batch.size() - publishedIds.size());
+				if (publishedIds.isEmpty()) {
+
+					return Uni.createFrom().item(0);
+
+				} else {
+
+					return OutboxEntity.delete("id in ?1", publishedIds).map(Long::intValue);
+				}
+			});
+
+		});
+	}
+
+	/**
+	 * Return the number of treatments that have been published.
+	 *
+	 * @return the number of published treatments.
+	 */
+	public long published() {
+
+		return this.published.sum();
+	}
+
+	/**
+	 * Return the number of times that a treatment has failed to be published.
+	 *
+	 * @return the number of failed publications.
+	 */
+	public long failures() {
+
+		return this.failures.sum();
+	}
+
+	/**
+	 * Return the seconds that the oldest treatment of the last drained batch has
+	 * been waiting on the outbox.
+	 *
+	 * @return the lag of the outbox in seconds.
+	 */
+	public long lag() {
+
+		return this.lag;
+	}
+
+}
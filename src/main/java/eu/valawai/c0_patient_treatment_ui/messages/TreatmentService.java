@@ -38,15 +38,18 @@ public class TreatmentService {
 	LogService log;
 
 	/**
-	 * Send a treatment to apply to a patient.
+	 * Publish a treatment to apply to a patient.
 	 *
 	 * @param treatment to apply.
+	 *
+	 * @return nothing when the broker has confirmed that the treatment is
+	 *         received, or the error that explains why it has not been published.
 	 */
-	public void send(TreatmentPayload treatment) {
+	public Uni<Void> publish(TreatmentPayload treatment) {
 
-		Uni.createFrom().completionStage(this.service.send(treatment)).subscribe().with(
-				any -> this.log.debugWithPayload(treatment, "Publish treatment."),
-				error -> this.log.errorWithPayload(treatment, "Cannot publish treatment."));
+		return Uni.createFrom().completionStage(() -> this.service.send(treatment))
+				.invoke(any -> this.log.debugWithPayload(treatment, "Publish treatment."))
+				.onFailure().invoke(error -> this.log.errorWithPayload(treatment, "Cannot publish treatment."));
 	}
 
 }
@@ -8,20 +8,21 @@
 
 package eu.valawai.c0_patient_treatment_ui.messages;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 
 import eu.valawai.c0_patient_treatment_ui.messages.mov.LogService;
+import eu.valawai.c0_patient_treatment_ui.persistence.DuplicatedFeedbackException;
 import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentValueFeedbackEntity;
-import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.smallrye.mutiny.Uni;
-import io.vertx.core.json.JsonObject;
+import io.vertx.core.Vertx;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.validation.ConstraintViolationException;
-import jakarta.validation.Validator;
 
 /**
  * The component that manage a value feedback for a treatment.
@@ -38,38 +39,168 @@ public class TreatmentValueFeedbackManager {
 	LogService log;
 
 	/**
-	 * The component to validate a {@code Payload}.
+	 * The component to decode the body of the received messages.
+	 */
+	FeedbackDecoder<TreatmentValueFeedbackPayload> decoder;
+
+	/**
+	 * The component to acknowledge the received messages.
+	 */
+	@Inject
+	FeedbackAcknowledger acknowledger;
+
+	/**
+	 * The component to stream the stored feedback to the clients.
+	 */
+	@Inject
+	TreatmentFeedbackStream stream;
+
+	/**
+	 * The component to invalidate the cached models on the other nodes.
+	 */
+	@Inject
+	ModelInvalidationBus invalidations;
+
+	/**
+	 * The queue where the feedback are received.
+	 */
+	@ConfigProperty(name = "mp.messaging.incoming.received_treatment_value_feedback.queue.name")
+	String queue;
+
+	/**
+	 * The vertx instance used by the batcher.
 	 */
 	@Inject
-	Validator validator;
+	Vertx vertx;
+
+	/**
+	 * The maximum number of feedback to store together.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_batch.max_size", defaultValue = "100")
+	int batchMaxSize;
+
+	/**
+	 * The maximum milliseconds that a feedback waits before to be stored.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_batch.max_delay", defaultValue = "50")
+	long batchMaxDelay;
+
+	/**
+	 * The number of batches of feedback that can be stored in parallel.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_batch.shards", defaultValue = "4")
+	int batchShards;
+
+	/**
+	 * The component to store the received feedback together.
+	 */
+	ShardedFeedbackBatcher<TreatmentValueFeedbackPayload> batcher;
+
+	/**
+	 * The maximum number of message keys to remember.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.feedback_dedup.max_size", defaultValue = "10000")
+	int dedupMaxSize;
+
+	/**
+	 * The keys of the messages that have been processed recently.
+	 */
+	RecentMessageKeys recentKeys;
 
 	/**
 	 * Called when a new feedback for a treatment value has been received.
 	 *
+	 * The feedback is stored with the next batch of its treatment, and the
+	 * message is acknowledged when the batch has been stored. The messages with an
+	 * identifier that are being processed, or that have been processed recently,
+	 * are acknowledged without storing them again. The messages without identifier
+	 * are always stored, because the same feedback can be sent again to restore a
+	 * previous state. The feedback is stored with the time when its
+	 * message has been received for the first time, thus a retried message does
+	 * not replace a newer feedback. The stored feedback is streamed to the clients
+	 * that follow its treatment, and its treatment is removed from the caches of
+	 * all the nodes. The feedback of a message that has been stored before is
+	 * acknowledged as duplicated and it is not streamed.
+	 *
 	 * @param msg with the feedback for a treatment value.
 	 *
-	 * @return the result if the message process.
+	 * @return the stage that is completed when the message is accepted to be
+	 *         processed.
+	 *
+	 * @see ShardedFeedbackBatcher
+	 * @see TreatmentFeedbackStream
+	 * @see ModelInvalidationBus
 	 */
 	@Incoming("received_treatment_value_feedback")
-	public CompletionStage<Void> receivedTreatmentValueFeedback(Message<JsonObject> msg) {
+	public CompletionStage<Void> receivedTreatmentValueFeedback(Message<byte[]> msg) {
 
-		return this.toValiedTreatmentValueFeedbackPayload(msg).chain(payload -> this.store(payload)).onFailure()
-				.recoverWithItem(error -> error).subscribeAsCompletionStage().thenCompose(error -> {
+		final var receivedTime = FeedbackAcknowledger.receivedTimeOf(msg);
+		this.toValiedTreatmentValueFeedbackPayload(msg).subscribe().with(payload -> {
 
-					if (error != null) {
+			final var messageKey = MessageKeys.ofMessageId(msg);
+			if (messageKey != null && !this.recentKeys.addIfAbsent(messageKey)) {
 
-						this.log.errorWithPayload(msg.getPayload(),
-								"Unexpected treatment value feedback message, because {0}", error.getMessage());
-						return msg.nack(error);
+				this.log.debugWithPayload(payload, "Duplicated treatment value feedback received");
+				this.acknowledger.duplicated(msg);
 
-					} else {
+			} else {
 
-						this.log.debugWithPayload(msg.getPayload(), "Treatment value feedback received");
-						return msg.ack();
-					}
+				this.batcher.add(payload.treatment_id, payload, messageKey, receivedTime).thenCompose(error -> {
+
+					if (error instanceof DuplicatedFeedbackException) {
+
+						this.log.debugWithPayload(payload, "Duplicated treatment value feedback received");
+						return this.acknowledger.duplicated(msg);
+
+					} else if (error == null) {
+
+						this.stream.valueStored(payload, receivedTime);
+						this.invalidations.treatmentChanged(Long.parseLong(payload.treatment_id));
+
+					} else if (messageKey != null) {
 
+						this.recentKeys.remove(messageKey);
+					}
+					return this.processed(msg, payload, error, receivedTime);
 				});
+			}
+
+		}, error -> this.processed(msg, null, error, receivedTime));
+		return CompletableFuture.completedFuture(null);
+
+	}
+
+	/**
+	 * Acknowledge a message when its feedback has been stored, or move it to the
+	 * retry or dead-letter queue otherwise.
+	 *
+	 * @param msg          with the feedback for a treatment value.
+	 * @param payload      that has been decoded from the message, or {@code null}
+	 *                     if it cannot be decoded.
+	 * @param error        why the feedback cannot be stored, or {@code null} if it
+	 *                     has been stored.
+	 * @param receivedTime epoch time, in seconds, when the message has been
+	 *                     received for the first time.
+	 *
+	 * @return the result of acknowledge the message.
+	 *
+	 * @see FeedbackAcknowledger
+	 */
+	protected CompletionStage<Void> processed(Message<byte[]> msg, TreatmentValueFeedbackPayload payload,
+			Throwable error, long receivedTime) {
+
+		if (error != null) {
+
+			final Object loggable = payload != null ? payload : FeedbackDecoder.toLoggable(msg.getPayload());
+			this.log.errorWithPayload(loggable, "Unexpected treatment value feedback message, because {0}",
+					error.getMessage());
+			return this.acknowledger.failed(msg, error, this.queue, receivedTime);
+
+		} else {
 
+			this.log.debugWithPayload(payload, "Treatment value feedback received");
+			return this.acknowledger.stored(msg);
+		}
 	}
 
 	/**
@@ -78,21 +209,14 @@ public class TreatmentValueFeedbackManager {
 	 * @param msg top get the treatment feedback payload.
 	 *
 	 * @return the treatment feedback payload.
+	 *
+	 * @see FeedbackDecoder
 	 */
-	protected Uni<TreatmentValueFeedbackPayload> toValiedTreatmentValueFeedbackPayload(Message<JsonObject> msg) {
+	protected Uni<TreatmentValueFeedbackPayload> toValiedTreatmentValueFeedbackPayload(Message<byte[]> msg) {
 
 		try {
 
-			final var payload = msg.getPayload().mapTo(TreatmentValueFeedbackPayload.class);
-			final var violations = this.validator.validate(payload);
-			if (!violations.isEmpty()) {
-
-				return Uni.createFrom().failure(new ConstraintViolationException(violations));
-
-			} else {
-
-				return Uni.createFrom().item(payload);
-			}
+			return Uni.createFrom().item(this.decoder.decode(msg.getPayload()));
 
 		} catch (final Throwable error) {
 
@@ -101,16 +225,36 @@ public class TreatmentValueFeedbackManager {
 	}
 
 	/**
-	 * Store the feedback.
+	 * Check the constraints of a payload without the reflective validator.
 	 *
-	 * @param payload with the feedback to store.
+	 * @param payload to check.
+	 *
+	 * @return the reason why the payload is not valid, or {@code null} if it is
+	 *         valid.
 	 */
-	@WithTransaction
-	protected Uni<Throwable> store(TreatmentValueFeedbackPayload payload) {
+	protected static String violationOf(TreatmentValueFeedbackPayload payload) {
 
-		return TreatmentValueFeedbackEntity.store(payload).map(any -> (Throwable) null).onFailure()
-				.recoverWithItem(error -> error);
+		return FeedbackDecoder.firstOf(
+				FeedbackDecoder.notEmpty(payload.treatment_id, "treatment_id"),
+				FeedbackDecoder.notEmpty(payload.value_name, "value_name"),
+				IsAlignValueValidator.isAlignValue(payload.alignment) ? null
+						: "alignment has to be in the range [-1, 1]");
+	}
 
-	};
+	/**
+	 * Create the components to store the received feedback.
+	 */
+	@PostConstruct
+	protected void createComponents() {
+
+		this.decoder = new FeedbackDecoder<>(TreatmentValueFeedbackPayload.class,
+				TreatmentValueFeedbackManager::violationOf);
+		this.recentKeys = new RecentMessageKeys(this.dedupMaxSize);
+		this.batcher = new ShardedFeedbackBatcher<>(this.batchShards, this.vertx, this.batchMaxSize,
+				this.batchMaxDelay,
+				(payloads, messageKeys, receivedTimes) -> TreatmentValueFeedbackEntity
+						.storeAll(payloads, messageKeys, receivedTimes).call(() -> this.stream.resolvePatients(
+								payloads.stream().map(payload -> payload.treatment_id).toList())));
+	}
 
 }
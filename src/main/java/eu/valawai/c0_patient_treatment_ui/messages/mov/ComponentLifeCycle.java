@@ -19,7 +19,6 @@ import org.eclipse.microprofile.reactive.messaging.Emitter;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 
 import io.quarkus.logging.Log;
-import io.quarkus.runtime.Quarkus;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Uni;
@@ -31,7 +30,11 @@ import jakarta.inject.Inject;
 
 /**
  * The class used to manage the component life cycle. Thus, this register the
- * component when started and unregister when shutdown.
+ * component when started and unregister when shutdown. The registration is sent
+ * without blocking the start of the component, and it is retried with an
+ * exponential backoff until the broker accepts it.
+ *
+ * @see ComponentReadyCheck
  *
  * @author UDT-IA, IIIA-CSIC
  */
@@ -64,6 +67,18 @@ public class ComponentLifeCycle {
 	@ConfigProperty(name = "c0_patient_treatment_ui.send.timeout", defaultValue = "60")
 	protected long sendTimeout;
 
+	/**
+	 * The milliseconds to wait before retry the first failed registration.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.register.retry_delay", defaultValue = "1000")
+	protected long registerRetryDelay;
+
+	/**
+	 * The maximum milliseconds to wait before retry a failed registration.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.register.max_retry_delay", defaultValue = "60000")
+	protected long registerMaxRetryDelay;
+
 	/**
 	 * The status of the component.
 	 */
@@ -72,26 +87,44 @@ public class ComponentLifeCycle {
 
 	/**
 	 * Called when the component is started and it must to register it on the
-	 * VALAWAI infrastructure.
+	 * VALAWAI infrastructure. The registration is sent in background, thus the
+	 * start is not delayed if the broker is slow or not available.
 	 *
 	 * @param event that contains the start status.
 	 */
 	public void handle(@Observes @Priority(APPLICATION + 1) StartupEvent event) {
 
-		try {
+		this.sendRegistration().subscribe().with(payload -> Log.debugv("Sent register {0}.", payload),
+				error -> Log.errorv(error, "Cannot send the component registration message."));
+	}
+
+	/**
+	 * Send the registration message, retrying it when it fails.
+	 *
+	 * @return the sent registration message.
+	 */
+	protected Uni<RegisterComponentPayload> sendRegistration() {
 
-			final var payload = new RegisterComponentPayload();
-			payload.version = this.version;
-			Uni.createFrom().completionStage(this.register.send(payload)).await()
-					.atMost(Duration.ofSeconds(this.sendTimeout));
-			Log.debugv("Sent register {0}.", payload);
+		final var payload = new RegisterComponentPayload();
+		payload.version = this.version;
+		final var retryDelay = Duration.ofMillis(Math.max(1, this.registerRetryDelay));
+		final var maxRetryDelay = Duration.ofMillis(Math.max(retryDelay.toMillis(), this.registerMaxRetryDelay));
+		return Uni.createFrom().completionStage(() -> {
 
-		} catch (final Throwable error) {
+			this.status.registrationAttempted();
+			return this.register.send(payload);
 
-			Log.errorv(error, "Cannot send the component registration message.");
-			Quarkus.asyncExit(1);
-		}
+		}).ifNoItem().after(Duration.ofSeconds(this.sendTimeout)).fail().onFailure().invoke(error -> {
+
+			this.status.registrationFailed(error);
+			Log.warnv("Cannot send the component registration message, because {0}. It will be retried.",
+					error.getMessage());
+
+		}).onFailure().retry().withBackOff(retryDelay, maxRetryDelay).indefinitely().map(any -> {
 
+			this.status.registrationSent();
+			return payload;
+		});
 	}
 
 	/**
@@ -0,0 +1,60 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages.mov;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+import jakarta.inject.Inject;
+
+/**
+ * Check if the component is ready to interact with the VALAWAI infrastructure.
+ * Thus, that the registration has been accepted. It also reports the progress
+ * of the registration, that is done in background when the component starts.
+ *
+ * @see ComponentLifeCycle
+ * @see ComponentLiveCheck
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Readiness
+public class ComponentReadyCheck implements HealthCheck {
+
+	/**
+	 * The name of the check.
+	 */
+	public static final String NAME = "Registration of C0 patient treatment UI";
+
+	/**
+	 * The status of the component.
+	 */
+	@Inject
+	ComponentStatus status;
+
+	/**
+	 * Check if the component is registered.
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HealthCheckResponse call() {
+
+		final var builder = HealthCheckResponse.named(NAME).status(this.status.isRegistered())
+				.withData("attempts", this.status.getRegistrationAttempts())
+				.withData("sent", this.status.isRegistrationSent());
+		final var error = this.status.getRegistrationError();
+		if (error != null) {
+
+			builder.withData("error", error);
+		}
+		return builder.build();
+	}
+
+}
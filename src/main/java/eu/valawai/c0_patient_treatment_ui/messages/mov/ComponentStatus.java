@@ -23,6 +23,22 @@ public class ComponentStatus {
 	 */
 	protected String componentId;
 
+	/**
+	 * The number of times that the registration message has been sent.
+	 */
+	protected volatile int registrationAttempts;
+
+	/**
+	 * This is {@code true} when the registration message has been sent.
+	 */
+	protected volatile boolean registrationSent;
+
+	/**
+	 * The reason why the last registration message cannot be sent, or {@code null}
+	 * if it has not failed.
+	 */
+	protected volatile String registrationError;
+
 	/**
 	 * Check if the component is registered.
 	 *
@@ -53,4 +69,62 @@ public class ComponentStatus {
 
 		this.componentId = id;
 	}
+
+	/**
+	 * Called when the registration message is going to be sent.
+	 */
+	public void registrationAttempted() {
+
+		this.registrationAttempts++;
+	}
+
+	/**
+	 * Called when the registration message has been sent.
+	 */
+	public void registrationSent() {
+
+		this.registrationSent = true;
+		this.registrationError = null;
+	}
+
+	/**
+	 * Called when the registration message cannot be sent.
+	 *
+	 * @param error why the message cannot be sent.
+	 */
+	public void registrationFailed(Throwable error) {
+
+		this.registrationError = String.valueOf(error.getMessage());
+	}
+
+	/**
+	 * Return the number of times that the registration message has been sent.
+	 *
+	 * @return the number of registration attempts.
+	 */
+	public int getRegistrationAttempts() {
+
+		return this.registrationAttempts;
+	}
+
+	/**
+	 * Check if the registration message has been sent.
+	 *
+	 * @return {@code true} if the registration message has been sent.
+	 */
+	public boolean isRegistrationSent() {
+
+		return this.registrationSent;
+	}
+
+	/**
+	 * Return the reason why the last registration message cannot be sent.
+	 *
+	 * @return the error of the last registration, or {@code null} if it has not
+	 *         failed.
+	 */
+	public String getRegistrationError() {
+
+		return this.registrationError;
+	}
 }
@@ -0,0 +1,141 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages.mov;
+
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The log messages that are waiting to be sent to the Master Of VALAWAI. It has
+ * a maximum capacity, and when it is full the oldest messages are dropped, thus
+ * adding a message never blocks. When the messages are drained, the identical
+ * ones are coalesced into a single message with the number of repetitions.
+ *
+ * @see LogService
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LogBuffer {
+
+	/**
+	 * The maximum number of messages that can wait.
+	 */
+	protected final int capacity;
+
+	/**
+	 * The messages that are waiting to be sent.
+	 */
+	protected final ArrayDeque<AddLogPayload> logs;
+
+	/**
+	 * The number of messages that have been dropped because the buffer was full.
+	 */
+	protected final LongAdder dropped = new LongAdder();
+
+	/**
+	 * The number of messages that have been coalesced with an identical one.
+	 */
+	protected final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * Create the buffer.
+	 *
+	 * @param capacity maximum number of messages that can wait.
+	 */
+	public LogBuffer(int capacity) {
+
+		this.capacity = Math.max(1, capacity);
+		this.logs = new ArrayDeque<>(Math.min(this.capacity, 1024));
+	}
+
+	/**
+	 * Add a message to send. If the buffer is full the oldest message is dropped.
+	 *
+	 * @param log message to add.
+	 */
+	public synchronized void add(AddLogPayload log) {
+
+		if (this.logs.size() >= this.capacity) {
+
+			this.logs.pollFirst();
+			this.dropped.increment();
+		}
+		this.logs.addLast(log);
+	}
+
+	/**
+	 * Remove the messages that are waiting to be sent. The identical messages are
+	 * returned once, with the number of repetitions added to the message.
+	 *
+	 * @return the messages to send, in the order that they have been added.
+	 */
+	public List<AddLogPayload> drain() {
+
+		final List<AddLogPayload> drained;
+		synchronized (this) {
+
+			if (this.logs.isEmpty()) {
+
+				return List.of();
+			}
+			drained = new ArrayList<>(this.logs);
+			this.logs.clear();
+		}
+
+		final var repetitions = new LinkedHashMap<String, AddLogPayload>();
+		final var counts = new LinkedHashMap<String, Integer>();
+		for (final var log : drained) {
+
+			final var key = log.level + "\u0000" + log.message + "\u0000" + log.payload;
+			repetitions.putIfAbsent(key, log);
+			counts.merge(key, 1, Integer::sum);
+		}
+
+		final var result = new ArrayList<AddLogPayload>(repetitions.size());
+		for (final var entry : repetitions.entrySet()) {
+
+			final var log = entry.getValue();
+			final int count = counts.get(entry.getKey());
+			if (count > 1) {
+
+				log.message = MessageFormat.format("{0} (repeated {1} times)", log.message, count);
+				this.coalesced.add(count - 1);
+			}
+			result.add(log);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of messages that have been dropped because the buffer
+	 * was full.
+	 *
+	 * @return the number of dropped messages.
+	 */
+	public long dropped() {
+
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Return the number of messages that have been coalesced with an identical
+	 * one.
+	 *
+	 * @return the number of coalesced messages.
+	 */
+	public long coalesced() {
+
+		return this.coalesced.sum();
+	}
+
+}
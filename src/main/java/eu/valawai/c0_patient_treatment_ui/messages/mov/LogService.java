@@ -9,18 +9,33 @@
 package eu.valawai.c0_patient_treatment_ui.messages.mov;
 
 import java.text.MessageFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
 
 import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 
 /**
- * The service to send log messages to the Master Of VALAWAI.
+ * The service to send log messages to the Master Of VALAWAI. The messages are
+ * added to a {@link LogBuffer} and shipped periodically, thus a burst of
+ * identical messages is sent only once with the number of repetitions. The
+ * debug messages can be sampled, and when the buffer is full the oldest
+ * messages are dropped instead of blocking who logs.
+ *
+ * @see LogBuffer
  *
  * @author UDT-IA, IIIA-CSIC
  */
@@ -41,16 +56,206 @@ public class LogService {
 	protected ComponentStatus status;
 
 	/**
-	 * Send a log into the Master Of VALAWAI.
+	 * The minimum level of the log messages to send. The messages with a lower
+	 * level are ignored without formatting them.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.mov_log.min_level", defaultValue = "INFO")
+	protected LogLevel minLevel;
+
+	/**
+	 * The maximum number of characters of the payload of a log message. If it is
+	 * zero or negative the payloads are not truncated.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.mov_log.max_payload_length", defaultValue = "0")
+	protected int maxPayloadLength;
+
+	/**
+	 * The maximum number of log messages that can wait to be shipped.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.mov_log.buffer_size", defaultValue = "1000")
+	protected int bufferSize;
+
+	/**
+	 * The milliseconds between the shipments of the log messages.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.mov_log.flush_interval", defaultValue = "500")
+	protected long flushInterval;
+
+	/**
+	 * The fraction of the debug messages that are sent. It is a value between
+	 * {@code 0} (none) and {@code 1} (all).
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.mov_log.debug_sample_rate", defaultValue = "1")
+	protected double debugSampleRate = 1.0;
+
+	/**
+	 * The vertx instance used to ship the log messages periodically.
+	 */
+	@Inject
+	protected Vertx vertx;
+
+	/**
+	 * The log messages that are waiting to be shipped.
+	 */
+	protected LogBuffer buffer;
+
+	/**
+	 * The identifier of the periodic timer.
+	 */
+	protected long timerId = -1;
+
+	/**
+	 * The number of log messages that have been shipped.
+	 */
+	protected final LongAdder shipped = new LongAdder();
+
+	/**
+	 * The number of debug messages that have not been sampled.
+	 */
+	protected final LongAdder sampledOut = new LongAdder();
+
+	/**
+	 * Create the buffer of the log messages.
+	 */
+	@PostConstruct
+	protected void createBuffer() {
+
+		this.buffer = new LogBuffer(this.bufferSize);
+	}
+
+	/**
+	 * Start to ship the log messages when the application is started.
+	 *
+	 * @param event that contains the start status.
+	 */
+	public void start(@Observes StartupEvent event) {
+
+		this.timerId = this.vertx.setPeriodic(Math.max(1, this.flushInterval), id -> this.flush());
+	}
+
+	/**
+	 * Ship the pending log messages and stop when the application is stopped.
+	 *
+	 * @param event that contains the stop status.
+	 */
+	public void stop(@Observes ShutdownEvent event) {
+
+		if (this.timerId >= 0) {
+
+			this.vertx.cancelTimer(this.timerId);
+			this.timerId = -1;
+		}
+		this.flush();
+	}
+
+	/**
+	 * Check if the messages of a level are sent.
+	 *
+	 * @param level to check.
+	 *
+	 * @return {@code true} if the messages of the level are sent.
+	 */
+	public boolean isEnabled(LogLevel level) {
+
+		return level != null && (this.minLevel == null || level.ordinal() <= this.minLevel.ordinal());
+	}
+
+	/**
+	 * Check if a message of a level has to be sent, after checking that the level
+	 * is enabled and sampling the debug messages.
+	 *
+	 * @param level of the message to check.
+	 *
+	 * @return {@code true} if the message has to be sent.
+	 *
+	 * @see #isEnabled(LogLevel)
+	 */
+	protected boolean isSampled(LogLevel level) {
+
+		if (!this.isEnabled(level)) {
+
+			return false;
+
+		} else if (level == LogLevel.DEBUG && this.debugSampleRate < 1.0
+				&& ThreadLocalRandom.current().nextDouble() >= this.debugSampleRate) {
+
+			this.sampledOut.increment();
+			return false;
+
+		} else {
+
+			return true;
+		}
+	}
+
+	/**
+	 * Send a log into the Master Of VALAWAI. The log is shipped with the next
+	 * batch of messages.
 	 *
 	 * @param payload with the log to report.
 	 */
 	public void send(AddLogPayload payload) {
 
-		payload.component_id = this.status.getRegisteredId();
-		Uni.createFrom().completionStage(this.service.send(payload)).subscribe().with(
-				any -> Log.debugv("Sent log {0}.", payload),
-				error -> Log.errorv(error, "Cannot send log {0}.", payload));
+		this.buffer.add(payload);
+	}
+
+	/**
+	 * Ship the log messages that are waiting on the buffer.
+	 */
+	public void flush() {
+
+		final var componentId = this.status.getRegisteredId();
+		for (final var payload : this.buffer.drain()) {
+
+			payload.component_id = componentId;
+			this.shipped.increment();
+			Uni.createFrom().completionStage(this.service.send(payload)).subscribe().with(
+					any -> Log.debugv("Sent log {0}.", payload),
+					error -> Log.errorv(error, "Cannot send log {0}.", payload));
+		}
+	}
+
+	/**
+	 * Return the number of log messages that have been shipped.
+	 *
+	 * @return the number of shipped messages.
+	 */
+	public long shipped() {
+
+		return this.shipped.sum();
+	}
+
+	/**
+	 * Return the number of log messages that have been coalesced with an
+	 * identical one.
+	 *
+	 * @return the number of coalesced messages.
+	 */
+	public long coalesced() {
+
+		return this.buffer.coalesced();
+	}
+
+	/**
+	 * Return the number of log messages that have been dropped because the buffer
+	 * was full.
+	 *
+	 * @return the number of dropped messages.
+	 */
+	public long dropped() {
+
+		return this.buffer.dropped();
+	}
+
+	/**
+	 * Return the number of debug messages that have not been sent by the
+	 * sampling.
+	 *
+	 * @return the number of sampled out messages.
+	 */
+	public long sampledOut() {
+
+		return this.sampledOut.sum();
 	}
 
 	/**
@@ -146,24 +351,59 @@ public class LogService {
 	}
 
 	/**
-	 * Send a log message.
+	 * Send a log message. If the level is not enabled, or the debug message is
+	 * not sampled, the message is ignored without formatting it or encoding the
+	 * payload.
 	 *
 	 * @param level   of the log.
 	 * @param payload for the message.
 	 * @param message of the log message.
 	 * @param params  parameters to replace on the message.
+	 *
+	 * @see #isSampled(LogLevel)
 	 */
 	public void send(LogLevel level, Object payload, String message, Object... params) {
 
+		if (!this.isSampled(level)) {
+
+			return;
+		}
+
 		final var log = new AddLogPayload();
 		log.level = level;
 		log.message = MessageFormat.format(message, params);
 		if (payload != null) {
 
-			log.payload = Json.encodePrettily(payload);
+			log.payload = this.truncate(Json.encode(payload));
 		}
 		this.send(log);
 
 	}
 
+	/**
+	 * Truncate an encoded payload that is longer than the maximum length. The
+	 * truncated payload is wrapped into a JSON object with the original length and
+	 * the first characters of the payload, thus it is still a valid JSON.
+	 *
+	 * @param payload to truncate.
+	 *
+	 * @return the payload if it is not too long, or the JSON with the truncated
+	 *         payload.
+	 */
+	protected String truncate(String payload) {
+
+		if (this.maxPayloadLength <= 0 || payload.length() <= this.maxPayloadLength) {
+
+			return payload;
+		}
+
+		var end = this.maxPayloadLength;
+		if (Character.isHighSurrogate(payload.charAt(end - 1))) {
+
+			end--;
+		}
+		return new JsonObject().put("truncated", true).put("length", payload.length())
+				.put("prefix", payload.substring(0, end)).encode();
+	}
+
 }
@@ -129,4 +129,44 @@ public class PatientStatusCriteria extends ReflectionModel {
 	@Schema(title = "Describe the level of therapeutic intensity of the patient.")
 	public NITLevel nitLevel;
 
+	/**
+	 * Two status are equals if they have the same code.
+	 *
+	 * {@inheritDoc}
+	 *
+	 * @see PatientStatusCriteriaCodec#encode(PatientStatusCriteria)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+
+		if (this == obj) {
+
+			return true;
+
+		} else if (obj != null && obj.getClass() == this.getClass()) {
+
+			return PatientStatusCriteriaCodec.encode(this) == PatientStatusCriteriaCodec
+					.encode((PatientStatusCriteria) obj);
+
+		} else {
+
+			return false;
+		}
+
+	}
+
+	/**
+	 * The hash code of the code of the status.
+	 *
+	 * {@inheritDoc}
+	 *
+	 * @see PatientStatusCriteriaCodec#encode(PatientStatusCriteria)
+	 */
+	@Override
+	public int hashCode() {
+
+		return Long.hashCode(PatientStatusCriteriaCodec.encode(this));
+
+	}
+
 }
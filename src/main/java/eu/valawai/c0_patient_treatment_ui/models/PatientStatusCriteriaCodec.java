@@ -0,0 +1,327 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Encode a {@link PatientStatusCriteria} into a {@code long}. Each field of the
+ * status is stored on its own group of bits as the ordinal of its value plus
+ * one, thus zero means that the field is not defined. The options with yes, no
+ * or unknown use two bits and the others five bits, so the layout does not
+ * change if an option gains new values.
+ *
+ * The encoding is reversible, so two statuses are equals if, and only if, they
+ * have the same code.
+ *
+ * @see PatientStatusCriteria
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public final class PatientStatusCriteriaCodec {
+
+	/**
+	 * The number of bits used to store a {@link YesNoUnknownOption}.
+	 */
+	private static final int YES_NO_UNKNOWN_BITS = 2;
+
+	/**
+	 * The number of bits used to store the other options.
+	 */
+	private static final int OPTION_BITS = 5;
+
+	/**
+	 * The groups of bits where the fields of the status are stored. Add the new
+	 * fields at the end to not change the codes of the stored statuses.
+	 */
+	private static final Slot<?>[] SLOTS;
+
+	static {
+
+		final var builder = new SlotsBuilder();
+		builder.add(AgeRangeOption.class, OPTION_BITS, status -> status.ageRange,
+				(status, value) -> status.ageRange = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.ccd,
+				(status, value) -> status.ccd = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.maca,
+				(status, value) -> status.maca = value);
+		builder.add(SurvivalOptions.class, OPTION_BITS, status -> status.expectedSurvival,
+				(status, value) -> status.expectedSurvival = value);
+		builder.add(SPICT_Scale.class, OPTION_BITS, status -> status.frailVIG,
+				(status, value) -> status.frailVIG = value);
+		builder.add(ClinicalRiskGroupOption.class, OPTION_BITS, status -> status.clinicalRiskGroup,
+				(status, value) -> status.clinicalRiskGroup = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.hasSocialSupport,
+				(status, value) -> status.hasSocialSupport = value);
+		builder.add(BarthelIndex.class, OPTION_BITS, status -> status.independenceAtAdmission,
+				(status, value) -> status.independenceAtAdmission = value);
+		builder.add(LawtonIndex.class, OPTION_BITS, status -> status.independenceInstrumentalActivities,
+				(status, value) -> status.independenceInstrumentalActivities = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.hasAdvanceDirectives,
+				(status, value) -> status.hasAdvanceDirectives = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.isCompetent,
+				(status, value) -> status.isCompetent = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.hasBeenInformed,
+				(status, value) -> status.hasBeenInformed = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.isCoerced,
+				(status, value) -> status.isCoerced = value);
+		builder.add(CognitiveImpairmentLevel.class, OPTION_BITS, status -> status.hasCognitiveImpairment,
+				(status, value) -> status.hasCognitiveImpairment = value);
+		builder.add(YesNoUnknownOption.class, YES_NO_UNKNOWN_BITS, status -> status.hasEmocionalPain,
+				(status, value) -> status.hasEmocionalPain = value);
+		builder.add(DiscomfortDegree.class, OPTION_BITS, status -> status.discomfortDegree,
+				(status, value) -> status.discomfortDegree = value);
+		builder.add(NITLevel.class, OPTION_BITS, status -> status.nitLevel,
+				(status, value) -> status.nitLevel = value);
+		SLOTS = builder.slots.toArray(new Slot<?>[0]);
+
+	}
+
+	/**
+	 * The number of fields that are encoded.
+	 */
+	public static final int FIELDS = SLOTS.length;
+
+	/**
+	 * Utility class.
+	 */
+	private PatientStatusCriteriaCodec() {
+
+	}
+
+	/**
+	 * Encode a status.
+	 *
+	 * @param status to encode.
+	 *
+	 * @return the code of the status.
+	 */
+	public static long encode(PatientStatusCriteria status) {
+
+		var code = 0l;
+		if (status != null) {
+
+			for (final var slot : SLOTS) {
+
+				code |= slot.encode(status);
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Decode a status.
+	 *
+	 * @param code of the status to decode.
+	 *
+	 * @return the status associated to the code.
+	 *
+	 * @throws IllegalArgumentException if the code is not valid.
+	 */
+	public static PatientStatusCriteria decode(long code) throws IllegalArgumentException {
+
+		final var status = new PatientStatusCriteria();
+		var remaining = code;
+		for (final var slot : SLOTS) {
+
+			slot.decode(code, status);
+			remaining &= ~slot.mask;
+		}
+		if (remaining != 0) {
+
+			throw new IllegalArgumentException("The code " + code + " is not a valid status.");
+		}
+		return status;
+	}
+
+	/**
+	 * Return the fields that are different between two status.
+	 *
+	 * @param code1 of the first status.
+	 * @param code2 of the second status.
+	 *
+	 * @return a mask with the bits of {@code 1 << index} set for each field that
+	 *         has a different value, where the index is the position of the field
+	 *         on the encoding.
+	 */
+	public static int differences(long code1, long code2) {
+
+		final var diff = code1 ^ code2;
+		var fields = 0;
+		if (diff != 0) {
+
+			for (var i = 0; i < SLOTS.length; i++) {
+
+				if ((diff & SLOTS[i].mask) != 0) {
+
+					fields |= 1 << i;
+				}
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Return the number of fields that are different between two status.
+	 *
+	 * @param code1 of the first status.
+	 * @param code2 of the second status.
+	 *
+	 * @return the number of fields with a different value.
+	 */
+	public static int distance(long code1, long code2) {
+
+		return Integer.bitCount(differences(code1, code2));
+	}
+
+	/**
+	 * The group of bits that stores a field of the status.
+	 *
+	 * @param <E> type of the field.
+	 */
+	private static class Slot<E extends Enum<E>> {
+
+		/**
+		 * The possible values of the field.
+		 */
+		private final E[] values;
+
+		/**
+		 * The position of the first bit of the field.
+		 */
+		private final int shift;
+
+		/**
+		 * The bits that are used by the field.
+		 */
+		private final long mask;
+
+		/**
+		 * The function to obtain the value of the field.
+		 */
+		private final Function<PatientStatusCriteria, E> getter;
+
+		/**
+		 * The function to change the value of the field.
+		 */
+		private final BiConsumer<PatientStatusCriteria, E> setter;
+
+		/**
+		 * Create the slot.
+		 *
+		 * @param type   of the field.
+		 * @param shift  position of the first bit of the field.
+		 * @param bits   number of bits of the field.
+		 * @param getter function to obtain the value of the field.
+		 * @param setter function to change the value of the field.
+		 */
+		private Slot(Class<E> type, int shift, int bits, Function<PatientStatusCriteria, E> getter,
+				BiConsumer<PatientStatusCriteria, E> setter) {
+
+			this.values = type.getEnumConstants();
+			if (this.values.length >= 1 << bits) {
+
+				throw new IllegalStateException("The values of " + type.getSimpleName() + " do not fit on " + bits
+						+ " bits of the status code.");
+			}
+			this.shift = shift;
+			this.mask = ((1l << bits) - 1) << shift;
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		/**
+		 * Encode the field of a status.
+		 *
+		 * @param status to encode.
+		 *
+		 * @return the bits of the field.
+		 */
+		private long encode(PatientStatusCriteria status) {
+
+			final var value = this.getter.apply(status);
+			if (value == null) {
+
+				return 0l;
+
+			} else {
+
+				return (value.ordinal() + 1l) << this.shift;
+			}
+		}
+
+		/**
+		 * Decode the field of a status.
+		 *
+		 * @param code   of the status.
+		 * @param status where set the field.
+		 *
+		 * @throws IllegalArgumentException if the value of the field is not valid.
+		 */
+		private void decode(long code, PatientStatusCriteria status) throws IllegalArgumentException {
+
+			final var index = (int) ((code & this.mask) >>> this.shift);
+			if (index == 0) {
+
+				this.setter.accept(status, null);
+
+			} else if (index <= this.values.length) {
+
+				this.setter.accept(status, this.values[index - 1]);
+
+			} else {
+
+				throw new IllegalArgumentException("The code " + code + " has an undefined value.");
+			}
+		}
+
+	}
+
+	/**
+	 * The component used to define the slots of the encoding.
+	 */
+	private static class SlotsBuilder {
+
+		/**
+		 * The defined slots.
+		 */
+		private final List<Slot<?>> slots = new ArrayList<>();
+
+		/**
+		 * The position of the next free bit.
+		 */
+		private int shift = 0;
+
+		/**
+		 * Add a new field to the encoding.
+		 *
+		 * @param <E>    type of the field.
+		 * @param type   of the field.
+		 * @param bits   number of bits of the field.
+		 * @param getter function to obtain the value of the field.
+		 * @param setter function to change the value of the field.
+		 */
+		private <E extends Enum<E>> void add(Class<E> type, int bits, Function<PatientStatusCriteria, E> getter,
+				BiConsumer<PatientStatusCriteria, E> setter) {
+
+			final var slot = new Slot<>(type, this.shift, bits, getter, setter);
+			this.shift += bits;
+			if (this.shift >= Long.SIZE) {
+
+				throw new IllegalStateException("The status does not fit on a long.");
+			}
+			this.slots.add(slot);
+		}
+
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+/**
+ * The possible ways to calculate the total of elements that satisfy the query
+ * of a page.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public enum CountMode {
+
+	/**
+	 * Count exactly the elements that satisfy the query.
+	 */
+	EXACT,
+
+	/**
+	 * Use the number of elements that the database estimates that satisfy the
+	 * query. The totals that are stored on the {@link CounterEntity} are always
+	 * exact.
+	 */
+	ESTIMATE,
+
+	/**
+	 * Do not calculate the total.
+	 */
+	NONE;
+
+}
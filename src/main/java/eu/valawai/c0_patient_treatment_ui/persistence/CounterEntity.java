@@ -0,0 +1,136 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * An entity that stores the number of rows of a table, or the number of
+ * treatments of a patient, thus the totals of the pages without filter are
+ * obtained without counting the rows. The counters are updated by triggers
+ * defined on the migrations, thus the database changes them in the same
+ * transaction that inserts or deletes the rows.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Entity(name = CounterEntity.TABLE_NAME)
+public class CounterEntity extends PanacheEntityBase {
+
+	/**
+	 * The name of the table that will contains the counters.
+	 */
+	public static final String TABLE_NAME = "COUNTERS";
+
+	/**
+	 * The name of the counter with the number of patients.
+	 */
+	public static final String PATIENTS = PatientEntity.TABLE_NAME;
+
+	/**
+	 * The name of the counter with the number of treatments.
+	 */
+	public static final String TREATMENTS = TreatmentEntity.TABLE_NAME;
+
+	/**
+	 * The prefix of the name of the counters with the number of treatments of a
+	 * patient.
+	 */
+	public static final String TREATMENTS_OF_PATIENT_PREFIX = "TREATMENTS_OF_PATIENT_";
+
+	/**
+	 * The query to obtain the total of a counter.
+	 */
+	private static final String TOTAL_QUERY = "select c.total from " + TABLE_NAME + " c where c.name = ?1";
+
+	/**
+	 * The pattern to obtain the estimated rows of a plan.
+	 */
+	private static final Pattern ESTIMATED_ROWS = Pattern.compile("rows=(\\d+)");
+
+	/**
+	 * The name of the counter.
+	 */
+	@Id
+	public String name;
+
+	/**
+	 * The number of elements of the counter.
+	 */
+	public long total;
+
+	/**
+	 * Return the name of the counter with the number of treatments of a patient.
+	 *
+	 * @param patientId identifier of the patient.
+	 *
+	 * @return the name of the counter of the treatments of the patient.
+	 */
+	public static String treatmentsOfPatient(long patientId) {
+
+		return TREATMENTS_OF_PATIENT_PREFIX + patientId;
+	}
+
+	/**
+	 * Return the total of a counter.
+	 *
+	 * @param name     of the counter.
+	 * @param fallback the query to count the elements if the counter is not
+	 *                 defined.
+	 *
+	 * @return the total of the counter.
+	 */
+	public static Uni<Long> totalOf(String name, Supplier<Uni<Long>> fallback) {
+
+		return Panache.getSession()
+				.chain(session -> session.createSelectionQuery(TOTAL_QUERY, Long.class).setParameter(1, name)
+						.getSingleResultOrNull())
+				.onItem().ifNull().switchTo(fallback);
+	}
+
+	/**
+	 * Return the number of rows that the database estimates that a query returns.
+	 *
+	 * @param query  native query to estimate its rows.
+	 * @param params parameters of the query.
+	 *
+	 * @return the estimated number of rows of the query.
+	 */
+	public static Uni<Long> estimate(String query, Object... params) {
+
+		return Panache.getSession().chain(session -> {
+
+			final var explain = session.createNativeQuery("explain " + query, String.class);
+			for (var i = 0; i < params.length; i++) {
+
+				explain.setParameter(i + 1, params[i]);
+			}
+			return explain.getResultList();
+
+		}).map(plan -> {
+
+			if (!plan.isEmpty()) {
+
+				final var matcher = ESTIMATED_ROWS.matcher(plan.get(0));
+				if (matcher.find()) {
+
+					return Long.parseLong(matcher.group(1));
+				}
+			}
+			return 0l;
+		});
+	}
+
+}
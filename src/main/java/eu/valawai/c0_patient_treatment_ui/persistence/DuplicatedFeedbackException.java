@@ -0,0 +1,40 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+/**
+ * Reported when the feedback of a message is not stored because the feedback
+ * of this message has been stored before. It is not a failure, thus the message
+ * has to be acknowledged as a duplicated one.
+ *
+ * @see TreatmentActionFeedbackEntity#storeAll(java.util.List, java.util.List,
+ *      java.util.List)
+ * @see TreatmentValueFeedbackEntity#storeAll(java.util.List, java.util.List,
+ *      java.util.List)
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class DuplicatedFeedbackException extends RuntimeException {
+
+	/**
+	 * Serialization identifier.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create the exception without a stack trace.
+	 *
+	 * @param messageKey key of the message whose feedback has been stored before.
+	 */
+	public DuplicatedFeedbackException(String messageKey) {
+
+		super("The feedback of the message " + messageKey + " has been stored before.", null, false, false);
+	}
+
+}
@@ -0,0 +1,302 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import io.quarkus.panache.common.Parameters;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.panache.common.Sort.Direction;
+import io.vertx.core.json.JsonArray;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * A component used to build a query that seeks the elements that are after a
+ * cursor. The cursor is an opaque token that contains the values of the sort
+ * columns of the last element of the previous page. Thus, the next page can be
+ * obtained without counting or skipping the previous elements.
+ *
+ * The predicates follow the PostgreSQL null ordering, thus the {@code null}
+ * values are the last on ascending order and the first on descending order.
+ *
+ * The sort columns are written on the query, thus only the columns that are
+ * defined on the sortable fields of the elements can be used, and the values
+ * of the cursor must have the type of their columns.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class KeysetQueryBuilder {
+
+	/**
+	 * The prefix of the parameters of the cursor.
+	 */
+	protected static final String PARAMETER_PREFIX = "keyset";
+
+	/**
+	 * The columns used to sort the elements.
+	 */
+	protected List<Sort.Column> columns;
+
+	/**
+	 * The types of the values of the sort columns.
+	 */
+	protected List<Class<?>> types;
+
+	/**
+	 * The values of the columns of the last element of the previous page, or
+	 * {@code null} if it has to start from the first element.
+	 */
+	protected List<Object> values;
+
+	/**
+	 * Create a builder.
+	 *
+	 * @param sort   how the elements are ordered.
+	 * @param fields the types of the fields that can be used to sort the
+	 *               elements.
+	 *
+	 * @throws IllegalArgumentException if the elements cannot be sorted by a
+	 *                                  column.
+	 */
+	private KeysetQueryBuilder(Sort sort, Map<String, Class<?>> fields) throws IllegalArgumentException {
+
+		this.columns = sort.getColumns();
+		this.types = new ArrayList<>(this.columns.size());
+		for (final var column : this.columns) {
+
+			final var type = fields.get(column.getName());
+			if (type == null) {
+
+				throw new IllegalArgumentException("Cannot sort the elements by " + column.getName());
+			}
+			this.types.add(type);
+		}
+		this.values = null;
+	}
+
+	/**
+	 * Create the builder for the specified sort.
+	 *
+	 * @param sort   how the elements are ordered.
+	 * @param fields the types of the fields that can be used to sort the
+	 *               elements.
+	 *
+	 * @return the builder to create a query to seek the elements after a cursor.
+	 *
+	 * @throws IllegalArgumentException if the elements cannot be sorted by a
+	 *                                  column.
+	 */
+	public static KeysetQueryBuilder withSort(@NotNull Sort sort, @NotNull Map<String, Class<?>> fields)
+			throws IllegalArgumentException {
+
+		return new KeysetQueryBuilder(sort, fields);
+
+	}
+
+	/**
+	 * Specify the cursor after which the elements have to be returned.
+	 *
+	 * @param cursor to seek. If it is {@code null} or empty the query starts from
+	 *               the first element.
+	 *
+	 * @return the builder to create a query to seek the elements after a cursor.
+	 *
+	 * @throws IllegalArgumentException if the cursor is not valid for the sort.
+	 */
+	public KeysetQueryBuilder after(String cursor) throws IllegalArgumentException {
+
+		if (cursor == null || cursor.isBlank()) {
+
+			this.values = null;
+
+		} else {
+
+			JsonArray array = null;
+			try {
+
+				final var decoded = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+				array = new JsonArray(decoded);
+
+			} catch (final RuntimeException error) {
+
+				throw new IllegalArgumentException("The cursor is not valid.", error);
+			}
+			if (array.size() != this.columns.size()) {
+
+				throw new IllegalArgumentException("The cursor does not match the order of the elements.");
+			}
+
+			this.values = new ArrayList<>(array.size());
+			for (var i = 0; i < array.size(); i++) {
+
+				final var value = array.getValue(i);
+				final var type = this.types.get(i);
+				if (value instanceof final Number number && type == Long.class) {
+
+					this.values.add(number.longValue());
+
+				} else if (value == null || (value instanceof String && type == String.class)) {
+
+					this.values.add(value);
+
+				} else {
+
+					throw new IllegalArgumentException("The cursor has a value that can not be sorted.");
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * The query to execute.
+	 *
+	 * @param filter the query that has to satisfy the elements.
+	 *
+	 * @return the query that has to satisfy the elements after the cursor.
+	 */
+	public String query(String filter) {
+
+		if (this.values == null) {
+
+			return filter;
+
+		} else {
+
+			final var query = new StringBuilder();
+			query.append(filter);
+			query.append(" and (");
+			final var max = this.columns.size();
+			for (var i = 0; i < max; i++) {
+
+				if (i > 0) {
+
+					query.append(" or ");
+				}
+				query.append('(');
+				for (var j = 0; j < i; j++) {
+
+					this.appendEqualsTo(query, j);
+					query.append(" and ");
+				}
+				this.appendAfter(query, i);
+				query.append(')');
+			}
+			query.append(')');
+			return query.toString();
+		}
+
+	}
+
+	/**
+	 * Append the predicate that checks that a column is equals to the cursor.
+	 *
+	 * @param query where append the predicate.
+	 * @param index of the column.
+	 */
+	private void appendEqualsTo(StringBuilder query, int index) {
+
+		query.append(this.columns.get(index).getName());
+		if (this.values.get(index) == null) {
+
+			query.append(" is null");
+
+		} else {
+
+			query.append(" = :").append(PARAMETER_PREFIX).append(index);
+		}
+	}
+
+	/**
+	 * Append the predicate that checks that a column is after the cursor.
+	 *
+	 * @param query where append the predicate.
+	 * @param index of the column.
+	 */
+	private void appendAfter(StringBuilder query, int index) {
+
+		final var column = this.columns.get(index);
+		final var name = column.getName();
+		final var value = this.values.get(index);
+		if (column.getDirection() == Direction.Descending) {
+
+			if (value == null) {
+
+				query.append(name).append(" is not null");
+
+			} else {
+
+				query.append(name).append(" < :").append(PARAMETER_PREFIX).append(index);
+			}
+
+		} else if (value == null) {
+
+			query.append("1 = 0");
+
+		} else {
+
+			query.append('(').append(name).append(" > :").append(PARAMETER_PREFIX).append(index).append(" or ")
+					.append(name).append(" is null)");
+		}
+
+	}
+
+	/**
+	 * The parameters to use.
+	 *
+	 * @param parameters of the filter.
+	 *
+	 * @return the query parameters.
+	 */
+	public Parameters parameters(Parameters parameters) {
+
+		var result = parameters;
+		if (this.values != null) {
+
+			final var max = this.values.size();
+			for (var i = 0; i < max; i++) {
+
+				final var value = this.values.get(i);
+				if (value != null) {
+
+					result = result.and(PARAMETER_PREFIX + i, value);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the cursor that points to an element.
+	 *
+	 * @param valueOf function that returns the value of a sort column for the
+	 *                element.
+	 *
+	 * @return the cursor to obtain the elements after the element.
+	 *
+	 * @throws IllegalArgumentException if the value of any sort column is
+	 *                                  unknown.
+	 */
+	public String cursorFor(Function<String, Object> valueOf) throws IllegalArgumentException {
+
+		final var array = new JsonArray();
+		for (final var column : this.columns) {
+
+			array.add(valueOf.apply(column.getName()));
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(array.encode().getBytes(StandardCharsets.UTF_8));
+
+	}
+
+}
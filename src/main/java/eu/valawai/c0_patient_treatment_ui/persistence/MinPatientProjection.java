@@ -0,0 +1,97 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.Map;
+
+import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatient;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * The projection of the columns of a {@link PatientEntity} that are necessary
+ * to obtain a {@link MinPatient}. It is used to list the patients without
+ * loading the full entities or its status.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@RegisterForReflection
+public class MinPatientProjection {
+
+	/**
+	 * The types of the fields that can be used to sort the patients.
+	 *
+	 * @see #valueOf(String)
+	 * @see KeysetQueryBuilder
+	 */
+	public static final Map<String, Class<?>> SORT_FIELDS = Map.of("id", Long.class, "name", String.class, "updateTime",
+			Long.class);
+
+	/**
+	 * The identifier of the patient.
+	 */
+	public Long id;
+
+	/**
+	 * The name of the patient.
+	 */
+	public String name;
+
+	/**
+	 * The time when the patient has been updated.
+	 */
+	public long updateTime;
+
+	/**
+	 * Create the projection of a patient.
+	 *
+	 * @param id         identifier of the patient.
+	 * @param name       of the patient.
+	 * @param updateTime time when the patient has been updated.
+	 */
+	public MinPatientProjection(Long id, String name, long updateTime) {
+
+		this.id = id;
+		this.name = name;
+		this.updateTime = updateTime;
+	}
+
+	/**
+	 * Return the min patient for this projection.
+	 *
+	 * @return the min patient associated to this projection.
+	 */
+	public MinPatient toMinPatient() {
+
+		final var model = new MinPatient();
+		model.id = this.id;
+		model.name = this.name;
+		return model;
+	}
+
+	/**
+	 * Return the value of a field that can be used to sort the patients.
+	 *
+	 * @param field name of the field to get the value.
+	 *
+	 * @return the value of the field.
+	 *
+	 * @throws IllegalArgumentException if the patients can not be sorted by the
+	 *                                  field.
+	 */
+	public Object valueOf(String field) throws IllegalArgumentException {
+
+		return switch (field) {
+		case "id" -> this.id;
+		case "name" -> this.name;
+		case "updateTime" -> this.updateTime;
+		default -> throw new IllegalArgumentException("Cannot sort the patients by " + field);
+		};
+	}
+
+}
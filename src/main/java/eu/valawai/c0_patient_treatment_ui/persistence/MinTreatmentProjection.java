@@ -0,0 +1,114 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.Map;
+
+import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatient;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.MinTreatment;
+import io.quarkus.hibernate.reactive.panache.common.ProjectedFieldName;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * The projection of the columns of a {@link TreatmentEntity} that are necessary
+ * to obtain a {@link MinTreatment}. It is used to list the treatments without
+ * loading the full entities, its status or its feedbacks.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@RegisterForReflection
+public class MinTreatmentProjection {
+
+	/**
+	 * The types of the fields that can be used to sort the treatments.
+	 *
+	 * @see #valueOf(String)
+	 * @see KeysetQueryBuilder
+	 */
+	public static final Map<String, Class<?>> SORT_FIELDS = Map.of("id", Long.class, "createdTime", Long.class,
+			"patient.id", Long.class, "patient.name", String.class);
+
+	/**
+	 * The identifier of the treatment.
+	 */
+	public Long id;
+
+	/**
+	 * The epoch time, in seconds, when the treatment has been created.
+	 */
+	public long createdTime;
+
+	/**
+	 * The identifier of the patient of the treatment.
+	 */
+	public Long patientId;
+
+	/**
+	 * The name of the patient of the treatment.
+	 */
+	public String patientName;
+
+	/**
+	 * Create the projection of a treatment.
+	 *
+	 * @param id          identifier of the treatment.
+	 * @param createdTime time when the treatment has been created.
+	 * @param patientId   identifier of the patient of the treatment.
+	 * @param patientName name of the patient of the treatment.
+	 */
+	public MinTreatmentProjection(Long id, long createdTime, @ProjectedFieldName("patient.id") Long patientId,
+			@ProjectedFieldName("patient.name") String patientName) {
+
+		this.id = id;
+		this.createdTime = createdTime;
+		this.patientId = patientId;
+		this.patientName = patientName;
+	}
+
+	/**
+	 * Return the min treatment for this projection.
+	 *
+	 * @return the min treatment associated to this projection.
+	 */
+	public MinTreatment toMinTreatment() {
+
+		final var model = new MinTreatment();
+		model.id = this.id;
+		model.createdTime = this.createdTime;
+		if (this.patientId != null) {
+
+			model.patient = new MinPatient();
+			model.patient.id = this.patientId;
+			model.patient.name = this.patientName;
+		}
+		return model;
+	}
+
+	/**
+	 * Return the value of a field that can be used to sort the treatments.
+	 *
+	 * @param field name of the field to get the value.
+	 *
+	 * @return the value of the field.
+	 *
+	 * @throws IllegalArgumentException if the treatments can not be sorted by the
+	 *                                  field.
+	 */
+	public Object valueOf(String field) throws IllegalArgumentException {
+
+		return switch (field) {
+		case "id" -> this.id;
+		case "createdTime" -> this.createdTime;
+		case "patient.id" -> this.patientId;
+		case "patient.name" -> this.patientName;
+		default -> throw new IllegalArgumentException("Cannot sort the treatments by " + field);
+		};
+	}
+
+}
@@ -0,0 +1,300 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * A bounded cache of the models that are rendered from the entities. The least
+ * recently used models are removed when the cache is full, and the models
+ * expire after some time. The models are invalidated when their modification
+ * has been committed, and a model that is loaded while it is invalidated is not
+ * cached, thus it cannot store a value that has been read before the
+ * modification. The loads of the other models are not affected.
+ *
+ * @param <V> type of the cached models.
+ *
+ * @see ModelCaches
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ModelCache<V> {
+
+	/**
+	 * The maximum number of models to cache. If it is zero or negative the cache
+	 * is disabled.
+	 */
+	protected volatile int maxSize;
+
+	/**
+	 * The milliseconds that a model is cached.
+	 */
+	protected volatile long ttl;
+
+	/**
+	 * The cached models by their identifier.
+	 */
+	protected final LinkedHashMap<Long, Entry<V>> entries;
+
+	/**
+	 * The models that are being loaded by their identifier.
+	 */
+	protected final Map<Long, Load<V>> loads = new HashMap<>();
+
+	/**
+	 * The number of models that have been obtained from the cache.
+	 */
+	protected final LongAdder hits = new LongAdder();
+
+	/**
+	 * The number of models that have been loaded because they were not cached.
+	 */
+	protected final LongAdder misses = new LongAdder();
+
+	/**
+	 * Create the cache.
+	 *
+	 * @param maxSize maximum number of models to cache.
+	 * @param ttl     milliseconds that a model is cached.
+	 */
+	public ModelCache(int maxSize, long ttl) {
+
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+
+				return this.size() > ModelCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Change the size and the time to live of the cache. The cached models are
+	 * removed.
+	 *
+	 * @param maxSize maximum number of models to cache.
+	 * @param ttl     milliseconds that a model is cached.
+	 */
+	public void configure(int maxSize, long ttl) {
+
+		synchronized (this.entries) {
+
+			this.maxSize = maxSize;
+			this.ttl = ttl;
+			this.loads.clear();
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * Return a model from the cache, or load it if it is not cached.
+	 *
+	 * @param id     identifier of the model.
+	 * @param loader to obtain the model if it is not cached.
+	 *
+	 * @return the model associated to the identifier.
+	 */
+	public Uni<V> get(long id, Supplier<Uni<V>> loader) {
+
+		if (this.maxSize <= 0) {
+
+			return loader.get();
+		}
+
+		final var load = new Load<V>();
+		synchronized (this.entries) {
+
+			final var entry = this.entries.get(id);
+			if (entry != null) {
+
+				if (entry.expirationTime > System.currentTimeMillis()) {
+
+					this.hits.increment();
+					return Uni.createFrom().item(entry.value);
+
+				} else {
+
+					this.entries.remove(id);
+				}
+			}
+			this.loads.put(id, load);
+		}
+
+		this.misses.increment();
+		return loader.get().onTermination().invoke((value, error, cancelled) -> {
+
+			synchronized (this.entries) {
+
+				if (this.loads.remove(id, load) && value != null
+						&& load.filters.stream().noneMatch(filter -> filter.test(value))) {
+
+					final var entry = new Entry<V>();
+					entry.value = value;
+					entry.expirationTime = System.currentTimeMillis() + this.ttl;
+					this.entries.put(id, entry);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Remove a model from the cache.
+	 *
+	 * @param id identifier of the model to remove.
+	 */
+	public void invalidate(long id) {
+
+		synchronized (this.entries) {
+
+			this.loads.remove(id);
+			this.entries.remove(id);
+		}
+	}
+
+	/**
+	 * Remove some models from the cache.
+	 *
+	 * @param ids identifiers of the models to remove.
+	 */
+	public void invalidateAll(Collection<Long> ids) {
+
+		synchronized (this.entries) {
+
+			this.loads.keySet().removeAll(ids);
+			this.entries.keySet().removeAll(ids);
+		}
+	}
+
+	/**
+	 * Remove the models that satisfy a condition. The models that are being loaded
+	 * are not cached if they satisfy the condition.
+	 *
+	 * @param filter to select the models to remove.
+	 */
+	public void invalidateIf(Predicate<V> filter) {
+
+		synchronized (this.entries) {
+
+			for (final var load : this.loads.values()) {
+
+				load.filters.add(filter);
+			}
+			this.entries.values().removeIf(entry -> filter.test(entry.value));
+		}
+	}
+
+	/**
+	 * Remove all the models from the cache.
+	 */
+	public void clear() {
+
+		synchronized (this.entries) {
+
+			this.loads.clear();
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * Return the number of models that are cached.
+	 *
+	 * @return the number of cached models.
+	 */
+	public int size() {
+
+		synchronized (this.entries) {
+
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * Return the number of models that have been obtained from the cache.
+	 *
+	 * @return the number of cache hits.
+	 */
+	public long hits() {
+
+		return this.hits.sum();
+	}
+
+	/**
+	 * Return the number of models that have been loaded because they were not
+	 * cached.
+	 *
+	 * @return the number of cache misses.
+	 */
+	public long misses() {
+
+		return this.misses.sum();
+	}
+
+	/**
+	 * Return the fraction of the models that have been obtained from the cache.
+	 *
+	 * @return the hit rate of the cache, or {@code 0} if any model has been
+	 *         requested.
+	 */
+	public double hitRate() {
+
+		final var hits = this.hits();
+		final var total = hits + this.misses();
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	/**
+	 * A model that is cached.
+	 *
+	 * @param <V> type of the model.
+	 */
+	protected static class Entry<V> {
+
+		/**
+		 * The cached model.
+		 */
+		public V value;
+
+		/**
+		 * The epoch time, in milliseconds, when the model expires.
+		 */
+		public long expirationTime;
+
+	}
+
+	/**
+	 * A model that is being loaded.
+	 *
+	 * @param <V> type of the model.
+	 */
+	protected static class Load<V> {
+
+		/**
+		 * The conditions of the models that have been invalidated while the model is
+		 * loaded.
+		 */
+		public final List<Predicate<V>> filters = new ArrayList<>();
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import eu.valawai.c0_patient_treatment_ui.api.v1.patients.Patient;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.Treatment;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * The caches of the patients and treatments that are retrieved by their
+ * identifier. They are configured when the application is started, and they
+ * are invalidated by the {@code ModelInvalidationBus} when a modification of a
+ * patient or a treatment has been committed.
+ *
+ * @see ModelCache
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ApplicationScoped
+public class ModelCaches {
+
+	/**
+	 * The default maximum number of models to cache.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * The default seconds that a model is cached.
+	 */
+	public static final long DEFAULT_TTL = 60;
+
+	/**
+	 * The maximum number of patients, and of treatments, to cache.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.model_cache.max_size", defaultValue = "1000")
+	protected int maxSize = DEFAULT_MAX_SIZE;
+
+	/**
+	 * The seconds that a model is cached.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.model_cache.ttl", defaultValue = "60")
+	protected long ttl = DEFAULT_TTL;
+
+	/**
+	 * The cache of the treatments.
+	 *
+	 * @see TreatmentEntity#retrieveTreatment(long, ModelCaches)
+	 */
+	protected final ModelCache<VersionedModel<Treatment>> treatments = new ModelCache<>(DEFAULT_MAX_SIZE,
+			DEFAULT_TTL * 1000);
+
+	/**
+	 * The cache of the patients.
+	 *
+	 * @see PatientEntity#retrievePatient(long, ModelCaches)
+	 */
+	protected final ModelCache<VersionedModel<Patient>> patients = new ModelCache<>(DEFAULT_MAX_SIZE,
+			DEFAULT_TTL * 1000);
+
+	/**
+	 * Configure the caches with the configured size and time to live.
+	 */
+	@PostConstruct
+	protected void configure() {
+
+		this.treatments.configure(this.maxSize, this.ttl * 1000);
+		this.patients.configure(this.maxSize, this.ttl * 1000);
+		Log.debugv("Caching up to {0} patients and treatments for {1} seconds.", this.maxSize, this.ttl);
+	}
+
+	/**
+	 * Return the cache of the treatments.
+	 *
+	 * @return the cached treatments.
+	 */
+	public ModelCache<VersionedModel<Treatment>> treatments() {
+
+		return this.treatments;
+	}
+
+	/**
+	 * Return the cache of the patients.
+	 *
+	 * @return the cached patients.
+	 */
+	public ModelCache<VersionedModel<Patient>> patients() {
+
+		return this.patients;
+	}
+
+	/**
+	 * Remove a patient and its treatments from the caches.
+	 *
+	 * @param patientId identifier of the patient to remove.
+	 */
+	public void invalidatePatient(long patientId) {
+
+		this.patients.invalidate(patientId);
+		this.treatments.invalidateIf(treatment -> treatment.model.patient != null
+				&& Long.valueOf(patientId).equals(treatment.model.patient.id));
+	}
+
+	/**
+	 * Remove all the models from the caches.
+	 */
+	public void clear() {
+
+		this.treatments.clear();
+		this.patients.clear();
+	}
+
+}
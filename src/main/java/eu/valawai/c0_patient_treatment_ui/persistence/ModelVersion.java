@@ -0,0 +1,33 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+/**
+ * The version of a stored model. It is cached with the model, thus it can be
+ * used to check if a client already has the current model.
+ *
+ * @see PatientEntity#version()
+ * @see TreatmentEntity#version()
+ * @see VersionedModel
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ModelVersion {
+
+	/**
+	 * The tag that changes each time that the model changes.
+	 */
+	public String tag;
+
+	/**
+	 * The epoch time, in seconds, when the model has changed for the last time.
+	 */
+	public long lastModified;
+
+}
@@ -0,0 +1,123 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.List;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentPayload;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.hibernate.reactive.panache.PanacheEntity;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.Json;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+
+/**
+ * An entity that has a treatment that is pending to be published. It is stored
+ * in the same transaction that the {@link TreatmentEntity}, thus the treatment
+ * is published only if it has been stored, and it is removed when the broker
+ * confirms that has received it.
+ *
+ * @see eu.valawai.c0_patient_treatment_ui.messages.TreatmentOutboxRelay
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Entity(name = OutboxEntity.TABLE_NAME)
+public class OutboxEntity extends PanacheEntity {
+
+	/**
+	 * The name of the table that will contains the treatments to publish.
+	 */
+	public static final String TABLE_NAME = "OUTBOX";
+
+	/**
+	 * The query to obtain the next treatments to publish. The rows that another
+	 * relay is publishing are skipped.
+	 */
+	private static final String NEXT_BATCH_QUERY = "select * from " + TABLE_NAME
+			+ " where nextAttemptTime <= ?1 order by id limit ?2 for update skip locked";
+
+	/**
+	 * The encoded payload of the treatment to publish.
+	 */
+	@Column(columnDefinition = "text")
+	public String payload;
+
+	/**
+	 * The epoch time, in seconds, when the treatment has been added.
+	 */
+	public long createdTime;
+
+	/**
+	 * The number of times that the treatment has failed to be published.
+	 */
+	public int attempts;
+
+	/**
+	 * The epoch time, in seconds, when the treatment can be published.
+	 */
+	public long nextAttemptTime;
+
+	/**
+	 * Add a treatment to publish.
+	 *
+	 * @param treatment to publish.
+	 *
+	 * @return the added entity.
+	 */
+	public static Uni<OutboxEntity> add(TreatmentPayload treatment) {
+
+		final var entity = new OutboxEntity();
+		entity.payload = Json.encode(treatment);
+		entity.createdTime = TimeManager.now();
+		entity.attempts = 0;
+		entity.nextAttemptTime = entity.createdTime;
+		return entity.persist();
+	}
+
+	/**
+	 * Return the next treatments to publish. They are locked until the end of the
+	 * current transaction.
+	 *
+	 * @param max maximum number of treatments to return.
+	 *
+	 * @return the treatments that can be published now, ordered by the time they
+	 *         have been added.
+	 */
+	public static Uni<List<OutboxEntity>> nextBatch(int max) {
+
+		return Panache.getSession().chain(session -> session.createNativeQuery(NEXT_BATCH_QUERY, OutboxEntity.class)
+				.setParameter(1, TimeManager.now()).setParameter(2, max).getResultList());
+	}
+
+	/**
+	 * Return the treatment to publish.
+	 *
+	 * @return the payload of the treatment.
+	 */
+	public TreatmentPayload toTreatmentPayload() {
+
+		return Json.decodeValue(this.payload, TreatmentPayload.class);
+	}
+
+	/**
+	 * Mark that the treatment has failed to be published. The next attempt is
+	 * delayed exponentially with the number of failures.
+	 *
+	 * @param maxDelay maximum seconds to wait before the next attempt.
+	 */
+	public void failed(long maxDelay) {
+
+		this.attempts++;
+		final var delay = Math.min(1l << Math.min(this.attempts, 20), maxDelay);
+		this.nextAttemptTime = TimeManager.now() + delay;
+	}
+
+}
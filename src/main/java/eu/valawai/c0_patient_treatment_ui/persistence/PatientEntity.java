@@ -10,6 +10,7 @@ package eu.valawai.c0_patient_treatment_ui.persistence;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.hibernate.validator.constraints.Length;
 
@@ -17,10 +18,13 @@ import eu.valawai.c0_patient_treatment_ui.TimeManager;
 import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatient;
 import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatientPage;
 import eu.valawai.c0_patient_treatment_ui.api.v1.patients.Patient;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.hibernate.reactive.panache.PanacheEntity;
 import io.quarkus.logging.Log;
+import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
 import io.smallrye.mutiny.Uni;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
@@ -42,6 +46,25 @@ public class PatientEntity extends PanacheEntity {
 	 */
 	public static final String TABLE_NAME = "PATIENTS";
 
+	/**
+	 * The flag of the statements that update the name of the patient.
+	 */
+	private static final int NAME_FIELD = 1;
+
+	/**
+	 * The flag of the statements that update the status of the patient.
+	 */
+	private static final int STATUS_FIELD = 2;
+
+	/**
+	 * The statements to update a patient and return the updated row, indexed by the
+	 * flags of the fields that they update.
+	 *
+	 * @see #updateAndGet()
+	 */
+	private static final String[] UPDATE_AND_GET_QUERIES = IntStream.range(0, (NAME_FIELD | STATUS_FIELD) + 1)
+			.mapToObj(PatientEntity::buildUpdateAndGetQuery).toArray(String[]::new);
+
 	/**
 	 * The name of the patient.
 	 */
@@ -59,6 +82,15 @@ public class PatientEntity extends PanacheEntity {
 	 */
 	public long updateTime;
 
+	/**
+	 * The number of times that the patient has been updated. It is only increased
+	 * by the statements that update the patient.
+	 *
+	 * @see #buildUpdateAndGetQuery(int)
+	 */
+	@Column(insertable = false, updatable = false)
+	public long version;
+
 	/**
 	 * Create a new patient.
 	 */
@@ -75,27 +107,115 @@ public class PatientEntity extends PanacheEntity {
 	 *
 	 * @return nothing if the patient has been updated or an exception that explain
 	 *         why can not be updated.
+	 *
+	 * @see #updateAndGet()
 	 */
 	public Uni<Void> update() {
 
+		return this.updateAndGet().replaceWithVoid();
+
+	}
+
+	/**
+	 * Build the statement to update some fields of a patient and return the
+	 * updated row. The status is returned by its code, thus it can be decoded
+	 * without querying it. The same statement increases the version of the
+	 * patient and of its treatments.
+	 *
+	 * @param fields flags of the fields to update.
+	 *
+	 * @return the native statement to update a patient.
+	 */
+	private static String buildUpdateAndGetQuery(int fields) {
+
+		final var set = new StringBuilder();
+		set.append("version = version + 1, updateTime = ?2");
+		var index = 3;
+		if ((fields & NAME_FIELD) != 0) {
+
+			set.append(", name = ?").append(index++);
+		}
+		if ((fields & STATUS_FIELD) != 0) {
+
+			set.append(", status_id = ?").append(index++);
+		}
+		return "with u as (update " + TABLE_NAME + " set " + set
+				+ " where id = ?1 returning name, updateTime, status_id, version), t as (update "
+				+ TreatmentEntity.TABLE_NAME
+				+ " set version = version + 1, updateTime = greatest(updateTime, createdTime, ?2) where patient_id = ?1)"
+				+ " select u.name, u.updateTime, u.status_id, s.statusCode, u.version from u left join "
+				+ PatientStatusCriteriaEntity.TABLE_NAME + " s on s.id = u.status_id";
+	}
+
+	/**
+	 * Update the current patient and return it. The patient is updated and
+	 * obtained with a single statement, and the fields of this entity are set to
+	 * the updated values.
+	 *
+	 * @return the updated patient or an exception that explain why can not be
+	 *         updated.
+	 */
+	public Uni<Patient> updateAndGet() {
+
 		this.updateTime = TimeManager.now();
-		final var builder = UpdateQueryBuilder.withEntity(this).withParam("name", this.name)
-				.withParam("updateTime", this.updateTime).withParam("status", this.status);
-		final var query = builder.query();
-		final var params = builder.parameters();
-		return PatientEntity.update(query, params).onItem().transformToUni(updated -> {
+		var fields = 0;
+		if (this.name != null) {
 
-			if (Integer.valueOf(1).equals(updated)) {
+			fields |= NAME_FIELD;
+		}
+		if (this.status != null) {
 
-				return Uni.createFrom().nullItem();
+			fields |= STATUS_FIELD;
+		}
+		final var query = UPDATE_AND_GET_QUERIES[fields];
+		final Uni<Object[]> update = Panache.getSession().chain(session -> {
 
-			} else {
+			final var statement = session.createNativeQuery(query, Object[].class).setParameter(1, this.id)
+					.setParameter(2, this.updateTime);
+			var index = 3;
+			if (this.name != null) {
+
+				statement.setParameter(index++, this.name);
+			}
+			if (this.status != null) {
 
-				return Uni.createFrom()
-						.failure(() -> new IllegalArgumentException("Not found a patient with the id " + this.id));
+				statement.setParameter(index++, this.status.id);
 			}
+			return statement.getSingleResultOrNull();
 
 		});
+		return update.onItem().ifNull()
+				.failWith(() -> new IllegalArgumentException("Not found a patient with the id " + this.id))
+				.chain(row -> {
+
+					this.name = (String) row[0];
+					this.updateTime = ((Number) row[1]).longValue();
+					this.version = ((Number) row[4]).longValue();
+					final var statusId = row[2] == null ? null : ((Number) row[2]).longValue();
+					final var statusCode = row[3] == null ? null : ((Number) row[3]).longValue();
+					Uni<PatientStatusCriteriaEntity> status = null;
+					if (statusId == null) {
+
+						status = Uni.createFrom().nullItem();
+
+					} else if (this.status != null && statusId.equals(this.status.id) && this.status.status != null) {
+
+						status = Uni.createFrom().item(this.status);
+
+					} else if (statusCode != null) {
+
+						status = Uni.createFrom().item(PatientStatusCriteriaEntity.fromCode(statusId, statusCode));
+
+					} else {
+
+						status = PatientStatusCriteriaEntity.retrieve(statusId);
+					}
+					return status.map(found -> {
+
+						this.status = found;
+						return this.toPatient();
+					});
+				});
 
 	}
 
@@ -113,7 +233,9 @@ public class PatientEntity extends PanacheEntity {
 	}
 
 	/**
-	 * Delete the patient with the specified identifier.
+	 * Delete the patient with the specified identifier. The patient and its
+	 * treatments are deleted in one transaction, thus they are never partially
+	 * deleted if any statement fails.
 	 *
 	 * @param id identifier of the patient to delete.
 	 *
@@ -122,7 +244,7 @@ public class PatientEntity extends PanacheEntity {
 	 */
 	public static Uni<Void> delete(long id) {
 
-		return deleteTreatementsForPatient(id)
+		return Panache.withTransaction(() -> deleteTreatementsForPatient(id)
 				.chain(() -> PatientEntity.delete("id", id).onItem().transformToUni(updated -> {
 
 					if (Long.valueOf(1l).equals(updated)) {
@@ -135,55 +257,73 @@ public class PatientEntity extends PanacheEntity {
 								.failure(() -> new IllegalArgumentException("Not found a patient with the id " + id));
 					}
 
-				}));
+				})));
 	}
 
 	/**
-	 * Delete all the treatment of a patient.
+	 * Delete all the treatment of a patient. The treatments and their feedback are
+	 * removed with a bulk delete per table, thus the number of statements does not
+	 * depend on the number of treatments of the patient.
 	 *
 	 * @param patientId identifier of the patient to delete its treatments.
 	 */
 	private static Uni<Void> deleteTreatementsForPatient(long patientId) {
 
-		final Uni<TreatmentEntity> find = TreatmentEntity.find("patient.id", patientId).firstResult();
-		return find.chain(treatment -> {
-
-			if (treatment != null) {
-
-				return TreatmentEntity.delete(treatment.id).chain(deleted -> deleteTreatementsForPatient(patientId));
+		final var treatmentsOfPatient = "in (select t.id from " + TreatmentEntity.TABLE_NAME
+				+ " t where t.patient.id = ?1)";
+		return TreatmentValueStateEntity.delete("treatmentId " + treatmentsOfPatient, patientId)
+				.chain(() -> TreatmentActionStateEntity.delete("treatmentId " + treatmentsOfPatient, patientId))
+				.chain(() -> TreatmentValueFeedbackEntity.delete("treatment.id " + treatmentsOfPatient, patientId))
+				.chain(() -> TreatmentActionFeedbackEntity.delete("treatment.id " + treatmentsOfPatient, patientId))
+				.chain(() -> TreatmentEntity.delete("patient.id", patientId)).replaceWithVoid();
+	}
 
-			} else {
+	/**
+	 * Return the {@link MinPatientPage} that satisfy the query.
+	 *
+	 * @param pattern to match the name of the patients.
+	 * @param sort    how to order the patients to return.
+	 * @param from    index of the first patient to return.
+	 * @param limit   maximum number of patients to return.
+	 *
+	 * @return the page that satisfy the query.
+	 */
+	public static Uni<MinPatientPage> getMinPatientPageFor(String pattern, Sort sort, int from, int limit) {
 
-				return Uni.createFrom().nullItem();
-			}
-		});
+		return getMinPatientPageFor(pattern, CountMode.EXACT, sort, from, limit);
 	}
 
 	/**
 	 * Return the {@link MinPatientPage} that satisfy the query.
 	 *
 	 * @param pattern to match the name of the patients.
+	 * @param count   how to calculate the total of patients that satisfy the
+	 *                query.
 	 * @param sort    how to order the patients to return.
 	 * @param from    index of the first patient to return.
 	 * @param limit   maximum number of patients to return.
 	 *
 	 * @return the page that satisfy the query.
 	 */
-	public static Uni<MinPatientPage> getMinPatientPageFor(String pattern, Sort sort, int from, int limit) {
+	public static Uni<MinPatientPage> getMinPatientPageFor(String pattern, CountMode count, Sort sort, int from,
+			int limit) {
 
-		return PatientEntity.count("#PatientEntity.MinPatientTotal", pattern).chain(total -> {
+		return countPatients(pattern, count).chain(total -> {
 
 			final var page = new MinPatientPage();
-			page.total = Math.toIntExact(total);
-			if (from >= total) {
+			if (total != null) {
+
+				page.total = Math.toIntExact(total);
+			}
+			if (count == CountMode.EXACT && from >= total) {
 
 				return Uni.createFrom().item(page);
 
 			} else {
 
-				final var to = Math.toIntExact(Math.min(from + limit, total)) - 1;
-				final Uni<List<PatientEntity>> find = PatientEntity.find("name ILIKE ?1", sort, pattern).range(from, to)
-						.list();
+				final var to = (int) Math.min((long) from + limit - 1, Integer.MAX_VALUE);
+				final Uni<List<MinPatientProjection>> find = PatientEntity.find("name ILIKE ?1", sort, pattern)
+						.project(MinPatientProjection.class).range(from, to).list();
 				return find.map(patients -> {
 
 					final var size = patients.size();
@@ -207,6 +347,123 @@ public class PatientEntity extends PanacheEntity {
 
 	}
 
+	/**
+	 * Return the number of patients that satisfy a query. The patients without
+	 * filter are obtained from the {@link CounterEntity}.
+	 *
+	 * @param pattern to match the name of the patients.
+	 * @param count   how to calculate the total of patients.
+	 *
+	 * @return the number of patients that satisfy the query, or {@code null} if it
+	 *         is not calculated.
+	 */
+	private static Uni<Long> countPatients(String pattern, CountMode count) {
+
+		if (count == CountMode.NONE) {
+
+			return Uni.createFrom().nullItem();
+
+		} else if ("%".equals(pattern)) {
+
+			return CounterEntity.totalOf(CounterEntity.PATIENTS,
+					() -> PatientEntity.count("#PatientEntity.MinPatientTotal", pattern));
+
+		} else if (count == CountMode.ESTIMATE) {
+
+			return CounterEntity.estimate("select 1 from " + TABLE_NAME + " p where p.name ILIKE ?1", pattern);
+
+		} else {
+
+			return PatientEntity.count("#PatientEntity.MinPatientTotal", pattern);
+		}
+	}
+
+	/**
+	 * Return the {@link MinPatientPage} with the patients that are after a cursor.
+	 * This seeks directly the patients, thus it does not count the patients that
+	 * satisfy the query or skip the patients of the previous pages.
+	 *
+	 * @param pattern to match the name of the patients.
+	 * @param sort    how to order the patients to return.
+	 * @param after   cursor of the last patient of the previous page, or
+	 *                {@code null} or empty to start from the first patient.
+	 * @param limit   maximum number of patients to return.
+	 *
+	 * @return the page that satisfy the query, or a failure with an
+	 *         {@link IllegalArgumentException} if the cursor or the sort is not
+	 *         valid.
+	 *
+	 * @see KeysetQueryBuilder
+	 */
+	public static Uni<MinPatientPage> getMinPatientPageAfter(String pattern, Sort sort, String after, int limit) {
+
+		final Uni<KeysetQueryBuilder> builder = Uni.createFrom()
+				.item(() -> KeysetQueryBuilder.withSort(sort, MinPatientProjection.SORT_FIELDS).after(after));
+		return builder.chain(keyset -> {
+
+			final var query = keyset.query("name ILIKE :pattern");
+			final var parameters = keyset.parameters(Parameters.with("pattern", pattern));
+			final Uni<List<MinPatientProjection>> find = PatientEntity.find(query, sort, parameters)
+					.project(MinPatientProjection.class).range(0, limit).list();
+			return find.map(patients -> {
+
+				final var page = new MinPatientPage();
+				final var size = Math.min(patients.size(), limit);
+				if (size > 0) {
+
+					page.patients = new ArrayList<>(size);
+					for (final var patient : patients.subList(0, size)) {
+
+						final var minPatient = patient.toMinPatient();
+						page.patients.add(minPatient);
+					}
+
+					if (patients.size() > limit) {
+
+						final var last = patients.get(size - 1);
+						page.next = keyset.cursorFor(last::valueOf);
+					}
+				}
+
+				return page;
+
+			}).onFailure().recoverWithItem(error -> {
+
+				Log.errorv(error, "Cannot find for the patients after {0}.", after);
+				return new MinPatientPage();
+			});
+
+		});
+
+	}
+
+	/**
+	 * Return the version of this patient.
+	 *
+	 * @return the version of the patient.
+	 */
+	public ModelVersion version() {
+
+		return toVersion(this.updateTime, this.version);
+	}
+
+	/**
+	 * Return the version of a patient from the fields that change when it is
+	 * updated.
+	 *
+	 * @param updateTime the time when the patient has been updated.
+	 * @param version    number of times that the patient has been updated.
+	 *
+	 * @return the version of the patient.
+	 */
+	private static ModelVersion toVersion(long updateTime, long version) {
+
+		final var model = new ModelVersion();
+		model.lastModified = updateTime;
+		model.tag = Long.toHexString(updateTime) + "-" + Long.toHexString(version);
+		return model;
+	}
+
 	/**
 	 * Return the information of a {@link Patient}.
 	 *
@@ -217,16 +474,40 @@ public class PatientEntity extends PanacheEntity {
 	 */
 	public static Uni<Patient> retrievePatient(long id) {
 
-		return retrieve(id).map(patientEntity -> {
+		return retrieve(id).map(PatientEntity::toPatient);
+	}
+
+	/**
+	 * Return the information of a {@link Patient} with its version. The patients
+	 * are cached until they are updated or deleted.
+	 *
+	 * @param id     of the patient to get.
+	 * @param caches where the patients are cached.
+	 *
+	 * @return the patient associated to the identifier or an exception that
+	 *         explains why can not obtain it.
+	 *
+	 * @see #retrievePatient(long)
+	 */
+	public static Uni<VersionedModel<Patient>> retrievePatient(long id, ModelCaches caches) {
 
-			final var patient = new Patient();
-			patient.id = patientEntity.id;
-			patient.name = patientEntity.name;
-			patient.status = patientEntity.status.status;
-			patient.updateTime = patientEntity.updateTime;
-			return patient;
+		return caches.patients().get(id,
+				() -> retrieve(id).map(entity -> VersionedModel.of(entity.toPatient(), entity.version())));
+	}
 
-		});
+	/**
+	 * Return the patient for this entity.
+	 *
+	 * @return the patient associated to this entity.
+	 */
+	public Patient toPatient() {
+
+		final var patient = new Patient();
+		patient.id = this.id;
+		patient.name = this.name;
+		patient.status = this.status == null ? null : this.status.status;
+		patient.updateTime = this.updateTime;
+		return patient;
 	}
 
 	/**
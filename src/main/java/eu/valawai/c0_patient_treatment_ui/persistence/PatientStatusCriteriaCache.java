@@ -0,0 +1,170 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.vertx.VertxContextSupport;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+/**
+ * The cache with the identifiers of the stored {@link PatientStatusCriteriaEntity}
+ * by the code of its status. The stored status never changes, thus the cache
+ * never has to be invalidated. It is loaded when the application is started
+ * and updated when a new status is stored.
+ *
+ * @see PatientStatusCriteriaEntity#retrieveOrPersist
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ApplicationScoped
+public class PatientStatusCriteriaCache {
+
+	/**
+	 * The default maximum number of status to cache.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	/**
+	 * The query to obtain the codes and identifiers of the stored status.
+	 */
+	private static final String WARM_UP_QUERY = "select p.statusCode, p.id from "
+			+ PatientStatusCriteriaEntity.TABLE_NAME + " p where p.statusCode is not null order by p.id";
+
+	/**
+	 * The identifiers of the status entities by the code of its status.
+	 */
+	protected final ConcurrentHashMap<Long, Long> ids = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of times that an identifier has been found on the cache.
+	 */
+	protected final LongAdder hits = new LongAdder();
+
+	/**
+	 * The number of times that an identifier has not been found on the cache.
+	 */
+	protected final LongAdder misses = new LongAdder();
+
+	/**
+	 * The maximum number of status to cache.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.status_cache.max_size", defaultValue = "10000")
+	protected int maxSize = DEFAULT_MAX_SIZE;
+
+	/**
+	 * Return the identifier of the entity with a status.
+	 *
+	 * @param code of the status.
+	 *
+	 * @return the identifier of the entity with the status, or {@code null} if it
+	 *         is not cached.
+	 */
+	public Long idOf(long code) {
+
+		final var id = this.ids.get(code);
+		if (id == null) {
+
+			this.misses.increment();
+
+		} else {
+
+			this.hits.increment();
+		}
+		return id;
+	}
+
+	/**
+	 * Store the identifier of the entity with a status. It is ignored when the
+	 * cache is full.
+	 *
+	 * @param code of the status.
+	 * @param id   identifier of the entity with the status.
+	 */
+	public void put(long code, long id) {
+
+		if (this.ids.size() < this.maxSize) {
+
+			this.ids.putIfAbsent(code, id);
+		}
+	}
+
+	/**
+	 * Return the number of cached status.
+	 *
+	 * @return the number of cached status.
+	 */
+	public int size() {
+
+		return this.ids.size();
+	}
+
+	/**
+	 * Return the number of times that an identifier has been found on the cache.
+	 *
+	 * @return the number of cache hits.
+	 */
+	public long hits() {
+
+		return this.hits.sum();
+	}
+
+	/**
+	 * Return the number of times that an identifier has not been found on the
+	 * cache.
+	 *
+	 * @return the number of cache misses.
+	 */
+	public long misses() {
+
+		return this.misses.sum();
+	}
+
+	/**
+	 * Remove all the cached status.
+	 */
+	public void clear() {
+
+		this.ids.clear();
+	}
+
+	/**
+	 * Load the stored status when the application is started.
+	 *
+	 * @param event that contains the start status.
+	 */
+	public void warmUp(@Observes StartupEvent event) {
+
+		try {
+
+			final List<Object[]> codes = VertxContextSupport.subscribeAndAwait(() -> Panache.withSession(
+					() -> Panache.getSession().chain(session -> session.createSelectionQuery(WARM_UP_QUERY, Object[].class)
+							.setMaxResults(this.maxSize).getResultList())));
+			for (final var code : codes) {
+
+				this.put((Long) code[0], (Long) code[1]);
+			}
+			Log.debugv("Loaded {0} patient status on the cache.", this.ids.size());
+
+		} catch (final Throwable error) {
+
+			Log.errorv(error, "Cannot load the patient status on the cache.");
+		}
+
+	}
+
+}
@@ -8,16 +8,24 @@
 
 package eu.valawai.c0_patient_treatment_ui.persistence;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+
 import eu.valawai.c0_patient_treatment_ui.messages.PatientStatusCriteriaPayload;
 import eu.valawai.c0_patient_treatment_ui.models.LawtonIndex;
 import eu.valawai.c0_patient_treatment_ui.models.PatientStatusCriteria;
+import eu.valawai.c0_patient_treatment_ui.models.PatientStatusCriteriaCodec;
 import eu.valawai.c0_patient_treatment_ui.models.YesNoUnknownOption;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.hibernate.reactive.panache.PanacheEntity;
 import io.smallrye.mutiny.Uni;
+import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
-import jakarta.persistence.NamedQueries;
-import jakarta.persistence.NamedQuery;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 
 /**
  * An entity that stores the information of a patient status.
@@ -25,8 +33,6 @@ import jakarta.persistence.NamedQuery;
  * @author UDT-IA, IIIA-CSIC
  */
 @Entity(name = PatientStatusCriteriaEntity.TABLE_NAME)
-@NamedQueries({
-		@NamedQuery(name = "PatientStatusCriteriaEntity.retrievByStatus", query = "select p from PATIENT_STATUS_CRITERIA p where p.status = ?1") })
 public class PatientStatusCriteriaEntity extends PanacheEntity {
 
 	/**
@@ -34,12 +40,84 @@ public class PatientStatusCriteriaEntity extends PanacheEntity {
 	 */
 	public static final String TABLE_NAME = "PATIENT_STATUS_CRITERIA";
 
+	/**
+	 * The fields of the status that are stored as columns.
+	 */
+	private static final List<Field> STATUS_FIELDS = Arrays.stream(PatientStatusCriteria.class.getFields())
+			.filter(field -> !Modifier.isStatic(field.getModifiers())).toList();
+
+	/**
+	 * The statement to insert a status if there is not any other with the same
+	 * code. The columns of the embedded status are named as its fields,
+	 * and it returns nothing when the status already exist.
+	 */
+	private static final String INSERT_IF_NOT_EXIST_QUERY = buildInsertIfNotExistQuery();
+
 	/**
 	 * The current status of the patient.
 	 */
 	@Embedded
 	public PatientStatusCriteria status;
 
+	/**
+	 * The packed code of the status, that identifies its content.
+	 *
+	 * @see PatientStatusCriteriaCodec#encode(PatientStatusCriteria)
+	 */
+	@Column(unique = true)
+	public Long statusCode;
+
+	/**
+	 * Build the statement to insert a status if it does not exist.
+	 *
+	 * @return the native statement to insert a status.
+	 */
+	private static String buildInsertIfNotExistQuery() {
+
+		final var columns = new StringBuilder();
+		final var values = new StringBuilder();
+		columns.append("id, statusCode");
+		values.append("nextval('").append(TABLE_NAME).append("_SEQ'), ?1");
+		var index = 2;
+		for (final var field : STATUS_FIELDS) {
+
+			columns.append(", ").append(field.getName());
+			values.append(", ?").append(index++);
+		}
+		return "insert into " + TABLE_NAME + " (" + columns + ") values (" + values
+				+ ") on conflict (statusCode) do nothing returning *";
+	}
+
+	/**
+	 * Update the code of the status before it is stored.
+	 */
+	@PrePersist
+	@PreUpdate
+	protected void updateStatusCode() {
+
+		this.statusCode = this.status == null ? null : PatientStatusCriteriaCodec.encode(this.status);
+	}
+
+	/**
+	 * Create a detached entity from the code of its status, without accessing the
+	 * database.
+	 *
+	 * @param id   identifier of the entity.
+	 * @param code of the status of the entity.
+	 *
+	 * @return the entity with the decoded status.
+	 *
+	 * @see PatientStatusCriteriaCodec#decode(long)
+	 */
+	static PatientStatusCriteriaEntity fromCode(long id, long code) {
+
+		final var entity = new PatientStatusCriteriaEntity();
+		entity.id = id;
+		entity.status = PatientStatusCriteriaCodec.decode(code);
+		entity.statusCode = code;
+		return entity;
+	}
+
 	/**
 	 * Retrieve the patient status criteria with the specified identifier.
 	 *
@@ -63,21 +141,32 @@ public class PatientStatusCriteriaEntity extends PanacheEntity {
 	 */
 	public static Uni<PatientStatusCriteriaEntity> retrieveByStatus(PatientStatusCriteria status) {
 
-		final Uni<PatientStatusCriteriaEntity> action = PatientStatusCriteriaEntity
-				.find("#PatientStatusCriteriaEntity.retrievByStatus", status).firstResult();
+		final var code = PatientStatusCriteriaCodec.encode(status);
+		final Uni<PatientStatusCriteriaEntity> action = PatientStatusCriteriaEntity.find("statusCode", code).firstResult();
 		return action.onItem().ifNull().failWith(
 				() -> new IllegalArgumentException("Not found a patient status criteria with the specified status."));
 	}
 
 	/**
 	 * Retrieve the patient status criteria with the specified status or persist if
-	 * not exist.
+	 * not exist. The status is inserted only if there is not another with the same
+	 * code, so concurrent calls with the same status obtain the same entity. The
+	 * identifiers of the stored status are cached, and when the status is cached it
+	 * returns a detached entity without accessing the database. A status inserted
+	 * outside a transaction is already committed, so it is cached when it is
+	 * inserted. But a status inserted inside a transaction is cached only when it
+	 * is found again, thus the cache never contains a status that has been rolled
+	 * back.
 	 *
 	 * @param status of the entity to get.
+	 * @param cache  with the identifiers of the stored status.
 	 *
 	 * @return the patient status criteria associated to the status.
+	 *
+	 * @see PatientStatusCriteriaCache
 	 */
-	public static Uni<PatientStatusCriteriaEntity> retrieveOrPersist(PatientStatusCriteria status) {
+	public static Uni<PatientStatusCriteriaEntity> retrieveOrPersist(PatientStatusCriteria status,
+			PatientStatusCriteriaCache cache) {
 
 		if (status == null) {
 
@@ -85,11 +174,38 @@ public class PatientStatusCriteriaEntity extends PanacheEntity {
 
 		} else {
 
-			return retrieveByStatus(status).onFailure().recoverWithUni(() -> {
+			final var code = PatientStatusCriteriaCodec.encode(status);
+			final var id = cache.idOf(code);
+			if (id != null) {
+
+				return Uni.createFrom().item(fromCode(id, code));
+			}
+
+			return Panache.getSession().chain(session -> {
 
-				final var entity = new PatientStatusCriteriaEntity();
-				entity.status = status;
-				return entity.persistAndFlush();
+				final var insert = session.createNativeQuery(INSERT_IF_NOT_EXIST_QUERY,
+						PatientStatusCriteriaEntity.class);
+				insert.setParameter(1, code);
+				var index = 2;
+				for (final var field : STATUS_FIELDS) {
+
+					insert.setParameter(index++, toColumnValue(field, status));
+				}
+				return insert.getSingleResultOrNull().chain(inserted -> {
+
+					if (inserted == null) {
+
+						return retrieveByStatus(status).invoke(found -> cache.put(code, found.id));
+
+					} else {
+
+						if (session.currentTransaction() == null) {
+
+							cache.put(code, inserted.id);
+						}
+						return Uni.createFrom().item(inserted);
+					}
+				});
 
 			});
 
@@ -97,6 +213,35 @@ public class PatientStatusCriteriaEntity extends PanacheEntity {
 
 	}
 
+	/**
+	 * Return the value to store in the column associated to a field of the status.
+	 * The options are stored by its ordinal.
+	 *
+	 * @param field  of the status.
+	 * @param status to get the value.
+	 *
+	 * @return the value of the column.
+	 */
+	private static Object toColumnValue(Field field, PatientStatusCriteria status) {
+
+		try {
+
+			final var value = field.get(status);
+			if (value instanceof final Enum<?> option) {
+
+				return Short.valueOf((short) option.ordinal());
+
+			} else {
+
+				return value;
+			}
+
+		} catch (final IllegalAccessException cause) {
+
+			throw new IllegalStateException("Cannot obtain the value of the field " + field.getName(), cause);
+		}
+	}
+
 	/**
 	 * Convert this entity to a {@link PatientStatusCriteriaPayload}.
 	 *
@@ -0,0 +1,87 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * The component used to obtain the identifiers of the entities that are
+ * inserted with native statements. The sequences of the tables are incremented
+ * by {@link #INCREMENT}, as the pooled optimizer of Hibernate expects, thus each
+ * value of a sequence reserves the block of identifiers that finishes on it.
+ * The identifiers are taken from these blocks, so the sequence is called once
+ * for each {@link #INCREMENT} identifiers, and they never collide with the
+ * identifiers that Hibernate assigns.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public interface SequenceIdentifiers {
+
+	/**
+	 * The increment of the sequences that are defined on the migrations.
+	 */
+	int INCREMENT = 50;
+
+	/**
+	 * Return some identifiers obtained from a sequence.
+	 *
+	 * @param sequence name of the sequence to use.
+	 * @param count    number of identifiers to return.
+	 *
+	 * @return the identifiers obtained from the sequence.
+	 */
+	static Uni<List<Long>> next(String sequence, int count) {
+
+		final List<Long> ids = new ArrayList<>(count);
+		return next(sequence, count, ids);
+	}
+
+	/**
+	 * Add the identifiers obtained from a sequence until there are the specified
+	 * number of them. The first block of a sequence contains the identifiers that
+	 * are not positive, so they are ignored and another block is reserved.
+	 *
+	 * @param sequence name of the sequence to use.
+	 * @param count    number of identifiers to return.
+	 * @param ids      the identifiers that have been obtained.
+	 *
+	 * @return the identifiers obtained from the sequence.
+	 */
+	private static Uni<List<Long>> next(String sequence, int count, List<Long> ids) {
+
+		final var missing = count - ids.size();
+		if (missing <= 0) {
+
+			return Uni.createFrom().item(ids);
+		}
+
+		final var blocks = (missing + INCREMENT - 1) / INCREMENT;
+		return Panache.getSession().chain(session -> session
+				.createNativeQuery("select nextval('" + sequence + "') from generate_series(1, ?1)", Long.class)
+				.setParameter(1, blocks).getResultList()).chain(values -> {
+
+					for (final var last : values) {
+
+						for (var id = last - INCREMENT + 1; id <= last && ids.size() < count; id++) {
+
+							if (id > 0) {
+
+								ids.add(id);
+							}
+						}
+					}
+					return next(sequence, count, ids);
+				});
+	}
+
+}
@@ -8,13 +8,19 @@
 
 package eu.valawai.c0_patient_treatment_ui.persistence;
 
-import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedback;
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayload;
 import eu.valawai.c0_patient_treatment_ui.models.TreatmentAction;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.hibernate.reactive.panache.PanacheEntity;
 import io.smallrye.mutiny.Uni;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
@@ -34,6 +40,17 @@ public class TreatmentActionFeedbackEntity extends PanacheEntity {
 	 */
 	public static final String TABLE_NAME = "TREATMENT_ACTION_FEEDBACKS";
 
+	/**
+	 * The query to obtain the actions of some treatments.
+	 */
+	private static final String ACTIONS_OF_TREATMENTS_QUERY = "select t.id, t.treatmentActions from "
+			+ TreatmentEntity.TABLE_NAME + " t where t.id in ?1";
+
+	/**
+	 * The sequence that generates the identifiers of the feedback.
+	 */
+	private static final String SEQUENCE_NAME = TABLE_NAME + "_SEQ";
+
 	/**
 	 * The treatment associated to the feedback.
 	 */
@@ -56,40 +73,186 @@ public class TreatmentActionFeedbackEntity extends PanacheEntity {
 	public TreatmentActionFeedback feedback;
 
 	/**
-	 * Persist the feedback.
+	 * The key of the message that has reported the feedback, or {@code null} if it
+	 * is not known.
+	 *
+	 * @see eu.valawai.c0_patient_treatment_ui.messages.MessageKeys
+	 */
+	@Column(length = 64, unique = true)
+	public String messageKey;
+
+	/**
+	 * Persist some feedback and update the current state of their treatments. The
+	 * treatments are checked with a single query, the identifiers of the feedback
+	 * are reserved with another one, the feedback are inserted with a single
+	 * statement and the states are updated with another one. The feedback of a
+	 * message that has been stored before is not stored again, and it obtains a
+	 * {@link DuplicatedFeedbackException}.
 	 *
-	 * @param payload with the feedback to persist.
+	 * @param payloads      with the feedback to persist.
+	 * @param messageKeys   keys of the messages of each feedback, or
+	 *                      {@code null} if it is not known.
+	 * @param receivedTimes epoch times, in seconds, when the messages of each
+	 *                      feedback have been received for the first time. They
+	 *                      are the times when the feedback have been reported.
 	 *
-	 * @return the stored feedback.
+	 * @return the error of each feedback that cannot be stored, or {@code null} if
+	 *         it has been stored. The errors are on the same order as the
+	 *         payloads.
 	 */
-	public static Uni<TreatmentActionFeedbackEntity> store(TreatmentActionFeedbackPayload payload) {
+	@SuppressWarnings("unchecked")
+	public static Uni<List<Throwable>> storeAll(List<TreatmentActionFeedbackPayload> payloads,
+			List<String> messageKeys, List<Long> receivedTimes) {
+
+		final var max = payloads.size();
+		final List<Throwable> errors = new ArrayList<>(max);
+		final var treatmentIds = new long[max];
+		final var ids = new HashSet<Long>();
+		for (var i = 0; i < max; i++) {
 
-		try {
+			try {
 
-			final var id = Long.parseLong(payload.treatment_id);
-			return TreatmentEntity.retrieve(id).chain(treatment -> {
+				treatmentIds[i] = Long.parseLong(payloads.get(i).treatment_id);
+				ids.add(treatmentIds[i]);
+				errors.add(null);
 
-				if (treatment.treatmentActions == null || !treatment.treatmentActions.contains(payload.action)) {
+			} catch (final NumberFormatException badId) {
 
-					return Uni.createFrom()
-							.failure(new IllegalArgumentException("The action is not defined in the treatment."));
+				errors.add(badId);
+			}
+		}
+		if (ids.isEmpty()) {
 
-				} else {
+			return Uni.createFrom().item(errors);
+		}
 
-					final var entity = new TreatmentActionFeedbackEntity();
-					entity.treatment = treatment;
-					entity.createdTime = TimeManager.now();
-					entity.action = payload.action;
-					entity.feedback = payload.feedback;
-					return entity.persistAndFlush();
-				}
-			});
+		return Panache.getSession().chain(session -> session
+				.createSelectionQuery(ACTIONS_OF_TREATMENTS_QUERY, Object[].class).setParameter(1, ids).getResultList()
+				.chain(rows -> {
+
+					final var actions = new HashMap<Long, List<TreatmentAction>>();
+					for (final var row : rows) {
+
+						actions.put((Long) row[0], (List<TreatmentAction>) row[1]);
+					}
+
+					final var messageKeysInBatch = new HashSet<String>();
+					final var indexes = new ArrayList<Integer>(max);
+					final var entities = new ArrayList<TreatmentActionFeedbackEntity>(max);
+					for (var i = 0; i < max; i++) {
+
+						final var messageKey = messageKeys.get(i);
+						if (errors.get(i) == null && messageKey != null && !messageKeysInBatch.add(messageKey)) {
+
+							errors.set(i, new DuplicatedFeedbackException(messageKey));
+
+						} else if (errors.get(i) == null) {
+
+							final var id = treatmentIds[i];
+							final var payload = payloads.get(i);
+							final var treatmentActions = actions.get(id);
+							if (!actions.containsKey(id)) {
+
+								errors.set(i, new IllegalArgumentException("Not found a treatment with the id " + id));
+
+							} else if (treatmentActions == null || !treatmentActions.contains(payload.action)) {
 
-		} catch (final NumberFormatException badId) {
+								errors.set(i, new IllegalArgumentException("The action is not defined in the treatment."));
 
-			return Uni.createFrom().failure(badId);
+							} else {
+
+								final var entity = new TreatmentActionFeedbackEntity();
+								entity.treatment = session.getReference(TreatmentEntity.class, id);
+								entity.createdTime = receivedTimes.get(i);
+								entity.messageKey = messageKey;
+								entity.action = payload.action;
+								entity.feedback = payload.feedback;
+								entities.add(entity);
+								indexes.add(i);
+							}
+						}
+					}
+					if (entities.isEmpty()) {
+
+						return Uni.createFrom().item(errors);
+
+					} else {
+
+						return insertIfNotStored(entities).chain(stored -> {
+
+							for (var j = 0; j < entities.size(); j++) {
+
+								final var entity = entities.get(j);
+								if (!stored.contains(entity)) {
+
+									errors.set(indexes.get(j), new DuplicatedFeedbackException(entity.messageKey));
+								}
+							}
+							return TreatmentActionStateEntity.updateAll(stored);
+
+						}).replaceWith(errors);
+					}
+
+				}));
+	}
+
+	/**
+	 * Insert some feedback with a single statement. The feedback of a message
+	 * that has been stored before is ignored, and the database checks it when
+	 * the feedback is inserted, thus a message that is stored at the same time by
+	 * another node does not fail the batch. The identifiers of the feedback are
+	 * reserved before, in blocks of the sequence of the table.
+	 *
+	 * @param entities to insert. They do not have two feedback with the same
+	 *                 message key.
+	 *
+	 * @return the inserted feedback.
+	 */
+	private static Uni<List<TreatmentActionFeedbackEntity>> insertIfNotStored(
+			List<TreatmentActionFeedbackEntity> entities) {
+
+		final var query = new StringBuilder();
+		query.append("insert into ").append(TABLE_NAME)
+				.append(" (id, treatment_id, createdTime, action, feedback, messageKey) values ");
+		var param = 1;
+		for (var i = 0; i < entities.size(); i++) {
+
+			if (i > 0) {
+
+				query.append(", ");
+			}
+			query.append("(?").append(param++);
+			for (var j = 0; j < 5; j++) {
+
+				query.append(", ?").append(param++);
+			}
+			query.append(")");
 		}
+		query.append(" on conflict (messageKey) do nothing returning messageKey");
+
+		final Uni<List<Long>> reserve = SequenceIdentifiers.next(SEQUENCE_NAME, entities.size());
+		return reserve.chain(ids -> Panache.getSession().chain(session -> {
+
+			final var insert = session.createNativeQuery(query.toString(), String.class);
+			var index = 1;
+			for (var i = 0; i < entities.size(); i++) {
+
+				final var entity = entities.get(i);
+				insert.setParameter(index++, ids.get(i));
+				insert.setParameter(index++, entity.treatment.id);
+				insert.setParameter(index++, entity.createdTime);
+				insert.setParameter(index++, Short.valueOf((short) entity.action.ordinal()));
+				insert.setParameter(index++, Short.valueOf((short) entity.feedback.ordinal()));
+				insert.setParameter(index++, entity.messageKey);
+			}
+			return insert.getResultList().map(inserted -> {
+
+				final var insertedKeys = new HashSet<>(inserted);
+				return entities.stream()
+						.filter(entity -> entity.messageKey == null || insertedKeys.contains(entity.messageKey)).toList();
+			});
 
+		}));
 	}
 
 }
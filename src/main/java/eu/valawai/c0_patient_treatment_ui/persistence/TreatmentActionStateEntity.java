@@ -0,0 +1,205 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedback;
+import eu.valawai.c0_patient_treatment_ui.models.TreatmentAction;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+
+/**
+ * An entity that has the last feedback received for an action of a treatment.
+ * It is updated at the same time that a {@link TreatmentActionFeedbackEntity} is
+ * stored, thus the current state of a treatment can be obtained without reading
+ * all the feedback history.
+ *
+ * @see TreatmentActionFeedbackEntity
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Entity(name = TreatmentActionStateEntity.TABLE_NAME)
+@IdClass(TreatmentActionStateEntity.Key.class)
+public class TreatmentActionStateEntity extends PanacheEntityBase {
+
+	/**
+	 * The name of the table that will contains the action states.
+	 */
+	public static final String TABLE_NAME = "TREATMENT_ACTION_STATES";
+
+	/**
+	 * The identifier of the treatment.
+	 */
+	@Id
+	public long treatmentId;
+
+	/**
+	 * The action of the treatment.
+	 */
+	@Id
+	public TreatmentAction action;
+
+	/**
+	 * The last feedback received for the action.
+	 */
+	public TreatmentActionFeedback feedback;
+
+	/**
+	 * The epoch time, in seconds, when the last feedback has been reported.
+	 */
+	public long updatedTime;
+
+	/**
+	 * Store the feedback as the state of the action if it is not older than the
+	 * current state.
+	 *
+	 * @param feedback that has been received.
+	 *
+	 * @return nothing when the state is updated.
+	 *
+	 * @see #updateAll(List)
+	 */
+	public static Uni<Void> update(TreatmentActionFeedbackEntity feedback) {
+
+		return updateAll(List.of(feedback));
+	}
+
+	/**
+	 * Store the feedback as the states of the actions with a single statement.
+	 * When some feedback are for the same action, only the newest one is stored.
+	 * The state is only updated if the feedback is not older than the current one,
+	 * and the same statement increases the version of the treatments whose state
+	 * has changed.
+	 *
+	 * @param feedbacks that have been received, ordered by arrival. The feedback
+	 *                  reported at the same time are stored in this order.
+	 *
+	 * @return nothing when the states are updated.
+	 *
+	 * @see TreatmentEntity#withVersionIncrement(String)
+	 */
+	public static Uni<Void> updateAll(List<TreatmentActionFeedbackEntity> feedbacks) {
+
+		final var lasts = new LinkedHashMap<Key, TreatmentActionFeedbackEntity>();
+		for (final var feedback : feedbacks) {
+
+			final var key = new Key();
+			key.treatmentId = feedback.treatment.id;
+			key.action = feedback.action;
+			lasts.merge(key, feedback, (last, next) -> next.createdTime >= last.createdTime ? next : last);
+		}
+		if (lasts.isEmpty()) {
+
+			return Uni.createFrom().voidItem();
+		}
+
+		final var query = new StringBuilder();
+		query.append("insert into ").append(TABLE_NAME)
+				.append(" as s (treatmentId, action, feedback, updatedTime) values ");
+		for (var i = 0; i < lasts.size(); i++) {
+
+			if (i > 0) {
+
+				query.append(", ");
+			}
+			final var index = i * 4;
+			query.append("(?").append(index + 1).append(", ?").append(index + 2).append(", ?").append(index + 3)
+					.append(", ?").append(index + 4).append(")");
+		}
+		query.append(
+				" on conflict (treatmentId, action) do update set feedback = excluded.feedback, updatedTime = excluded.updatedTime");
+		query.append(" where s.updatedTime <= excluded.updatedTime returning s.treatmentId, s.updatedTime");
+		return Panache.getSession().chain(session -> {
+
+			final var upsert = session.createNativeQuery(TreatmentEntity.withVersionIncrement(query.toString()));
+			var index = 1;
+			for (final var feedback : lasts.values()) {
+
+				upsert.setParameter(index++, feedback.treatment.id);
+				upsert.setParameter(index++, Short.valueOf((short) feedback.action.ordinal()));
+				upsert.setParameter(index++, Short.valueOf((short) feedback.feedback.ordinal()));
+				upsert.setParameter(index++, feedback.createdTime);
+			}
+			return upsert.executeUpdate();
+
+		}).replaceWithVoid();
+	}
+
+	/**
+	 * Return the states of the actions of a treatment.
+	 *
+	 * @param treatmentId identifier of the treatment.
+	 *
+	 * @return the states of the actions that have received any feedback.
+	 */
+	public static Uni<List<TreatmentActionStateEntity>> listFor(long treatmentId) {
+
+		return TreatmentActionStateEntity.list("treatmentId", treatmentId);
+	}
+
+	/**
+	 * The identifier of a {@link TreatmentActionStateEntity}.
+	 */
+	public static class Key implements Serializable {
+
+		/**
+		 * Serialization identifier.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The identifier of the treatment.
+		 */
+		public long treatmentId;
+
+		/**
+		 * The action of the treatment.
+		 */
+		public TreatmentAction action;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+
+			if (this == obj) {
+
+				return true;
+
+			} else if (obj instanceof final Key other) {
+
+				return this.treatmentId == other.treatmentId && this.action == other.action;
+
+			} else {
+
+				return false;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+
+			return Objects.hash(this.treatmentId, this.action);
+		}
+
+	}
+
+}
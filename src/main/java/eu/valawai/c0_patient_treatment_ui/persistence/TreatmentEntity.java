@@ -9,29 +9,39 @@
 package eu.valawai.c0_patient_treatment_ui.persistence;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.function.Supplier;
 
+import org.hibernate.reactive.mutiny.Mutiny;
+
 import eu.valawai.c0_patient_treatment_ui.TimeManager;
 import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.MinTreatment;
 import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.MinTreatmentPage;
 import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.Treatment;
 import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentActionWithFeedback;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentHistory;
 import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentValue;
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentPayload;
 import eu.valawai.c0_patient_treatment_ui.models.TreatmentAction;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.hibernate.reactive.panache.PanacheEntity;
 import io.quarkus.hibernate.reactive.panache.PanacheQuery;
 import io.quarkus.logging.Log;
+import io.quarkus.panache.common.Parameters;
 import io.quarkus.panache.common.Sort;
 import io.smallrye.mutiny.Uni;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedEntityGraphs;
 import jakarta.persistence.NamedQueries;
 import jakarta.persistence.NamedQuery;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 
 /**
@@ -47,6 +57,14 @@ import jakarta.persistence.OneToMany;
 		@NamedQuery(name = "TreatmentEntity.MinTreatmentTotalPerPatientId", query = "select count(*) from TREATMENTS t where t.patient.id = ?1")
 
 })
+@NamedEntityGraphs({ @NamedEntityGraph(name = TreatmentEntity.WITH_DETAILS_GRAPH, attributeNodes = {
+		@NamedAttributeNode(value = "patient", subgraph = "patient"), @NamedAttributeNode("beforeStatus"),
+		@NamedAttributeNode("expectedStatus"), @NamedAttributeNode("actionFeedbacks") }, subgraphs = {
+				@NamedSubgraph(name = "patient", attributeNodes = { @NamedAttributeNode("status") }) }),
+		@NamedEntityGraph(name = TreatmentEntity.WITH_STATUS_GRAPH, attributeNodes = {
+				@NamedAttributeNode(value = "patient", subgraph = "patient"), @NamedAttributeNode("beforeStatus"),
+				@NamedAttributeNode("expectedStatus") }, subgraphs = {
+						@NamedSubgraph(name = "patient", attributeNodes = { @NamedAttributeNode("status") }) }) })
 public class TreatmentEntity extends PanacheEntity {
 
 	/**
@@ -54,6 +72,25 @@ public class TreatmentEntity extends PanacheEntity {
 	 */
 	public static final String TABLE_NAME = "TREATMENTS";
 
+	/**
+	 * The name of the fetch plan that loads the treatment with its patient, status
+	 * and feedbacks. The value feedbacks are not joined to not multiply the rows of
+	 * the action feedbacks, thus they are fetched on a second query.
+	 */
+	public static final String WITH_DETAILS_GRAPH = "TreatmentEntity.withDetails";
+
+	/**
+	 * The name of the fetch plan that loads the treatment with its patient and
+	 * status, but without the feedbacks.
+	 */
+	public static final String WITH_STATUS_GRAPH = "TreatmentEntity.withStatus";
+
+	/**
+	 * The query to obtain the version of a treatment.
+	 */
+	private static final String VERSION_QUERY = "select t.version, coalesce(t.updateTime, t.createdTime) from "
+			+ TABLE_NAME + " t where t.id = ?1";
+
 	/**
 	 * The epoch time, in seconds, when the treatment has been created.
 	 */
@@ -62,13 +99,13 @@ public class TreatmentEntity extends PanacheEntity {
 	/**
 	 * The patient that has this treatment.
 	 */
-	@ManyToOne(targetEntity = PatientEntity.class, fetch = FetchType.EAGER, cascade = CascadeType.DETACH)
+	@ManyToOne(targetEntity = PatientEntity.class, fetch = FetchType.LAZY, cascade = CascadeType.DETACH)
 	public PatientEntity patient;
 
 	/**
 	 * The status before to apply the treatment.
 	 */
-	@ManyToOne(targetEntity = PatientStatusCriteriaEntity.class, fetch = FetchType.EAGER, cascade = CascadeType.DETACH)
+	@ManyToOne(targetEntity = PatientStatusCriteriaEntity.class, fetch = FetchType.LAZY, cascade = CascadeType.DETACH)
 	public PatientStatusCriteriaEntity beforeStatus;
 
 	/**
@@ -79,21 +116,38 @@ public class TreatmentEntity extends PanacheEntity {
 	/**
 	 * The expected status of the patient after applying the treatment.
 	 */
-	@ManyToOne(targetEntity = PatientStatusCriteriaEntity.class, fetch = FetchType.EAGER, cascade = CascadeType.DETACH)
+	@ManyToOne(targetEntity = PatientStatusCriteriaEntity.class, fetch = FetchType.LAZY, cascade = CascadeType.DETACH)
 	public PatientStatusCriteriaEntity expectedStatus;
 
 	/**
 	 * The received feedbacks for the treatment actions.
 	 */
-	@OneToMany(mappedBy = "treatment", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+	@OneToMany(mappedBy = "treatment", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
 	public List<TreatmentActionFeedbackEntity> actionFeedbacks;
 
 	/**
 	 * The received value feedbacks for the treatment.
 	 */
-	@OneToMany(mappedBy = "treatment", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+	@OneToMany(mappedBy = "treatment", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
 	public List<TreatmentValueFeedbackEntity> valueFeedbacks;
 
+	/**
+	 * The number of times that the state of the treatment or its patient has
+	 * changed. It is only increased by the statements that change them.
+	 *
+	 * @see #withVersionIncrement(String)
+	 */
+	@Column(insertable = false, updatable = false)
+	public long version;
+
+	/**
+	 * The epoch time, in seconds, when the state of the treatment or its patient
+	 * has changed for the last time, or {@code null} if it has not changed since
+	 * the treatment has been created.
+	 */
+	@Column(insertable = false, updatable = false)
+	public Long updateTime;
+
 	/**
 	 * Create a new treatment.
 	 */
@@ -104,21 +158,45 @@ public class TreatmentEntity extends PanacheEntity {
 	}
 
 	/**
-	 * Retrieve the treatment with the specified identifier.
+	 * Retrieve the treatment with the specified identifier with its patient, status
+	 * and feedbacks. The action feedbacks are joined by the fetch plan, and the
+	 * value feedbacks are fetched with a second query.
 	 *
 	 * @param id identifier of the treatment to retrieve.
 	 *
-	 * @return the patient associated to the identifier, or fail if not found.
+	 * @return the treatment associated to the identifier, or fail if not found.
+	 *
+	 * @see #WITH_DETAILS_GRAPH
 	 */
 	public static Uni<TreatmentEntity> retrieve(long id) {
 
-		final Uni<TreatmentEntity> action = TreatmentEntity.find("id", id).firstResult();
+		final Uni<TreatmentEntity> action = Panache.getSession().chain(
+				session -> session.find(session.getEntityGraph(TreatmentEntity.class, WITH_DETAILS_GRAPH), id));
+		return action.onItem().ifNull()
+				.failWith(() -> new IllegalArgumentException("Not found a treatment with the id " + id))
+				.call(treatment -> Mutiny.fetch(treatment.valueFeedbacks));
+	}
+
+	/**
+	 * Retrieve the treatment with the specified identifier without loading any of
+	 * its associations. So it only can be used to refer to the treatment or to
+	 * check its actions.
+	 *
+	 * @param id identifier of the treatment to retrieve.
+	 *
+	 * @return the treatment associated to the identifier, or fail if not found.
+	 */
+	public static Uni<TreatmentEntity> retrieveReference(long id) {
+
+		final Uni<TreatmentEntity> action = TreatmentEntity.findById(id);
 		return action.onItem().ifNull()
-				.failWith(new IllegalArgumentException("Not found a treatment with the id " + id));
+				.failWith(() -> new IllegalArgumentException("Not found a treatment with the id " + id));
 	}
 
 	/**
-	 * Delete the treatment with the specified identifier.
+	 * Delete the treatment with the specified identifier. The treatment, its
+	 * states and its feedback are deleted in one transaction, thus they are never
+	 * partially deleted if any statement fails.
 	 *
 	 * @param id identifier of the treatment to delete.
 	 *
@@ -127,9 +205,11 @@ public class TreatmentEntity extends PanacheEntity {
 	 */
 	public static Uni<Void> delete(long id) {
 
-		return TreatmentValueFeedbackEntity.delete("treatment.id", id)
+		return Panache.withTransaction(() -> TreatmentValueStateEntity.delete("treatmentId", id)
+				.chain(() -> TreatmentActionStateEntity.delete("treatmentId", id))
+				.chain(() -> TreatmentValueFeedbackEntity.delete("treatment.id", id))
 				.chain(() -> TreatmentActionFeedbackEntity.delete("treatment.id", id))
-				.chain(() -> TreatmentEntity.delete("id", id)).onItem().transformToUni(updated -> {
+				.chain(() -> TreatmentEntity.delete("id", id))).onItem().transformToUni(updated -> {
 
 					if (Long.valueOf(1l).equals(updated)) {
 
@@ -145,24 +225,197 @@ public class TreatmentEntity extends PanacheEntity {
 	}
 
 	/**
-	 * Retrieve the {@link Treatment} with the specified identifier.
+	 * Return the version of a treatment. The version changes when the state of the
+	 * feedback of the treatment or its patient is updated, and it is obtained
+	 * without loading the treatment or its feedback.
+	 *
+	 * @param id identifier of the treatment.
+	 *
+	 * @return the version of the treatment, or fail if not found.
+	 */
+	public static Uni<ModelVersion> versionOf(long id) {
+
+		final Uni<Object[]> find = Panache.getSession().chain(
+				session -> session.createSelectionQuery(VERSION_QUERY, Object[].class).setParameter(1, id)
+						.getSingleResultOrNull());
+		return find.onItem().ifNull()
+				.failWith(() -> new IllegalArgumentException("Not found a treatment with the id " + id))
+				.map(row -> toVersion((Long) row[0], (Long) row[1]));
+	}
+
+	/**
+	 * Return the version of this treatment.
+	 *
+	 * @return the version of the treatment.
+	 *
+	 * @see #versionOf(long)
+	 */
+	public ModelVersion version() {
+
+		return toVersion(this.version, this.updateTime == null ? this.createdTime : this.updateTime);
+	}
+
+	/**
+	 * Return the version of a treatment from the fields that change when its
+	 * feedback is updated.
+	 *
+	 * @param version      number of times that the treatment has been updated.
+	 * @param lastModified the time when the treatment has been updated.
+	 *
+	 * @return the version of the treatment.
+	 */
+	private static ModelVersion toVersion(long version, long lastModified) {
+
+		final var model = new ModelVersion();
+		model.lastModified = lastModified;
+		model.tag = Long.toHexString(lastModified) + "-" + Long.toHexString(version);
+		return model;
+	}
+
+	/**
+	 * Return the native statement that changes the states of some treatments and
+	 * increases the version of the treatments whose state has changed. Thus the
+	 * version is updated with the same statement than the states.
+	 *
+	 * @param upsert native statement that inserts or updates the states and
+	 *               returns the {@code treatmentId} and {@code updatedTime} of the
+	 *               changed states.
+	 *
+	 * @return the statement that changes the states and the versions.
+	 *
+	 * @see #versionOf(long)
+	 */
+	static String withVersionIncrement(String upsert) {
+
+		return "with changed as (" + upsert + ") update " + TABLE_NAME
+				+ " t set version = t.version + 1, updateTime = greatest(t.updateTime, t.createdTime, c.updatedTime)"
+				+ " from (select treatmentId, max(updatedTime) as updatedTime from changed group by treatmentId) c"
+				+ " where t.id = c.treatmentId";
+	}
+
+	/**
+	 * Retrieve the {@link Treatment} with the specified identifier. The feedback
+	 * of the treatment is obtained from its current state, thus the feedback
+	 * history is not loaded.
 	 *
 	 * @param id identifier of the treatment to return.
 	 *
 	 * @return the treatment associated to the identifier.
+	 *
+	 * @see TreatmentActionStateEntity
+	 * @see TreatmentValueStateEntity
 	 */
 	public static Uni<Treatment> retrieveTreatment(long id) {
 
-		return retrieve(id).map(entity -> entity.toTreatment());
+		return retrieveVersionedTreatment(id).map(treatment -> treatment.model);
 	}
 
 	/**
-	 * Convert this entity to a {@link Treatment}.
+	 * Retrieve the {@link Treatment} with the specified identifier and its
+	 * version. The version is read with the treatment before its feedback, thus
+	 * the treatment is never older than its version.
+	 *
+	 * @param id identifier of the treatment to return.
+	 *
+	 * @return the treatment associated to the identifier with its version.
+	 */
+	private static Uni<VersionedModel<Treatment>> retrieveVersionedTreatment(long id) {
+
+		final Uni<TreatmentEntity> find = Panache.getSession().chain(
+				session -> session.find(session.getEntityGraph(TreatmentEntity.class, WITH_STATUS_GRAPH), id));
+		return find.onItem().ifNull()
+				.failWith(() -> new IllegalArgumentException("Not found a treatment with the id " + id))
+				.chain(entity -> TreatmentActionStateEntity.listFor(id)
+						.chain(actionStates -> TreatmentValueStateEntity.listFor(id).map(valueStates -> VersionedModel
+								.of(entity.toTreatment(actionStates, valueStates), entity.version()))));
+	}
+
+	/**
+	 * Retrieve the {@link Treatment} with the specified identifier and its
+	 * version. The treatments are cached until they are deleted or they receive
+	 * new feedback.
+	 *
+	 * @param id     identifier of the treatment to return.
+	 * @param caches where the treatments are cached.
+	 *
+	 * @return the treatment associated to the identifier with its version.
+	 *
+	 * @see #retrieveTreatment(long)
+	 */
+	public static Uni<VersionedModel<Treatment>> retrieveTreatment(long id, ModelCaches caches) {
+
+		return caches.treatments().get(id, () -> retrieveVersionedTreatment(id));
+	}
+
+	/**
+	 * Retrieve all the feedback that has been received for a treatment.
+	 *
+	 * @param id identifier of the treatment to return its history.
+	 *
+	 * @return the history of the treatment associated to the identifier.
+	 */
+	public static Uni<TreatmentHistory> retrieveTreatmentHistory(long id) {
+
+		final var sort = Sort.ascending("createdTime", "id");
+		return retrieveReference(id).chain(treatment -> {
+
+			final Uni<List<TreatmentActionFeedbackEntity>> findActions = TreatmentActionFeedbackEntity
+					.list("treatment.id", sort, id);
+			return findActions.chain(actionFeedbacks -> {
+
+				final Uni<List<TreatmentValueFeedbackEntity>> findValues = TreatmentValueFeedbackEntity
+						.list("treatment.id", sort, id);
+				return findValues.map(valueFeedbacks -> {
+
+					final var history = new TreatmentHistory();
+					history.id = id;
+					history.actions = new ArrayList<>(actionFeedbacks.size());
+					for (final var actionFeedback : actionFeedbacks) {
+
+						final var action = new TreatmentActionWithFeedback();
+						action.action = actionFeedback.action;
+						action.feedback = actionFeedback.feedback;
+						action.updatedTime = actionFeedback.createdTime;
+						history.actions.add(action);
+					}
+					history.values = new ArrayList<>(valueFeedbacks.size());
+					for (final var valueFeedback : valueFeedbacks) {
+
+						final var value = new TreatmentValue();
+						value.name = TreatmentValueStateEntity.normalize(valueFeedback.valueName);
+						value.alignment = valueFeedback.alignment;
+						value.updatedTime = valueFeedback.createdTime;
+						history.values.add(value);
+					}
+					return history;
+				});
+			});
+		});
+	}
+
+	/**
+	 * Convert this entity to a {@link Treatment} without any feedback.
 	 *
 	 * @return the treatment with the data of this entity.
 	 */
 	public Treatment toTreatment() {
 
+		return this.toTreatment(null, null);
+	}
+
+	/**
+	 * Convert this entity to a {@link Treatment}.
+	 *
+	 * @param actionStates the current state of the actions of the treatment, or
+	 *                     {@code null} if it does not have feedback.
+	 * @param valueStates  the current state of the values of the treatment, or
+	 *                     {@code null} if it does not have feedback.
+	 *
+	 * @return the treatment with the data of this entity.
+	 */
+	public Treatment toTreatment(List<TreatmentActionStateEntity> actionStates,
+			List<TreatmentValueStateEntity> valueStates) {
+
 		final var treatment = new Treatment();
 		treatment.id = this.id;
 		treatment.createdTime = this.createdTime;
@@ -180,59 +433,41 @@ public class TreatmentEntity extends PanacheEntity {
 		}
 		if (this.treatmentActions != null) {
 
-			treatment.actions = new ArrayList<>();
-			for (final var action : this.treatmentActions) {
-
-				final var feedback = new TreatmentActionWithFeedback();
-				feedback.action = action;
-				treatment.actions.add(feedback);
-			}
+			final var states = new EnumMap<TreatmentAction, TreatmentActionStateEntity>(TreatmentAction.class);
+			if (actionStates != null) {
 
-			if (this.actionFeedbacks != null) {
+				for (final var state : actionStates) {
 
-				Collections.sort(this.actionFeedbacks, (a1, a2) -> Long.compare(a1.createdTime, a2.createdTime));
-				for (final var actionFeedback : this.actionFeedbacks) {
+					states.put(state.action, state);
+				}
+			}
 
-					for (final var action : treatment.actions) {
+			treatment.actions = new ArrayList<>(this.treatmentActions.size());
+			for (final var action : this.treatmentActions) {
 
-						if (action.action == actionFeedback.action) {
+				final var feedback = new TreatmentActionWithFeedback();
+				feedback.action = action;
+				final var state = states.get(action);
+				if (state != null) {
 
-							action.feedback = actionFeedback.feedback;
-							action.updatedTime = actionFeedback.createdTime;
-							break;
-						}
-					}
+					feedback.feedback = state.feedback;
+					feedback.updatedTime = state.updatedTime;
 				}
+				treatment.actions.add(feedback);
 			}
 
 		}
 
-		if (this.valueFeedbacks != null) {
-
-			treatment.values = new ArrayList<>();
-			Collections.sort(this.valueFeedbacks, (a1, a2) -> Long.compare(a1.createdTime, a2.createdTime));
-			for (final var valueFeedback : this.valueFeedbacks) {
-
-				var found = false;
-				for (final var value : treatment.values) {
-
-					if (value.name.equalsIgnoreCase(valueFeedback.valueName)) {
-
-						value.alignment = valueFeedback.alignment;
-						value.updatedTime = valueFeedback.createdTime;
-						found = true;
-						break;
-					}
-				}
+		if (valueStates != null) {
 
-				if (!found) {
+			treatment.values = new ArrayList<>(valueStates.size());
+			for (final var state : valueStates) {
 
-					final var value = new TreatmentValue();
-					value.name = valueFeedback.valueName.toUpperCase();
-					value.alignment = valueFeedback.alignment;
-					value.updatedTime = valueFeedback.createdTime;
-					treatment.values.add(value);
-				}
+				final var value = new TreatmentValue();
+				value.name = state.valueName;
+				value.alignment = state.alignment;
+				value.updatedTime = state.updatedTime;
+				treatment.values.add(value);
 			}
 		}
 
@@ -297,8 +532,44 @@ public class TreatmentEntity extends PanacheEntity {
 	public static Uni<MinTreatmentPage> getMinTreatmentPageForPatientName(String pattern, Sort sort, int from,
 			int limit) {
 
-		return getMinTreatmentPageFor(
-				() -> TreatmentEntity.count("#TreatmentEntity.MinTreatmentTotalPerPatientName", pattern),
+		return getMinTreatmentPageForPatientName(pattern, CountMode.EXACT, sort, from, limit);
+	}
+
+	/**
+	 * Return the {@link MinTreatmentPage} that satisfy the patient name.
+	 *
+	 * @param pattern to match the name of the treatments.
+	 * @param count   how to calculate the total of treatments that satisfy the
+	 *                query.
+	 * @param sort    how to order the treatments to return.
+	 * @param from    index of the first treatment to return.
+	 * @param limit   maximum number of treatments to return.
+	 *
+	 * @return the page that satisfy the query.
+	 */
+	public static Uni<MinTreatmentPage> getMinTreatmentPageForPatientName(String pattern, CountMode count, Sort sort,
+			int from, int limit) {
+
+		Supplier<Uni<Long>> counter = null;
+		if (count == CountMode.NONE) {
+
+			counter = () -> Uni.createFrom().nullItem();
+
+		} else if ("%".equals(pattern)) {
+
+			counter = () -> CounterEntity.totalOf(CounterEntity.TREATMENTS,
+					() -> TreatmentEntity.count("#TreatmentEntity.MinTreatmentTotalPerPatientName", pattern));
+
+		} else if (count == CountMode.ESTIMATE) {
+
+			counter = () -> CounterEntity.estimate("select 1 from " + TABLE_NAME + " t join "
+					+ PatientEntity.TABLE_NAME + " p on p.id = t.patient_id where p.name ILIKE ?1", pattern);
+
+		} else {
+
+			counter = () -> TreatmentEntity.count("#TreatmentEntity.MinTreatmentTotalPerPatientName", pattern);
+		}
+		return getMinTreatmentPageFor(counter, count == CountMode.EXACT,
 				() -> TreatmentEntity.find("patient.name ILIKE ?1", sort, pattern), from, limit);
 	}
 
@@ -314,36 +585,70 @@ public class TreatmentEntity extends PanacheEntity {
 	 */
 	public static Uni<MinTreatmentPage> getMinTreatmentPageForPatient(long patientId, Sort sort, int from, int limit) {
 
-		return getMinTreatmentPageFor(
-				() -> TreatmentEntity.count("#TreatmentEntity.MinTreatmentTotalPerPatientId", patientId),
+		return getMinTreatmentPageForPatient(patientId, CountMode.EXACT, sort, from, limit);
+	}
+
+	/**
+	 * Return the {@link MinTreatmentPage} that satisfy the patient id. The total
+	 * is obtained from the {@link CounterEntity}, so it is always exact.
+	 *
+	 * @param patientId identifier of the patient to get the treatments.
+	 * @param count     how to calculate the total of treatments of the patient.
+	 * @param sort      how to order the treatments to return.
+	 * @param from      index of the first treatment to return.
+	 * @param limit     maximum number of treatments to return.
+	 *
+	 * @return the page that satisfy the query.
+	 */
+	public static Uni<MinTreatmentPage> getMinTreatmentPageForPatient(long patientId, CountMode count, Sort sort,
+			int from, int limit) {
+
+		Supplier<Uni<Long>> counter = null;
+		if (count == CountMode.NONE) {
+
+			counter = () -> Uni.createFrom().nullItem();
+
+		} else {
+
+			counter = () -> CounterEntity.totalOf(CounterEntity.treatmentsOfPatient(patientId),
+					() -> TreatmentEntity.count("#TreatmentEntity.MinTreatmentTotalPerPatientId", patientId));
+		}
+		return getMinTreatmentPageFor(counter, count != CountMode.NONE,
 				() -> TreatmentEntity.find("patient.id = ?1", sort, patientId), from, limit);
 	}
 
 	/**
 	 * Return the {@link MinTreatmentPage} that satisfy a query.
 	 *
-	 * @param counter query to obtain the total number of treatments.
+	 * @param counter query to obtain the total number of treatments. It returns
+	 *                {@code null} if the total is not calculated.
+	 * @param exact   is {@code true} if the total is exact, so the treatments are
+	 *                not searched when the page is after the total.
 	 * @param finder  query to obtain the treatments.
 	 * @param from    index of the first treatment to return.
 	 * @param limit   maximum number of treatments to return.
 	 *
 	 * @return the page that satisfy the query.
 	 */
-	private static Uni<MinTreatmentPage> getMinTreatmentPageFor(Supplier<Uni<Long>> counter,
+	private static Uni<MinTreatmentPage> getMinTreatmentPageFor(Supplier<Uni<Long>> counter, boolean exact,
 			Supplier<PanacheQuery<TreatmentEntity>> finder, int from, int limit) {
 
 		return counter.get().chain(total -> {
 
 			final var page = new MinTreatmentPage();
-			page.total = Math.toIntExact(total);
-			if (from >= total) {
+			if (total != null) {
+
+				page.total = Math.toIntExact(total);
+			}
+			if (exact && from >= total) {
 
 				return Uni.createFrom().item(page);
 
 			} else {
 
-				final var to = Math.toIntExact(Math.min(from + limit, total)) - 1;
-				final Uni<List<TreatmentEntity>> find = finder.get().range(from, to).list();
+				final var to = (int) Math.min((long) from + limit - 1, Integer.MAX_VALUE);
+				final Uni<List<MinTreatmentProjection>> find = finder.get().project(MinTreatmentProjection.class)
+						.range(from, to).list();
 				return find.map(treatments -> {
 
 					final var size = treatments.size();
@@ -367,4 +672,107 @@ public class TreatmentEntity extends PanacheEntity {
 
 	}
 
+	/**
+	 * Return the {@link MinTreatmentPage} with the treatments that are after a
+	 * cursor and satisfy the patient name.
+	 *
+	 * @param pattern to match the name of the treatments.
+	 * @param sort    how to order the treatments to return.
+	 * @param after   cursor of the last treatment of the previous page, or
+	 *                {@code null} or empty to start from the first treatment.
+	 * @param limit   maximum number of treatments to return.
+	 *
+	 * @return the page that satisfy the query, or a failure with an
+	 *         {@link IllegalArgumentException} if the cursor or the sort is not
+	 *         valid.
+	 */
+	public static Uni<MinTreatmentPage> getMinTreatmentPageForPatientNameAfter(String pattern, Sort sort,
+			String after, int limit) {
+
+		return getMinTreatmentPageAfter("patient.name ILIKE :pattern", Parameters.with("pattern", pattern), sort,
+				after, limit);
+	}
+
+	/**
+	 * Return the {@link MinTreatmentPage} with the treatments that are after a
+	 * cursor and satisfy the patient id.
+	 *
+	 * @param patientId identifier of the patient to get the treatments.
+	 * @param sort      how to order the treatments to return.
+	 * @param after     cursor of the last treatment of the previous page, or
+	 *                  {@code null} or empty to start from the first treatment.
+	 * @param limit     maximum number of treatments to return.
+	 *
+	 * @return the page that satisfy the query, or a failure with an
+	 *         {@link IllegalArgumentException} if the cursor or the sort is not
+	 *         valid.
+	 */
+	public static Uni<MinTreatmentPage> getMinTreatmentPageForPatientAfter(long patientId, Sort sort, String after,
+			int limit) {
+
+		return getMinTreatmentPageAfter("patient.id = :patientId", Parameters.with("patientId", patientId), sort,
+				after, limit);
+	}
+
+	/**
+	 * Return the {@link MinTreatmentPage} with the treatments that are after a
+	 * cursor. This seeks directly the treatments, thus it does not count the
+	 * treatments that satisfy the query or skip the treatments of the previous
+	 * pages.
+	 *
+	 * @param filter     query that the treatments has to satisfy.
+	 * @param parameters of the filter query.
+	 * @param sort       how to order the treatments to return.
+	 * @param after      cursor of the last treatment of the previous page.
+	 * @param limit      maximum number of treatments to return.
+	 *
+	 * @return the page that satisfy the query, or a failure with an
+	 *         {@link IllegalArgumentException} if the cursor or the sort is not
+	 *         valid.
+	 *
+	 * @see KeysetQueryBuilder
+	 */
+	private static Uni<MinTreatmentPage> getMinTreatmentPageAfter(String filter, Parameters parameters, Sort sort,
+			String after, int limit) {
+
+		final Uni<KeysetQueryBuilder> builder = Uni.createFrom()
+				.item(() -> KeysetQueryBuilder.withSort(sort, MinTreatmentProjection.SORT_FIELDS).after(after));
+		return builder.chain(keyset -> {
+
+			final var query = keyset.query(filter);
+			final Uni<List<MinTreatmentProjection>> find = TreatmentEntity
+					.find(query, sort, keyset.parameters(parameters)).project(MinTreatmentProjection.class)
+					.range(0, limit).list();
+			return find.map(treatments -> {
+
+				final var page = new MinTreatmentPage();
+				final var size = Math.min(treatments.size(), limit);
+				if (size > 0) {
+
+					page.treatments = new ArrayList<>(size);
+					for (final var treatment : treatments.subList(0, size)) {
+
+						final var minTreatment = treatment.toMinTreatment();
+						page.treatments.add(minTreatment);
+					}
+
+					if (treatments.size() > limit) {
+
+						final var last = treatments.get(size - 1);
+						page.next = keyset.cursorFor(last::valueOf);
+					}
+				}
+
+				return page;
+
+			}).onFailure().recoverWithItem(error -> {
+
+				Log.errorv(error, "Cannot find for the treatments after {0}.", after);
+				return new MinTreatmentPage();
+			});
+
+		});
+
+	}
+
 }
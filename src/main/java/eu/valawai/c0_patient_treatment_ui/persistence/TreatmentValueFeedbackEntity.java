@@ -8,11 +8,16 @@
 
 package eu.valawai.c0_patient_treatment_ui.persistence;
 
-import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayload;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.hibernate.reactive.panache.PanacheEntity;
 import io.smallrye.mutiny.Uni;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToOne;
@@ -33,6 +38,17 @@ public class TreatmentValueFeedbackEntity extends PanacheEntity {
 	 */
 	public static final String TABLE_NAME = "TREATMENT_VALUE_FEEDBACKS";
 
+	/**
+	 * The query to obtain the identifiers of the defined treatments.
+	 */
+	private static final String DEFINED_TREATMENTS_QUERY = "select t.id from " + TreatmentEntity.TABLE_NAME
+			+ " t where t.id in ?1";
+
+	/**
+	 * The sequence that generates the identifiers of the feedback.
+	 */
+	private static final String SEQUENCE_NAME = TABLE_NAME + "_SEQ";
+
 	/**
 	 * The treatment associated to the feedback.
 	 */
@@ -55,32 +71,175 @@ public class TreatmentValueFeedbackEntity extends PanacheEntity {
 	public double alignment;
 
 	/**
-	 * Persist the feedback.
+	 * The key of the message that has reported the feedback, or {@code null} if it
+	 * is not known.
+	 *
+	 * @see eu.valawai.c0_patient_treatment_ui.messages.MessageKeys
+	 */
+	@Column(length = 64, unique = true)
+	public String messageKey;
+
+	/**
+	 * Persist some feedback and update the current state of their treatments. The
+	 * treatments are checked with a single query, the identifiers of the feedback
+	 * are reserved with another one, the feedback are inserted with a single
+	 * statement and the states are updated with another one. The feedback of a
+	 * message that has been stored before is not stored again, and it obtains a
+	 * {@link DuplicatedFeedbackException}.
 	 *
-	 * @param payload with the feedback to persist.
+	 * @param payloads      with the feedback to persist.
+	 * @param messageKeys   keys of the messages of each feedback, or
+	 *                      {@code null} if it is not known.
+	 * @param receivedTimes epoch times, in seconds, when the messages of each
+	 *                      feedback have been received for the first time. They
+	 *                      are the times when the feedback have been reported.
 	 *
-	 * @return the stored feedback.
+	 * @return the error of each feedback that cannot be stored, or {@code null} if
+	 *         it has been stored. The errors are on the same order as the
+	 *         payloads.
 	 */
-	public static Uni<TreatmentValueFeedbackEntity> store(TreatmentValueFeedbackPayload payload) {
+	public static Uni<List<Throwable>> storeAll(List<TreatmentValueFeedbackPayload> payloads,
+			List<String> messageKeys, List<Long> receivedTimes) {
 
-		try {
+		final var max = payloads.size();
+		final List<Throwable> errors = new ArrayList<>(max);
+		final var treatmentIds = new long[max];
+		final var ids = new HashSet<Long>();
+		for (var i = 0; i < max; i++) {
 
-			final var id = Long.parseLong(payload.treatment_id);
-			return TreatmentEntity.retrieve(id).chain(treatment -> {
+			try {
 
-				final var entity = new TreatmentValueFeedbackEntity();
-				entity.treatment = treatment;
-				entity.createdTime = TimeManager.now();
-				entity.valueName = payload.value_name;
-				entity.alignment = payload.alignment;
-				return entity.persistAndFlush();
-			});
+				treatmentIds[i] = Long.parseLong(payloads.get(i).treatment_id);
+				ids.add(treatmentIds[i]);
+				errors.add(null);
+
+			} catch (final NumberFormatException badId) {
 
-		} catch (final NumberFormatException badId) {
+				errors.add(badId);
+			}
+		}
+		if (ids.isEmpty()) {
 
-			return Uni.createFrom().failure(badId);
+			return Uni.createFrom().item(errors);
 		}
 
+		return Panache.getSession().chain(session -> session
+				.createSelectionQuery(DEFINED_TREATMENTS_QUERY, Long.class).setParameter(1, ids).getResultList()
+				.chain(defined -> {
+
+					final var definedIds = new HashSet<>(defined);
+					final var messageKeysInBatch = new HashSet<String>();
+					final var indexes = new ArrayList<Integer>(max);
+					final var entities = new ArrayList<TreatmentValueFeedbackEntity>(max);
+					for (var i = 0; i < max; i++) {
+
+						final var messageKey = messageKeys.get(i);
+						if (errors.get(i) == null && messageKey != null && !messageKeysInBatch.add(messageKey)) {
+
+							errors.set(i, new DuplicatedFeedbackException(messageKey));
+
+						} else if (errors.get(i) == null) {
+
+							final var id = treatmentIds[i];
+							if (!definedIds.contains(id)) {
+
+								errors.set(i, new IllegalArgumentException("Not found a treatment with the id " + id));
+
+							} else {
+
+								final var payload = payloads.get(i);
+								final var entity = new TreatmentValueFeedbackEntity();
+								entity.treatment = session.getReference(TreatmentEntity.class, id);
+								entity.createdTime = receivedTimes.get(i);
+								entity.messageKey = messageKey;
+								entity.valueName = payload.value_name;
+								entity.alignment = payload.alignment;
+								entities.add(entity);
+								indexes.add(i);
+							}
+						}
+					}
+					if (entities.isEmpty()) {
+
+						return Uni.createFrom().item(errors);
+
+					} else {
+
+						return insertIfNotStored(entities).chain(stored -> {
+
+							for (var j = 0; j < entities.size(); j++) {
+
+								final var entity = entities.get(j);
+								if (!stored.contains(entity)) {
+
+									errors.set(indexes.get(j), new DuplicatedFeedbackException(entity.messageKey));
+								}
+							}
+							return TreatmentValueStateEntity.updateAll(stored);
+
+						}).replaceWith(errors);
+					}
+
+				}));
+	}
+
+	/**
+	 * Insert some feedback with a single statement. The feedback of a message
+	 * that has been stored before is ignored, and the database checks it when
+	 * the feedback is inserted, thus a message that is stored at the same time by
+	 * another node does not fail the batch. The identifiers of the feedback are
+	 * reserved before, in blocks of the sequence of the table.
+	 *
+	 * @param entities to insert. They do not have two feedback with the same
+	 *                 message key.
+	 *
+	 * @return the inserted feedback.
+	 */
+	private static Uni<List<TreatmentValueFeedbackEntity>> insertIfNotStored(
+			List<TreatmentValueFeedbackEntity> entities) {
+
+		final var query = new StringBuilder();
+		query.append("insert into ").append(TABLE_NAME)
+				.append(" (id, treatment_id, createdTime, valueName, alignment, messageKey) values ");
+		var param = 1;
+		for (var i = 0; i < entities.size(); i++) {
+
+			if (i > 0) {
+
+				query.append(", ");
+			}
+			query.append("(?").append(param++);
+			for (var j = 0; j < 5; j++) {
+
+				query.append(", ?").append(param++);
+			}
+			query.append(")");
+		}
+		query.append(" on conflict (messageKey) do nothing returning messageKey");
+
+		final Uni<List<Long>> reserve = SequenceIdentifiers.next(SEQUENCE_NAME, entities.size());
+		return reserve.chain(ids -> Panache.getSession().chain(session -> {
+
+			final var insert = session.createNativeQuery(query.toString(), String.class);
+			var index = 1;
+			for (var i = 0; i < entities.size(); i++) {
+
+				final var entity = entities.get(i);
+				insert.setParameter(index++, ids.get(i));
+				insert.setParameter(index++, entity.treatment.id);
+				insert.setParameter(index++, entity.createdTime);
+				insert.setParameter(index++, entity.valueName);
+				insert.setParameter(index++, entity.alignment);
+				insert.setParameter(index++, entity.messageKey);
+			}
+			return insert.getResultList().map(inserted -> {
+
+				final var insertedKeys = new HashSet<>(inserted);
+				return entities.stream()
+						.filter(entity -> entity.messageKey == null || insertedKeys.contains(entity.messageKey)).toList();
+			});
+
+		}));
 	}
 
 }
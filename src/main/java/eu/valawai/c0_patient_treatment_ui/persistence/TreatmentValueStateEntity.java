@@ -0,0 +1,228 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
+import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+
+/**
+ * An entity that has the last alignment received for a value of a treatment. It
+ * is updated at the same time that a {@link TreatmentValueFeedbackEntity} is
+ * stored, thus the current state of a treatment can be obtained without reading
+ * all the feedback history.
+ *
+ * @see TreatmentValueFeedbackEntity
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Entity(name = TreatmentValueStateEntity.TABLE_NAME)
+@IdClass(TreatmentValueStateEntity.Key.class)
+public class TreatmentValueStateEntity extends PanacheEntityBase {
+
+	/**
+	 * The name of the table that will contains the value states.
+	 */
+	public static final String TABLE_NAME = "TREATMENT_VALUE_STATES";
+
+	/**
+	 * The identifier of the treatment.
+	 */
+	@Id
+	public long treatmentId;
+
+	/**
+	 * The normalized name of the value.
+	 *
+	 * @see #normalize(String)
+	 */
+	@Id
+	public String valueName;
+
+	/**
+	 * The last alignment of the value with the the treatment.
+	 */
+	public double alignment;
+
+	/**
+	 * The epoch time, in seconds, when the first feedback of the value has been
+	 * reported.
+	 */
+	public long createdTime;
+
+	/**
+	 * The epoch time, in seconds, when the last feedback has been reported.
+	 */
+	public long updatedTime;
+
+	/**
+	 * Return the normalized name of a value. The values are compared without case,
+	 * so they are stored in upper case.
+	 *
+	 * @param valueName name of the value.
+	 *
+	 * @return the normalized name of the value.
+	 */
+	public static String normalize(String valueName) {
+
+		return valueName == null ? null : valueName.toUpperCase();
+	}
+
+	/**
+	 * Store the feedback as the state of the value if it is not older than the
+	 * current state.
+	 *
+	 * @param feedback that has been received.
+	 *
+	 * @return nothing when the state is updated.
+	 *
+	 * @see #updateAll(List)
+	 */
+	public static Uni<Void> update(TreatmentValueFeedbackEntity feedback) {
+
+		return updateAll(List.of(feedback));
+	}
+
+	/**
+	 * Store the feedback as the states of the values with a single statement. When
+	 * some feedback are for the same value, only the newest one is stored. The
+	 * state is only updated if the feedback is not older than the current one, the
+	 * time of the first feedback of the value is never updated, and the same
+	 * statement increases the version of the treatments whose state has changed.
+	 *
+	 * @param feedbacks that have been received, ordered by arrival. The feedback
+	 *                  reported at the same time are stored in this order.
+	 *
+	 * @return nothing when the states are updated.
+	 *
+	 * @see TreatmentEntity#withVersionIncrement(String)
+	 */
+	public static Uni<Void> updateAll(List<TreatmentValueFeedbackEntity> feedbacks) {
+
+		final var lasts = new LinkedHashMap<Key, TreatmentValueFeedbackEntity>();
+		for (final var feedback : feedbacks) {
+
+			final var key = new Key();
+			key.treatmentId = feedback.treatment.id;
+			key.valueName = normalize(feedback.valueName);
+			lasts.merge(key, feedback, (last, next) -> next.createdTime >= last.createdTime ? next : last);
+		}
+		if (lasts.isEmpty()) {
+
+			return Uni.createFrom().voidItem();
+		}
+
+		final var query = new StringBuilder();
+		query.append("insert into ").append(TABLE_NAME)
+				.append(" as s (treatmentId, valueName, alignment, createdTime, updatedTime) values ");
+		for (var i = 0; i < lasts.size(); i++) {
+
+			if (i > 0) {
+
+				query.append(", ");
+			}
+			final var index = i * 4;
+			query.append("(?").append(index + 1).append(", ?").append(index + 2).append(", ?").append(index + 3)
+					.append(", ?").append(index + 4).append(", ?").append(index + 4).append(")");
+		}
+		query.append(
+				" on conflict (treatmentId, valueName) do update set alignment = excluded.alignment, updatedTime = excluded.updatedTime");
+		query.append(" where s.updatedTime <= excluded.updatedTime returning s.treatmentId, s.updatedTime");
+		return Panache.getSession().chain(session -> {
+
+			final var upsert = session.createNativeQuery(TreatmentEntity.withVersionIncrement(query.toString()));
+			var index = 1;
+			for (final var feedback : lasts.values()) {
+
+				upsert.setParameter(index++, feedback.treatment.id);
+				upsert.setParameter(index++, normalize(feedback.valueName));
+				upsert.setParameter(index++, feedback.alignment);
+				upsert.setParameter(index++, feedback.createdTime);
+			}
+			return upsert.executeUpdate();
+
+		}).replaceWithVoid();
+	}
+
+	/**
+	 * Return the states of the values of a treatment.
+	 *
+	 * @param treatmentId identifier of the treatment.
+	 *
+	 * @return the states of the values in the order that they have been reported
+	 *         for the first time. The values reported at the same time are
+	 *         ordered by name.
+	 */
+	public static Uni<List<TreatmentValueStateEntity>> listFor(long treatmentId) {
+
+		return TreatmentValueStateEntity.list("treatmentId", Sort.ascending("createdTime", "valueName"),
+				treatmentId);
+	}
+
+	/**
+	 * The identifier of a {@link TreatmentValueStateEntity}.
+	 */
+	public static class Key implements Serializable {
+
+		/**
+		 * Serialization identifier.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The identifier of the treatment.
+		 */
+		public long treatmentId;
+
+		/**
+		 * The normalized name of the value.
+		 */
+		public String valueName;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+
+			if (this == obj) {
+
+				return true;
+
+			} else if (obj instanceof final Key other) {
+
+				return this.treatmentId == other.treatmentId && Objects.equals(this.valueName, other.valueName);
+
+			} else {
+
+				return false;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+
+			return Objects.hash(this.treatmentId, this.valueName);
+		}
+
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+/**
+ * A model with the version of the entity that it has been rendered from. The
+ * version is read before the model, thus the model is never older than its
+ * version.
+ *
+ * @param <M> type of the model.
+ *
+ * @see ModelCache
+ * @see ModelVersion
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class VersionedModel<M> {
+
+	/**
+	 * The rendered model.
+	 */
+	public M model;
+
+	/**
+	 * The version of the model.
+	 */
+	public ModelVersion version;
+
+	/**
+	 * Create a versioned model.
+	 *
+	 * @param model   rendered from the entity.
+	 * @param version of the entity.
+	 *
+	 * @return the model with its version.
+	 *
+	 * @param <M> type of the model.
+	 */
+	public static <M> VersionedModel<M> of(M model, ModelVersion version) {
+
+		final var versioned = new VersionedModel<M>();
+		versioned.model = model;
+		versioned.version = version;
+		return versioned;
+	}
+
+}
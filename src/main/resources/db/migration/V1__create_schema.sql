@@ -0,0 +1,98 @@
+-- The tables of the entities. The statements do not fail if the schema has
+-- been created before by Hibernate, so the databases that exist before the
+-- migrations can be migrated from a baseline.
+
+create sequence if not exists PATIENT_STATUS_CRITERIA_SEQ start with 1 increment by 50;
+create sequence if not exists PATIENTS_SEQ start with 1 increment by 50;
+create sequence if not exists TREATMENTS_SEQ start with 1 increment by 50;
+create sequence if not exists TREATMENT_ACTION_FEEDBACKS_SEQ start with 1 increment by 50;
+create sequence if not exists TREATMENT_VALUE_FEEDBACKS_SEQ start with 1 increment by 50;
+
+create table if not exists PATIENT_STATUS_CRITERIA (
+	id bigint not null,
+	statusCode bigint,
+	ageRange smallint,
+	ccd smallint,
+	maca smallint,
+	expectedSurvival smallint,
+	frailVIG smallint,
+	clinicalRiskGroup smallint,
+	hasSocialSupport smallint,
+	independenceAtAdmission smallint,
+	independenceInstrumentalActivities smallint,
+	hasAdvanceDirectives smallint,
+	isCompetent smallint,
+	hasBeenInformed smallint,
+	isCoerced smallint,
+	hasCognitiveImpairment smallint,
+	hasEmocionalPain smallint,
+	discomfortDegree smallint,
+	nitLevel smallint,
+	primary key (id)
+);
+alter table PATIENT_STATUS_CRITERIA add column if not exists statusCode bigint;
+create unique index if not exists PATIENT_STATUS_CRITERIA_STATUS_CODE_INDEX on PATIENT_STATUS_CRITERIA (statusCode);
+
+create table if not exists PATIENTS (
+	id bigint not null,
+	name varchar(1024),
+	status_id bigint,
+	updateTime bigint not null,
+	primary key (id),
+	constraint PATIENTS_STATUS_FK foreign key (status_id) references PATIENT_STATUS_CRITERIA
+);
+
+create table if not exists TREATMENTS (
+	id bigint not null,
+	createdTime bigint not null,
+	patient_id bigint,
+	beforeStatus_id bigint,
+	expectedStatus_id bigint,
+	treatmentActions smallint array,
+	primary key (id),
+	constraint TREATMENTS_PATIENT_FK foreign key (patient_id) references PATIENTS,
+	constraint TREATMENTS_BEFORE_STATUS_FK foreign key (beforeStatus_id) references PATIENT_STATUS_CRITERIA,
+	constraint TREATMENTS_EXPECTED_STATUS_FK foreign key (expectedStatus_id) references PATIENT_STATUS_CRITERIA
+);
+
+create table if not exists TREATMENT_ACTION_FEEDBACKS (
+	id bigint not null,
+	treatment_id bigint,
+	createdTime bigint not null,
+	action smallint,
+	feedback smallint,
+	primary key (id),
+	constraint TREATMENT_ACTION_FEEDBACKS_TREATMENT_FK foreign key (treatment_id) references TREATMENTS
+);
+
+create table if not exists TREATMENT_VALUE_FEEDBACKS (
+	id bigint not null,
+	treatment_id bigint,
+	createdTime bigint not null,
+	valueName varchar(255),
+	alignment float(53) not null,
+	primary key (id),
+	constraint TREATMENT_VALUE_FEEDBACKS_TREATMENT_FK foreign key (treatment_id) references TREATMENTS
+);
+
+create table if not exists TREATMENT_ACTION_STATES (
+	treatmentId bigint not null,
+	action smallint not null,
+	feedback smallint,
+	updatedTime bigint not null,
+	primary key (treatmentId, action)
+);
+
+create table if not exists TREATMENT_VALUE_STATES (
+	treatmentId bigint not null,
+	valueName varchar(255) not null,
+	alignment float(53) not null,
+	updatedTime bigint not null,
+	primary key (treatmentId, valueName)
+);
+
+create table if not exists COUNTERS (
+	name varchar(255) not null,
+	total bigint not null,
+	primary key (name)
+);
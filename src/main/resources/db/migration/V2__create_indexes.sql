@@ -0,0 +1,16 @@
+-- The indexes used by the queries of the entities. PostgreSQL does not index
+-- the foreign keys, so without them the treatments of a patient, or the
+-- feedback of a treatment, are obtained and deleted scanning all the table.
+
+-- PatientEntity: search the patients by a pattern that may start with a
+-- wildcard, also when the treatments are searched by the name of its patient.
+create extension if not exists pg_trgm;
+create index if not exists PATIENTS_NAME_TRGM_INDEX on PATIENTS using gin (name gin_trgm_ops);
+
+-- TreatmentEntity: the treatments of a patient.
+create index if not exists TREATMENTS_PATIENT_INDEX on TREATMENTS (patient_id, id);
+
+-- TreatmentActionFeedbackEntity and TreatmentValueFeedbackEntity: the history
+-- of a treatment ordered by time, and the feedback to delete with a treatment.
+create index if not exists TREATMENT_ACTION_FEEDBACKS_TREATMENT_INDEX on TREATMENT_ACTION_FEEDBACKS (treatment_id, createdTime, id);
+create index if not exists TREATMENT_VALUE_FEEDBACKS_TREATMENT_INDEX on TREATMENT_VALUE_FEEDBACKS (treatment_id, createdTime, id);
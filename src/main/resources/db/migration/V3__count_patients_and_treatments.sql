@@ -0,0 +1,49 @@
+-- The triggers that maintain the COUNTERS in the same transaction that inserts
+-- or deletes the patients and the treatments, including the bulk deletes.
+
+create or replace function PATIENTS_COUNT() returns trigger language plpgsql as $$
+begin
+	if TG_OP = 'INSERT' then
+		insert into COUNTERS (name, total) values ('PATIENTS', 1)
+			on conflict (name) do update set total = COUNTERS.total + 1;
+	else
+		update COUNTERS set total = total - 1 where name = 'PATIENTS';
+		delete from COUNTERS where name = 'TREATMENTS_OF_PATIENT_' || OLD.id;
+	end if;
+	return null;
+end $$;
+
+create or replace trigger PATIENTS_COUNT_TRIGGER after insert or delete on PATIENTS
+	for each row execute function PATIENTS_COUNT();
+
+create or replace function TREATMENTS_COUNT() returns trigger language plpgsql as $$
+begin
+	if TG_OP = 'INSERT' then
+		insert into COUNTERS (name, total) values ('TREATMENTS', 1)
+			on conflict (name) do update set total = COUNTERS.total + 1;
+		if NEW.patient_id is not null then
+			insert into COUNTERS (name, total) values ('TREATMENTS_OF_PATIENT_' || NEW.patient_id, 1)
+				on conflict (name) do update set total = COUNTERS.total + 1;
+		end if;
+	else
+		update COUNTERS set total = total - 1 where name = 'TREATMENTS';
+		if OLD.patient_id is not null then
+			update COUNTERS set total = total - 1 where name = 'TREATMENTS_OF_PATIENT_' || OLD.patient_id;
+		end if;
+	end if;
+	return null;
+end $$;
+
+create or replace trigger TREATMENTS_COUNT_TRIGGER after insert or delete on TREATMENTS
+	for each row execute function TREATMENTS_COUNT();
+
+-- The initial values of the counters. The tables are locked until the end of
+-- the migration, so any change is counted by the triggers or here.
+
+lock table PATIENTS, TREATMENTS in share row exclusive mode;
+
+delete from COUNTERS;
+insert into COUNTERS (name, total) select 'PATIENTS', count(*) from PATIENTS;
+insert into COUNTERS (name, total) select 'TREATMENTS', count(*) from TREATMENTS;
+insert into COUNTERS (name, total)
+	select 'TREATMENTS_OF_PATIENT_' || patient_id, count(*) from TREATMENTS where patient_id is not null group by patient_id;
@@ -0,0 +1,48 @@
+-- The data that is derived from the rows that have been stored before the
+-- columns or tables that contain it have been defined.
+
+-- The last feedback of each action and value of the treatments.
+insert into TREATMENT_ACTION_STATES (treatmentId, action, feedback, updatedTime)
+	select distinct on (f.treatment_id, f.action) f.treatment_id, f.action, f.feedback, f.createdTime
+	from TREATMENT_ACTION_FEEDBACKS f where f.treatment_id is not null and f.action is not null
+	order by f.treatment_id, f.action, f.createdTime desc, f.id desc
+	on conflict (treatmentId, action) do nothing;
+
+insert into TREATMENT_VALUE_STATES (treatmentId, valueName, alignment, updatedTime)
+	select distinct on (f.treatment_id, upper(f.valueName)) f.treatment_id, upper(f.valueName), f.alignment, f.createdTime
+	from TREATMENT_VALUE_FEEDBACKS f where f.treatment_id is not null and f.valueName is not null
+	order by f.treatment_id, upper(f.valueName), f.createdTime desc, f.id desc
+	on conflict (treatmentId, valueName) do nothing;
+
+-- The code of the patient status, calculated as PatientStatusCriteriaCodec does.
+-- When some rows have the same status only the first one obtains the code.
+update PATIENT_STATUS_CRITERIA p set statusCode = c.code
+	from (
+		select min(s.id) as id, s.code from (
+			select id,
+				coalesce(ageRange + 1, 0)::bigint
+				| (coalesce(ccd + 1, 0)::bigint << 5)
+				| (coalesce(maca + 1, 0)::bigint << 7)
+				| (coalesce(expectedSurvival + 1, 0)::bigint << 9)
+				| (coalesce(frailVIG + 1, 0)::bigint << 14)
+				| (coalesce(clinicalRiskGroup + 1, 0)::bigint << 19)
+				| (coalesce(hasSocialSupport + 1, 0)::bigint << 24)
+				| (coalesce(independenceAtAdmission + 1, 0)::bigint << 26)
+				| (coalesce(independenceInstrumentalActivities + 1, 0)::bigint << 31)
+				| (coalesce(hasAdvanceDirectives + 1, 0)::bigint << 36)
+				| (coalesce(isCompetent + 1, 0)::bigint << 38)
+				| (coalesce(hasBeenInformed + 1, 0)::bigint << 40)
+				| (coalesce(isCoerced + 1, 0)::bigint << 42)
+				| (coalesce(hasCognitiveImpairment + 1, 0)::bigint << 44)
+				| (coalesce(hasEmocionalPain + 1, 0)::bigint << 49)
+				| (coalesce(discomfortDegree + 1, 0)::bigint << 51)
+				| (coalesce(nitLevel + 1, 0)::bigint << 56) as code
+			from PATIENT_STATUS_CRITERIA where statusCode is null
+		) s
+		where not exists (select 1 from PATIENT_STATUS_CRITERIA q where q.statusCode = s.code)
+		group by s.code
+	) c
+	where p.id = c.id;
+
+-- The content hash that has been replaced by the status code.
+alter table PATIENT_STATUS_CRITERIA drop column if exists statusHash;
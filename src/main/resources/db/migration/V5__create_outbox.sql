@@ -0,0 +1,16 @@
+-- The treatments that are pending to be published. They are added in the
+-- same transaction that stores the treatment, and removed when the broker
+-- confirms that has received them.
+
+create sequence if not exists OUTBOX_SEQ start with 1 increment by 50;
+
+create table if not exists OUTBOX (
+	id bigint not null,
+	payload text,
+	createdTime bigint not null,
+	attempts integer not null,
+	nextAttemptTime bigint not null,
+	primary key (id)
+);
+
+create index if not exists OUTBOX_NEXT_ATTEMPT_INDEX on OUTBOX (nextAttemptTime, id);
@@ -0,0 +1,8 @@
+-- The key of the message that has reported a feedback, thus the feedback of
+-- a message that is delivered again is not stored twice.
+
+alter table TREATMENT_ACTION_FEEDBACKS add column if not exists messageKey varchar(64);
+create unique index if not exists TREATMENT_ACTION_FEEDBACKS_MESSAGE_KEY_INDEX on TREATMENT_ACTION_FEEDBACKS (messageKey);
+
+alter table TREATMENT_VALUE_FEEDBACKS add column if not exists messageKey varchar(64);
+create unique index if not exists TREATMENT_VALUE_FEEDBACKS_MESSAGE_KEY_INDEX on TREATMENT_VALUE_FEEDBACKS (messageKey);
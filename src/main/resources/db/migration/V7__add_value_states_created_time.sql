@@ -0,0 +1,13 @@
+-- The time when the first feedback of each value of a treatment has been
+-- received, thus the values of a treatment are listed in the order that they
+-- have been reported.
+
+alter table TREATMENT_VALUE_STATES add column if not exists createdTime bigint;
+
+update TREATMENT_VALUE_STATES s set createdTime = coalesce(
+		(select min(f.createdTime) from TREATMENT_VALUE_FEEDBACKS f
+			where f.treatment_id = s.treatmentId and upper(f.valueName) = s.valueName),
+		s.updatedTime)
+	where s.createdTime is null;
+
+alter table TREATMENT_VALUE_STATES alter column createdTime set not null;
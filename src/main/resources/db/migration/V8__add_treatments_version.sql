@@ -0,0 +1,13 @@
+-- The version of each treatment, that is increased by the same statement that
+-- changes the state of its feedback or its patient, and the time of its last
+-- change. Thus the version of a treatment is obtained without reading its
+-- feedback.
+
+alter table TREATMENTS add column if not exists version bigint not null default 0;
+alter table TREATMENTS add column if not exists updateTime bigint;
+
+update TREATMENTS t set updateTime = greatest(t.createdTime,
+		(select max(a.updatedTime) from TREATMENT_ACTION_STATES a where a.treatmentId = t.id),
+		(select max(v.updatedTime) from TREATMENT_VALUE_STATES v where v.treatmentId = t.id),
+		(select p.updateTime from PATIENTS p where p.id = t.patient_id))
+	where t.updateTime is null;
@@ -0,0 +1,5 @@
+-- The version of each patient, that is increased by the same statement that
+-- updates the patient. Thus the version of a patient changes on each update,
+-- even when it is updated more than once in the same second.
+
+alter table PATIENTS add column if not exists version bigint not null default 0;
@@ -10,7 +10,7 @@ import { NgFor, NgIf, NgSwitch, NgSwitchCase, NgSwitchDefault } from '@angular/c
 import { Component, OnDestroy, OnInit } from '@angular/core';
 import { ActivatedRoute, Router, RouterLink } from '@angular/router';
 import { TitleService } from '@app/shared';
-import { ApiService, Treatment, TreatmentActionNamePipe, TreatmentValueNamePipe } from '@app/shared/api';
+import { ApiService, Treatment, TreatmentActionNamePipe, TreatmentFeedbackChange, TreatmentValueNamePipe } from '@app/shared/api';
 import { Subscription } from 'rxjs';
 import { MatExpansionModule } from '@angular/material/expansion';
 import { MatProgressBarModule } from '@angular/material/progress-bar';
@@ -64,6 +64,16 @@ export class ViewComponent implements OnInit, OnDestroy {
 	 */
 	private timerId: any | null = null;
 
+	/**
+	 * The subscription to the changes of the feedback of the treatment.
+	 */
+	private feedbackSubscription: Subscription | null = null;
+
+	/**
+	 * The changes of the feedback received while the treatment is obtained.
+	 */
+	private pendingChanges: TreatmentFeedbackChange[] | null = null;
+
 	/**
 	 * The treatement value chart series. 
 	 */
@@ -151,7 +161,8 @@ export class ViewComponent implements OnInit, OnDestroy {
 			{
 				next: (params) => {
 					this.treatmentId = Number(params.get('treatmentId'));
-					this.updateTreatment();
+					this.stopUpdates();
+					this.followFeedback();
 				}
 			}
 		);
@@ -167,32 +178,118 @@ export class ViewComponent implements OnInit, OnDestroy {
 			this.treatementIdSubscription.unsubscribe();
 			this.treatementIdSubscription = null;
 		}
+		this.stopUpdates();
+	}
+
+	/**
+	 * Stop to follow the changes of the treatment.
+	 */
+	private stopUpdates() {
+
 		if (this.timerId != null) {
 
 			clearTimeout(this.timerId);
 			this.timerId = null;
 		}
+		if (this.feedbackSubscription != null) {
+
+			this.feedbackSubscription.unsubscribe();
+			this.feedbackSubscription = null;
+		}
+		this.pendingChanges = null;
 	}
 
 	/**
 	 * Update the treatement.
+	 * 
+	 * @param poll is true if has to obtain again the treatment after a while.
 	 */
-	private updateTreatment() {
+	private updateTreatment(poll: boolean = false) {
 
+		this.pendingChanges = [];
 		this.api.getTreatment(this.treatmentId || 0).subscribe(
 			{
 				next: (treatment) => {
 
+					var changes = this.pendingChanges || [];
+					this.pendingChanges = null;
 					if (JSON.stringify(this.treatment) !== JSON.stringify(treatment)) {
 
 						this.treatment = treatment;
 						this.treatmentUpdated();
 					}
-					this.timerId = setTimeout(() => this.updateTreatment(), 1500);
+					for (var change of changes) {
+
+						this.feedbackChanged(change);
+					}
+					if (poll) {
+
+						this.timerId = setTimeout(() => this.updateTreatment(true), 1500);
+					}
+				}
+			}
+		);
+
+	}
+
+	/**
+	 * Follow the changes of the feedback of the treatment. The treatment is
+	 * obtained each time that the stream is opened, thus no change is lost
+	 * between the treatment and the stream. If the stream fails the treatment
+	 * is obtained periodically.
+	 */
+	private followFeedback() {
+
+		this.feedbackSubscription = this.api.streamTreatmentFeedback(this.treatmentId || 0, () => this.updateTreatment()).subscribe(
+			{
+				next: (change) => this.feedbackChanged(change),
+				error: () => {
+
+					this.feedbackSubscription = null;
+					this.updateTreatment(true);
 				}
 			}
 		);
+	}
+
+	/**
+	 * Called when the feedback of the treatment has changed. The changes received
+	 * while the treatment is obtained are applied after it, and a change never
+	 * replaces a newer feedback.
+	 * 
+	 * @param change of the feedback.
+	 */
+	private feedbackChanged(change: TreatmentFeedbackChange) {
+
+		if (this.pendingChanges != null) {
+
+			this.pendingChanges.push(change);
+
+		} else if (this.treatment && this.treatment.id === change.treatmentId) {
+
+			for (var action of change.actions || []) {
 
+				var index = this.treatment.actions.findIndex(a => a.action === action.action);
+				if (index >= 0 && (this.treatment.actions[index].updatedTime || 0) <= (action.updatedTime || 0)) {
+
+					this.treatment.actions[index] = action;
+				}
+			}
+			for (var value of change.values || []) {
+
+				var index = this.treatment.values.findIndex(v => v.name === value.name);
+				if (index < 0) {
+
+					this.treatment.values.push(value);
+
+				} else if (this.treatment.values[index].updatedTime <= value.updatedTime) {
+
+					this.treatment.values[index] = value;
+				}
+			}
+			this.treatment = { ...this.treatment };
+			this.treatmentUpdated();
+		}
 	}
 
 	/**
@@ -226,11 +323,7 @@ export class ViewComponent implements OnInit, OnDestroy {
 			this.api.doAgainTreatment(this.treatment).subscribe({
 
 				next: added => {
-					if (this.timerId != null) {
-
-						clearTimeout(this.timerId);
-						this.timerId = null;
-					}
+					this.stopUpdates();
 					this.router.navigate(['/main/doctor/treatments', added.id, 'view']);
 				},
 				error: (err) => {
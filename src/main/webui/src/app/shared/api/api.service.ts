@@ -17,6 +17,7 @@ import { Patient } from "./patient.model";
 import { Treatment } from "./treatment.model";
 import { TreatmentToAdd } from "./treatment-to-add.model";
 import { MinTreatmentPage } from "./min-treatment-page.model";
+import { TreatmentFeedbackChange } from "./treatment-feedback-change.model";
 
 /**
  * The service used to interact with the 
@@ -188,6 +189,29 @@ export class ApiService {
 		return this.http.get<Treatment>(url);
 	}
 
+	/**
+	 * Follow the changes of the feedback of a treatment.
+	 * 
+	 * @param treatmentId identifier of the treatment.
+	 * @param opened called when the stream is opened, thus any later change is received.
+	 */
+	streamTreatmentFeedback(treatmentId: number, opened: () => void = () => { }): Observable<TreatmentFeedbackChange> {
+
+		var url = this.url('/v1/treatments', [treatmentId, 'feedback', 'stream']);
+		return new Observable<TreatmentFeedbackChange>(subscriber => {
+
+			const source = new EventSource(url);
+			source.onopen = () => opened();
+			source.onmessage = event => subscriber.next(JSON.parse(event.data) as TreatmentFeedbackChange);
+			source.onerror = error => {
+
+				source.close();
+				subscriber.error(error);
+			};
+			return () => source.close();
+		});
+	}
+
 	/**
 	 * Add a treatment.
 	 * 
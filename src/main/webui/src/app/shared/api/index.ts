@@ -21,6 +21,7 @@ export { TreatmentToAdd } from './treatment-to-add.model';
 export { TreatmentActionFeedback, TREATMENT_ACTION_FEEDBACK } from './treatment-action-feedback.model';
 export { TreatmentActionWithFeedback } from './treatment-action-with-feedback.model';
 export { TreatmentValue } from './treatment-value.model';
+export { TreatmentFeedbackChange } from './treatment-feedback-change.model';
 export { AgeRangeOption, AGE_RANGE_OPTION_NAMES } from './age-range-option.model';
 export { AgeRangeOptionNamePipe } from './age-range-option-name.pipe';
 export { YesNoUnknownOption, YES_NO_UNKNOWN_OPTION_NAMES } from './yes-no-unknown-option.model';
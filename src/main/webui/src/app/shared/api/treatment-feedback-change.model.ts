@@ -0,0 +1,39 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+import { TreatmentActionWithFeedback } from "./treatment-action-with-feedback.model";
+import { TreatmentValue } from "./treatment-value.model";
+
+/**
+ * The feedback that has changed on a treatment.
+ *
+ * @author VALAWAI
+ */
+export class TreatmentFeedbackChange {
+
+	/**
+	 * The identifier of the treatment that has changed.
+	 */
+	public treatmentId: number = 0;
+
+	/**
+	 * The identifier of the patient of the treatment.
+	 */
+	public patientId: number | null = null;
+
+	/**
+	 * The actions whose feedback has changed.
+	 */
+	public actions: TreatmentActionWithFeedback[] | null = null;
+
+	/**
+	 * The values whose alignment has changed.
+	 */
+	public values: TreatmentValue[] | null = null;
+
+}
@@ -0,0 +1,50 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.messages.mov.MOVTestResource;
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Test the {@link ComponentMetricsCheck}.
+ *
+ * @see ComponentMetricsCheck
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@WithTestResource(value = MOVTestResource.class)
+public class ComponentMetricsCheckTest {
+
+	/**
+	 * Check that the counters of the components are published.
+	 */
+	@Test
+	public void shouldPublishCounters() {
+
+		final var check = "checks.find { it.name == '" + ComponentMetricsCheck.NAME + "' }";
+		given().when().get("/q/health/ready").then().body(check + ".status", equalTo("UP"))
+				.body(check + ".data.'feedback.stored'", notNullValue())
+				.body(check + ".data.'outbox.lag'", notNullValue())
+				.body(check + ".data.'status_cache.hits'", notNullValue())
+				.body(check + ".data.'mov_log.shipped'", notNullValue())
+				.body(check + ".data.'feedback_stream.delivered'", notNullValue())
+				.body(check + ".data.'model_cache.treatments.hit_rate'", notNullValue())
+				.body(check + ".data.'invalidations.published'", notNullValue());
+
+	}
+
+}
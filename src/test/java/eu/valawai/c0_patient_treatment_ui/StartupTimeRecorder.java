@@ -0,0 +1,55 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Record when the component receives its first request.
+ *
+ * @see StartupTimeTest
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ApplicationScoped
+public class StartupTimeRecorder {
+
+	/**
+	 * The epoch milliseconds when the first request has been received.
+	 */
+	protected final AtomicLong firstRequestTime = new AtomicLong(-1);
+
+	/**
+	 * Called when a request is received.
+	 */
+	@ServerRequestFilter
+	public void requested() {
+
+		this.firstRequestTime.compareAndSet(-1, System.currentTimeMillis());
+	}
+
+	/**
+	 * Return the milliseconds since the JVM has been started until the component
+	 * has received the first request.
+	 *
+	 * @return the time to the first request, or a negative value if the component
+	 *         has not received any request.
+	 */
+	public long timeToFirstRequest() {
+
+		final var requested = this.firstRequestTime.get();
+		return requested < 0 ? -1 : requested - ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+
+}
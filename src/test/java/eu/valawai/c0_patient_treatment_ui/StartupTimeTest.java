@@ -0,0 +1,68 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.messages.mov.MOVTestResource;
+import eu.valawai.c0_patient_treatment_ui.persistence.PostgreSQLTestResource;
+import io.quarkus.logging.Log;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+
+/**
+ * Measure the time since the JVM is started until the component serves the
+ * first request. The measured time is logged to track it between versions. The
+ * test is run in its own JVM by the {@code startup-time} execution of the
+ * surefire plugin, thus it is always a cold start that does not depend on the
+ * order of the tests. The time includes the start of the test resources.
+ *
+ * @see StartupTimeRecorder
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@WithTestResource(value = MOVTestResource.class)
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class StartupTimeTest {
+
+	/**
+	 * The maximum milliseconds that the component can take to serve the first
+	 * request.
+	 */
+	@ConfigProperty(name = "c0.patient_treatment_ui.test.max_time_to_first_request", defaultValue = "120000")
+	long maxTimeToFirstRequest;
+
+	/**
+	 * The component that records the times of the component.
+	 */
+	@Inject
+	StartupTimeRecorder recorder;
+
+	/**
+	 * Check the time to serve the first request.
+	 */
+	@Test
+	public void shouldServeFirstRequest() {
+
+		given().when().get("/v1/help/info").then().statusCode(200);
+		final var time = this.recorder.timeToFirstRequest();
+		assertTrue(time >= 0, "The first request has not been recorded");
+		Log.infov("Time to first request: {0} ms", time);
+		assertTrue(time <= this.maxTimeToFirstRequest,
+				"The first request has taken " + time + " ms, more than " + this.maxTimeToFirstRequest + " ms");
+	}
+
+}
@@ -17,6 +17,7 @@ import org.junit.jupiter.params.provider.EmptySource;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import eu.valawai.c0_patient_treatment_ui.persistence.CountMode;
 import io.quarkus.panache.common.Sort.Direction;
 
 /**
@@ -152,4 +153,26 @@ public class QueryParametersTest {
 		assertEquals(expected, pattern);
 	}
 
+	/**
+	 * Should obtain the count mode of a query.
+	 *
+	 * @param query    to obtain the count mode.
+	 * @param expected count mode to be returned.
+	 */
+	@ParameterizedTest(name = "Should obtain the count mode {1} for {0}")
+	@CsvSource(textBlock = """
+			,EXACT
+			exact,EXACT
+			estimate,ESTIMATE
+			'  Estimate  ',ESTIMATE
+			none,NONE
+			NONE,NONE
+			undefined,EXACT
+			""")
+	public void shouldObtainCountMode(String query, CountMode expected) {
+
+		final var mode = QueryParameters.toCountMode(query);
+		assertEquals(expected, mode);
+	}
+
 }
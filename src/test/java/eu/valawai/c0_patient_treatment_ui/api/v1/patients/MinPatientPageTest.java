@@ -50,5 +50,9 @@ public class MinPatientPageTest extends ReflectionModelTestCase<MinPatientPage>
 			}
 
 		}
+		if (ValueGenerator.flipCoin()) {
+
+			model.next = ValueGenerator.nextPattern("cursor_{0}");
+		}
 	}
 }
@@ -9,11 +9,13 @@
 package eu.valawai.c0_patient_treatment_ui.api.v1.patients;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -54,12 +56,23 @@ public class PatientsResourceTest {
 
 	}
 
+	/**
+	 * Test not stream the feedback of the treatments of an undefined patient.
+	 */
+	@Test
+	public void shouldNotStreamFeedbackOfUndefinedPatient() {
+
+		given().pathParam("id", 0).when().get("/v1/patients/{id}/treatments/feedback/stream").then()
+				.statusCode(Status.NOT_FOUND.getStatusCode());
+
+	}
+
 	/**
 	 * Test retrieve a patient.
 	 *
 	 * @param asserter to use in the tests.
 	 *
-	 * @see PatientsResource#retrievePatient(long)
+	 * @see PatientsResource#retrievePatient(long, jakarta.ws.rs.core.Request)
 	 */
 	@Test
 	@RunOnVertxContext
@@ -195,6 +208,64 @@ public class PatientsResourceTest {
 
 	}
 
+	/**
+	 * Test retrieve a patient only when its version has changed.
+	 *
+	 * @see PatientsResource#retrievePatient(long, jakarta.ws.rs.core.Request)
+	 */
+	@Test
+	public void shouldRetrievePatientOnlyWhenModified() {
+
+		final var model = new PatientTest().nextModel();
+		final var patient = given().contentType("application/json").body(model).when().post("/v1/patients").then()
+				.statusCode(Status.CREATED.getStatusCode()).extract().as(Patient.class);
+
+		final var etag = given().pathParam("id", patient.id).when().get("/v1/patients/{id}").then()
+				.statusCode(Status.OK.getStatusCode()).header("Last-Modified", notNullValue()).extract()
+				.header("ETag");
+		assertNotNull(etag);
+		given().pathParam("id", patient.id).header("If-None-Match", etag).when().get("/v1/patients/{id}").then()
+				.statusCode(Status.NOT_MODIFIED.getStatusCode()).header("ETag", etag);
+
+		final var newModel = new PatientTest().nextModel();
+		newModel.id = null;
+		newModel.updateTime = null;
+		given().contentType("application/json").body(newModel).pathParam("id", patient.id).when()
+				.patch("/v1/patients/{id}").then().statusCode(Status.OK.getStatusCode());
+
+		final var updated = given().pathParam("id", patient.id).header("If-None-Match", etag).when()
+				.get("/v1/patients/{id}").then().statusCode(Status.OK.getStatusCode()).extract();
+		assertNotEquals(etag, updated.header("ETag"));
+		assertEquals(newModel.name, updated.as(Patient.class).name);
+
+	}
+
+	/**
+	 * Test change the version of a patient on each update, even when it is updated
+	 * with the same values in the same second.
+	 *
+	 * @see PatientsResource#retrievePatient(long, jakarta.ws.rs.core.Request)
+	 */
+	@Test
+	public void shouldChangeVersionOnEachUpdate() {
+
+		final var model = new PatientTest().nextModel();
+		final var patient = given().contentType("application/json").body(model).when().post("/v1/patients").then()
+				.statusCode(Status.CREATED.getStatusCode()).extract().as(Patient.class);
+
+		final var newModel = new Patient();
+		newModel.name = model.name;
+		final var first = given().contentType("application/json").body(newModel).pathParam("id", patient.id).when()
+				.patch("/v1/patients/{id}").then().statusCode(Status.OK.getStatusCode()).extract().header("ETag");
+		final var second = given().contentType("application/json").body(newModel).pathParam("id", patient.id).when()
+				.patch("/v1/patients/{id}").then().statusCode(Status.OK.getStatusCode()).extract().header("ETag");
+		assertNotNull(first);
+		assertNotEquals(first, second);
+		given().pathParam("id", patient.id).header("If-None-Match", second).when().get("/v1/patients/{id}").then()
+				.statusCode(Status.NOT_MODIFIED.getStatusCode()).header("ETag", second);
+
+	}
+
 	/**
 	 * Test not update an undefined patient.
 	 *
@@ -361,8 +432,8 @@ public class PatientsResourceTest {
 
 		asserter.assertThat(() -> PatientEntities.populateWith(50).chain(ignored -> PatientEntity.count()), total -> {
 
-			final var page = given().when().queryParam("limit", total).get("/v1/patients").then()
-					.statusCode(Status.OK.getStatusCode()).extract().as(MinPatientPage.class);
+			final var page = given().when().queryParam("offset", "0").queryParam("limit", total).get("/v1/patients")
+					.then().statusCode(Status.OK.getStatusCode()).extract().as(MinPatientPage.class);
 			assertNotNull(page);
 			assertEquals(total, page.total);
 			assertNotNull(page.patients);
@@ -418,4 +489,58 @@ public class PatientsResourceTest {
 
 	}
 
+	/**
+	 * Should get the patient pages by cursor when the offset is not defined.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrievePatientPagesByCursorByDefault(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientEntities.populateWith(20).chain(ignored -> PatientEntity.count()), total -> {
+
+			final var expected = given().when().queryParam("offset", "0").queryParam("limit", total)
+					.queryParam("order", "-id").get("/v1/patients").then().statusCode(Status.OK.getStatusCode())
+					.extract().as(MinPatientPage.class).patients;
+			final var found = new ArrayList<MinPatient>();
+			var page = given().when().queryParam("limit", "7").queryParam("order", "-id").get("/v1/patients").then()
+					.statusCode(Status.OK.getStatusCode()).extract().as(MinPatientPage.class);
+			assertEquals(0, page.total);
+			found.addAll(page.patients);
+			while (page.next != null) {
+
+				page = given().when().queryParam("limit", "7").queryParam("order", "-id")
+						.queryParam("after", page.next).get("/v1/patients").then()
+						.statusCode(Status.OK.getStatusCode()).extract().as(MinPatientPage.class);
+				found.addAll(page.patients);
+			}
+			assertEquals(expected, found);
+
+		});
+
+	}
+
+	/**
+	 * Should not get a patient page with a bad cursor.
+	 */
+	@Test
+	public void shouldNotRetrievePatientPageWithBadCursor() {
+
+		given().when().queryParam("after", ValueGenerator.nextPattern("bad cursor {0}")).get("/v1/patients").then()
+				.statusCode(Status.BAD_REQUEST.getStatusCode());
+
+	}
+
+	/**
+	 * Should not retrieve a page of patients sorted by an undefined field.
+	 */
+	@Test
+	public void shouldNotRetrievePatientPageWithBadOrder() {
+
+		given().when().queryParam("order", "name is null or 1 = 1").get("/v1/patients").then()
+				.statusCode(Status.BAD_REQUEST.getStatusCode());
+
+	}
+
 }
@@ -50,5 +50,9 @@ public class MinTreatmentPageTest extends ReflectionModelTestCase<MinTreatmentPa
 			}
 
 		}
+		if (ValueGenerator.flipCoin()) {
+
+			model.next = ValueGenerator.nextPattern("cursor_{0}");
+		}
 	}
 }
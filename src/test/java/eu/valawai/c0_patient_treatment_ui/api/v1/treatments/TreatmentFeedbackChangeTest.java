@@ -0,0 +1,48 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.api.v1.treatments;
+
+import java.util.ArrayList;
+
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+import eu.valawai.c0_patient_treatment_ui.models.ReflectionModelTestCase;
+
+/**
+ * Test the {@link TreatmentFeedbackChange}.
+ *
+ * @see TreatmentFeedbackChange
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TreatmentFeedbackChangeTest extends ReflectionModelTestCase<TreatmentFeedbackChange> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public TreatmentFeedbackChange createEmptyModel() {
+
+		return new TreatmentFeedbackChange();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void fillIn(TreatmentFeedbackChange model) {
+
+		model.treatmentId = ValueGenerator.rnd().nextLong(1, 100000);
+		model.patientId = ValueGenerator.rnd().nextLong(1, 100000);
+		model.actions = new ArrayList<>();
+		model.actions.add(new TreatmentActionWithFeedbackTest().nextModel());
+		model.values = new ArrayList<>();
+		model.values.add(new TreatmentValueTest().nextModel());
+	}
+
+}
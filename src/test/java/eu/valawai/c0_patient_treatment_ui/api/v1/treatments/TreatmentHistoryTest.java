@@ -0,0 +1,73 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.api.v1.treatments;
+
+import java.util.ArrayList;
+
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+import eu.valawai.c0_patient_treatment_ui.models.ReflectionModelTestCase;
+
+/**
+ * Test the {@link TreatmentHistory}.
+ *
+ * @see TreatmentHistory
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TreatmentHistoryTest extends ReflectionModelTestCase<TreatmentHistory> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public TreatmentHistory createEmptyModel() {
+
+		return new TreatmentHistory();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void fillIn(TreatmentHistory model) {
+
+		model.id = ValueGenerator.rnd().nextLong();
+		final int maxActions = ValueGenerator.rnd().nextInt(5);
+		if (maxActions > 0) {
+
+			model.actions = new ArrayList<>(maxActions);
+
+			final var builder = new TreatmentActionWithFeedbackTest();
+			for (int i = 0; i < maxActions; i++) {
+
+				final var action = builder.nextModel();
+				model.actions.add(action);
+
+			}
+
+		}
+
+		final int maxValues = ValueGenerator.rnd().nextInt(5);
+		if (maxValues > 0) {
+
+			model.values = new ArrayList<>(maxValues);
+
+			final var builder = new TreatmentValueTest();
+			for (int i = 0; i < maxValues; i++) {
+
+				final var value = builder.nextModel();
+				model.values.add(value);
+
+			}
+
+		}
+
+	}
+
+}
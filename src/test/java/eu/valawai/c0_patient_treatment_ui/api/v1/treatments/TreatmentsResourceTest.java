@@ -21,15 +21,24 @@ import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
 import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatient;
+import eu.valawai.c0_patient_treatment_ui.messages.ModelInvalidationBus;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayloadTest;
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentQueue;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayloadTest;
 import eu.valawai.c0_patient_treatment_ui.messages.mov.MOVTestResource;
+import eu.valawai.c0_patient_treatment_ui.persistence.MinTreatmentProjection;
 import eu.valawai.c0_patient_treatment_ui.persistence.PatientEntities;
 import eu.valawai.c0_patient_treatment_ui.persistence.PatientEntity;
 import eu.valawai.c0_patient_treatment_ui.persistence.PatientStatusCriteriaEntity;
 import eu.valawai.c0_patient_treatment_ui.persistence.PostgreSQLTestResource;
+import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentActionFeedbackEntities;
+import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentActionFeedbackEntity;
 import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentEntities;
 import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentEntity;
+import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentValueFeedbackEntities;
+import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentValueFeedbackEntity;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
@@ -50,6 +59,12 @@ import jakarta.ws.rs.core.Response.Status;
 @QuarkusTestResource(PostgreSQLTestResource.class)
 public class TreatmentsResourceTest {
 
+	/**
+	 * The component to invalidate the cached treatments.
+	 */
+	@Inject
+	ModelInvalidationBus invalidations;
+
 	/**
 	 * The queue to listen for the payloads.
 	 */
@@ -139,6 +154,142 @@ public class TreatmentsResourceTest {
 
 	}
 
+	/**
+	 * Test retrieve a treatment with the last received feedback.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see TreatmentEntity#retrieveTreatment
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrieveTreatmentWithLastFeedback(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), entity -> asserter.putData("ENTITY", entity));
+		for (var i = 0; i < 2; i++) {
+
+			asserter.assertThat(() -> {
+
+				final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+				final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+				payload.treatment_id = String.valueOf(entity.id);
+				payload.action = entity.treatmentActions.get(0);
+				return TreatmentActionFeedbackEntities.store(payload);
+
+			}, stored -> asserter.putData("LAST_ACTION_FEEDBACK", stored));
+
+			final var index = i;
+			asserter.assertThat(() -> {
+
+				final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+				final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+				payload.treatment_id = String.valueOf(entity.id);
+				payload.value_name = index == 0 ? "dignity" : "DIGNITY";
+				return TreatmentValueFeedbackEntities.store(payload);
+
+			}, stored -> asserter.putData("LAST_VALUE_FEEDBACK", stored));
+		}
+
+		asserter.execute(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var lastAction = (TreatmentActionFeedbackEntity) asserter.getData("LAST_ACTION_FEEDBACK");
+			final var lastValue = (TreatmentValueFeedbackEntity) asserter.getData("LAST_VALUE_FEEDBACK");
+
+			final var retrieved = given().pathParam("id", entity.id).when().get("/v1/treatments/{id}").then()
+					.statusCode(Status.OK.getStatusCode()).extract().as(Treatment.class);
+			assertEquals(entity.treatmentActions.size(), retrieved.actions.size());
+			final var action = retrieved.actions.get(0);
+			assertEquals(lastAction.action, action.action);
+			assertEquals(lastAction.feedback, action.feedback);
+			assertEquals(lastAction.createdTime, action.updatedTime);
+			assertEquals(1, retrieved.values.size());
+			final var value = retrieved.values.get(0);
+			assertEquals("DIGNITY", value.name);
+			assertEquals(lastValue.alignment, value.alignment, 0.0000001d);
+			assertEquals(lastValue.createdTime, value.updatedTime);
+
+			final var history = given().pathParam("id", entity.id).when().get("/v1/treatments/{id}/history").then()
+					.statusCode(Status.OK.getStatusCode()).extract().as(TreatmentHistory.class);
+			assertEquals(entity.id, history.id);
+			assertEquals(2, history.actions.size());
+			assertEquals(lastAction.feedback, history.actions.get(1).feedback);
+			assertEquals(2, history.values.size());
+			assertEquals(lastValue.alignment, history.values.get(1).alignment, 0.0000001d);
+
+		});
+
+	}
+
+	/**
+	 * Test retrieve a treatment only when it has received feedback since the
+	 * version that the client has.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see TreatmentsResource#retrieveTreatment(long, jakarta.ws.rs.core.Request)
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrieveTreatmentOnlyWhenModified(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), entity -> {
+
+			asserter.putData("ENTITY", entity);
+			final var etag = given().pathParam("id", entity.id).when().get("/v1/treatments/{id}").then()
+					.statusCode(Status.OK.getStatusCode()).extract().header("ETag");
+			assertNotNull(etag);
+			given().pathParam("id", entity.id).header("If-None-Match", etag).when().get("/v1/treatments/{id}").then()
+					.statusCode(Status.NOT_MODIFIED.getStatusCode());
+			asserter.putData("ETAG", etag);
+
+		});
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+			payload.treatment_id = String.valueOf(entity.id);
+			payload.action = entity.treatmentActions.get(0);
+			return TreatmentActionFeedbackEntities.store(payload);
+
+		}, stored -> asserter.putData("LAST_ACTION_FEEDBACK", stored));
+		asserter.execute(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			this.invalidations.treatmentChanged(entity.id);
+			final var lastAction = (TreatmentActionFeedbackEntity) asserter.getData("LAST_ACTION_FEEDBACK");
+			final var etag = (String) asserter.getData("ETAG");
+			final var updated = given().pathParam("id", entity.id).header("If-None-Match", etag).when()
+					.get("/v1/treatments/{id}").then().statusCode(Status.OK.getStatusCode()).extract();
+			assertTrue(!etag.equals(updated.header("ETag")));
+			assertEquals(lastAction.feedback, updated.as(Treatment.class).actions.get(0).feedback);
+
+		});
+
+	}
+
+	/**
+	 * Test not retrieve the history of an undefined treatment.
+	 */
+	@Test
+	public void shouldNotRetrieveUndefinedTreatmentHistory() {
+
+		given().pathParam("id", 0).when().get("/v1/treatments/{id}/history").then()
+				.statusCode(Status.NOT_FOUND.getStatusCode());
+
+	}
+
+	/**
+	 * Test not stream the feedback of an undefined treatment.
+	 */
+	@Test
+	public void shouldNotStreamFeedbackOfUndefinedTreatment() {
+
+		given().pathParam("id", 0).when().get("/v1/treatments/{id}/feedback/stream").then()
+				.statusCode(Status.NOT_FOUND.getStatusCode());
+
+	}
+
 	/**
 	 * Test not delete an undefined treatment.
 	 */
@@ -404,8 +555,9 @@ public class TreatmentsResourceTest {
 		asserter.assertThat(() -> TreatmentEntities.populateWith(50).chain(ignored -> TreatmentEntity.count()),
 				total -> {
 
-					final var page = given().when().queryParam("limit", total).get("/v1/treatments").then()
-							.statusCode(Status.OK.getStatusCode()).extract().as(MinTreatmentPage.class);
+					final var page = given().when().queryParam("offset", "0").queryParam("limit", total)
+							.get("/v1/treatments").then().statusCode(Status.OK.getStatusCode()).extract()
+							.as(MinTreatmentPage.class);
 					assertNotNull(page);
 					assertEquals(total, page.total);
 					assertNotNull(page.treatments);
@@ -472,8 +624,9 @@ public class TreatmentsResourceTest {
 
 		asserter.assertThat(() -> PatientEntities.undefined(), undefined -> {
 
-			final var page = given().when().queryParam("patientId", String.valueOf(undefined)).get("/v1/treatments")
-					.then().statusCode(Status.OK.getStatusCode()).extract().as(MinTreatmentPage.class);
+			final var page = given().when().queryParam("patientId", String.valueOf(undefined)).queryParam("offset", "0")
+					.get("/v1/treatments").then().statusCode(Status.OK.getStatusCode()).extract()
+					.as(MinTreatmentPage.class);
 			assertNotNull(page);
 			assertEquals(new MinTreatmentPage(), page);
 		});
@@ -494,20 +647,22 @@ public class TreatmentsResourceTest {
 		asserter.assertThat(() -> {
 
 			final var patient = (PatientEntity) asserter.getData("PATIENT");
-			final Uni<List<TreatmentEntity>> action = TreatmentEntity.find("patient.id = ?1", patient.id).list();
+			final Uni<List<MinTreatmentProjection>> action = TreatmentEntity.find("patient.id = ?1", patient.id)
+					.project(MinTreatmentProjection.class).list();
 			return action;
 
 		}, treatments -> {
 
 			final var patient = (PatientEntity) asserter.getData("PATIENT");
-			final var page = given().when().queryParam("patientId", String.valueOf(patient.id)).get("/v1/treatments")
-					.then().statusCode(Status.OK.getStatusCode()).extract().as(MinTreatmentPage.class);
+			final var page = given().when().queryParam("patientId", String.valueOf(patient.id)).queryParam("offset", "0")
+					.get("/v1/treatments").then().statusCode(Status.OK.getStatusCode()).extract()
+					.as(MinTreatmentPage.class);
 			assertNotNull(page);
 			final var expected = new MinTreatmentPage();
 			expected.total = treatments.size();
 			expected.treatments = treatments.stream().sorted((t1, t2) -> {
 
-				var cmp = t1.patient.name.compareTo(t2.patient.name);
+				var cmp = t1.patientName.compareTo(t2.patientName);
 				if (cmp == 0) {
 
 					cmp = t1.id.compareTo(t2.id);
@@ -524,7 +679,7 @@ public class TreatmentsResourceTest {
 
 			final var patient = (PatientEntity) asserter.getData("PATIENT");
 			@SuppressWarnings("unchecked")
-			final var treatments = (List<TreatmentEntity>) asserter.getData("TREATMENTS");
+			final var treatments = (List<MinTreatmentProjection>) asserter.getData("TREATMENTS");
 			final var offset = 3;
 			final var limit = 7;
 			final var page = given().when().queryParam("patientId", String.valueOf(patient.id))
@@ -550,4 +705,41 @@ public class TreatmentsResourceTest {
 		});
 
 	}
+
+	/**
+	 * Should get the first treatment page by cursor when the offset is not
+	 * defined.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrieveTreatmentPageByCursorByDefault(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.populateWith(20), any -> {
+
+			final var expected = given().when().queryParam("offset", "0").queryParam("limit", "7")
+					.queryParam("order", "-id").get("/v1/treatments").then().statusCode(Status.OK.getStatusCode())
+					.extract().as(MinTreatmentPage.class);
+			final var page = given().when().queryParam("limit", "7").queryParam("order", "-id").get("/v1/treatments")
+					.then().statusCode(Status.OK.getStatusCode()).extract().as(MinTreatmentPage.class);
+			assertEquals(0, page.total);
+			assertNotNull(page.next);
+			assertEquals(expected.treatments, page.treatments);
+
+		});
+
+	}
+
+	/**
+	 * Should not get a treatment page with a bad cursor.
+	 */
+	@Test
+	public void shouldNotRetrieveTreatmentPageWithBadCursor() {
+
+		given().when().queryParam("after", ValueGenerator.nextPattern("bad cursor {0}")).get("/v1/treatments").then()
+				.statusCode(Status.BAD_REQUEST.getStatusCode());
+
+	}
+
 }
@@ -0,0 +1,207 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.messages.mov.MOVTestResource;
+import eu.valawai.c0_patient_treatment_ui.persistence.PostgreSQLTestResource;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.rabbitmq.RabbitMQClient;
+import io.vertx.mutiny.rabbitmq.RabbitMQMessage;
+import io.vertx.rabbitmq.RabbitMQOptions;
+import jakarta.inject.Inject;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.ValidationException;
+
+/**
+ * Test the {@link FeedbackAcknowledger}.
+ *
+ * @see FeedbackAcknowledger
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@WithTestResource(value = MOVTestResource.class)
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class FeedbackAcknowledgerTest {
+
+	/**
+	 * The service to publish treatment feedbacks.
+	 */
+	@Inject
+	TreatmentActionFeedbackService service;
+
+	/**
+	 * The component to test.
+	 */
+	@Inject
+	FeedbackAcknowledger acknowledger;
+
+	/**
+	 * The vertx instance used to consume the moved messages.
+	 */
+	@Inject
+	Vertx vertx;
+
+	/**
+	 * The queue with the action feedback.
+	 */
+	@ConfigProperty(name = "mp.messaging.incoming.received_treatment_action_feedback.queue.name")
+	String queue;
+
+	/**
+	 * The host of the broker.
+	 */
+	@ConfigProperty(name = "rabbitmq-host", defaultValue = "localhost")
+	String host;
+
+	/**
+	 * The port of the broker.
+	 */
+	@ConfigProperty(name = "rabbitmq-port", defaultValue = "5672")
+	int port;
+
+	/**
+	 * Wait until a message with some content is on a queue. The messages of the
+	 * queue without the content are discarded.
+	 *
+	 * @param queue  where the message has to be.
+	 * @param marker content of the message to wait.
+	 *
+	 * @return the message with the content.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	private RabbitMQMessage waitMessage(String queue, String marker) throws InterruptedException {
+
+		final var client = RabbitMQClient.create(this.vertx,
+				new RabbitMQOptions().setHost(this.host).setPort(this.port));
+		client.startAndAwait();
+		try {
+
+			final var deadline = System.currentTimeMillis() + Duration.ofSeconds(30).toMillis();
+			while (System.currentTimeMillis() < deadline) {
+
+				final var message = client.basicGetAndAwait(queue, true);
+				if (message == null) {
+
+					Thread.sleep(100);
+
+				} else if (message.body().toString().contains(marker)) {
+
+					return message;
+				}
+			}
+			fail("The message is not on the queue " + queue);
+			return null;
+
+		} finally {
+
+			client.stopAndAwait();
+		}
+	}
+
+	/**
+	 * Should classify the errors that will fail again.
+	 */
+	@Test
+	public void shouldClassifyPermanentErrors() {
+
+		assertTrue(FeedbackAcknowledger.isPermanent(new IllegalArgumentException("Undefined treatment")));
+		assertTrue(FeedbackAcknowledger.isPermanent(new NumberFormatException("Bad identifier")));
+		assertTrue(FeedbackAcknowledger.isPermanent(new ConstraintViolationException(Set.of())));
+		assertFalse(FeedbackAcknowledger.isPermanent(new IllegalStateException("Connection closed")));
+		assertFalse(FeedbackAcknowledger.isPermanent(new RuntimeException("Timeout")));
+	}
+
+	/**
+	 * Should not have retries a message that has not been retried.
+	 */
+	@Test
+	public void shouldNotHaveRetriesNewMessage() {
+
+		assertEquals(0, FeedbackAcknowledger.retriesOf(Message.of(new JsonObject())));
+	}
+
+	/**
+	 * Should receive now a message that has not been retried.
+	 */
+	@Test
+	public void shouldReceiveNowNewMessage() {
+
+		final var before = TimeManager.now();
+		final var receivedTime = FeedbackAcknowledger.receivedTimeOf(Message.of(new JsonObject()));
+		assertTrue(before <= receivedTime);
+		assertTrue(receivedTime <= TimeManager.now());
+	}
+
+	/**
+	 * Should move to the dead-letter queue a message with a bad payload.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	public void shouldMoveToDeadLetterBadMessage() throws InterruptedException {
+
+		final var before = this.acknowledger.deadLettered();
+		final var marker = UUID.randomUUID().toString();
+		this.service.send(new JsonObject().put("treatment_id", marker));
+
+		final var message = this.waitMessage(this.queue + FeedbackAcknowledger.DEAD_LETTER_QUEUE_SUFFIX, marker);
+		final var headers = message.properties().getHeaders();
+		assertNotNull(headers.get(FeedbackAcknowledger.FAILURE_REASON_HEADER));
+		assertFalse(String.valueOf(headers.get(FeedbackAcknowledger.FAILURE_REASON_HEADER)).isBlank());
+		assertEquals(ValidationException.class.getName(),
+				String.valueOf(headers.get(FeedbackAcknowledger.FAILURE_TYPE_HEADER)));
+		assertEquals(0, ((Number) headers.get(FeedbackAcknowledger.RETRIES_HEADER)).intValue());
+		assertTrue(this.acknowledger.deadLettered() > before);
+	}
+
+	/**
+	 * Should retry a message that has failed by a transient error.
+	 *
+	 * @throws Exception if the test fails.
+	 */
+	@Test
+	public void shouldRetryMessageWithTransientError() throws Exception {
+
+		final var before = this.acknowledger.retried();
+		final var marker = UUID.randomUUID().toString();
+		final var payload = new JsonObject().put("treatment_id", marker).toBuffer().getBytes();
+		final var receivedTime = TimeManager.now() - 60;
+		this.acknowledger.failed(Message.of(payload), new IllegalStateException("Connection closed"), this.queue,
+				receivedTime).toCompletableFuture().get(30, TimeUnit.SECONDS);
+		assertEquals(before + 1, this.acknowledger.retried());
+
+		final var message = this.waitMessage(this.queue + FeedbackAcknowledger.DEAD_LETTER_QUEUE_SUFFIX, marker);
+		final var headers = message.properties().getHeaders();
+		assertEquals(1, ((Number) headers.get(FeedbackAcknowledger.RETRIES_HEADER)).intValue());
+		assertEquals(receivedTime, ((Number) headers.get(FeedbackAcknowledger.RECEIVED_TIME_HEADER)).longValue());
+	}
+
+}
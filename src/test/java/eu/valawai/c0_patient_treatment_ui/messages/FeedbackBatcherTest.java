@@ -0,0 +1,206 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.persistence.PostgreSQLTestResource;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import jakarta.inject.Inject;
+
+/**
+ * Test the {@link FeedbackBatcher}.
+ *
+ * @see FeedbackBatcher
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class FeedbackBatcherTest {
+
+	/**
+	 * The maximum seconds to wait for a batch to be stored.
+	 */
+	private static final long TIMEOUT = 30;
+
+	/**
+	 * The vertx instance used by the batchers.
+	 */
+	@Inject
+	Vertx vertx;
+
+	/**
+	 * The batches that have been stored.
+	 */
+	protected final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Forget the batches of the previous test.
+	 */
+	@BeforeEach
+	public void clear() {
+
+		this.batches.clear();
+	}
+
+	/**
+	 * Store a batch of feedback without errors.
+	 *
+	 * @param payloads      with the feedback to store.
+	 * @param messageKeys   keys of the messages with the feedback.
+	 * @param receivedTimes times when the messages have been received.
+	 *
+	 * @return no error for each feedback.
+	 */
+	protected Uni<List<Throwable>> store(List<String> payloads, List<String> messageKeys, List<Long> receivedTimes) {
+
+		this.batches.add(payloads);
+		return Uni.createFrom().item(() -> new ArrayList<>(Collections.nCopies(payloads.size(), null)));
+	}
+
+	/**
+	 * Wait until a feedback has been stored.
+	 *
+	 * @param result of adding the feedback to the batcher.
+	 *
+	 * @return the error why the feedback cannot be stored, or {@code null} if it
+	 *         has been stored.
+	 *
+	 * @throws Exception if the feedback is not stored on time.
+	 */
+	private static Throwable await(CompletionStage<Throwable> result) throws Exception {
+
+		return result.toCompletableFuture().get(TIMEOUT, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Should store the feedback when the batch is full.
+	 *
+	 * @throws Exception if the feedback are not stored.
+	 */
+	@Test
+	public void shouldStoreWhenBatchIsFull() throws Exception {
+
+		final var batcher = new FeedbackBatcher<String>(this.vertx, 3, TimeUnit.HOURS.toMillis(1), this::store);
+		final var first = batcher.add("1", null, 0);
+		final var second = batcher.add("2", null, 0);
+		assertFalse(first.toCompletableFuture().isDone());
+		final var third = batcher.add("3", null, 0);
+		assertNull(await(first));
+		assertNull(await(second));
+		assertNull(await(third));
+		assertEquals(List.of(List.of("1", "2", "3")), this.batches);
+	}
+
+	/**
+	 * Should store the feedback when the maximum delay has passed.
+	 *
+	 * @throws Exception if the feedback are not stored.
+	 */
+	@Test
+	public void shouldStoreWhenDelayHasPassed() throws Exception {
+
+		final var batcher = new FeedbackBatcher<String>(this.vertx, 100, 50, this::store);
+		final var first = batcher.add("1", null, 0);
+		final var second = batcher.add("2", null, 0);
+		assertNull(await(first));
+		assertNull(await(second));
+		assertEquals(List.of(List.of("1", "2")), this.batches);
+	}
+
+	/**
+	 * Should store the next batch when the previous one has been stored.
+	 *
+	 * @throws Exception if the feedback are not stored.
+	 */
+	@Test
+	public void shouldStoreOneBatchAtATime() throws Exception {
+
+		final var started = new CompletableFuture<Void>();
+		final var release = new CompletableFuture<Void>();
+		final var batcher = new FeedbackBatcher<String>(this.vertx, 2, TimeUnit.HOURS.toMillis(1),
+				(payloads, messageKeys, receivedTimes) -> {
+
+					final var context = Vertx.currentContext();
+					final var stored = this.store(payloads, messageKeys, receivedTimes);
+					if (this.batches.size() == 1) {
+
+						started.complete(null);
+						return Uni.createFrom().completionStage(release)
+								.emitOn(command -> context.runOnContext(any -> command.run())).chain(() -> stored);
+
+					} else {
+
+						return stored;
+					}
+				});
+		final var first = batcher.add("1", null, 0);
+		batcher.add("2", null, 0);
+		final var third = batcher.add("3", null, 0);
+		final var fourth = batcher.add("4", null, 0);
+		started.get(TIMEOUT, TimeUnit.SECONDS);
+		assertFalse(first.toCompletableFuture().isDone());
+		assertEquals(List.of(List.of("1", "2")), this.batches);
+
+		release.complete(null);
+		assertNull(await(first));
+		assertNull(await(third));
+		assertNull(await(fourth));
+		assertEquals(List.of(List.of("1", "2"), List.of("3", "4")), this.batches);
+	}
+
+	/**
+	 * Should store the feedback one by one when the batch fails.
+	 *
+	 * @throws Exception if the feedback are not stored.
+	 */
+	@Test
+	public void shouldStoreOneByOneWhenBatchFails() throws Exception {
+
+		final var bad = new IllegalArgumentException("Bad feedback");
+		final var batcher = new FeedbackBatcher<String>(this.vertx, 3, TimeUnit.HOURS.toMillis(1),
+				(payloads, messageKeys, receivedTimes) -> {
+
+					final var stored = this.store(payloads, messageKeys, receivedTimes);
+					if (payloads.contains("bad")) {
+
+						return Uni.createFrom().failure(bad);
+
+					} else {
+
+						return stored;
+					}
+				});
+		final var first = batcher.add("1", null, 0);
+		final var second = batcher.add("bad", null, 0);
+		final var third = batcher.add("3", null, 0);
+		assertNull(await(first));
+		assertSame(bad, await(second));
+		assertNull(await(third));
+		assertEquals(List.of(List.of("1", "bad", "3"), List.of("1"), List.of("bad"), List.of("3")), this.batches);
+	}
+
+}
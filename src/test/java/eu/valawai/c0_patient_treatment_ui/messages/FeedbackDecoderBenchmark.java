@@ -0,0 +1,118 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+/**
+ * Compare the decoding of a received feedback through a {@link JsonObject} and
+ * the reflective validator with the {@link FeedbackDecoder}. It can be run with
+ * the main method from the test class path, adding {@code -prof gc} to the
+ * options to compare the allocation of each message.
+ *
+ * @see FeedbackDecoder
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedbackDecoderBenchmark {
+
+	/**
+	 * The body of the message to decode.
+	 */
+	byte[] body;
+
+	/**
+	 * The validator used before the decoder.
+	 */
+	Validator validator;
+
+	/**
+	 * The decoder to measure.
+	 */
+	FeedbackDecoder<TreatmentValueFeedbackPayload> decoder;
+
+	/**
+	 * Create the body and the components to decode it.
+	 */
+	@Setup
+	public void setup() {
+
+		this.body = Json.encode(new TreatmentValueFeedbackPayloadTest().nextModel()).getBytes(StandardCharsets.UTF_8);
+		this.validator = Validation.byDefaultProvider().configure()
+				.messageInterpolator(new ParameterMessageInterpolator()).buildValidatorFactory().getValidator();
+		this.decoder = new FeedbackDecoder<>(TreatmentValueFeedbackPayload.class,
+				TreatmentValueFeedbackManager::violationOf);
+	}
+
+	/**
+	 * Measure the decoding that was done before the decoder.
+	 *
+	 * @param blackhole to consume the result.
+	 */
+	@Benchmark
+	public void decodeWithJsonObject(Blackhole blackhole) {
+
+		final var payload = new JsonObject(Buffer.buffer(this.body)).mapTo(TreatmentValueFeedbackPayload.class);
+		blackhole.consume(this.validator.validate(payload));
+		blackhole.consume(payload);
+	}
+
+	/**
+	 * Measure the decoding with the decoder.
+	 *
+	 * @param blackhole to consume the result.
+	 */
+	@Benchmark
+	public void decodeWithDecoder(Blackhole blackhole) {
+
+		blackhole.consume(this.decoder.decode(this.body));
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args arguments of the benchmark.
+	 *
+	 * @throws RunnerException if cannot run the benchmark.
+	 */
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(FeedbackDecoderBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import jakarta.validation.ValidationException;
+
+/**
+ * Test the {@link FeedbackDecoder}.
+ *
+ * @see FeedbackDecoder
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class FeedbackDecoderTest {
+
+	/**
+	 * The decoder of the action feedback.
+	 */
+	FeedbackDecoder<TreatmentActionFeedbackPayload> actionDecoder = new FeedbackDecoder<>(
+			TreatmentActionFeedbackPayload.class, TreatmentActionFeedbackManager::violationOf);
+
+	/**
+	 * The decoder of the value feedback.
+	 */
+	FeedbackDecoder<TreatmentValueFeedbackPayload> valueDecoder = new FeedbackDecoder<>(
+			TreatmentValueFeedbackPayload.class, TreatmentValueFeedbackManager::violationOf);
+
+	/**
+	 * Should decode a valid action feedback.
+	 */
+	@Test
+	public void shouldDecodeActionFeedback() {
+
+		final var expected = new TreatmentActionFeedbackPayloadTest().nextModel();
+		final var body = Json.encode(expected).getBytes(StandardCharsets.UTF_8);
+		assertEquals(expected, this.actionDecoder.decode(body));
+	}
+
+	/**
+	 * Should decode a valid value feedback.
+	 */
+	@Test
+	public void shouldDecodeValueFeedback() {
+
+		final var expected = new TreatmentValueFeedbackPayloadTest().nextModel();
+		final var body = Json.encode(expected).getBytes(StandardCharsets.UTF_8);
+		assertEquals(expected, this.valueDecoder.decode(body));
+	}
+
+	/**
+	 * Should not decode a message without body.
+	 */
+	@Test
+	public void shouldNotDecodeEmptyBody() {
+
+		assertThrows(IllegalArgumentException.class, () -> this.actionDecoder.decode(null));
+		assertThrows(IllegalArgumentException.class, () -> this.actionDecoder.decode(new byte[0]));
+	}
+
+	/**
+	 * Should not decode a body that is not JSON.
+	 */
+	@Test
+	public void shouldNotDecodeBadJson() {
+
+		assertThrows(IllegalArgumentException.class,
+				() -> this.actionDecoder.decode("{\"treatment_id\":".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Should not decode an action feedback without the required fields.
+	 */
+	@Test
+	public void shouldNotDecodeInvalidActionFeedback() {
+
+		assertThrows(ValidationException.class,
+				() -> this.actionDecoder.decode(new JsonObject().toBuffer().getBytes()));
+
+		final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+		payload.feedback = null;
+		assertThrows(ValidationException.class,
+				() -> this.actionDecoder.decode(Json.encode(payload).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Should not decode a value feedback with an alignment out of range.
+	 */
+	@Test
+	public void shouldNotDecodeValueFeedbackWithBadAlignment() {
+
+		final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+		payload.alignment = 1.5;
+		assertThrows(ValidationException.class,
+				() -> this.valueDecoder.decode(Json.encode(payload).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Should obtain a loggable value of any body.
+	 */
+	@Test
+	public void shouldObtainLoggableBody() {
+
+		assertEquals(new JsonObject(), FeedbackDecoder.toLoggable(null));
+		assertEquals(new JsonObject().put("key", "value"),
+				FeedbackDecoder.toLoggable("{\"key\":\"value\"}".getBytes(StandardCharsets.UTF_8)));
+		assertEquals("not json", FeedbackDecoder.toLoggable("not json".getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatient;
+import eu.valawai.c0_patient_treatment_ui.api.v1.patients.Patient;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.Treatment;
+import eu.valawai.c0_patient_treatment_ui.persistence.ModelCaches;
+import eu.valawai.c0_patient_treatment_ui.persistence.ModelVersion;
+import eu.valawai.c0_patient_treatment_ui.persistence.VersionedModel;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Test the {@link ModelInvalidationBus}.
+ *
+ * @see ModelInvalidationBus
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ModelInvalidationBusTest {
+
+	/**
+	 * The bus to test.
+	 */
+	ModelInvalidationBus bus;
+
+	/**
+	 * Create the bus to test.
+	 */
+	@BeforeEach
+	public void createBus() {
+
+		this.bus = new ModelInvalidationBus();
+		this.bus.caches = new ModelCaches();
+	}
+
+	/**
+	 * Return the cached patient, or cache a new one.
+	 *
+	 * @param id identifier of the patient.
+	 *
+	 * @return the cached patient.
+	 */
+	private Patient cachedPatient(long id) {
+
+		return this.bus.caches.patients().get(id, () -> Uni.createFrom().item(() -> {
+
+			final var patient = new Patient();
+			patient.id = id;
+			return VersionedModel.of(patient, new ModelVersion());
+
+		})).await().indefinitely().model;
+	}
+
+	/**
+	 * Return the cached treatment, or cache a new one.
+	 *
+	 * @param id        identifier of the treatment.
+	 * @param patientId identifier of the patient of the treatment.
+	 *
+	 * @return the cached treatment.
+	 */
+	private Treatment cachedTreatment(long id, long patientId) {
+
+		return this.bus.caches.treatments().get(id, () -> Uni.createFrom().item(() -> {
+
+			final var treatment = new Treatment();
+			treatment.id = id;
+			treatment.patient = new MinPatient();
+			treatment.patient.id = patientId;
+			return VersionedModel.of(treatment, new ModelVersion());
+
+		})).await().indefinitely().model;
+	}
+
+	/**
+	 * Create an invalidation.
+	 *
+	 * @param node       that publish the invalidation.
+	 * @param sequence   of the invalidation.
+	 * @param patients   identifiers of the modified patients.
+	 * @param treatments identifiers of the modified treatments.
+	 *
+	 * @return the JSON of the invalidation.
+	 */
+	private static JsonObject invalidation(String node, long sequence, List<Long> patients, List<Long> treatments) {
+
+		final var payload = new ModelInvalidationPayload();
+		payload.node = node;
+		payload.sequence = sequence;
+		payload.patients = patients;
+		payload.treatments = treatments;
+		return JsonObject.mapFrom(payload);
+	}
+
+	/**
+	 * Should ignore the invalidations published by the same node.
+	 */
+	@Test
+	public void shouldIgnoreOwnInvalidations() {
+
+		final var patient = cachedPatient(-1001);
+		this.bus.handleInvalidation(invalidation(this.bus.node(), 1, List.of(-1001l), List.of()));
+		assertSame(patient, cachedPatient(-1001));
+		assertEquals(0, this.bus.received());
+
+	}
+
+	/**
+	 * Should remove the received patients and treatments from the caches.
+	 */
+	@Test
+	public void shouldInvalidateReceivedModels() {
+
+		final var patient = cachedPatient(-2001);
+		final var treatmentOfPatient = cachedTreatment(-2101, -2001);
+		final var otherTreatment = cachedTreatment(-2102, -2002);
+
+		this.bus.handleInvalidation(invalidation("other", 1, List.of(-2001l), List.of()));
+		assertNotSame(patient, cachedPatient(-2001));
+		assertNotSame(treatmentOfPatient, cachedTreatment(-2101, -2001));
+		assertSame(otherTreatment, cachedTreatment(-2102, -2002));
+
+		this.bus.handleInvalidation(invalidation("other", 2, List.of(), List.of(-2102l)));
+		assertNotSame(otherTreatment, cachedTreatment(-2102, -2002));
+		assertEquals(2, this.bus.received());
+		assertEquals(0, this.bus.flushes());
+
+	}
+
+	/**
+	 * Should clear the caches when an invalidation is missed.
+	 */
+	@Test
+	public void shouldClearCachesWhenMissedInvalidation() {
+
+		this.bus.handleInvalidation(invalidation("other", 1, List.of(), List.of()));
+		final var patient = cachedPatient(-3001);
+		final var treatment = cachedTreatment(-3101, -3002);
+
+		this.bus.handleInvalidation(invalidation("other", 3, List.of(), List.of()));
+		assertEquals(1, this.bus.flushes());
+		assertNotSame(patient, cachedPatient(-3001));
+		assertNotSame(treatment, cachedTreatment(-3101, -3002));
+
+		this.bus.handleInvalidation(invalidation("other", 4, List.of(), List.of()));
+		assertEquals(1, this.bus.flushes());
+
+	}
+
+	/**
+	 * Should clear the caches when the first invalidation of a node is not the
+	 * first that it has published.
+	 */
+	@Test
+	public void shouldClearCachesWhenMissedFirstInvalidations() {
+
+		final var patient = cachedPatient(-4001);
+		this.bus.handleInvalidation(invalidation("other", 5, List.of(), List.of()));
+		assertEquals(1, this.bus.flushes());
+		assertNotSame(patient, cachedPatient(-4001));
+
+	}
+
+}
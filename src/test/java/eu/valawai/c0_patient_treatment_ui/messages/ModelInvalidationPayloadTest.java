@@ -0,0 +1,45 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import java.util.List;
+
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+
+/**
+ * Test the {@link ModelInvalidationPayload}.
+ *
+ * @see ModelInvalidationPayload
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ModelInvalidationPayloadTest extends PayloadTestCase<ModelInvalidationPayload> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ModelInvalidationPayload createEmptyModel() {
+
+		return new ModelInvalidationPayload();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void fillIn(ModelInvalidationPayload model) {
+
+		model.node = ValueGenerator.nextPattern("node_{0}");
+		model.sequence = ValueGenerator.rnd().nextLong(1, 1000);
+		model.patients = List.of(ValueGenerator.rnd().nextLong());
+		model.treatments = List.of(ValueGenerator.rnd().nextLong(), ValueGenerator.rnd().nextLong());
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link RecentMessageKeys}.
+ *
+ * @see RecentMessageKeys
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class RecentMessageKeysTest {
+
+	/**
+	 * Should remember the added keys.
+	 */
+	@Test
+	public void shouldContainAddedKeys() {
+
+		final var keys = new RecentMessageKeys(10);
+		final var key = "1";
+		assertFalse(keys.contains(key));
+		keys.add(key);
+		assertTrue(keys.contains(key));
+	}
+
+	/**
+	 * Should add only once the same key.
+	 */
+	@Test
+	public void shouldAddIfAbsent() {
+
+		final var keys = new RecentMessageKeys(10);
+		final var key = "1";
+		assertTrue(keys.addIfAbsent(key));
+		assertFalse(keys.addIfAbsent(key));
+		keys.remove(key);
+		assertFalse(keys.contains(key));
+		assertTrue(keys.addIfAbsent(key));
+	}
+
+	/**
+	 * Should forget the oldest keys when it is full.
+	 */
+	@Test
+	public void shouldForgetOldestKeys() {
+
+		final var keys = new RecentMessageKeys(2);
+		keys.add("1");
+		keys.add("2");
+		keys.add("3");
+		assertFalse(keys.contains("1"));
+		assertTrue(keys.contains("2"));
+		assertTrue(keys.contains("3"));
+	}
+
+}
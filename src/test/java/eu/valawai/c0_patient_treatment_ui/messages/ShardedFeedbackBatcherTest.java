@@ -0,0 +1,81 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Test the {@link ShardedFeedbackBatcher}.
+ *
+ * @see ShardedFeedbackBatcher
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ShardedFeedbackBatcherTest {
+
+	/**
+	 * Create a batcher to test.
+	 *
+	 * @param shards number of shards of the batcher.
+	 *
+	 * @return the batcher to test.
+	 */
+	private static ShardedFeedbackBatcher<String> create(int shards) {
+
+		return new ShardedFeedbackBatcher<>(shards, null, 10, 10, (payloads, keys, times) -> Uni.createFrom().nullItem());
+	}
+
+	/**
+	 * Should store the feedback of the same treatment on the same shard.
+	 */
+	@Test
+	public void shouldUseSameShardForSameTreatment() {
+
+		final var batcher = create(4);
+		for (var i = 0; i < 100; i++) {
+
+			final var treatmentId = String.valueOf(i);
+			assertSame(batcher.shardOf(treatmentId), batcher.shardOf(treatmentId));
+		}
+	}
+
+	/**
+	 * Should distribute the treatments over all the shards.
+	 */
+	@Test
+	public void shouldDistributeTreatments() {
+
+		final var batcher = create(4);
+		final var used = new HashSet<FeedbackBatcher<String>>();
+		for (var i = 0; i < 100; i++) {
+
+			used.add(batcher.shardOf(String.valueOf(i)));
+		}
+		assertEquals(4, used.size());
+	}
+
+	/**
+	 * Should have at least one shard.
+	 */
+	@Test
+	public void shouldHaveOneShardAtLeast() {
+
+		final var batcher = create(0);
+		assertEquals(1, batcher.shards.size());
+		assertSame(batcher.shardOf(null), batcher.shardOf("1"));
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.TreatmentFeedbackChange;
+import eu.valawai.c0_patient_treatment_ui.models.TreatmentAction;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+
+/**
+ * Test the {@link TreatmentFeedbackStream}.
+ *
+ * @see TreatmentFeedbackStream
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TreatmentFeedbackStreamTest {
+
+	/**
+	 * The stream to test.
+	 */
+	TreatmentFeedbackStream stream;
+
+	/**
+	 * Create the stream to test.
+	 */
+	@BeforeEach
+	public void createStream() {
+
+		this.stream = new TreatmentFeedbackStream();
+		this.stream.maxPending = 1;
+		this.stream.coalesceInterval = 60000;
+		this.stream.cacheSize = 10;
+		this.stream.createCache();
+	}
+
+	/**
+	 * Create an action feedback.
+	 *
+	 * @param treatmentId identifier of the treatment.
+	 * @param action      of the feedback.
+	 * @param feedback    of the action.
+	 *
+	 * @return the action feedback.
+	 */
+	private static TreatmentActionFeedbackPayload actionFeedback(long treatmentId, TreatmentAction action,
+			TreatmentActionFeedback feedback) {
+
+		final var payload = new TreatmentActionFeedbackPayload();
+		payload.treatment_id = String.valueOf(treatmentId);
+		payload.action = action;
+		payload.feedback = feedback;
+		return payload;
+	}
+
+	/**
+	 * Should send only the changes of the followed treatment.
+	 */
+	@Test
+	public void shouldSendChangesOfFollowedTreatment() {
+
+		final var subscriber = this.stream.ofTreatment(1).subscribe()
+				.withSubscriber(AssertSubscriber.<TreatmentFeedbackChange>create(10));
+		assertTrue(this.stream.hasSubscribers());
+		this.stream.actionStored(actionFeedback(2, TreatmentAction.CPR, TreatmentActionFeedback.ALLOW), 1);
+		this.stream.actionStored(actionFeedback(1, TreatmentAction.CPR, TreatmentActionFeedback.DENY), 2);
+
+		subscriber.awaitItems(1);
+		assertEquals(1, subscriber.getItems().size());
+		final var change = subscriber.getItems().get(0);
+		assertEquals(1, change.treatmentId);
+		assertEquals(TreatmentActionFeedback.DENY, change.actions.get(0).feedback);
+		assertEquals(2l, change.actions.get(0).updatedTime);
+		assertNull(change.values);
+		subscriber.cancel();
+		assertFalse(this.stream.hasSubscribers());
+	}
+
+	/**
+	 * Should coalesce the changes of the same treatment.
+	 */
+	@Test
+	public void shouldCoalesceChangesOfSameTreatment() {
+
+		this.stream.maxPending = 3;
+		final var subscriber = this.stream.ofTreatment(1).subscribe()
+				.withSubscriber(AssertSubscriber.<TreatmentFeedbackChange>create(10));
+		this.stream.actionStored(actionFeedback(1, TreatmentAction.CPR, TreatmentActionFeedback.ALLOW), 1);
+		this.stream.actionStored(actionFeedback(1, TreatmentAction.CPR, TreatmentActionFeedback.DENY), 2);
+		final var value = new TreatmentValueFeedbackPayload();
+		value.treatment_id = "1";
+		value.value_name = "Beneficence";
+		value.alignment = 0.5;
+		this.stream.valueStored(value, 3);
+
+		subscriber.awaitItems(1);
+		assertEquals(1, subscriber.getItems().size());
+		final var change = subscriber.getItems().get(0);
+		assertEquals(1, change.actions.size());
+		assertEquals(TreatmentActionFeedback.DENY, change.actions.get(0).feedback);
+		assertEquals(1, change.values.size());
+		assertEquals("Beneficence", change.values.get(0).name);
+		assertEquals(3l, change.values.get(0).updatedTime);
+		assertEquals(2, this.stream.coalesced());
+		subscriber.cancel();
+	}
+
+	/**
+	 * Should drop the changes that a slow subscriber has not requested.
+	 */
+	@Test
+	public void shouldDropChangesOfSlowSubscriber() {
+
+		this.stream.patients.put(1l, 10l);
+		this.stream.patients.put(2l, 10l);
+		this.stream.patients.put(3l, 10l);
+		final var subscriber = this.stream.ofPatient(10).subscribe()
+				.withSubscriber(AssertSubscriber.<TreatmentFeedbackChange>create(0));
+		assertTrue(this.stream.hasPatientSubscribers());
+		for (var id = 1l; id <= 2l; id++) {
+
+			this.stream.actionStored(actionFeedback(id, TreatmentAction.CPR, TreatmentActionFeedback.UNKNOWN), id);
+		}
+		assertEquals(2, this.stream.dropped());
+		assertTrue(subscriber.getItems().isEmpty());
+
+		subscriber.request(10);
+		this.stream.actionStored(actionFeedback(3, TreatmentAction.CPR, TreatmentActionFeedback.UNKNOWN), 3);
+		subscriber.awaitItems(1);
+		assertEquals(1, subscriber.getItems().size());
+		assertEquals(3, subscriber.getItems().get(0).treatmentId);
+		assertEquals(10l, subscriber.getItems().get(0).patientId);
+		subscriber.cancel();
+		assertFalse(this.stream.hasPatientSubscribers());
+	}
+
+}
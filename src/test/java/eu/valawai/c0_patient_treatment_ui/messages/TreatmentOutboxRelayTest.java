@@ -0,0 +1,80 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.messages.mov.MOVTestResource;
+import eu.valawai.c0_patient_treatment_ui.persistence.OutboxEntity;
+import eu.valawai.c0_patient_treatment_ui.persistence.PostgreSQLTestResource;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.vertx.VertxContextSupport;
+import jakarta.inject.Inject;
+
+/**
+ * Test the {@link TreatmentOutboxRelay}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@WithTestResource(value = MOVTestResource.class)
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class TreatmentOutboxRelayTest {
+
+	/**
+	 * The queue to the treatments.
+	 */
+	@Inject
+	protected TreatmentQueue queue;
+
+	/**
+	 * The relay to test.
+	 */
+	@Inject
+	protected TreatmentOutboxRelay relay;
+
+	/**
+	 * Clear the previous treatments.
+	 */
+	@BeforeEach
+	public void clear() {
+
+		this.queue.clearTreatments();
+	}
+
+	/**
+	 * Should publish the treatments added to the outbox.
+	 *
+	 * @throws Throwable if cannot add the treatment to the outbox.
+	 */
+	@Test
+	public void shouldPublishAddedTreatment() throws Throwable {
+
+		final var published = this.relay.published();
+		final var treatment = new TreatmentPayloadTest().nextModel();
+		VertxContextSupport
+				.subscribeAndAwait(() -> Panache.withTransaction(() -> OutboxEntity.add(treatment)));
+		this.relay.wakeUp();
+
+		final var received = this.queue.waitUntilNextTreatment(Duration.ofSeconds(30));
+		assertEquals(treatment, received);
+		assertTrue(this.relay.published() > published);
+
+	}
+
+}
@@ -51,13 +51,13 @@ public class TreatmentServiceTest {
 	}
 
 	/**
-	 * Should sense some treatments.
+	 * Should publish some treatments.
 	 */
 	@Test
-	public void shouldSenseTreatments() {
+	public void shouldPublishTreatments() {
 
 		final var treatment = new TreatmentPayloadTest().nextModel();
-		this.service.send(treatment);
+		this.service.publish(treatment).await().atMost(Duration.ofSeconds(30));
 		final var received = this.queue.waitUntilNextTreatment(Duration.ofSeconds(30));
 		assertEquals(treatment, received);
 
@@ -11,6 +11,12 @@ package eu.valawai.c0_patient_treatment_ui.messages;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
 
 import org.junit.jupiter.api.Test;
 
@@ -19,13 +25,17 @@ import eu.valawai.c0_patient_treatment_ui.messages.mov.LogAsserts;
 import eu.valawai.c0_patient_treatment_ui.messages.mov.LogLevel;
 import eu.valawai.c0_patient_treatment_ui.messages.mov.MOVTestResource;
 import eu.valawai.c0_patient_treatment_ui.persistence.PostgreSQLTestResource;
+import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentValueFeedbackEntity;
 import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentEntities;
 import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentEntity;
+import eu.valawai.c0_patient_treatment_ui.persistence.TreatmentValueStateEntity;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.common.WithTestResource;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.vertx.RunOnVertxContext;
+import io.quarkus.vertx.VertxContextSupport;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.json.JsonObject;
 import jakarta.inject.Inject;
@@ -54,6 +64,33 @@ public class TreatmentValueFeedbackManagerTest {
 	@Inject
 	LogAsserts logAsserts;
 
+	/**
+	 * The component that acknowledges the feedback messages.
+	 */
+	@Inject
+	FeedbackAcknowledger acknowledger;
+
+	/**
+	 * Wait until a condition is satisfied.
+	 *
+	 * @param condition to wait for.
+	 * @param message   to report if the condition is not satisfied on time.
+	 *
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	private static void waitUntil(BooleanSupplier condition, String message) throws InterruptedException {
+
+		final var deadline = System.currentTimeMillis() + Duration.ofSeconds(30).toMillis();
+		while (!condition.getAsBoolean()) {
+
+			if (System.currentTimeMillis() > deadline) {
+
+				fail(message);
+			}
+			Thread.sleep(100);
+		}
+	}
+
 	/**
 	 * Should not add a bad feedback message.
 	 */
@@ -213,4 +250,83 @@ public class TreatmentValueFeedbackManagerTest {
 
 	}
 
+	/**
+	 * Should acknowledge as duplicated a message that has been received before.
+	 *
+	 * @throws Throwable if cannot create the treatment.
+	 */
+	@Test
+	public void shouldAcknowledgeDuplicatedMessage() throws Throwable {
+
+		final TreatmentEntity treatment = VertxContextSupport
+				.subscribeAndAwait(() -> Panache.withTransaction(() -> TreatmentEntities.nextRandom()));
+		final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+		payload.treatment_id = String.valueOf(treatment.id);
+		final var stored = this.acknowledger.stored();
+		final var duplicated = this.acknowledger.duplicated();
+		final var messageId = UUID.randomUUID().toString();
+		this.service.send(payload, messageId);
+		this.service.send(payload, messageId);
+		waitUntil(() -> this.acknowledger.stored() > stored && this.acknowledger.duplicated() > duplicated,
+				"The duplicated message has not been acknowledged");
+
+		final long feedbacks = VertxContextSupport.subscribeAndAwait(() -> Panache
+				.withSession(() -> TreatmentValueFeedbackEntity.count("treatment.id", treatment.id)));
+		assertEquals(1L, feedbacks);
+	}
+
+	/**
+	 * Should process again a message whose feedback has not been stored.
+	 *
+	 * @throws Throwable if cannot obtain an undefined treatment.
+	 */
+	@Test
+	public void shouldProcessAgainFailedMessage() throws Throwable {
+
+		final long undefined = VertxContextSupport
+				.subscribeAndAwait(() -> Panache.withSession(() -> TreatmentEntities.undefined()));
+		final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+		payload.treatment_id = String.valueOf(undefined);
+		final var deadLettered = this.acknowledger.deadLettered();
+		final var duplicated = this.acknowledger.duplicated();
+		final var messageId = UUID.randomUUID().toString();
+		this.service.send(payload, messageId);
+		waitUntil(() -> this.acknowledger.deadLettered() > deadLettered, "The failed message has not been moved");
+		this.service.send(payload, messageId);
+		waitUntil(() -> this.acknowledger.deadLettered() > deadLettered + 1,
+				"The failed message has not been processed again");
+		assertEquals(duplicated, this.acknowledger.duplicated());
+	}
+
+	/**
+	 * Should store a feedback without identifier that has the same content as a
+	 * previous one, thus the alignment of a value can return to a previous state.
+	 *
+	 * @throws Throwable if cannot create the treatment.
+	 */
+	@Test
+	public void shouldStoreAgainFeedbackWithoutIdentifier() throws Throwable {
+
+		final TreatmentEntity treatment = VertxContextSupport
+				.subscribeAndAwait(() -> Panache.withTransaction(() -> TreatmentEntities.nextRandom()));
+		final var first = new TreatmentValueFeedbackPayloadTest().nextModel();
+		first.treatment_id = String.valueOf(treatment.id);
+		first.alignment = 0.5;
+		final var second = new TreatmentValueFeedbackPayloadTest().nextModel();
+		second.treatment_id = first.treatment_id;
+		second.value_name = first.value_name;
+		second.alignment = -0.5;
+		for (final var payload : List.of(first, second, first)) {
+
+			final var stored = this.acknowledger.stored();
+			this.service.send(payload);
+			waitUntil(() -> this.acknowledger.stored() > stored, "The feedback has not been stored");
+		}
+
+		final List<TreatmentValueStateEntity> states = VertxContextSupport.subscribeAndAwait(
+				() -> Panache.withSession(() -> TreatmentValueStateEntity.listFor(treatment.id)));
+		assertEquals(1, states.size());
+		assertEquals(first.alignment, states.get(0).alignment, 0.0000001d);
+	}
+
 }
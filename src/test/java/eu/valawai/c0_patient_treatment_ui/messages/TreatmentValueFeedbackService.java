@@ -8,11 +8,16 @@
 
 package eu.valawai.c0_patient_treatment_ui.messages;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
 
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.rabbitmq.OutgoingRabbitMQMetadata;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -45,6 +50,30 @@ public class TreatmentValueFeedbackService {
 		this.send(json);
 	}
 
+	/**
+	 * Send a feedback for a treatment in a message with an identifier.
+	 *
+	 * @param feedback  to apply.
+	 * @param messageId identifier of the message with the feedback.
+	 */
+	public void send(TreatmentValueFeedbackPayload feedback, String messageId) {
+
+		final var encode = Json.encode(feedback);
+		final var json = Json.decodeValue(encode, JsonObject.class);
+		final var metadata = new OutgoingRabbitMQMetadata.Builder().withMessageId(messageId).build();
+		final var msg = Message.of(json, Metadata.of(metadata)).withAck(() -> {
+
+			Log.debugv("Sent {0} with the identifier {1}.", json, messageId);
+			return CompletableFuture.completedFuture(null);
+
+		}).withNack(error -> {
+
+			Log.errorv(error, "Cannot send {0} with the identifier {1}.", json, messageId);
+			return CompletableFuture.completedFuture(null);
+		});
+		this.service.send(msg);
+	}
+
 	/**
 	 * Send a feedback for a treatment.
 	 *
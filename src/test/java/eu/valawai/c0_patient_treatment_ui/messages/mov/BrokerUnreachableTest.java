@@ -0,0 +1,76 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages.mov;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.persistence.PostgreSQLTestResource;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.ws.rs.core.Response.Status;
+
+/**
+ * Test that the component starts when the broker is not reachable.
+ *
+ * @see ComponentLifeCycle
+ * @see ComponentReadyCheck
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@TestProfile(BrokerUnreachableTest.UnreachableBroker.class)
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class BrokerUnreachableTest {
+
+	/**
+	 * The profile that connects the component to a port where there is no broker.
+	 */
+	public static class UnreachableBroker implements QuarkusTestProfile {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Map<String, String> getConfigOverrides() {
+
+			try (var socket = new ServerSocket(0)) {
+
+				return Map.of("rabbitmq-host", "localhost", "rabbitmq-port", String.valueOf(socket.getLocalPort()));
+
+			} catch (final IOException error) {
+
+				throw new UncheckedIOException(error);
+			}
+		}
+
+	}
+
+	/**
+	 * Check that the component serves the requests while it is not ready.
+	 */
+	@Test
+	public void shouldServeRequestsWhileNotReady() {
+
+		given().when().get("/v1/help/info").then().statusCode(Status.OK.getStatusCode());
+		given().when().get("/q/health/ready").then().statusCode(Status.SERVICE_UNAVAILABLE.getStatusCode())
+				.body("checks.find { it.name == '" + ComponentReadyCheck.NAME + "' }.status", is("DOWN"));
+
+	}
+
+}
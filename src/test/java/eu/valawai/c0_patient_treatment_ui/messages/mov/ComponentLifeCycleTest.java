@@ -9,9 +9,19 @@
 package eu.valawai.c0_patient_treatment_ui.messages.mov;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.junit.jupiter.api.Test;
 
 import io.quarkus.test.common.WithTestResource;
@@ -72,4 +82,104 @@ public class ComponentLifeCycleTest {
 
 	}
 
+	/**
+	 * Create a life cycle that sends the registration with a function.
+	 *
+	 * @param send function to call when the registration is sent.
+	 *
+	 * @return the life cycle to test.
+	 */
+	private static ComponentLifeCycle createLifeCycle(Supplier<CompletionStage<Void>> send) {
+
+		final var lifeCycle = new ComponentLifeCycle();
+		lifeCycle.version = "1.0.0";
+		lifeCycle.sendTimeout = 60;
+		lifeCycle.registerRetryDelay = 10;
+		lifeCycle.registerMaxRetryDelay = 100;
+		lifeCycle.status = new ComponentStatus();
+		lifeCycle.register = new Emitter<>() {
+
+			@Override
+			public CompletionStage<Void> send(RegisterComponentPayload msg) {
+
+				return send.get();
+			}
+
+			@Override
+			public <M extends Message<? extends RegisterComponentPayload>> void send(M msg) {
+
+				// nothing to do
+			}
+
+			@Override
+			public void complete() {
+
+				// nothing to do
+			}
+
+			@Override
+			public void error(Exception e) {
+
+				// nothing to do
+			}
+
+			@Override
+			public boolean isCancelled() {
+
+				return false;
+			}
+
+			@Override
+			public boolean hasRequests() {
+
+				return true;
+			}
+		};
+		return lifeCycle;
+	}
+
+	/**
+	 * Check that the registration does not block when the broker does not answer.
+	 */
+	@Test
+	public void shouldNotBlockWhenBrokerDoesNotAnswer() {
+
+		final var lifeCycle = createLifeCycle(() -> new CompletableFuture<>());
+		final var start = System.nanoTime();
+		final var cancellable = lifeCycle.sendRegistration().subscribe().with(any -> {
+		}, error -> {
+		});
+		final var elapsed = Duration.ofNanos(System.nanoTime() - start);
+		cancellable.cancel();
+		assertTrue(elapsed.toMillis() < 1000, "The registration has blocked " + elapsed);
+		assertEquals(1, lifeCycle.status.getRegistrationAttempts());
+		assertFalse(lifeCycle.status.isRegistrationSent());
+
+	}
+
+	/**
+	 * Check that the registration is retried when it fails.
+	 */
+	@Test
+	public void shouldRetryFailedRegistration() {
+
+		final var calls = new AtomicInteger(0);
+		final var lifeCycle = createLifeCycle(() -> {
+
+			if (calls.incrementAndGet() < 3) {
+
+				return CompletableFuture.failedFuture(new IllegalStateException("Broker not available"));
+
+			} else {
+
+				return CompletableFuture.completedFuture(null);
+			}
+		});
+		final var payload = lifeCycle.sendRegistration().await().atMost(Duration.ofSeconds(30));
+		assertEquals("1.0.0", payload.version);
+		assertEquals(3, lifeCycle.status.getRegistrationAttempts());
+		assertTrue(lifeCycle.status.isRegistrationSent());
+
+	}
+
 }
@@ -0,0 +1,76 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages.mov;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Test the {@link ComponentReadyCheck}.
+ *
+ * @see ComponentReadyCheck
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@WithTestResource(value = MOVTestResource.class)
+public class ComponentReadyCheckTest {
+
+	/**
+	 * Check that the readiness is down while the registration is retried.
+	 */
+	@Test
+	public void shouldBeDownWhileRegistering() {
+
+		final var check = new ComponentReadyCheck();
+		check.status = new ComponentStatus();
+		check.status.registrationAttempted();
+		check.status.registrationFailed(new IllegalStateException("Broker not available"));
+		final var result = check.call();
+		assertEquals(HealthCheckResponse.Status.DOWN, result.getStatus());
+		assertEquals(1l, result.getData().get().get("attempts"));
+		assertEquals("Broker not available", result.getData().get().get("error"));
+
+	}
+
+	/**
+	 * Check that the readiness is up when the component is registered.
+	 */
+	@Test
+	public void shouldBeUpWhenRegistered() {
+
+		final var check = new ComponentReadyCheck();
+		check.status = new ComponentStatus();
+		check.status.registrationAttempted();
+		check.status.registrationSent();
+		check.status.registered("id");
+		final var result = check.call();
+		assertEquals(HealthCheckResponse.Status.UP, result.getStatus());
+		assertEquals(true, result.getData().get().get("sent"));
+
+	}
+
+	/**
+	 * Check that the readiness check is published.
+	 */
+	@Test
+	public void shouldPublishReadinessCheck() {
+
+		given().when().get("/q/health/ready").then().body("checks.name", hasItem(ComponentReadyCheck.NAME));
+
+	}
+
+}
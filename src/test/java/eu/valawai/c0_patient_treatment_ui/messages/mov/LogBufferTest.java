@@ -0,0 +1,90 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages.mov;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link LogBuffer}.
+ *
+ * @see LogBuffer
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LogBufferTest {
+
+	/**
+	 * Create a log message.
+	 *
+	 * @param level   of the log.
+	 * @param message of the log.
+	 *
+	 * @return the log message.
+	 */
+	private static AddLogPayload log(LogLevel level, String message) {
+
+		final var log = new AddLogPayload();
+		log.level = level;
+		log.message = message;
+		return log;
+	}
+
+	/**
+	 * Check that drain an empty buffer.
+	 */
+	@Test
+	public void shouldDrainEmpty() {
+
+		final var buffer = new LogBuffer(10);
+		assertTrue(buffer.drain().isEmpty());
+		assertEquals(0, buffer.dropped());
+		assertEquals(0, buffer.coalesced());
+	}
+
+	/**
+	 * Check that drop the oldest messages when the buffer is full.
+	 */
+	@Test
+	public void shouldDropOldestWhenFull() {
+
+		final var buffer = new LogBuffer(2);
+		buffer.add(log(LogLevel.INFO, "1"));
+		buffer.add(log(LogLevel.INFO, "2"));
+		buffer.add(log(LogLevel.INFO, "3"));
+		final var logs = buffer.drain();
+		assertEquals(List.of("2", "3"), logs.stream().map(log -> log.message).toList());
+		assertEquals(1, buffer.dropped());
+		assertTrue(buffer.drain().isEmpty());
+	}
+
+	/**
+	 * Check that coalesce the identical messages.
+	 */
+	@Test
+	public void shouldCoalesceIdenticalMessages() {
+
+		final var buffer = new LogBuffer(10);
+		buffer.add(log(LogLevel.INFO, "A"));
+		buffer.add(log(LogLevel.ERROR, "A"));
+		buffer.add(log(LogLevel.INFO, "A"));
+		buffer.add(log(LogLevel.INFO, "B"));
+		buffer.add(log(LogLevel.INFO, "A"));
+		final var logs = buffer.drain();
+		assertEquals(List.of("A (repeated 3 times)", "A", "B"), logs.stream().map(log -> log.message).toList());
+		assertEquals(List.of(LogLevel.INFO, LogLevel.ERROR, LogLevel.INFO),
+				logs.stream().map(log -> log.level).toList());
+		assertEquals(2, buffer.coalesced());
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.messages.mov;
+
+import java.text.MessageFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayload;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayloadTest;
+import io.vertx.core.json.Json;
+
+/**
+ * Measure the overhead of the {@link LogService} for each received message. It
+ * can be run with the main method from the test class path.
+ *
+ * @see LogService
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogServiceBenchmark {
+
+	/**
+	 * The service to measure.
+	 */
+	LogService service;
+
+	/**
+	 * The payload to log.
+	 */
+	TreatmentActionFeedbackPayload payload;
+
+	/**
+	 * Create the service to measure, that sends the log messages to an emitter
+	 * that does nothing.
+	 */
+	@Setup
+	public void setup() {
+
+		this.service = new LogService();
+		this.service.status = new ComponentStatus();
+		this.service.minLevel = LogLevel.INFO;
+		this.service.buffer = new LogBuffer(1000);
+		this.service.service = new Emitter<>() {
+
+			@Override
+			public CompletionStage<Void> send(AddLogPayload msg) {
+
+				return CompletableFuture.completedFuture(null);
+			}
+
+			@Override
+			public <M extends Message<? extends AddLogPayload>> void send(M msg) {
+
+				// nothing to do
+			}
+
+			@Override
+			public void complete() {
+
+				// nothing to do
+			}
+
+			@Override
+			public void error(Exception e) {
+
+				// nothing to do
+			}
+
+			@Override
+			public boolean isCancelled() {
+
+				return false;
+			}
+
+			@Override
+			public boolean hasRequests() {
+
+				return true;
+			}
+		};
+		this.payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+	}
+
+	/**
+	 * Measure the formatting that was done before checking the level.
+	 *
+	 * @param blackhole to consume the result.
+	 */
+	@Benchmark
+	public void formatPrettyPayload(Blackhole blackhole) {
+
+		blackhole.consume(MessageFormat.format("Treatment action feedback received", new Object[0]));
+		blackhole.consume(Json.encodePrettily(this.payload));
+	}
+
+	/**
+	 * Measure a debug message with a payload, that is below the minimum level.
+	 */
+	@Benchmark
+	public void debugWithPayloadBelowMinLevel() {
+
+		this.service.debugWithPayload(this.payload, "Treatment action feedback received");
+	}
+
+	/**
+	 * Measure an info message with a payload, that is sent with compact JSON.
+	 */
+	@Benchmark
+	public void infoWithPayload() {
+
+		this.service.infoWithPayload(this.payload, "Treatment action feedback received");
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args arguments of the benchmark.
+	 *
+	 * @throws RunnerException if cannot run the benchmark.
+	 */
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(LogServiceBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -8,12 +8,17 @@
 
 package eu.valawai.c0_patient_treatment_ui.messages.mov;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.util.UUID;
 
 import org.junit.jupiter.api.Test;
 
 import io.quarkus.test.common.WithTestResource;
 import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
 import jakarta.inject.Inject;
 
 /**
@@ -155,4 +160,53 @@ public class LogServiceTest {
 
 	}
 
+	/**
+	 * Should ignore the messages of the levels that are not enabled.
+	 */
+	@Test
+	public void shouldIgnoreDisabledLevels() {
+
+		final var service = new LogService();
+		service.minLevel = LogLevel.WARN;
+		assertTrue(service.isEnabled(LogLevel.ERROR));
+		assertTrue(service.isEnabled(LogLevel.WARN));
+		assertFalse(service.isEnabled(LogLevel.INFO));
+		assertFalse(service.isEnabled(LogLevel.DEBUG));
+
+		// without emitter it fails if it tries to send the message
+		service.debugWithPayload(new AddLogPayload(), "Ignored {0}", 1);
+		service.info("Ignored {0}", 2);
+	}
+
+	/**
+	 * Should truncate the long payloads into a valid JSON.
+	 */
+	@Test
+	public void shouldTruncateLongPayloadsIntoValidJson() {
+
+		final var service = new LogService();
+		service.maxPayloadLength = 10;
+		assertEquals("{\"a\":1}", service.truncate("{\"a\":1}"));
+
+		final var payload = "{\"name\":\"" + "x".repeat(20) + "\"}";
+		final var truncated = new JsonObject(service.truncate(payload));
+		assertEquals(true, truncated.getBoolean("truncated"));
+		assertEquals(payload.length(), truncated.getInteger("length"));
+		assertEquals(payload.substring(0, 10), truncated.getString("prefix"));
+
+	}
+
+	/**
+	 * Should format the messages without parameters as before.
+	 */
+	@Test
+	public void shouldFormatMessagesWithoutParameters() {
+
+		final var service = new LogService();
+		service.buffer = new LogBuffer(10);
+		service.info("It''s {0}");
+		assertEquals("It's {0}", service.buffer.drain().get(0).message);
+
+	}
+
 }
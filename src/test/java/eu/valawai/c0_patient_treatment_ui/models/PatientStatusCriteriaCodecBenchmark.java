@@ -0,0 +1,201 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.models;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the reflective equals, hash code and differences of the
+ * {@link PatientStatusCriteria}, that were done by {@link ReflectionModel},
+ * with the {@link PatientStatusCriteriaCodec}. It can be run with the main
+ * method from the test class path.
+ *
+ * @see PatientStatusCriteriaCodec
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientStatusCriteriaCodecBenchmark {
+
+	/**
+	 * The status to compare.
+	 */
+	PatientStatusCriteria status;
+
+	/**
+	 * A status that is equals to the status to compare.
+	 */
+	PatientStatusCriteria same;
+
+	/**
+	 * A status that may be different to the status to compare.
+	 */
+	PatientStatusCriteria other;
+
+	/**
+	 * The code of the status to compare.
+	 */
+	long statusCode;
+
+	/**
+	 * The code of the status that may be different.
+	 */
+	long otherCode;
+
+	/**
+	 * The fields of the status that are compared by reflection.
+	 */
+	Field[] fields;
+
+	/**
+	 * Create the status to compare.
+	 */
+	@Setup
+	public void setup() {
+
+		final var test = new PatientStatusCriteriaTest();
+		this.status = test.nextModel();
+		this.same = PatientStatusCriteriaCodec.decode(PatientStatusCriteriaCodec.encode(this.status));
+		this.other = test.nextModel();
+		this.statusCode = PatientStatusCriteriaCodec.encode(this.status);
+		this.otherCode = PatientStatusCriteriaCodec.encode(this.other);
+		this.fields = Arrays.stream(PatientStatusCriteria.class.getDeclaredFields())
+				.filter(field -> !Modifier.isStatic(field.getModifiers())).toArray(Field[]::new);
+		for (final var field : this.fields) {
+
+			field.setAccessible(true);
+		}
+	}
+
+	/**
+	 * Measure the reflective equals.
+	 *
+	 * @return if the status are equals.
+	 */
+	@Benchmark
+	public boolean equalsWithReflection() {
+
+		return EqualsBuilder.reflectionEquals(this.status, this.same);
+	}
+
+	/**
+	 * Measure the equals that encodes the status.
+	 *
+	 * @return if the status are equals.
+	 */
+	@Benchmark
+	public boolean equalsWithCodec() {
+
+		return this.status.equals(this.same);
+	}
+
+	/**
+	 * Measure the equals of the stored codes.
+	 *
+	 * @return if the status are equals.
+	 */
+	@Benchmark
+	public boolean equalsWithCodes() {
+
+		return this.statusCode == PatientStatusCriteriaCodec.encode(this.same);
+	}
+
+	/**
+	 * Measure the reflective hash code.
+	 *
+	 * @return the hash code of the status.
+	 */
+	@Benchmark
+	public int hashCodeWithReflection() {
+
+		return HashCodeBuilder.reflectionHashCode(this.status);
+	}
+
+	/**
+	 * Measure the hash code that encodes the status.
+	 *
+	 * @return the hash code of the status.
+	 */
+	@Benchmark
+	public int hashCodeWithCodec() {
+
+		return this.status.hashCode();
+	}
+
+	/**
+	 * Measure the number of different fields obtained by reflection.
+	 *
+	 * @return the number of different fields.
+	 *
+	 * @throws IllegalAccessException if cannot access a field.
+	 */
+	@Benchmark
+	public int distanceWithReflection() throws IllegalAccessException {
+
+		var distance = 0;
+		for (final var field : this.fields) {
+
+			if (!Objects.equals(field.get(this.status), field.get(this.other))) {
+
+				distance++;
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Measure the number of different fields obtained from the codes.
+	 *
+	 * @return the number of different fields.
+	 */
+	@Benchmark
+	public int distanceWithCodes() {
+
+		return PatientStatusCriteriaCodec.distance(this.statusCode, this.otherCode);
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args arguments of the benchmark.
+	 *
+	 * @throws RunnerException if cannot run the benchmark.
+	 */
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(PatientStatusCriteriaCodecBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link PatientStatusCriteriaCodec}.
+ *
+ * @see PatientStatusCriteriaCodec
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PatientStatusCriteriaCodecTest {
+
+	/**
+	 * Should encode an empty status as zero.
+	 */
+	@Test
+	public void shouldEncodeEmptyStatusAsZero() {
+
+		assertEquals(0l, PatientStatusCriteriaCodec.encode(null));
+		assertEquals(0l, PatientStatusCriteriaCodec.encode(new PatientStatusCriteria()));
+		assertEquals(new PatientStatusCriteria(), PatientStatusCriteriaCodec.decode(0l));
+
+	}
+
+	/**
+	 * Should decode the encoded status.
+	 */
+	@Test
+	public void shouldDecodeEncodedStatus() {
+
+		final var builder = new PatientStatusCriteriaTest();
+		for (var i = 0; i < 1000; i++) {
+
+			final var status = builder.nextModel();
+			final var code = PatientStatusCriteriaCodec.encode(status);
+			assertTrue(code > 0);
+			final var decoded = PatientStatusCriteriaCodec.decode(code);
+			assertTrue(EqualsBuilder.reflectionEquals(status, decoded));
+		}
+
+	}
+
+	/**
+	 * Should not decode an invalid code.
+	 */
+	@Test
+	public void shouldNotDecodeInvalidCode() {
+
+		assertThrows(IllegalArgumentException.class, () -> PatientStatusCriteriaCodec.decode(-1l));
+		assertThrows(IllegalArgumentException.class, () -> PatientStatusCriteriaCodec.decode(31l));
+
+	}
+
+	/**
+	 * Should compare the status as the reflective equals.
+	 */
+	@Test
+	public void shouldEqualsAsReflectiveEquals() {
+
+		final var builder = new PatientStatusCriteriaTest();
+		for (var i = 0; i < 1000; i++) {
+
+			final var status1 = builder.nextModel();
+			final var status2 = builder.nextModel();
+			if (i % 2 == 0) {
+
+				status2.ageRange = status1.ageRange;
+				status2.nitLevel = null;
+				status1.nitLevel = null;
+			}
+			assertEquals(EqualsBuilder.reflectionEquals(status1, status2), status1.equals(status2));
+			final var copy = PatientStatusCriteriaCodec.decode(PatientStatusCriteriaCodec.encode(status1));
+			assertEquals(status1, copy);
+			assertEquals(status1.hashCode(), copy.hashCode());
+		}
+
+	}
+
+	/**
+	 * Should calculate the differences between two status.
+	 */
+	@Test
+	public void shouldCalculateDifferences() {
+
+		final var status1 = new PatientStatusCriteriaTest().nextModel();
+		final var code1 = PatientStatusCriteriaCodec.encode(status1);
+		assertEquals(0, PatientStatusCriteriaCodec.differences(code1, code1));
+		assertEquals(0, PatientStatusCriteriaCodec.distance(code1, code1));
+
+		final var status2 = PatientStatusCriteriaCodec.decode(code1);
+		status2.ageRange = null;
+		status2.nitLevel = null;
+		final var code2 = PatientStatusCriteriaCodec.encode(status2);
+		assertNotEquals(code1, code2);
+		final var last = 1 << (PatientStatusCriteriaCodec.FIELDS - 1);
+		assertEquals(1 | last, PatientStatusCriteriaCodec.differences(code1, code2));
+		assertEquals(2, PatientStatusCriteriaCodec.distance(code1, code2));
+		assertEquals(PatientStatusCriteriaCodec.FIELDS, PatientStatusCriteriaCodec.distance(code1, 0l));
+
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.panache.common.Sort;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.vertx.RunOnVertxContext;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Test the {@link CounterEntity}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class CounterEntityTest {
+
+	/**
+	 * Return the total of a counter, or {@code -1} if it is not defined.
+	 *
+	 * @param name of the counter.
+	 *
+	 * @return the total of the counter.
+	 */
+	private static Uni<Long> totalOf(String name) {
+
+		return CounterEntity.totalOf(name, () -> Uni.createFrom().item(-1l));
+	}
+
+	/**
+	 * Should count the patients.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldCountPatients(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientEntity.count(), total -> asserter.putData("BEFORE", total));
+		asserter.assertThat(() -> totalOf(CounterEntity.PATIENTS),
+				total -> assertEquals(asserter.getData("BEFORE"), total));
+		asserter.execute(() -> PatientEntities.nextRandom());
+		asserter.assertThat(() -> totalOf(CounterEntity.PATIENTS),
+				total -> assertEquals((Long) asserter.getData("BEFORE") + 1, total));
+		asserter.execute(() -> PatientEntities.last().chain(last -> PatientEntity.delete(last.id)));
+		asserter.assertThat(() -> totalOf(CounterEntity.PATIENTS),
+				total -> assertEquals(asserter.getData("BEFORE"), total));
+	}
+
+	/**
+	 * Should count the treatments of a patient.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldCountTreatmentsOfPatient(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientEntities.nextRandom(), patient -> asserter.putData("PATIENT", patient));
+		asserter.assertThat(() -> TreatmentEntity.count(), total -> asserter.putData("BEFORE", total));
+		asserter.execute(() -> {
+
+			final PatientEntity patient = (PatientEntity) asserter.getData("PATIENT");
+			return TreatmentEntities.populateWith(patient, 3);
+		});
+		asserter.assertThat(() -> totalOf(CounterEntity.TREATMENTS),
+				total -> assertEquals((Long) asserter.getData("BEFORE") + 3, total));
+		asserter.assertThat(() -> {
+
+			final PatientEntity patient = (PatientEntity) asserter.getData("PATIENT");
+			return totalOf(CounterEntity.treatmentsOfPatient(patient.id));
+
+		}, total -> assertEquals(3l, total));
+		asserter.assertThat(() -> {
+
+			final PatientEntity patient = (PatientEntity) asserter.getData("PATIENT");
+			return TreatmentEntity.getMinTreatmentPageForPatient(patient.id, CountMode.EXACT, Sort.ascending("id"), 0,
+					10);
+
+		}, page -> {
+
+			assertEquals(3, page.total);
+			assertEquals(3, page.treatments.size());
+		});
+		asserter.execute(() -> {
+
+			final PatientEntity patient = (PatientEntity) asserter.getData("PATIENT");
+			return PatientEntity.delete(patient.id);
+		});
+		asserter.assertThat(() -> totalOf(CounterEntity.TREATMENTS),
+				total -> assertEquals(asserter.getData("BEFORE"), total));
+		asserter.assertThat(() -> {
+
+			final PatientEntity patient = (PatientEntity) asserter.getData("PATIENT");
+			return totalOf(CounterEntity.treatmentsOfPatient(patient.id));
+
+		}, total -> assertEquals(-1l, total));
+	}
+
+	/**
+	 * Should estimate the rows of a query.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldEstimateRows(TransactionalUniAsserter asserter) {
+
+		asserter.execute(() -> PatientEntities.populateWith(10));
+		asserter.assertThat(() -> CounterEntity.estimate("select 1 from PATIENTS p where p.name ILIKE ?1", "%"),
+				total -> assertTrue(total > 0, "Unexpected estimation " + total));
+	}
+
+	/**
+	 * Should obtain a page of patients without total.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldObtainPatientPageWithoutTotal(TransactionalUniAsserter asserter) {
+
+		asserter.execute(() -> PatientEntities.populateWith(10));
+		asserter.assertThat(
+				() -> PatientEntity.getMinPatientPageFor("%", CountMode.NONE, Sort.ascending("id"), 0, 5),
+				page -> {
+
+					assertEquals(0, page.total);
+					assertNotNull(page.patients);
+					assertEquals(5, page.patients.size());
+				});
+	}
+
+	/**
+	 * Should obtain a page of treatments with an estimated total.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldObtainTreatmentPageWithEstimatedTotal(TransactionalUniAsserter asserter) {
+
+		asserter.execute(() -> TreatmentEntities.populateWith(10));
+		asserter.assertThat(() -> TreatmentEntity.getMinTreatmentPageForPatientName("%a%", CountMode.ESTIMATE,
+				Sort.ascending("id"), 0, 5), page -> {
+
+					assertTrue(page.total >= 0);
+					assertNotNull(page.treatments);
+					assertTrue(page.treatments.size() <= 5);
+				});
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EmptySource;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import io.quarkus.panache.common.Parameters;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.panache.common.Sort.Direction;
+
+/**
+ * Test the {@link KeysetQueryBuilder}.
+ *
+ * @see KeysetQueryBuilder
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class KeysetQueryBuilderTest {
+
+	/**
+	 * The fields that can be used to sort the elements on the tests.
+	 */
+	private static final Map<String, Class<?>> FIELDS = Map.of("id", Long.class, "name", String.class, "createdTime",
+			Long.class);
+
+	/**
+	 * Should not change the query when it starts from the first element.
+	 *
+	 * @param cursor that is not defined.
+	 */
+	@ParameterizedTest(name = "Should not change the query for the cursor {0}")
+	@NullSource
+	@EmptySource
+	@ValueSource(strings = { "   " })
+	public void shouldNotChangeQueryForFirstPage(String cursor) {
+
+		final var builder = KeysetQueryBuilder.withSort(Sort.ascending("id"), FIELDS).after(cursor);
+		assertEquals("name ILIKE :pattern", builder.query("name ILIKE :pattern"));
+		final var parameters = Parameters.with("pattern", "%");
+		assertEquals(parameters.map(), builder.parameters(parameters).map());
+
+	}
+
+	/**
+	 * Should seek the elements after a cursor.
+	 */
+	@Test
+	public void shouldSeekAfterCursor() {
+
+		final var sort = Sort.ascending("name").and("id", Direction.Descending);
+		final var cursor = KeysetQueryBuilder.withSort(sort, FIELDS).cursorFor(field -> "id".equals(field) ? 3l : "Jane");
+		final var builder = KeysetQueryBuilder.withSort(sort, FIELDS).after(cursor);
+		assertEquals(
+				"name ILIKE :pattern and (((name > :keyset0 or name is null)) or (name = :keyset0 and id < :keyset1))",
+				builder.query("name ILIKE :pattern"));
+		final var parameters = builder.parameters(Parameters.with("pattern", "%")).map();
+		assertEquals(3, parameters.size());
+		assertEquals("%", parameters.get("pattern"));
+		assertEquals("Jane", parameters.get("keyset0"));
+		assertEquals(3l, parameters.get("keyset1"));
+
+	}
+
+	/**
+	 * Should seek the elements after a cursor with {@code null} values.
+	 */
+	@Test
+	public void shouldSeekAfterCursorWithNullValues() {
+
+		final var sort = Sort.descending("name").and("createdTime", Direction.Ascending).and("id");
+		final var cursor = KeysetQueryBuilder.withSort(sort, FIELDS).cursorFor(field -> "id".equals(field) ? 3l : null);
+		final var builder = KeysetQueryBuilder.withSort(sort, FIELDS).after(cursor);
+		assertEquals(
+				"true and ((name is not null) or (name is null and 1 = 0) or (name is null and createdTime is null and (id > :keyset2 or id is null)))",
+				builder.query("true"));
+		final var parameters = builder.parameters(new Parameters()).map();
+		assertEquals(1, parameters.size());
+		assertEquals(3l, parameters.get("keyset2"));
+
+	}
+
+	/**
+	 * Should not seek with a bad cursor.
+	 *
+	 * @param cursor that is not valid.
+	 */
+	@ParameterizedTest(name = "Should not seek after the cursor {0}")
+	@ValueSource(strings = { "!!", "W10", "WzEsMiwzXQ", "e30", "bm9qc29u", "W3t9XQ", "W3RydWVd" })
+	public void shouldNotSeekAfterBadCursor(String cursor) {
+
+		final var builder = KeysetQueryBuilder.withSort(Sort.ascending("id"), FIELDS);
+		assertThrows(IllegalArgumentException.class, () -> builder.after(cursor));
+
+	}
+
+	/**
+	 * Should not sort by a field that is not defined.
+	 *
+	 * @param field that cannot be used to sort.
+	 */
+	@ParameterizedTest(name = "Should not sort by {0}")
+	@ValueSource(strings = { "undefined", "name = name or 1 = 1", "id; delete from PATIENTS" })
+	public void shouldNotSortByUndefinedField(String field) {
+
+		final var sort = Sort.ascending(field);
+		assertThrows(IllegalArgumentException.class, () -> KeysetQueryBuilder.withSort(sort, FIELDS));
+
+	}
+
+	/**
+	 * Should not seek with a cursor whose values do not have the type of their
+	 * columns.
+	 */
+	@Test
+	public void shouldNotSeekAfterCursorWithBadTypes() {
+
+		final var sort = Sort.ascending("name").and("id");
+		final var cursor = KeysetQueryBuilder.withSort(sort, FIELDS).cursorFor(field -> "id".equals(field) ? "3" : 1l);
+		final var builder = KeysetQueryBuilder.withSort(sort, FIELDS);
+		assertThrows(IllegalArgumentException.class, () -> builder.after(cursor));
+
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatient;
+import io.quarkus.panache.common.Parameters;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.panache.common.Sort.Direction;
+
+/**
+ * Test the {@link MinPatientProjection}.
+ *
+ * @see MinPatientProjection
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MinPatientProjectionTest {
+
+	/**
+	 * Create a projection with random values.
+	 *
+	 * @return the random projection.
+	 */
+	public static MinPatientProjection nextProjection() {
+
+		return new MinPatientProjection(ValueGenerator.rnd().nextLong(1, Long.MAX_VALUE),
+				ValueGenerator.nextPattern("Patient name {0}"), ValueGenerator.nextPastTime());
+	}
+
+	/**
+	 * Should convert the projection to a min patient.
+	 */
+	@Test
+	public void shouldToMinPatient() {
+
+		final var projection = nextProjection();
+		final var expected = new MinPatient();
+		expected.id = projection.id;
+		expected.name = projection.name;
+		assertEquals(expected, projection.toMinPatient());
+
+	}
+
+	/**
+	 * Should return the value of the fields to sort the patients.
+	 */
+	@Test
+	public void shouldReturnValueOfSortFields() {
+
+		final var projection = nextProjection();
+		assertEquals(projection.id, projection.valueOf("id"));
+		assertEquals(projection.name, projection.valueOf("name"));
+		assertEquals(projection.updateTime, projection.valueOf("updateTime"));
+
+	}
+
+	/**
+	 * Should not return the value of a field that can not be used to sort.
+	 */
+	@Test
+	public void shouldNotReturnValueOfUndefinedField() {
+
+		final var projection = nextProjection();
+		assertThrows(IllegalArgumentException.class, () -> projection.valueOf("status"));
+
+	}
+
+	/**
+	 * Should obtain the values of the projection from its cursor.
+	 */
+	@Test
+	public void shouldRoundTripCursor() {
+
+		final var projection = nextProjection();
+		final var sort = Sort.ascending("name").and("updateTime", Direction.Descending).and("id");
+		final var cursor = KeysetQueryBuilder.withSort(sort, MinPatientProjection.SORT_FIELDS)
+				.cursorFor(projection::valueOf);
+		final var parameters = KeysetQueryBuilder.withSort(sort, MinPatientProjection.SORT_FIELDS).after(cursor)
+				.parameters(new Parameters()).map();
+		assertEquals(projection.name, parameters.get("keyset0"));
+		assertEquals(projection.updateTime, parameters.get("keyset1"));
+		assertEquals(projection.id, parameters.get("keyset2"));
+
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatient;
+import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.MinTreatment;
+import io.quarkus.panache.common.Parameters;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.panache.common.Sort.Direction;
+
+/**
+ * Test the {@link MinTreatmentProjection}.
+ *
+ * @see MinTreatmentProjection
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MinTreatmentProjectionTest {
+
+	/**
+	 * Create a projection with random values.
+	 *
+	 * @return the random projection.
+	 */
+	public static MinTreatmentProjection nextProjection() {
+
+		return new MinTreatmentProjection(ValueGenerator.rnd().nextLong(1, Long.MAX_VALUE),
+				ValueGenerator.nextPastTime(), ValueGenerator.rnd().nextLong(1, Long.MAX_VALUE),
+				ValueGenerator.nextPattern("Patient name {0}"));
+	}
+
+	/**
+	 * Should convert the projection to a min treatment.
+	 */
+	@Test
+	public void shouldToMinTreatment() {
+
+		final var projection = nextProjection();
+		final var expected = new MinTreatment();
+		expected.id = projection.id;
+		expected.createdTime = projection.createdTime;
+		expected.patient = new MinPatient();
+		expected.patient.id = projection.patientId;
+		expected.patient.name = projection.patientName;
+		assertEquals(expected, projection.toMinTreatment());
+
+	}
+
+	/**
+	 * Should convert the projection without patient to a min treatment.
+	 */
+	@Test
+	public void shouldToMinTreatmentWithoutPatient() {
+
+		final var projection = new MinTreatmentProjection(1l, ValueGenerator.nextPastTime(), null, null);
+		assertNull(projection.toMinTreatment().patient);
+
+	}
+
+	/**
+	 * Should return the value of the fields to sort the treatments.
+	 */
+	@Test
+	public void shouldReturnValueOfSortFields() {
+
+		final var projection = nextProjection();
+		assertEquals(projection.id, projection.valueOf("id"));
+		assertEquals(projection.createdTime, projection.valueOf("createdTime"));
+		assertEquals(projection.patientId, projection.valueOf("patient.id"));
+		assertEquals(projection.patientName, projection.valueOf("patient.name"));
+
+	}
+
+	/**
+	 * Should not return the value of a field that can not be used to sort.
+	 */
+	@Test
+	public void shouldNotReturnValueOfUndefinedField() {
+
+		final var projection = nextProjection();
+		assertThrows(IllegalArgumentException.class, () -> projection.valueOf("beforeStatus"));
+
+	}
+
+	/**
+	 * Should obtain the values of the projection from its cursor.
+	 */
+	@Test
+	public void shouldRoundTripCursor() {
+
+		final var projection = nextProjection();
+		final var sort = Sort.descending("patient.name").and("createdTime", Direction.Ascending).and("patient.id")
+				.and("id");
+		final var cursor = KeysetQueryBuilder.withSort(sort, MinTreatmentProjection.SORT_FIELDS)
+				.cursorFor(projection::valueOf);
+		final var parameters = KeysetQueryBuilder.withSort(sort, MinTreatmentProjection.SORT_FIELDS).after(cursor)
+				.parameters(new Parameters()).map();
+		assertEquals(projection.patientName, parameters.get("keyset0"));
+		assertEquals(projection.createdTime, parameters.get("keyset1"));
+		assertEquals(projection.patientId, parameters.get("keyset2"));
+		assertEquals(projection.id, parameters.get("keyset3"));
+
+	}
+
+	/**
+	 * Should obtain the {@code null} values of the projection from its cursor.
+	 */
+	@Test
+	public void shouldRoundTripCursorWithNullValues() {
+
+		final var projection = new MinTreatmentProjection(3l, ValueGenerator.nextPastTime(), null, null);
+		final var sort = Sort.ascending("patient.name").and("id");
+		final var cursor = KeysetQueryBuilder.withSort(sort, MinTreatmentProjection.SORT_FIELDS)
+				.cursorFor(projection::valueOf);
+		final var parameters = KeysetQueryBuilder.withSort(sort, MinTreatmentProjection.SORT_FIELDS).after(cursor)
+				.parameters(new Parameters()).map();
+		assertEquals(1, parameters.size());
+		assertEquals(3l, parameters.get("keyset1"));
+
+	}
+
+}
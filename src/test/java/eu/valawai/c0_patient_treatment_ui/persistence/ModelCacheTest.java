@@ -0,0 +1,193 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Test the {@link ModelCache}.
+ *
+ * @see ModelCache
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ModelCacheTest {
+
+	/**
+	 * The number of times that a model has been loaded.
+	 */
+	private final AtomicInteger loads = new AtomicInteger();
+
+	/**
+	 * Return a loader that counts the loads and return the value.
+	 *
+	 * @param value to load.
+	 *
+	 * @return the loader of the value.
+	 */
+	private Supplier<Uni<String>> loaderOf(String value) {
+
+		return () -> Uni.createFrom().item(() -> {
+
+			this.loads.incrementAndGet();
+			return value;
+		});
+	}
+
+	/**
+	 * Should load a model once and count the hits and misses.
+	 */
+	@Test
+	public void shouldLoadOnce() {
+
+		final var cache = new ModelCache<String>(10, 60000);
+		assertEquals("value", cache.get(1, this.loaderOf("value")).await().indefinitely());
+		assertEquals("value", cache.get(1, this.loaderOf("other")).await().indefinitely());
+		assertEquals("value", cache.get(1, this.loaderOf("other")).await().indefinitely());
+		assertEquals(1, this.loads.get());
+		assertEquals(2, cache.hits());
+		assertEquals(1, cache.misses());
+		assertEquals(2.0 / 3.0, cache.hitRate());
+
+	}
+
+	/**
+	 * Should reload a model after it is invalidated.
+	 */
+	@Test
+	public void shouldReloadInvalidated() {
+
+		final var cache = new ModelCache<String>(10, 60000);
+		cache.get(1, this.loaderOf("value")).await().indefinitely();
+		cache.get(2, this.loaderOf("value")).await().indefinitely();
+		cache.get(3, this.loaderOf("other")).await().indefinitely();
+		cache.invalidate(1);
+		assertEquals("new", cache.get(1, this.loaderOf("new")).await().indefinitely());
+		cache.invalidateAll(List.of(1l, 2l));
+		assertEquals(1, cache.size());
+		cache.invalidateIf("other"::equals);
+		assertEquals(0, cache.size());
+
+	}
+
+	/**
+	 * Should not cache a model that is loaded while the cache is invalidated.
+	 */
+	@Test
+	public void shouldNotCacheLoadedBeforeInvalidation() {
+
+		final var cache = new ModelCache<String>(10, 60000);
+		final var load = cache.get(1, () -> Uni.createFrom().item(() -> {
+
+			cache.invalidate(1);
+			return "stale";
+		}));
+		assertEquals("stale", load.await().indefinitely());
+		assertEquals(0, cache.size());
+
+	}
+
+	/**
+	 * Should remove the least recently used models when the cache is full.
+	 */
+	@Test
+	public void shouldRemoveLeastRecentlyUsed() {
+
+		final var cache = new ModelCache<String>(2, 60000);
+		cache.get(1, this.loaderOf("one")).await().indefinitely();
+		cache.get(2, this.loaderOf("two")).await().indefinitely();
+		cache.get(1, this.loaderOf("one")).await().indefinitely();
+		cache.get(3, this.loaderOf("three")).await().indefinitely();
+		assertEquals(2, cache.size());
+		assertEquals(3, this.loads.get());
+		cache.get(1, this.loaderOf("one")).await().indefinitely();
+		assertEquals(3, this.loads.get());
+		cache.get(2, this.loaderOf("two")).await().indefinitely();
+		assertEquals(4, this.loads.get());
+
+	}
+
+	/**
+	 * Should reload the expired models.
+	 *
+	 * @throws InterruptedException if cannot wait for the expiration.
+	 */
+	@Test
+	public void shouldReloadExpired() throws InterruptedException {
+
+		final var cache = new ModelCache<String>(10, 1);
+		cache.get(1, this.loaderOf("value")).await().indefinitely();
+		Thread.sleep(5);
+		cache.get(1, this.loaderOf("value")).await().indefinitely();
+		assertEquals(2, this.loads.get());
+
+	}
+
+	/**
+	 * Should cache a model that is loaded while another model is invalidated.
+	 */
+	@Test
+	public void shouldCacheLoadedWhileOtherInvalidated() {
+
+		final var cache = new ModelCache<String>(10, 60000);
+		final var load = cache.get(1, () -> Uni.createFrom().item(() -> {
+
+			cache.invalidate(2);
+			cache.invalidateAll(List.of(3l));
+			cache.invalidateIf("other"::equals);
+			return "value";
+		}));
+		assertEquals("value", load.await().indefinitely());
+		assertEquals(1, cache.size());
+		assertEquals("value", cache.get(1, this.loaderOf("other")).await().indefinitely());
+		assertEquals(0, this.loads.get());
+
+	}
+
+	/**
+	 * Should not cache a model that satisfies a condition that is invalidated
+	 * while it is loaded.
+	 */
+	@Test
+	public void shouldNotCacheLoadedThatSatisfiesInvalidation() {
+
+		final var cache = new ModelCache<String>(10, 60000);
+		final var load = cache.get(1, () -> Uni.createFrom().item(() -> {
+
+			cache.invalidateIf("stale"::equals);
+			return "stale";
+		}));
+		assertEquals("stale", load.await().indefinitely());
+		assertEquals(0, cache.size());
+
+	}
+
+	/**
+	 * Should not cache when it is disabled.
+	 */
+	@Test
+	public void shouldNotCacheWhenDisabled() {
+
+		final var cache = new ModelCache<String>(0, 60000);
+		cache.get(1, this.loaderOf("value")).await().indefinitely();
+		cache.get(1, this.loaderOf("value")).await().indefinitely();
+		assertEquals(2, this.loads.get());
+		assertEquals(0, cache.size());
+
+	}
+
+}
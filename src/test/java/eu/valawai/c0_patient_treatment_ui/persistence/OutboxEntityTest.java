@@ -0,0 +1,98 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentPayloadTest;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.vertx.RunOnVertxContext;
+
+/**
+ * Test the {@link OutboxEntity}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class OutboxEntityTest {
+
+	/**
+	 * Should add a treatment and obtain it on the next batch.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldAddAndObtainNextBatch(TransactionalUniAsserter asserter) {
+
+		final var treatment = new TreatmentPayloadTest().nextModel();
+		asserter.assertThat(() -> OutboxEntity.add(treatment).chain(added -> OutboxEntity.nextBatch(100)), batch -> {
+
+			final var entity = batch.stream().filter(candidate -> treatment.equals(candidate.toTreatmentPayload()))
+					.findFirst().orElse(null);
+			assertNotNull(entity);
+			assertEquals(0, entity.attempts);
+			assertTrue(entity.nextAttemptTime <= TimeManager.now());
+
+		});
+	}
+
+	/**
+	 * Should not obtain on the next batch the treatments that have to wait before
+	 * retry to publish them.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotObtainDelayedTreatments(TransactionalUniAsserter asserter) {
+
+		final var treatment = new TreatmentPayloadTest().nextModel();
+		asserter.assertThat(() -> OutboxEntity.add(treatment).chain(added -> {
+
+			added.failed(300);
+			return added.persistAndFlush();
+
+		}).chain(added -> OutboxEntity.nextBatch(100)), batch -> {
+
+			assertFalse(batch.stream().anyMatch(candidate -> treatment.equals(candidate.toTreatmentPayload())));
+
+		});
+	}
+
+	/**
+	 * Should delay exponentially the next attempt to publish a treatment.
+	 */
+	@Test
+	public void shouldDelayNextAttempt() {
+
+		final var entity = new OutboxEntity();
+		final var now = TimeManager.now();
+		entity.failed(300);
+		assertEquals(1, entity.attempts);
+		assertTrue(entity.nextAttemptTime >= now + 2);
+		entity.failed(300);
+		assertEquals(2, entity.attempts);
+		assertTrue(entity.nextAttemptTime >= now + 4);
+		entity.attempts = 100;
+		entity.failed(300);
+		assertTrue(entity.nextAttemptTime <= TimeManager.now() + 300);
+		assertTrue(entity.nextAttemptTime >= now + 300);
+	}
+
+}
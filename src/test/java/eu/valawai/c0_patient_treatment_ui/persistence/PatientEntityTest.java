@@ -10,10 +10,13 @@ package eu.valawai.c0_patient_treatment_ui.persistence;
 
 import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.hibernate.exception.ConstraintViolationException;
@@ -22,11 +25,17 @@ import org.junit.jupiter.api.Test;
 import eu.valawai.c0_patient_treatment_ui.TimeManager;
 import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
 import eu.valawai.c0_patient_treatment_ui.api.v1.patients.MinPatientPage;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayloadTest;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayloadTest;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.panache.common.Sort;
+import io.quarkus.panache.common.Sort.Direction;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.vertx.RunOnVertxContext;
+import io.quarkus.vertx.VertxContextSupport;
+import io.smallrye.mutiny.Uni;
 
 /**
  * Test the {@link PatientEntity}.
@@ -111,6 +120,98 @@ public class PatientEntityTest {
 		}, IllegalArgumentException.class);
 	}
 
+	/**
+	 * Should not delete any treatment of a patient if one of the statements fails.
+	 *
+	 * @throws Throwable if cannot prepare the patient to delete.
+	 */
+	@Test
+	public void shouldNotDeletePartiallyWhenStatementFails() throws Throwable {
+
+		final TreatmentEntity treatment = VertxContextSupport
+				.subscribeAndAwait(() -> Panache.withTransaction(() -> TreatmentEntities.nextRandom()));
+		final var patientId = treatment.patient.id;
+		VertxContextSupport.subscribeAndAwait(() -> Panache.withTransaction(() -> Panache.getSession()
+				.chain(session -> session.createNativeQuery(
+						"create table PATIENT_DELETE_LOCKS (patient_id bigint references PATIENTS(id))")
+						.executeUpdate()
+						.chain(() -> session.createNativeQuery("insert into PATIENT_DELETE_LOCKS values (?1)")
+								.setParameter(1, patientId).executeUpdate()))));
+		try {
+
+			final var error = assertThrows(Throwable.class,
+					() -> VertxContextSupport.subscribeAndAwait(() -> PatientEntity.delete(patientId)));
+			assertFalse(error instanceof IllegalArgumentException, error.toString());
+			final long treatments = VertxContextSupport.subscribeAndAwait(
+					() -> Panache.withSession(() -> TreatmentEntity.count("patient.id", patientId)));
+			assertEquals(1L, treatments);
+
+		} finally {
+
+			VertxContextSupport.subscribeAndAwait(() -> Panache.withTransaction(() -> Panache.getSession()
+					.chain(session -> session.createNativeQuery("drop table PATIENT_DELETE_LOCKS").executeUpdate())
+					.chain(() -> PatientEntity.delete(patientId))));
+		}
+	}
+
+	/**
+	 * Should delete a patient with all its treatments using a constant number of
+	 * statements.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldDeletePatientWithTreatments(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientEntities.nextRandom(), next -> asserter.putData("NEXT", next));
+		asserter.execute(() -> {
+
+			final PatientEntity next = (PatientEntity) asserter.getData("NEXT");
+			return TreatmentEntities.populateWith(next, 5);
+
+		});
+		asserter.execute(() -> {
+
+			final PatientEntity next = (PatientEntity) asserter.getData("NEXT");
+			final Uni<List<TreatmentEntity>> find = TreatmentEntity.list("patient.id", next.id);
+			return find.chain(treatments -> {
+
+				var action = Uni.createFrom().voidItem();
+				for (final var treatment : treatments) {
+
+					final var actionPayload = new TreatmentActionFeedbackPayloadTest().nextModel();
+					actionPayload.treatment_id = String.valueOf(treatment.id);
+					actionPayload.action = treatment.treatmentActions.get(0);
+					final var valuePayload = new TreatmentValueFeedbackPayloadTest().nextModel();
+					valuePayload.treatment_id = String.valueOf(treatment.id);
+					action = action.chain(() -> TreatmentActionFeedbackEntities.store(actionPayload))
+							.chain(() -> TreatmentValueFeedbackEntities.store(valuePayload)).replaceWithVoid();
+				}
+				return action;
+			});
+
+		});
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.assertThat(() -> {
+
+			final PatientEntity next = (PatientEntity) asserter.getData("NEXT");
+			return PatientEntity.delete(next.id);
+
+		}, deleted -> {
+
+			final var statements = SqlStatementCounter.statements();
+			assertEquals(6, statements.size(), statements.toString());
+
+		});
+		asserter.assertThat(() -> {
+
+			final PatientEntity next = (PatientEntity) asserter.getData("NEXT");
+			return TreatmentEntity.count("patient.id", next.id);
+
+		}, count -> assertEquals(0l, count));
+	}
+
 	/**
 	 * Should update a patient name.
 	 *
@@ -415,6 +516,70 @@ public class PatientEntityTest {
 		}, ConstraintViolationException.class);
 	}
 
+	/**
+	 * Should update only a patient name and return the updated patient.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldUpdateAndGetOnlyPatientName(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientEntities.last(), last -> asserter.putData("PATIENT", last));
+		asserter.assertThat(() -> {
+
+			final PatientEntity last = (PatientEntity) asserter.getData("PATIENT");
+			final var patient = new PatientEntity();
+			patient.id = last.id;
+			patient.name = ValueGenerator.nextPattern("Patient name {0}");
+			asserter.putData("AFTER_NAME", patient.name);
+			asserter.putData("NOW", TimeManager.now());
+			return patient.updateAndGet();
+
+		}, updated -> {
+
+			final PatientEntity last = (PatientEntity) asserter.getData("PATIENT");
+			final long now = (long) asserter.getData("NOW");
+			final String afterName = (String) asserter.getData("AFTER_NAME");
+			assertEquals(last.id, updated.id);
+			assertEquals(afterName, updated.name);
+			assertTrue(updated.updateTime >= now);
+			if (last.status != null) {
+
+				assertEquals(last.status.status, updated.status);
+			}
+			asserter.putData("UPDATED", updated);
+
+		});
+		asserter.assertThat(() -> {
+
+			final PatientEntity last = (PatientEntity) asserter.getData("PATIENT");
+			return PatientEntity.retrievePatient(last.id);
+
+		}, found -> assertEquals(asserter.getData("UPDATED"), found));
+	}
+
+	/**
+	 * Should not update and get an undefined patient.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotUpdateAndGetUndefined(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientEntities.undefined(), undefined -> asserter.putData("UNDEFINED", undefined));
+		asserter.assertFailedWith(() -> {
+
+			final Long undefined = (Long) asserter.getData("UNDEFINED");
+			final var patient = new PatientEntity();
+			patient.id = undefined;
+			patient.name = ValueGenerator.nextPattern("Patient name {0}");
+			return patient.updateAndGet();
+
+		}, IllegalArgumentException.class);
+	}
+
 	/**
 	 * Should return an empty min patient page when no pattern.
 	 *
@@ -538,6 +703,100 @@ public class PatientEntityTest {
 
 	}
 
+	/**
+	 * Should get the same patients with a cursor than with an offset.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldGetMinPatientPageAfterLikeOffset(TransactionalUniAsserter asserter) {
+
+		final var sort = Sort.descending("name").and("id", Direction.Ascending);
+		final var limit = 7;
+		asserter.execute(() -> PatientEntities.populateWith(100));
+		asserter.assertThat(() -> PatientEntity.getMinPatientPageFor("%", sort, limit, limit),
+				expected -> asserter.putData("EXPECTED", expected));
+		asserter.assertThat(() -> PatientEntity.getMinPatientPageAfter("%", sort, "", limit), first -> {
+
+			assertNotNull(first.patients);
+			assertEquals(limit, first.patients.size());
+			assertNotNull(first.next);
+			asserter.putData("FIRST", first);
+
+		});
+		asserter.assertThat(() -> {
+
+			final var first = (MinPatientPage) asserter.getData("FIRST");
+			return PatientEntity.getMinPatientPageAfter("%", sort, first.next, limit);
+
+		}, second -> {
+
+			final var expected = (MinPatientPage) asserter.getData("EXPECTED");
+			assertEquals(expected.patients, second.patients);
+			assertNotNull(second.next);
+		});
+
+	}
+
+	/**
+	 * Should get the last patients without a next cursor.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldGetMinPatientPageAfterWithoutNext(TransactionalUniAsserter asserter) {
+
+		asserter.execute(() -> PatientEntities.populateWith(100));
+		asserter.assertThat(() -> PatientEntity.count(), total -> asserter.putData("TOTAL", total));
+		asserter.assertThat(() -> {
+
+			final var total = ((Number) asserter.getData("TOTAL")).intValue();
+			return PatientEntity.getMinPatientPageAfter("%", Sort.ascending("id"), null, total + 1);
+
+		}, found -> {
+
+			final var total = ((Number) asserter.getData("TOTAL")).intValue();
+			assertEquals(0, found.total);
+			assertNotNull(found.patients);
+			assertEquals(total, found.patients.size());
+			assertNull(found.next);
+		});
+
+	}
+
+	/**
+	 * Should fail for a bad cursor.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotGetMinPatientPageAfterBadCursor(TransactionalUniAsserter asserter) {
+
+		asserter.assertFailedWith(() -> PatientEntity.getMinPatientPageAfter("%", Sort.ascending("id"),
+				ValueGenerator.nextPattern("bad cursor {0}"), 10), IllegalArgumentException.class);
+
+	}
+
+	/**
+	 * Should return an empty page when the patients are sorted by an undefined
+	 * field.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldGetEmptyMinPatientPageAfterUndefinedSort(TransactionalUniAsserter asserter) {
+
+		final var expected = new MinPatientPage();
+		asserter.execute(() -> PatientEntities.populateWith(100));
+		asserter.assertThat(() -> PatientEntity.getMinPatientPageAfter("%", Sort.ascending("undefined"), "", 10),
+				found -> assertEquals(expected, found));
+
+	}
+
 	/**
 	 * Should retrieve a min patient.
 	 *
@@ -0,0 +1,69 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+
+/**
+ * Test the {@link PatientStatusCriteriaCache}.
+ *
+ * @see PatientStatusCriteriaCache
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PatientStatusCriteriaCacheTest {
+
+	/**
+	 * Should count the hits and misses of the cache.
+	 */
+	@Test
+	public void shouldCountHitsAndMisses() {
+
+		final var cache = new PatientStatusCriteriaCache();
+		final var code = ValueGenerator.rnd().nextLong();
+		final var id = ValueGenerator.rnd().nextLong();
+		final var hits = cache.hits();
+		final var misses = cache.misses();
+
+		assertNull(cache.idOf(code));
+		assertEquals(misses + 1, cache.misses());
+		assertEquals(hits, cache.hits());
+
+		cache.put(code, id);
+		assertEquals(id, cache.idOf(code));
+		assertEquals(misses + 1, cache.misses());
+		assertEquals(hits + 1, cache.hits());
+
+		cache.put(code, id + 1);
+		assertEquals(id, cache.idOf(code));
+
+	}
+
+	/**
+	 * Should not cache more status than the maximum size.
+	 */
+	@Test
+	public void shouldNotCacheMoreThanMaxSize() {
+
+		final var cache = new PatientStatusCriteriaCache();
+		cache.maxSize = 1;
+		cache.put(1l, 2l);
+		cache.put(3l, 4l);
+		assertEquals(1, cache.size());
+		assertEquals(2l, cache.idOf(1l));
+		assertNull(cache.idOf(3l));
+
+	}
+
+}
@@ -10,14 +10,17 @@ package eu.valawai.c0_patient_treatment_ui.persistence;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 
 import eu.valawai.c0_patient_treatment_ui.models.PatientStatusCriteria;
+import eu.valawai.c0_patient_treatment_ui.models.PatientStatusCriteriaCodec;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.vertx.RunOnVertxContext;
+import jakarta.inject.Inject;
 
 /**
  * Test the {@link PatientStatusCriteriaEntity}.
@@ -28,6 +31,12 @@ import io.quarkus.test.vertx.RunOnVertxContext;
 @QuarkusTestResource(PostgreSQLTestResource.class)
 public class PatientStatusCriteriaEntityTest {
 
+	/**
+	 * The cache with the identifiers of the stored status.
+	 */
+	@Inject
+	PatientStatusCriteriaCache cache;
+
 	/**
 	 * Should retrieve a patient status criteria.
 	 *
@@ -115,7 +124,7 @@ public class PatientStatusCriteriaEntityTest {
 		asserter.assertThat(() -> {
 
 			final PatientStatusCriteria undefined = (PatientStatusCriteria) asserter.getData("UNDEFINED");
-			return PatientStatusCriteriaEntity.retrieveOrPersist(undefined);
+			return PatientStatusCriteriaEntity.retrieveOrPersist(undefined, this.cache);
 
 		}, retrieved -> {
 
@@ -128,7 +137,7 @@ public class PatientStatusCriteriaEntityTest {
 		asserter.assertThat(() -> {
 
 			final PatientStatusCriteria undefined = (PatientStatusCriteria) asserter.getData("UNDEFINED");
-			return PatientStatusCriteriaEntity.retrieveOrPersist(undefined);
+			return PatientStatusCriteriaEntity.retrieveOrPersist(undefined, this.cache);
 
 		}, retrieved -> {
 
@@ -152,8 +161,104 @@ public class PatientStatusCriteriaEntityTest {
 	@RunOnVertxContext
 	public void shouldNotRetrieveOrPersistNull(TransactionalUniAsserter asserter) {
 
-		asserter.assertFailedWith(() -> PatientStatusCriteriaEntity.retrieveOrPersist(null),
+		asserter.assertFailedWith(() -> PatientStatusCriteriaEntity.retrieveOrPersist(null, this.cache),
 				IllegalArgumentException.class);
 	}
 
+	/**
+	 * Should retrieve or persist only once a status with undefined values.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see PatientStatusCriteriaEntity#retrieveOrPersist
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrieveOrPersistOnceStatusWithUndefinedValues(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientStatusCriteriaEntities.nextUndefinedPatientStatusCriteria().map(status -> {
+
+			status.ccd = null;
+			status.maca = null;
+			status.nitLevel = null;
+			return status;
+
+		}), status -> asserter.putData("STATUS", status));
+		for (var i = 0; i < 2; i++) {
+
+			asserter.assertThat(() -> {
+
+				final PatientStatusCriteria status = (PatientStatusCriteria) asserter.getData("STATUS");
+				return PatientStatusCriteriaEntity.retrieveOrPersist(status, this.cache);
+
+			}, retrieved -> {
+
+				final PatientStatusCriteria status = (PatientStatusCriteria) asserter.getData("STATUS");
+				assertEquals(status, retrieved.status);
+				final var expectedId = asserter.getData("ID");
+				if (expectedId == null) {
+
+					asserter.putData("ID", retrieved.id);
+
+				} else {
+
+					assertEquals(expectedId, retrieved.id);
+				}
+
+			});
+		}
+		asserter.assertThat(() -> {
+
+			final PatientStatusCriteria status = (PatientStatusCriteria) asserter.getData("STATUS");
+			return PatientStatusCriteriaEntity.count("statusCode", PatientStatusCriteriaCodec.encode(status));
+
+		}, count -> assertEquals(1l, count));
+	}
+
+	/**
+	 * Should retrieve a stored status from the cache. The status inserted inside a
+	 * transaction is only cached when it is found again.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see PatientStatusCriteriaCache
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrieveOrPersistFromCache(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> PatientStatusCriteriaEntities.nextUndefinedPatientStatusCriteria(),
+				status -> asserter.putData("STATUS", status));
+		asserter.assertThat(() -> {
+
+			final PatientStatusCriteria status = (PatientStatusCriteria) asserter.getData("STATUS");
+			return PatientStatusCriteriaEntity.retrieveOrPersist(status, this.cache);
+
+		}, stored -> asserter.putData("STORED", stored));
+		asserter.assertThat(() -> {
+
+			final PatientStatusCriteria status = (PatientStatusCriteria) asserter.getData("STATUS");
+			return PatientStatusCriteriaEntity.retrieveOrPersist(status, this.cache);
+
+		}, retrieved -> asserter.putData("HITS", this.cache.hits()));
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.assertThat(() -> {
+
+			final PatientStatusCriteria status = (PatientStatusCriteria) asserter.getData("STATUS");
+			return PatientStatusCriteriaEntity.retrieveOrPersist(status, this.cache);
+
+		}, retrieved -> {
+
+			final PatientStatusCriteriaEntity stored = (PatientStatusCriteriaEntity) asserter.getData("STORED");
+			assertEquals(stored.id, retrieved.id);
+			assertEquals(stored.status, retrieved.status);
+			assertEquals(stored.statusCode, retrieved.statusCode);
+			final var statements = SqlStatementCounter.statements();
+			assertEquals(0, statements.size(), statements.toString());
+			final long hits = (Long) asserter.getData("HITS");
+			assertTrue(hits < this.cache.hits());
+
+		});
+	}
+
 }
@@ -7,7 +7,6 @@
 */
 package eu.valawai.c0_patient_treatment_ui.persistence;
 
-import java.util.Collections;
 import java.util.Map;
 
 import org.testcontainers.containers.GenericContainer;
@@ -45,19 +44,17 @@ public class PostgreSQLTestResource implements QuarkusTestResourceLifecycleManag
 	@Override
 	public Map<String, String> start() {
 
-		if (Boolean.parseBoolean(System.getProperty("useDevDatabase"))) {
-
-			return Collections.singletonMap("quarkus.datasource.reactive.url",
-					"vertx-reactive:postgresql://host.docker.internal:5432/c0_patient_treatment_ui_db");
-
-		} else {
+		var address = "host.docker.internal:5432";
+		if (!Boolean.parseBoolean(System.getProperty("useDevDatabase"))) {
 
 			container.start();
-			return Collections.singletonMap("quarkus.datasource.reactive.url", "vertx-reactive:postgresql://"
-					+ container.getHost() + ":" + container.getMappedPort(5432) + "/c0_patient_treatment_ui_db");
-
+			address = container.getHost() + ":" + container.getMappedPort(5432);
 		}
 
+		return Map.of("quarkus.datasource.reactive.url",
+				"vertx-reactive:postgresql://" + address + "/c0_patient_treatment_ui_db", "quarkus.datasource.jdbc.url",
+				"jdbc:postgresql://" + address + "/c0_patient_treatment_ui_db");
+
 	}
 
 	/**
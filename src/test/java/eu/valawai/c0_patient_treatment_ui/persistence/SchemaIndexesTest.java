@@ -0,0 +1,201 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.vertx.RunOnVertxContext;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Test that the statements that Hibernate generates for the queries of the
+ * entities use the indexes that are created by the migrations on
+ * {@code src/main/resources/db/migration}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class SchemaIndexesTest {
+
+	/**
+	 * Return the plan that the database uses to execute a statement that Hibernate
+	 * has generated. The plan is generic, thus it does not depend on the values of
+	 * the parameters of the statement. The sequential scans are disabled, because
+	 * on the test database the tables are so small that read them is cheaper than
+	 * use any index.
+	 *
+	 * @param statement to explain.
+	 *
+	 * @return the lines of the plan of the statement.
+	 */
+	private static Uni<List<String>> explain(String statement) {
+
+		final var sql = new StringBuilder();
+		var index = 1;
+		for (final var character : statement.toCharArray()) {
+
+			if (character == '?') {
+
+				sql.append('$').append(index++);
+
+			} else {
+
+				sql.append(character);
+			}
+		}
+		return Panache.getSession()
+				.chain(session -> session.createNativeQuery("set local enable_seqscan = off").executeUpdate()
+						.chain(() -> session.createNativeQuery("explain (generic_plan) " + sql, String.class)
+								.getResultList()));
+	}
+
+	/**
+	 * Check that the statements that Hibernate generates for a query use an index.
+	 *
+	 * @param asserter  to use in the tests.
+	 * @param query     to execute.
+	 * @param fragment  that the statements to check contains.
+	 * @param indexName name of the index that the statements have to use.
+	 */
+	private static void assertUseIndex(TransactionalUniAsserter asserter, Supplier<Uni<?>> query, String fragment,
+			String indexName) {
+
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.execute(query);
+		asserter.execute(() -> {
+
+			final var lowerFragment = fragment.toLowerCase();
+			final var statements = SqlStatementCounter.statements().stream()
+					.filter(statement -> statement.toLowerCase().contains(lowerFragment)).toList();
+			assertFalse(statements.isEmpty(), "No statement contains " + fragment);
+			Uni<Void> explains = Uni.createFrom().voidItem();
+			for (final var statement : statements) {
+
+				explains = explains.chain(() -> explain(statement)).invoke(plan -> {
+
+					final var name = indexName.toLowerCase();
+					assertTrue(plan.stream().anyMatch(line -> line.toLowerCase().contains(name)),
+							statement + " " + plan);
+
+				}).replaceWithVoid();
+			}
+			return explains;
+		});
+	}
+
+	/**
+	 * Should search the page of patients with the index.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see PatientEntity#getMinPatientPageFor
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldSearchPatientsWithIndex(TransactionalUniAsserter asserter) {
+
+		assertUseIndex(asserter,
+				() -> PatientEntity.getMinPatientPageFor("%tient 1%", CountMode.NONE, Sort.ascending("name"), 0, 10),
+				" order by ", "PATIENTS_NAME_TRGM_INDEX");
+	}
+
+	/**
+	 * Should count the patients with the index.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see PatientEntity#getMinPatientPageFor
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldCountPatientsWithIndex(TransactionalUniAsserter asserter) {
+
+		assertUseIndex(asserter,
+				() -> PatientEntity.getMinPatientPageFor("%tient 1%", CountMode.EXACT, Sort.ascending("name"), 0, 10),
+				"count(", "PATIENTS_NAME_TRGM_INDEX");
+	}
+
+	/**
+	 * Should count the treatments of the patients with the index.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see TreatmentEntity#getMinTreatmentPageForPatientName
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldCountTreatmentsWithIndex(TransactionalUniAsserter asserter) {
+
+		assertUseIndex(asserter, () -> TreatmentEntity.getMinTreatmentPageForPatientName("%tient 1%",
+				CountMode.EXACT, Sort.descending("id"), 0, 10), "count(", "PATIENTS_NAME_TRGM_INDEX");
+	}
+
+	/**
+	 * Should obtain the treatments of a patient with the index.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see TreatmentEntity#getMinTreatmentPageForPatient
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldSearchTreatmentsOfPatientWithIndex(TransactionalUniAsserter asserter) {
+
+		assertUseIndex(asserter,
+				() -> TreatmentEntity.getMinTreatmentPageForPatient(1, CountMode.NONE, Sort.descending("id"), 0, 10),
+				" order by ", "TREATMENTS_PATIENT_INDEX");
+	}
+
+	/**
+	 * Should obtain the action feedback of a treatment with the index.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see TreatmentEntity#retrieveTreatmentHistory
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldSearchActionFeedbackOfTreatmentWithIndex(TransactionalUniAsserter asserter) {
+
+		assertUseIndex(asserter,
+				() -> TreatmentEntities.nextRandom()
+						.chain(treatment -> TreatmentEntity.retrieveTreatmentHistory(treatment.id)),
+				TreatmentActionFeedbackEntity.TABLE_NAME, "TREATMENT_ACTION_FEEDBACKS_TREATMENT_INDEX");
+	}
+
+	/**
+	 * Should obtain the value feedback of a treatment with the index.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see TreatmentEntity#retrieveTreatmentHistory
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldSearchValueFeedbackOfTreatmentWithIndex(TransactionalUniAsserter asserter) {
+
+		assertUseIndex(asserter,
+				() -> TreatmentEntities.nextRandom()
+						.chain(treatment -> TreatmentEntity.retrieveTreatmentHistory(treatment.id)),
+				TreatmentValueFeedbackEntity.TABLE_NAME, "TREATMENT_VALUE_FEEDBACKS_TREATMENT_INDEX");
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.vertx.RunOnVertxContext;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Test the {@link SequenceIdentifiers}.
+ *
+ * @see SequenceIdentifiers
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class SequenceIdentifiersTest {
+
+	/**
+	 * The sequence to use in the tests.
+	 */
+	private static final String SEQUENCE_NAME = TreatmentActionFeedbackEntity.TABLE_NAME + "_SEQ";
+
+	/**
+	 * Should obtain different positive identifiers calling the sequence once for
+	 * each block.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldReserveIdentifiersByBlocks(TransactionalUniAsserter asserter) {
+
+		final var count = SequenceIdentifiers.INCREMENT + 1;
+		asserter.assertThat(() -> SequenceIdentifiers.next(SEQUENCE_NAME, count),
+				ids -> asserter.putData("FIRST", ids));
+		asserter.assertThat(() -> SequenceIdentifiers.next(SEQUENCE_NAME, count), second -> {
+
+			@SuppressWarnings("unchecked")
+			final var first = (List<Long>) asserter.getData("FIRST");
+			final var ids = new HashSet<Long>(first);
+			ids.addAll(second);
+			assertEquals(2 * count, ids.size());
+			for (final var id : ids) {
+
+				assertTrue(id > 0, "Not positive identifier");
+			}
+			assertTrue(second.get(second.size() - 1) - first.get(0) < 4 * SequenceIdentifiers.INCREMENT,
+					"The identifiers are not in consecutive blocks");
+		});
+		asserter.assertThat(() -> {
+
+			@SuppressWarnings("unchecked")
+			final var first = (List<Long>) asserter.getData("FIRST");
+			final Uni<Long> next = Panache.getSession().chain(session -> session
+					.createNativeQuery("select nextval('" + SEQUENCE_NAME + "')", Long.class).getSingleResult());
+			return next.map(last -> first.stream().allMatch(id -> id <= last - SequenceIdentifiers.INCREMENT));
+
+		}, reserved -> assertTrue(reserved, "The sequence can return a reserved identifier"));
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Count the SQL statements that Hibernate sends to the database. It listen for
+ * the statements that are logged on the {@link #SQL_LOGGER_NAME}, so this
+ * logger must be enabled at debug level on the test profile.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class SqlStatementCounter extends Handler {
+
+	/**
+	 * The name of the logger where Hibernate logs the SQL statements.
+	 */
+	public static final String SQL_LOGGER_NAME = "org.hibernate.SQL";
+
+	/**
+	 * The counter that is listening for the statements.
+	 */
+	private static SqlStatementCounter instance;
+
+	/**
+	 * The statements that have been executed.
+	 */
+	private final List<String> statements = new ArrayList<>();
+
+	/**
+	 * Create the counter.
+	 */
+	private SqlStatementCounter() {
+
+		this.setLevel(Level.ALL);
+	}
+
+	/**
+	 * Start to count the statements. This forgets the previous statements and also
+	 * clears the current session, thus the next operations can not obtain the
+	 * entities from it.
+	 *
+	 * @return nothing when the counter is started.
+	 */
+	public static synchronized Uni<Void> start() {
+
+		if (instance == null) {
+
+			instance = new SqlStatementCounter();
+			Logger.getLogger(SQL_LOGGER_NAME).addHandler(instance);
+		}
+		return Panache.getSession().invoke(Mutiny.Session::clear).invoke(() -> {
+
+			synchronized (instance.statements) {
+
+				instance.statements.clear();
+			}
+
+		}).replaceWithVoid();
+	}
+
+	/**
+	 * Return the statements that have been executed since the counter has been
+	 * started.
+	 *
+	 * @return the executed statements.
+	 */
+	public static synchronized List<String> statements() {
+
+		if (instance == null) {
+
+			return new ArrayList<>();
+
+		} else {
+
+			synchronized (instance.statements) {
+
+				return new ArrayList<>(instance.statements);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void publish(LogRecord record) {
+
+		if (record != null && record.getMessage() != null) {
+
+			synchronized (this.statements) {
+
+				this.statements.add(record.getMessage());
+			}
+		}
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() {
+
+		// Nothing to flush
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws SecurityException {
+
+		// Nothing to close
+	}
+
+}
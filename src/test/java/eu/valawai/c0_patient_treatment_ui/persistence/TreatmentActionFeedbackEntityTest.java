@@ -9,9 +9,15 @@
 package eu.valawai.c0_patient_treatment_ui.persistence;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import eu.valawai.c0_patient_treatment_ui.TimeManager;
@@ -19,10 +25,12 @@ import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayload;
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayloadTest;
 import eu.valawai.c0_patient_treatment_ui.models.TreatmentAction;
+import io.quarkus.panache.common.Sort;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.vertx.RunOnVertxContext;
+import io.smallrye.mutiny.Uni;
 
 /**
  * Test the {@link TreatmentActionFeedbackEntity}.
@@ -45,7 +53,7 @@ public class TreatmentActionFeedbackEntityTest {
 		asserter.assertFailedWith(() -> {
 
 			final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
-			return TreatmentActionFeedbackEntity.store(payload);
+			return TreatmentActionFeedbackEntities.store(payload);
 
 		}, NumberFormatException.class);
 	}
@@ -65,7 +73,7 @@ public class TreatmentActionFeedbackEntityTest {
 			final Long undefined = (Long) asserter.getData("UNDEFINED");
 			final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
 			payload.treatment_id = String.valueOf(undefined);
-			return TreatmentActionFeedbackEntity.store(payload);
+			return TreatmentActionFeedbackEntities.store(payload);
 
 		}, IllegalArgumentException.class);
 	}
@@ -93,7 +101,7 @@ public class TreatmentActionFeedbackEntityTest {
 					break;
 				}
 			}
-			return TreatmentActionFeedbackEntity.store(payload);
+			return TreatmentActionFeedbackEntities.store(payload);
 
 		}, IllegalArgumentException.class);
 	}
@@ -108,6 +116,12 @@ public class TreatmentActionFeedbackEntityTest {
 	public void shouldPersist(TransactionalUniAsserter asserter) {
 
 		asserter.assertThat(() -> TreatmentEntities.last(), last -> asserter.putData("LAST", last));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
+			return TreatmentActionFeedbackEntity.count("treatment.id", last.id);
+
+		}, before -> asserter.putData("BEFORE", before));
 		asserter.assertThat(() -> {
 
 			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
@@ -116,7 +130,7 @@ public class TreatmentActionFeedbackEntityTest {
 			payload.action = ValueGenerator.next(last.treatmentActions);
 			asserter.putData("PAYLOAD", payload);
 			asserter.putData("NOW", TimeManager.now());
-			return TreatmentActionFeedbackEntity.store(payload);
+			return TreatmentActionFeedbackEntities.store(payload);
 
 		}, stored -> {
 
@@ -133,15 +147,8 @@ public class TreatmentActionFeedbackEntityTest {
 		}, updated -> {
 
 			assertNotNull(updated.actionFeedbacks);
-			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
-			if (last.actionFeedbacks == null) {
-
-				assertEquals(1, updated.actionFeedbacks.size());
-
-			} else {
-
-				assertEquals(last.actionFeedbacks.size() + 1, updated.actionFeedbacks.size());
-			}
+			final long before = (Long) asserter.getData("BEFORE");
+			assertEquals(before + 1, updated.actionFeedbacks.size());
 
 			final TreatmentActionFeedbackEntity stored = (TreatmentActionFeedbackEntity) asserter.getData("PERSISTED");
 			var found = false;
@@ -163,4 +170,186 @@ public class TreatmentActionFeedbackEntityTest {
 		});
 	}
 
+	/**
+	 * Should store some feedback together.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldStoreAll(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.undefined(), undefined -> asserter.putData("UNDEFINED", undefined));
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(1), treatment -> asserter.putData("TREATMENT", treatment));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final var action = treatment.treatmentActions.get(0);
+			final var payloads = new ArrayList<TreatmentActionFeedbackPayload>();
+			payloads.add(new TreatmentActionFeedbackPayloadTest().nextModel());
+			final var undefined = new TreatmentActionFeedbackPayloadTest().nextModel();
+			undefined.treatment_id = String.valueOf(asserter.getData("UNDEFINED"));
+			payloads.add(undefined);
+			final var undefinedAction = new TreatmentActionFeedbackPayloadTest().nextModel();
+			undefinedAction.treatment_id = String.valueOf(treatment.id);
+			for (final var candidate : TreatmentAction.values()) {
+
+				if (candidate != action) {
+
+					undefinedAction.action = candidate;
+					break;
+				}
+			}
+			payloads.add(undefinedAction);
+			for (var i = 0; i < 2; i++) {
+
+				final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+				payload.treatment_id = String.valueOf(treatment.id);
+				payload.action = action;
+				payloads.add(payload);
+			}
+			asserter.putData("PAYLOADS", payloads);
+			return TreatmentActionFeedbackEntity.storeAll(payloads, Collections.nCopies(payloads.size(), (String) null),
+					Collections.nCopies(payloads.size(), TimeManager.now()));
+
+		}, errors -> {
+
+			assertEquals(5, errors.size());
+			assertTrue(errors.get(0) instanceof NumberFormatException);
+			assertTrue(errors.get(1) instanceof IllegalArgumentException);
+			assertTrue(errors.get(2) instanceof IllegalArgumentException);
+			assertNull(errors.get(3));
+			assertNull(errors.get(4));
+
+		});
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentActionFeedbackEntity.count("treatment.id", treatment.id);
+
+		}, stored -> assertEquals(2l, (long) stored));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentActionStateEntity.listFor(treatment.id);
+
+		}, states -> {
+
+			assertEquals(1, states.size());
+			@SuppressWarnings("unchecked")
+			final List<TreatmentActionFeedbackPayload> payloads = (List<TreatmentActionFeedbackPayload>) asserter
+					.getData("PAYLOADS");
+			final var last = payloads.get(4);
+			assertEquals(last.action, states.get(0).action);
+			assertEquals(last.feedback, states.get(0).feedback);
+
+		});
+	}
+
+	/**
+	 * Should not store twice the feedback of the same message, and report it as
+	 * duplicated.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotStoreTwiceSameMessage(TransactionalUniAsserter asserter) {
+
+		final var messageKey = ValueGenerator.nextPattern("message_{0}");
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), treatment -> asserter.putData("TREATMENT", treatment));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+			payload.treatment_id = String.valueOf(treatment.id);
+			payload.action = treatment.treatmentActions.get(0);
+			asserter.putData("PAYLOAD", payload);
+			final var now = TimeManager.now();
+			return TreatmentActionFeedbackEntity.storeAll(List.of(payload, payload), Arrays.asList(messageKey, messageKey),
+					List.of(now, now));
+
+		}, errors -> {
+
+			assertNull(errors.get(0));
+			assertTrue(errors.get(1) instanceof DuplicatedFeedbackException);
+		});
+		asserter.assertThat(() -> {
+
+			final TreatmentActionFeedbackPayload payload = (TreatmentActionFeedbackPayload) asserter.getData("PAYLOAD");
+			return TreatmentActionFeedbackEntity.storeAll(List.of(payload), List.of(messageKey), List.of(TimeManager.now()));
+
+		}, errors -> assertTrue(errors.get(0) instanceof DuplicatedFeedbackException));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentActionFeedbackEntity.count("treatment.id", treatment.id);
+
+		}, stored -> assertEquals(1l, (long) stored));
+	}
+
+	/**
+	 * Should not replace the state with the feedback of a retried message that has
+	 * been received before a newer feedback. It is what happens when a batch fails
+	 * and its feedback are stored after the next feedback of the same treatment.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotReplaceNewerFeedbackWithRetriedOne(TransactionalUniAsserter asserter) {
+
+		final var receivedTime = TimeManager.now() - 60;
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(1), treatment -> asserter.putData("TREATMENT", treatment));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final var retried = new TreatmentActionFeedbackPayloadTest().nextModel();
+			retried.treatment_id = String.valueOf(treatment.id);
+			retried.action = treatment.treatmentActions.get(0);
+			asserter.putData("RETRIED", retried);
+			final var newer = new TreatmentActionFeedbackPayloadTest().nextModel();
+			newer.treatment_id = retried.treatment_id;
+			newer.action = retried.action;
+			asserter.putData("NEWER", newer);
+			return TreatmentActionFeedbackEntity.storeAll(List.of(newer), Arrays.asList((String) null),
+					List.of(receivedTime + 30));
+
+		}, errors -> assertEquals(Arrays.asList((Throwable) null), errors));
+		asserter.assertThat(() -> {
+
+			final TreatmentActionFeedbackPayload retried = (TreatmentActionFeedbackPayload) asserter.getData("RETRIED");
+			return TreatmentActionFeedbackEntity.storeAll(List.of(retried), Arrays.asList((String) null), List.of(receivedTime));
+
+		}, errors -> assertEquals(Arrays.asList((Throwable) null), errors));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentActionStateEntity.listFor(treatment.id);
+
+		}, states -> {
+
+			assertEquals(1, states.size());
+			final TreatmentActionFeedbackPayload newer = (TreatmentActionFeedbackPayload) asserter.getData("NEWER");
+			assertEquals(newer.action, states.get(0).action);
+			assertEquals(newer.feedback, states.get(0).feedback);
+			assertEquals(receivedTime + 30, states.get(0).updatedTime);
+
+		});
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final Uni<List<TreatmentActionFeedbackEntity>> find = TreatmentActionFeedbackEntity.list("treatment.id",
+					Sort.ascending("createdTime"), treatment.id);
+			return find;
+
+		}, feedbacks -> {
+
+			assertEquals(2, feedbacks.size());
+			assertEquals(receivedTime, feedbacks.get(0).createdTime);
+			assertEquals(receivedTime + 30, feedbacks.get(1).createdTime);
+
+		});
+	}
+
 }
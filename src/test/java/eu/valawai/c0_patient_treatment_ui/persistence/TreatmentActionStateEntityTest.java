@@ -0,0 +1,181 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedback;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentActionFeedbackPayloadTest;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.vertx.RunOnVertxContext;
+
+/**
+ * Test the {@link TreatmentActionStateEntity}.
+ *
+ * @see TreatmentActionStateEntity
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class TreatmentActionStateEntityTest {
+
+	/**
+	 * Should store the last feedback as the state of the action.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldUpdateStateWithLastFeedback(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(1), entity -> asserter.putData("ENTITY", entity));
+		for (final var feedback : TreatmentActionFeedback.values()) {
+
+			asserter.assertThat(() -> {
+
+				final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+				final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+				payload.treatment_id = String.valueOf(entity.id);
+				payload.action = entity.treatmentActions.get(0);
+				payload.feedback = feedback;
+				return TreatmentActionFeedbackEntities.store(payload);
+
+			}, stored -> asserter.putData("LAST", stored));
+		}
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentActionStateEntity.listFor(entity.id);
+
+		}, states -> {
+
+			final var last = (TreatmentActionFeedbackEntity) asserter.getData("LAST");
+			assertEquals(1, states.size());
+			final var state = states.get(0);
+			assertEquals(last.action, state.action);
+			assertEquals(last.feedback, state.feedback);
+			assertEquals(last.createdTime, state.updatedTime);
+
+		});
+
+	}
+
+	/**
+	 * Should not update the state with an older feedback.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotUpdateStateWithOlderFeedback(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(1), entity -> asserter.putData("ENTITY", entity));
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+			payload.treatment_id = String.valueOf(entity.id);
+			payload.action = entity.treatmentActions.get(0);
+			return TreatmentActionFeedbackEntities.store(payload);
+
+		}, stored -> asserter.putData("LAST", stored));
+		asserter.execute(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var last = (TreatmentActionFeedbackEntity) asserter.getData("LAST");
+			final var older = new TreatmentActionFeedbackEntity();
+			older.treatment = entity;
+			older.action = last.action;
+			older.feedback = ValueGenerator.next(TreatmentActionFeedback.values());
+			older.createdTime = last.createdTime - 1;
+			return TreatmentActionStateEntity.update(older);
+
+		});
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentActionStateEntity.listFor(entity.id);
+
+		}, states -> {
+
+			final var last = (TreatmentActionFeedbackEntity) asserter.getData("LAST");
+			assertEquals(1, states.size());
+			assertEquals(last.feedback, states.get(0).feedback);
+			assertEquals(last.createdTime, states.get(0).updatedTime);
+
+		});
+
+	}
+
+	/**
+	 * Should increase the version of the treatment only when the state changes.
+	 *
+	 * @param asserter to use in the tests.
+	 *
+	 * @see TreatmentEntity#versionOf(long)
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldIncreaseVersionOnlyWhenStateChanges(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(1), entity -> asserter.putData("ENTITY", entity));
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentEntity.versionOf(entity.id);
+
+		}, version -> asserter.putData("CREATED", version.tag));
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var payload = new TreatmentActionFeedbackPayloadTest().nextModel();
+			payload.treatment_id = String.valueOf(entity.id);
+			payload.action = entity.treatmentActions.get(0);
+			return TreatmentActionFeedbackEntities.store(payload);
+
+		}, stored -> asserter.putData("LAST", stored));
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentEntity.versionOf(entity.id);
+
+		}, version -> {
+
+			assertNotEquals(asserter.getData("CREATED"), version.tag);
+			asserter.putData("UPDATED", version.tag);
+		});
+		asserter.execute(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var last = (TreatmentActionFeedbackEntity) asserter.getData("LAST");
+			final var older = new TreatmentActionFeedbackEntity();
+			older.treatment = entity;
+			older.action = last.action;
+			older.feedback = ValueGenerator.next(TreatmentActionFeedback.values());
+			older.createdTime = last.createdTime - 1;
+			return TreatmentActionStateEntity.update(older);
+
+		});
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentEntity.versionOf(entity.id);
+
+		}, version -> assertEquals(asserter.getData("UPDATED"), version.tag));
+
+	}
+
+}
@@ -10,7 +10,9 @@ package eu.valawai.c0_patient_treatment_ui.persistence;
 
 import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
@@ -20,12 +22,15 @@ import java.util.UUID;
 import org.junit.jupiter.api.Test;
 
 import eu.valawai.c0_patient_treatment_ui.api.v1.treatments.MinTreatmentPage;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayloadTest;
+import io.quarkus.hibernate.reactive.panache.Panache;
 import io.quarkus.panache.common.Sort;
 import io.quarkus.panache.common.Sort.Direction;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.vertx.RunOnVertxContext;
+import io.quarkus.vertx.VertxContextSupport;
 import io.smallrye.mutiny.Uni;
 
 /**
@@ -69,6 +74,78 @@ public class TreatmentEntityTest {
 		});
 	}
 
+	/**
+	 * Should retrieve a treatment with its details using two statements.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrieveWithTwoStatements(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.last(), last -> asserter.putData("LAST", last));
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
+			return TreatmentEntity.retrieve(last.id).map(retrieved -> retrieved.toTreatment());
+
+		}, treatment -> {
+
+			assertNotNull(treatment.patient);
+			assertNotNull(treatment.beforeStatus);
+			assertNotNull(treatment.expectedStatus);
+			final var statements = SqlStatementCounter.statements();
+			assertEquals(2, statements.size(), statements.toString());
+
+		});
+	}
+
+	/**
+	 * Should retrieve the reference of a treatment with only one statement.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldRetrieveReferenceWithOneStatement(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.last(), last -> asserter.putData("LAST", last));
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
+			return TreatmentEntity.retrieveReference(last.id);
+
+		}, retrieved -> {
+
+			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
+			assertEquals(last.id, retrieved.id);
+			assertEquals(last.treatmentActions, retrieved.treatmentActions);
+			final var statements = SqlStatementCounter.statements();
+			assertEquals(1, statements.size(), statements.toString());
+
+		});
+	}
+
+	/**
+	 * Should not retrieve the reference of an undefined treatment.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotRetrieveReference(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.undefined(), undefined -> asserter.putData("UNDEFINED", undefined));
+		asserter.assertFailedWith(() -> {
+
+			final Long undefined = (Long) asserter.getData("UNDEFINED");
+			return TreatmentEntity.retrieveReference(undefined);
+
+		}, IllegalArgumentException.class);
+	}
+
 	/**
 	 * Should retrieve a treatment status criteria.
 	 *
@@ -115,6 +192,46 @@ public class TreatmentEntityTest {
 		}, IllegalArgumentException.class);
 	}
 
+	/**
+	 * Should not delete any part of a treatment if one of the statements fails.
+	 *
+	 * @throws Throwable if cannot prepare the treatment to delete.
+	 */
+	@Test
+	public void shouldNotDeletePartiallyWhenStatementFails() throws Throwable {
+
+		final TreatmentEntity treatment = VertxContextSupport
+				.subscribeAndAwait(() -> Panache.withTransaction(() -> TreatmentEntities.nextRandom()));
+		final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+		payload.treatment_id = String.valueOf(treatment.id);
+		VertxContextSupport
+				.subscribeAndAwait(() -> Panache.withTransaction(() -> TreatmentValueFeedbackEntities.store(payload)));
+		VertxContextSupport.subscribeAndAwait(() -> Panache.withTransaction(() -> Panache.getSession()
+				.chain(session -> session.createNativeQuery(
+						"create table TREATMENT_DELETE_LOCKS (treatment_id bigint references TREATMENTS(id))")
+						.executeUpdate()
+						.chain(() -> session.createNativeQuery("insert into TREATMENT_DELETE_LOCKS values (?1)")
+								.setParameter(1, treatment.id).executeUpdate()))));
+		try {
+
+			final var error = assertThrows(Throwable.class,
+					() -> VertxContextSupport.subscribeAndAwait(() -> TreatmentEntity.delete(treatment.id)));
+			assertFalse(error instanceof IllegalArgumentException, error.toString());
+			final long feedbacks = VertxContextSupport.subscribeAndAwait(
+					() -> Panache.withSession(() -> TreatmentValueFeedbackEntity.count("treatment.id", treatment.id)));
+			assertEquals(1L, feedbacks);
+			final long states = VertxContextSupport.subscribeAndAwait(
+					() -> Panache.withSession(() -> TreatmentValueStateEntity.count("treatmentId", treatment.id)));
+			assertEquals(1L, states);
+
+		} finally {
+
+			VertxContextSupport.subscribeAndAwait(() -> Panache.withTransaction(() -> Panache.getSession()
+					.chain(session -> session.createNativeQuery("drop table TREATMENT_DELETE_LOCKS").executeUpdate())
+					.chain(() -> TreatmentEntity.delete(treatment.id))));
+		}
+	}
+
 	/**
 	 * Should return an empty min treatment page when no pattern.
 	 *
@@ -191,6 +308,54 @@ public class TreatmentEntityTest {
 
 	}
 
+	/**
+	 * Should get a page of treatments with only the count and the select
+	 * statements.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldGetMinTreatmentPageForPatientNameWithTwoStatements(TransactionalUniAsserter asserter) {
+
+		final var limit = 20;
+		asserter.execute(() -> TreatmentEntities.populateWith(100));
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.assertThat(
+				() -> TreatmentEntity.getMinTreatmentPageForPatientName("%", Sort.ascending("patient.name"), 0, limit),
+				found -> {
+
+					assertNotNull(found.treatments);
+					assertEquals(limit, found.treatments.size());
+					final var statements = SqlStatementCounter.statements();
+					assertEquals(2, statements.size(), statements.toString());
+				});
+
+	}
+
+	/**
+	 * Should get a page of treatments after a cursor with only one statement.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldGetMinTreatmentPageForPatientNameAfterWithOneStatement(TransactionalUniAsserter asserter) {
+
+		final var limit = 20;
+		asserter.execute(() -> TreatmentEntities.populateWith(100));
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.assertThat(() -> TreatmentEntity.getMinTreatmentPageForPatientNameAfter("%",
+				Sort.ascending("patient.name"), "", limit), found -> {
+
+					assertNotNull(found.treatments);
+					assertEquals(limit, found.treatments.size());
+					final var statements = SqlStatementCounter.statements();
+					assertEquals(1, statements.size(), statements.toString());
+				});
+
+	}
+
 	/**
 	 * Should get some treatments.
 	 *
@@ -207,7 +372,8 @@ public class TreatmentEntityTest {
 		asserter.execute(() -> TreatmentEntities.populateWith(100));
 		asserter.assertThat(() -> {
 
-			final Uni<List<TreatmentEntity>> find = TreatmentEntity.find("patient.name ILIKE ?1", sort, "% 1%").list();
+			final Uni<List<MinTreatmentProjection>> find = TreatmentEntity.find("patient.name ILIKE ?1", sort, "% 1%")
+					.project(MinTreatmentProjection.class).list();
 			return find;
 
 		}, all -> {
@@ -365,7 +531,8 @@ public class TreatmentEntityTest {
 		asserter.assertThat(() -> {
 
 			final var patient = (PatientEntity) asserter.getData("PATIENT");
-			final Uni<List<TreatmentEntity>> find = TreatmentEntity.find("patient.id = ?1", sort, patient.id).list();
+			final Uni<List<MinTreatmentProjection>> find = TreatmentEntity.find("patient.id = ?1", sort, patient.id)
+					.project(MinTreatmentProjection.class).list();
 			return find;
 
 		}, all -> {
@@ -390,4 +557,95 @@ public class TreatmentEntityTest {
 
 	}
 
+	/**
+	 * Should get the same treatments with a cursor than with an offset.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldGetMinTreatmentPageForPatientNameAfterLikeOffset(TransactionalUniAsserter asserter) {
+
+		final var sort = Sort.ascending("patient.name").and("createdTime", Direction.Descending).and("id",
+				Direction.Ascending);
+		final var limit = 7;
+		asserter.execute(() -> TreatmentEntities.populateWith(100));
+		asserter.assertThat(() -> TreatmentEntity.getMinTreatmentPageForPatientName("%", sort, limit, limit),
+				expected -> asserter.putData("EXPECTED", expected));
+		asserter.assertThat(() -> TreatmentEntity.getMinTreatmentPageForPatientNameAfter("%", sort, "", limit),
+				first -> {
+
+					assertNotNull(first.treatments);
+					assertEquals(limit, first.treatments.size());
+					assertNotNull(first.next);
+					asserter.putData("FIRST", first);
+
+				});
+		asserter.assertThat(() -> {
+
+			final var first = (MinTreatmentPage) asserter.getData("FIRST");
+			return TreatmentEntity.getMinTreatmentPageForPatientNameAfter("%", sort, first.next, limit);
+
+		}, second -> {
+
+			final var expected = (MinTreatmentPage) asserter.getData("EXPECTED");
+			assertEquals(expected.treatments, second.treatments);
+			assertNotNull(second.next);
+		});
+
+	}
+
+	/**
+	 * Should fail for a bad cursor.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotGetMinTreatmentPageForPatientNameAfterBadCursor(TransactionalUniAsserter asserter) {
+
+		asserter.assertFailedWith(() -> TreatmentEntity.getMinTreatmentPageForPatientNameAfter("%",
+				Sort.ascending("id"), UUID.randomUUID().toString(), 10), IllegalArgumentException.class);
+
+	}
+
+	/**
+	 * Should get all the treatments of a patient following the cursors.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldGetMinTreatmentPageForPatientAfter(TransactionalUniAsserter asserter) {
+
+		final var expected = new MinTreatmentPage();
+		final var limit = 3;
+		final var sort = Sort.descending("createdTime").and("id", Direction.Descending);
+		asserter.assertThat(() -> PatientEntities.nextRandom(), patient -> asserter.putData("PATIENT", patient));
+		asserter.execute(() -> {
+			final var patient = (PatientEntity) asserter.getData("PATIENT");
+			return TreatmentEntities.populateWith(patient, limit * 2);
+		});
+		asserter.assertThat(() -> {
+
+			final var patient = (PatientEntity) asserter.getData("PATIENT");
+			return TreatmentEntity.getMinTreatmentPageForPatient(patient.id, sort, limit, limit);
+
+		}, page -> expected.treatments = page.treatments);
+		asserter.assertThat(() -> {
+
+			final var patient = (PatientEntity) asserter.getData("PATIENT");
+			return TreatmentEntity.getMinTreatmentPageForPatientAfter(patient.id, sort, null, limit)
+					.chain(first -> TreatmentEntity.getMinTreatmentPageForPatientAfter(patient.id, sort, first.next,
+							limit));
+
+		}, second -> {
+
+			assertEquals(expected.treatments, second.treatments);
+			assertNull(second.next);
+
+		});
+
+	}
+
 }
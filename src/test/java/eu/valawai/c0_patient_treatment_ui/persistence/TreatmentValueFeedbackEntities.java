@@ -0,0 +1,56 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import java.util.Collections;
+import java.util.List;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayload;
+import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Utility classes to manage the {@link TreatmentValueFeedbackEntity} over tests.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TreatmentValueFeedbackEntities {
+
+	/**
+	 * Store a feedback as it is received now, without message key.
+	 *
+	 * @param payload with the feedback to store.
+	 *
+	 * @return the stored feedback, or the error why it cannot be stored.
+	 *
+	 * @see TreatmentValueFeedbackEntity#storeAll(List, List, List)
+	 */
+	public static Uni<TreatmentValueFeedbackEntity> store(TreatmentValueFeedbackPayload payload) {
+
+		return TreatmentValueFeedbackEntity
+				.storeAll(List.of(payload), Collections.singletonList(null), List.of(TimeManager.now()))
+				.chain(errors -> {
+
+					final var error = errors.get(0);
+					if (error != null) {
+
+						return Uni.createFrom().failure(error);
+
+					} else {
+
+						final var id = Long.parseLong(payload.treatment_id);
+						final Uni<TreatmentValueFeedbackEntity> find = TreatmentValueFeedbackEntity
+								.find("treatment.id", Sort.descending("id"), id).firstResult();
+						return find;
+					}
+				});
+	}
+
+}
@@ -9,18 +9,28 @@
 package eu.valawai.c0_patient_treatment_ui.persistence;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayload;
 import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayloadTest;
+import io.quarkus.panache.common.Sort;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.vertx.RunOnVertxContext;
+import io.smallrye.mutiny.Uni;
 
 /**
  * Test the {@link TreatmentValueFeedbackEntity}.
@@ -43,7 +53,7 @@ public class TreatmentValueFeedbackEntityTest {
 		asserter.assertFailedWith(() -> {
 
 			final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
-			return TreatmentValueFeedbackEntity.store(payload);
+			return TreatmentValueFeedbackEntities.store(payload);
 
 		}, NumberFormatException.class);
 	}
@@ -63,7 +73,7 @@ public class TreatmentValueFeedbackEntityTest {
 			final Long undefined = (Long) asserter.getData("UNDEFINED");
 			final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
 			payload.treatment_id = String.valueOf(undefined);
-			return TreatmentValueFeedbackEntity.store(payload);
+			return TreatmentValueFeedbackEntities.store(payload);
 
 		}, IllegalArgumentException.class);
 	}
@@ -78,6 +88,12 @@ public class TreatmentValueFeedbackEntityTest {
 	public void shouldPersist(TransactionalUniAsserter asserter) {
 
 		asserter.assertThat(() -> TreatmentEntities.last(), last -> asserter.putData("LAST", last));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
+			return TreatmentValueFeedbackEntity.count("treatment.id", last.id);
+
+		}, before -> asserter.putData("BEFORE", before));
 		asserter.assertThat(() -> {
 
 			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
@@ -85,7 +101,7 @@ public class TreatmentValueFeedbackEntityTest {
 			payload.treatment_id = String.valueOf(last.id);
 			asserter.putData("PAYLOAD", payload);
 			asserter.putData("NOW", TimeManager.now());
-			return TreatmentValueFeedbackEntity.store(payload);
+			return TreatmentValueFeedbackEntities.store(payload);
 
 		}, stored -> {
 
@@ -102,15 +118,8 @@ public class TreatmentValueFeedbackEntityTest {
 		}, updated -> {
 
 			assertNotNull(updated.valueFeedbacks);
-			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
-			if (last.valueFeedbacks == null) {
-
-				assertEquals(1, updated.valueFeedbacks.size());
-
-			} else {
-
-				assertEquals(last.valueFeedbacks.size() + 1, updated.valueFeedbacks.size());
-			}
+			final long before = (Long) asserter.getData("BEFORE");
+			assertEquals(before + 1, updated.valueFeedbacks.size());
 
 			final TreatmentValueFeedbackEntity stored = (TreatmentValueFeedbackEntity) asserter.getData("PERSISTED");
 			var found = false;
@@ -132,4 +141,203 @@ public class TreatmentValueFeedbackEntityTest {
 		});
 	}
 
+	/**
+	 * Should store a feedback without loading the details of the treatment.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldStoreWithoutLoadingTreatmentDetails(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.last(), last -> asserter.putData("LAST", last));
+		asserter.execute(() -> SqlStatementCounter.start());
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity last = (TreatmentEntity) asserter.getData("LAST");
+			final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+			payload.treatment_id = String.valueOf(last.id);
+			return TreatmentValueFeedbackEntity.storeAll(List.of(payload), Collections.singletonList(null),
+					List.of(TimeManager.now()));
+
+		}, errors -> {
+
+			assertNull(errors.get(0));
+			final var statements = SqlStatementCounter.statements();
+			assertTrue(statements.toString(), statements.size() <= 4);
+			for (final var statement : statements) {
+
+				assertFalse(statement, statement.toLowerCase().contains(" join "));
+			}
+
+		});
+	}
+
+	/**
+	 * Should store some feedback together.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldStoreAll(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.undefined(), undefined -> asserter.putData("UNDEFINED", undefined));
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), treatment -> asserter.putData("TREATMENT", treatment));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final var payloads = new ArrayList<TreatmentValueFeedbackPayload>();
+			payloads.add(new TreatmentValueFeedbackPayloadTest().nextModel());
+			final var undefined = new TreatmentValueFeedbackPayloadTest().nextModel();
+			undefined.treatment_id = String.valueOf(asserter.getData("UNDEFINED"));
+			payloads.add(undefined);
+			final var first = new TreatmentValueFeedbackPayloadTest().nextModel();
+			first.treatment_id = String.valueOf(treatment.id);
+			payloads.add(first);
+			final var second = new TreatmentValueFeedbackPayloadTest().nextModel();
+			second.treatment_id = String.valueOf(treatment.id);
+			second.value_name = first.value_name.toLowerCase();
+			payloads.add(second);
+			asserter.putData("PAYLOADS", payloads);
+			return TreatmentValueFeedbackEntity.storeAll(payloads, Collections.nCopies(payloads.size(), (String) null),
+					Collections.nCopies(payloads.size(), TimeManager.now()));
+
+		}, errors -> {
+
+			assertEquals(4, errors.size());
+			assertTrue(errors.get(0) instanceof NumberFormatException);
+			assertTrue(errors.get(1) instanceof IllegalArgumentException);
+			assertNull(errors.get(2));
+			assertNull(errors.get(3));
+
+		});
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentValueFeedbackEntity.count("treatment.id", treatment.id);
+
+		}, stored -> assertEquals(2l, (long) stored));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentValueStateEntity.listFor(treatment.id);
+
+		}, states -> {
+
+			assertEquals(1, states.size());
+			@SuppressWarnings("unchecked")
+			final List<TreatmentValueFeedbackPayload> payloads = (List<TreatmentValueFeedbackPayload>) asserter
+					.getData("PAYLOADS");
+			final var last = payloads.get(3);
+			assertEquals(TreatmentValueStateEntity.normalize(last.value_name), states.get(0).valueName);
+			assertEquals(last.alignment, states.get(0).alignment, 0.0000001d);
+
+		});
+	}
+
+	/**
+	 * Should not store twice the feedback of the same message, and report it as
+	 * duplicated.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotStoreTwiceSameMessage(TransactionalUniAsserter asserter) {
+
+		final var messageKey = ValueGenerator.nextPattern("message_{0}");
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), treatment -> asserter.putData("TREATMENT", treatment));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+			payload.treatment_id = String.valueOf(treatment.id);
+			asserter.putData("PAYLOAD", payload);
+			final var now = TimeManager.now();
+			return TreatmentValueFeedbackEntity.storeAll(List.of(payload, payload), Arrays.asList(messageKey, messageKey),
+					List.of(now, now));
+
+		}, errors -> {
+
+			assertNull(errors.get(0));
+			assertTrue(errors.get(1) instanceof DuplicatedFeedbackException);
+		});
+		asserter.assertThat(() -> {
+
+			final TreatmentValueFeedbackPayload payload = (TreatmentValueFeedbackPayload) asserter.getData("PAYLOAD");
+			return TreatmentValueFeedbackEntity.storeAll(List.of(payload), List.of(messageKey), List.of(TimeManager.now()));
+
+		}, errors -> assertTrue(errors.get(0) instanceof DuplicatedFeedbackException));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentValueFeedbackEntity.count("treatment.id", treatment.id);
+
+		}, stored -> assertEquals(1l, (long) stored));
+	}
+
+	/**
+	 * Should not replace the state with the feedback of a retried message that has
+	 * been received before a newer feedback. It is what happens when a batch fails
+	 * and its feedback are stored after the next feedback of the same treatment.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotReplaceNewerFeedbackWithRetriedOne(TransactionalUniAsserter asserter) {
+
+		final var receivedTime = TimeManager.now() - 60;
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), treatment -> asserter.putData("TREATMENT", treatment));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final var retried = new TreatmentValueFeedbackPayloadTest().nextModel();
+			retried.treatment_id = String.valueOf(treatment.id);
+			asserter.putData("RETRIED", retried);
+			final var newer = new TreatmentValueFeedbackPayloadTest().nextModel();
+			newer.treatment_id = retried.treatment_id;
+			newer.value_name = retried.value_name;
+			asserter.putData("NEWER", newer);
+			return TreatmentValueFeedbackEntity.storeAll(List.of(newer), Arrays.asList((String) null),
+					List.of(receivedTime + 30));
+
+		}, errors -> assertEquals(Arrays.asList((Throwable) null), errors));
+		asserter.assertThat(() -> {
+
+			final TreatmentValueFeedbackPayload retried = (TreatmentValueFeedbackPayload) asserter.getData("RETRIED");
+			return TreatmentValueFeedbackEntity.storeAll(List.of(retried), Arrays.asList((String) null), List.of(receivedTime));
+
+		}, errors -> assertEquals(Arrays.asList((Throwable) null), errors));
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			return TreatmentValueStateEntity.listFor(treatment.id);
+
+		}, states -> {
+
+			assertEquals(1, states.size());
+			final TreatmentValueFeedbackPayload newer = (TreatmentValueFeedbackPayload) asserter.getData("NEWER");
+			assertEquals(TreatmentValueStateEntity.normalize(newer.value_name), states.get(0).valueName);
+			assertEquals(newer.alignment, states.get(0).alignment, 0.0000001d);
+			assertEquals(receivedTime + 30, states.get(0).updatedTime);
+
+		});
+		asserter.assertThat(() -> {
+
+			final TreatmentEntity treatment = (TreatmentEntity) asserter.getData("TREATMENT");
+			final Uni<List<TreatmentValueFeedbackEntity>> find = TreatmentValueFeedbackEntity.list("treatment.id",
+					Sort.ascending("createdTime"), treatment.id);
+			return find;
+
+		}, feedbacks -> {
+
+			assertEquals(2, feedbacks.size());
+			assertEquals(receivedTime, feedbacks.get(0).createdTime);
+			assertEquals(receivedTime + 30, feedbacks.get(1).createdTime);
+
+		});
+	}
+
 }
@@ -0,0 +1,167 @@
+/*
+  Copyright 2022-2026 VALAWAI
+
+  Use of this source code is governed by GNU General Public License version 3
+  license that can be found in the LICENSE file or at
+  https://opensource.org/license/gpl-3-0/
+*/
+
+package eu.valawai.c0_patient_treatment_ui.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import eu.valawai.c0_patient_treatment_ui.TimeManager;
+import eu.valawai.c0_patient_treatment_ui.ValueGenerator;
+import eu.valawai.c0_patient_treatment_ui.messages.TreatmentValueFeedbackPayloadTest;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.hibernate.reactive.panache.TransactionalUniAsserter;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.vertx.RunOnVertxContext;
+
+/**
+ * Test the {@link TreatmentValueStateEntity}.
+ *
+ * @see TreatmentValueStateEntity
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@QuarkusTest
+@QuarkusTestResource(PostgreSQLTestResource.class)
+public class TreatmentValueStateEntityTest {
+
+	/**
+	 * Should store the last alignment as the state of the value ignoring the case
+	 * of the value name.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldUpdateStateWithLastFeedback(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), entity -> asserter.putData("ENTITY", entity));
+		for (final var name : new String[] { "Justice", "justice", "JUSTICE" }) {
+
+			asserter.assertThat(() -> {
+
+				final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+				final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+				payload.treatment_id = String.valueOf(entity.id);
+				payload.value_name = name;
+				return TreatmentValueFeedbackEntities.store(payload);
+
+			}, stored -> asserter.putData("LAST", stored));
+		}
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentValueStateEntity.listFor(entity.id);
+
+		}, states -> {
+
+			final var last = (TreatmentValueFeedbackEntity) asserter.getData("LAST");
+			assertEquals(1, states.size());
+			final var state = states.get(0);
+			assertEquals("JUSTICE", state.valueName);
+			assertEquals(last.alignment, state.alignment, 0.0000001d);
+			assertEquals(last.createdTime, state.updatedTime);
+
+		});
+
+	}
+
+	/**
+	 * Should not update the state with an older feedback.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldNotUpdateStateWithOlderFeedback(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), entity -> asserter.putData("ENTITY", entity));
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var payload = new TreatmentValueFeedbackPayloadTest().nextModel();
+			payload.treatment_id = String.valueOf(entity.id);
+			return TreatmentValueFeedbackEntities.store(payload);
+
+		}, stored -> asserter.putData("LAST", stored));
+		asserter.execute(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			final var last = (TreatmentValueFeedbackEntity) asserter.getData("LAST");
+			final var older = new TreatmentValueFeedbackEntity();
+			older.treatment = entity;
+			older.valueName = last.valueName.toLowerCase();
+			older.alignment = ValueGenerator.rnd().nextDouble(-1d, 1d);
+			older.createdTime = last.createdTime - 1;
+			return TreatmentValueStateEntity.update(older);
+
+		});
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentValueStateEntity.listFor(entity.id);
+
+		}, states -> {
+
+			final var last = (TreatmentValueFeedbackEntity) asserter.getData("LAST");
+			assertEquals(1, states.size());
+			assertEquals(last.alignment, states.get(0).alignment, 0.0000001d);
+			assertEquals(last.createdTime, states.get(0).updatedTime);
+
+		});
+
+	}
+
+	/**
+	 * Should list the states in the order that the values have been reported for
+	 * the first time.
+	 *
+	 * @param asserter to use in the tests.
+	 */
+	@Test
+	@RunOnVertxContext
+	public void shouldListStatesInOrderOfAppearance(TransactionalUniAsserter asserter) {
+
+		asserter.assertThat(() -> TreatmentEntities.nextRandom(), entity -> asserter.putData("ENTITY", entity));
+		final var now = TimeManager.now();
+		final var names = new String[] { "Zeta", "Alpha", "zeta", "Beta" };
+		final var times = new long[] { now - 10, now - 5, now, now - 5 };
+		for (var i = 0; i < names.length; i++) {
+
+			final var name = names[i];
+			final var time = times[i];
+			asserter.execute(() -> {
+
+				final var feedback = new TreatmentValueFeedbackEntity();
+				feedback.treatment = (TreatmentEntity) asserter.getData("ENTITY");
+				feedback.valueName = name;
+				feedback.alignment = ValueGenerator.rnd().nextDouble(-1d, 1d);
+				feedback.createdTime = time;
+				return TreatmentValueStateEntity.update(feedback);
+
+			});
+		}
+		asserter.assertThat(() -> {
+
+			final var entity = (TreatmentEntity) asserter.getData("ENTITY");
+			return TreatmentValueStateEntity.listFor(entity.id);
+
+		}, states -> {
+
+			assertEquals(List.of("ZETA", "ALPHA", "BETA"), states.stream().map(state -> state.valueName).toList());
+			assertEquals(now - 10, states.get(0).createdTime);
+			assertEquals(now, states.get(0).updatedTime);
+
+		});
+
+	}
+
+}